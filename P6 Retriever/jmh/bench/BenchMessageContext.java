@@ -0,0 +1,54 @@
+package bench;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPMessage;
+import javax.xml.ws.handler.soap.SOAPMessageContext;
+
+/**
+ * Minimal {@link SOAPMessageContext} so handlers can be called directly, outside a JAX-WS runtime.
+ */
+class BenchMessageContext extends HashMap<String, Object> implements SOAPMessageContext {
+
+	private static final long serialVersionUID = 1L;
+
+	private SOAPMessage message;
+
+	BenchMessageContext(SOAPMessage message, boolean outbound) {
+		this.message = message;
+		put(MESSAGE_OUTBOUND_PROPERTY, Boolean.valueOf(outbound));
+	}
+
+	@Override
+	public SOAPMessage getMessage() {
+		return message;
+	}
+
+	@Override
+	public void setMessage(SOAPMessage message) {
+		this.message = message;
+	}
+
+	@Override
+	public Object[] getHeaders(QName header, JAXBContext context, boolean allRoles) {
+		return new Object[0];
+	}
+
+	@Override
+	public Set<String> getRoles() {
+		return Collections.emptySet();
+	}
+
+	@Override
+	public void setScope(String name, Scope scope) {
+	}
+
+	@Override
+	public Scope getScope(String name) {
+		return Scope.APPLICATION;
+	}
+}
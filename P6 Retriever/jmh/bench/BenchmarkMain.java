@@ -0,0 +1,28 @@
+package bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmark suite with the gc profiler and saves the results as JSON,
+ * so runs from before and after a change can be compared side by side (e.g. with jmh.morethan.io).
+ * Arguments: [result file, default jmh-result.json] [benchmark name pattern, default all].
+ */
+public class BenchmarkMain {
+
+	public static void main(String [] args) throws Exception {
+		String resultFile = args.length > 0 ? args[0] : "jmh-result.json";
+		String include = args.length > 1 ? args[1] : "bench\\..*Benchmark";
+
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.include(include)
+				.addProfiler("gc")
+				.forks(1)
+				.resultFormat(ResultFormatType.JSON)
+				.result(resultFile);
+		new Runner(options.build()).run();
+		System.out.println("Results written to " + resultFile);
+	}
+}
@@ -0,0 +1,103 @@
+package bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.MimeHeaders;
+import javax.xml.soap.SOAPMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import security.SecurityHandler;
+import write.AsyncLogAppender;
+import write.LogLevel;
+import write.LoggingHandler;
+
+/**
+ * Per message cost of the SOAP handlers P6Reader installs on each port, in microseconds per message.
+ * The logging benchmarks handle a ResourceHour read request and response of {@link Logging#responseRows} records at each {@link LogLevel},
+ * with entries discarded so only the handler's own work is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HandlerBenchmark {
+
+	private static final String READ_REQUEST = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Header/><soapenv:Body>"
+			+ "<ReadResourceHours xmlns=\"http://xmlns.oracle.com/Primavera/P6/WS/ResourceHour/V1\"><Field>ObjectId</Field><Field>Status</Field></ReadResourceHours>"
+			+ "</soapenv:Body></soapenv:Envelope>";
+
+	/**
+	 * A fresh outbound read request per call, as the security handler adds its header to the message.
+	 */
+	@State(Scope.Thread)
+	public static class Request {
+		private final SecurityHandler securityHandler = new SecurityHandler("bench", "bench");
+		private BenchMessageContext context;
+
+		@Setup(Level.Invocation)
+		public void newRequest() throws Exception {
+			context = new BenchMessageContext(parse(READ_REQUEST), true);
+		}
+	}
+
+	/**
+	 * An inbound ResourceHour response and a logging handler at each level.
+	 */
+	@State(Scope.Thread)
+	public static class Logging {
+		@Param({"10", "10000"})
+		public int responseRows;
+
+		@Param({"OFF", "HEADERS", "TRUNCATED", "FULL"})
+		public LogLevel logLevel;
+
+		private LoggingHandler handler;
+		private BenchMessageContext response;
+		private BenchMessageContext request;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			AsyncLogAppender discard = new AsyncLogAppender(new PrintStream(new OutputStream() {
+				public void write(int b) {
+				}
+				public void write(byte[] b, int off, int len) {
+				}
+			}), AsyncLogAppender.DEFAULT_MAX_BYTES);
+			handler = new LoggingHandler(logLevel, LoggingHandler.DEFAULT_MAX_BODY_BYTES, discard);
+			response = new BenchMessageContext(parse(new SyntheticData(42).resourceHourResponse(responseRows)), false);
+			request = new BenchMessageContext(parse(READ_REQUEST), true);
+		}
+	}
+
+	@Benchmark
+	public boolean securityHandlerOutbound(Request request) {
+		return request.securityHandler.handleMessage(request.context);
+	}
+
+	@Benchmark
+	public boolean loggingHandlerInbound(Logging logging) {
+		return logging.handler.handleMessage(logging.response);
+	}
+
+	@Benchmark
+	public boolean loggingHandlerOutbound(Logging logging) {
+		return logging.handler.handleMessage(logging.request);
+	}
+
+	private static SOAPMessage parse(String xml) throws Exception {
+		MimeHeaders headers = new MimeHeaders();
+		headers.addHeader("Content-Type", "text/xml; charset=UTF-8");
+		return MessageFactory.newInstance().createMessage(headers, new ByteArrayInputStream(xml.getBytes("UTF-8")));
+	}
+}
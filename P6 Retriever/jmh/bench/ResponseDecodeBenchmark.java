@@ -0,0 +1,67 @@
+package bench;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.MimeHeaders;
+import javax.xml.soap.SOAPMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.primavera.ws.p6.resourcehour.ResourceHour;
+
+import read.RecordCallback;
+import read.ResponseDecoder;
+
+/**
+ * Cost of taking a ResourceHour response of {@link #responseRows} records apart, in milliseconds per response.
+ * saajEnvelope only builds the SAAJ tree a handler's getMessage builds, before any record is unmarshalled;
+ * streamingDecode unmarshals every record with the {@link ResponseDecoder} used by streamed reads.
+ * Compare gc.alloc.rate.norm from the gc profiler: the tree is held whole, streamed records are garbage as soon as they are consumed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResponseDecodeBenchmark {
+
+	private static final String RESOURCE_HOUR_NS = "http://xmlns.oracle.com/Primavera/P6/WS/ResourceHour/V1";
+
+	@Param({"1000", "100000"})
+	public int responseRows;
+
+	private byte [] response;
+	private ResponseDecoder<ResourceHour> decoder;
+
+	@Setup
+	public void setup() throws Exception {
+		response = new SyntheticData(42).resourceHourResponse(responseRows).getBytes("UTF-8");
+		decoder = new ResponseDecoder<>(ResourceHour.class, new QName(RESOURCE_HOUR_NS, "ResourceHour"));
+	}
+
+	@Benchmark
+	public Object saajEnvelope() throws Exception {
+		MimeHeaders headers = new MimeHeaders();
+		headers.addHeader("Content-Type", "text/xml; charset=UTF-8");
+		SOAPMessage message = MessageFactory.newInstance().createMessage(headers, new ByteArrayInputStream(response));
+		return message.getSOAPBody();
+	}
+
+	@Benchmark
+	public int streamingDecode(final Blackhole blackhole) throws Exception {
+		return decoder.decode(new ByteArrayInputStream(response), new RecordCallback<ResourceHour>() {
+			public void accept(ResourceHour record) {
+				blackhole.consume(record);
+			}
+		});
+	}
+}
@@ -0,0 +1,105 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.primavera.ws.p6.resourceassignment.ResourceAssignment;
+import com.primavera.ws.p6.resourceassignmentperiodactual.ResourceAssignmentPeriodActual;
+import com.primavera.ws.p6.resourcehour.ResourceHour;
+import com.primavera.ws.p6.timesheet.Timesheet;
+
+import write.SheetOutputter;
+
+/**
+ * CSV export throughput of {@link SheetOutputter}. One operation writes a whole table of {@link #rows} records.
+ * The rows and bytes counters are reported as rates (rows/s, bytes/s).
+ * Run with the gc profiler (-prof gc) for allocation; gc.alloc.rate.norm divided by rows gives bytes allocated per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SheetOutputterBenchmark {
+
+	@Param({"1000", "100000"})
+	public int rows;
+
+	private List<ResourceHour> resourceHours;
+	private List<Timesheet> timesheets;
+	private List<ResourceAssignment> assignments;
+	private List<ResourceAssignmentPeriodActual> actuals;
+	private File file;
+
+	/**
+	 * Rows and bytes written, reported per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Written {
+		public long rows;
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			rows = 0;
+			bytes = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void generate() throws Exception {
+		SyntheticData data = new SyntheticData(42);
+		resourceHours = data.resourceHours(rows);
+		timesheets = data.timesheets(rows);
+		assignments = data.resourceAssignments(rows);
+		actuals = data.periodActuals(rows);
+		file = File.createTempFile("p6bench", ".csv");
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() {
+		file.delete();
+	}
+
+	@Benchmark
+	public void outputResourceHour(Written written) throws IOException {
+		SheetOutputter.outputResourceHour(resourceHours, file);
+		count(written);
+	}
+
+	@Benchmark
+	public void outputTimesheets(Written written) throws IOException {
+		SheetOutputter.outputTimesheets(timesheets, file);
+		count(written);
+	}
+
+	@Benchmark
+	public void outputReassignmens(Written written) throws IOException {
+		SheetOutputter.outputReassignmens(assignments, file);
+		count(written);
+	}
+
+	@Benchmark
+	public void outputReassignmentPeriodActuals(Written written) throws IOException {
+		SheetOutputter.outputReassignmentPeriodActuals(actuals, file);
+		count(written);
+	}
+
+	private void count(Written written) {
+		written.rows += rows;
+		written.bytes += file.length();
+	}
+}
@@ -0,0 +1,171 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+
+import com.primavera.ws.p6.resourceassignment.ResourceAssignment;
+import com.primavera.ws.p6.resourceassignmentperiodactual.ResourceAssignmentPeriodActual;
+import com.primavera.ws.p6.resourcehour.ResourceHour;
+import com.primavera.ws.p6.timesheet.Timesheet;
+
+/**
+ * Generates P6 records with the same fields populated as P6Reader requests, for benchmarking without a P6 server.
+ * Values are drawn from a seeded {@link Random} so every run of a benchmark sees the same data.
+ */
+public class SyntheticData {
+
+	private static final String RESOURCE_HOUR_NS = "http://xmlns.oracle.com/Primavera/P6/WS/ResourceHour/V1";
+	private static final String ASSIGNMENT_NS = "http://xmlns.oracle.com/Primavera/P6/WS/ResourceAssignment/V1";
+	private static final String PERIOD_ACTUAL_NS = "http://xmlns.oracle.com/Primavera/P6/WS/ResourceAssignmentPeriodActual/V1";
+
+	private static final String [] STATUSES = {"Active", "Submitted", "Approved", "Rejected"};
+	private static final String [] PROJECTS = {"Depot Refurbishment", "Fleet Telematics", "Timetable Change", "Ticketing Upgrade", "Network Review"};
+	private static final String [] USERS = {"admin", "jbloggs", "asmith", "mjones"};
+
+	private final Random random;
+	private final DatatypeFactory dates;
+
+	/**
+	 * Constructor
+	 * @param seed seed for the generated values.
+	 * @throws DatatypeConfigurationException if no {@link DatatypeFactory} is available.
+	 */
+	public SyntheticData(long seed) throws DatatypeConfigurationException {
+		this.random = new Random(seed);
+		this.dates = DatatypeFactory.newInstance();
+	}
+
+	/**
+	 * @param rows number of records.
+	 * @return {@link ResourceHour} records with every field read by P6Reader set, some optional values null.
+	 */
+	public List<ResourceHour> resourceHours(int rows) {
+		List<ResourceHour> resourceHours = new ArrayList<>(rows);
+		for(int i = 0; i < rows; i++) {
+			ResourceHour resourceHour = new ResourceHour();
+			resourceHour.setObjectId(i + 1);
+			resourceHour.setProjectObjectId(element(RESOURCE_HOUR_NS, "ProjectObjectId", Integer.class, maybeNull(random.nextInt(500) + 1)));
+			resourceHour.setResourceObjectId(random.nextInt(5000) + 1);
+			resourceHour.setStatus(pick(STATUSES));
+			resourceHour.setTimesheetPeriodObjectId(random.nextInt(300) + 1);
+			resourceHour.setUnapprovedHours(element(RESOURCE_HOUR_NS, "UnapprovedHours", Double.class, maybeNull(hours())));
+			resourceHour.setApprovedHours(element(RESOURCE_HOUR_NS, "ApprovedHours", Double.class, maybeNull(hours())));
+			resourceHour.setDate(element(RESOURCE_HOUR_NS, "Date", XMLGregorianCalendar.class, date()));
+			resourceHour.setProjectName(pick(PROJECTS));
+			resourceHour.setLastUpdateDate(element(RESOURCE_HOUR_NS, "LastUpdateDate", XMLGregorianCalendar.class, date()));
+			resourceHour.setLastUpdateUser(pick(USERS));
+			resourceHours.add(resourceHour);
+		}
+		return resourceHours;
+	}
+
+	/**
+	 * @param rows number of records.
+	 * @return {@link Timesheet} records.
+	 */
+	public List<Timesheet> timesheets(int rows) {
+		List<Timesheet> timesheets = new ArrayList<>(rows);
+		for(int i = 0; i < rows; i++) {
+			Timesheet timesheet = new Timesheet();
+			timesheet.setTimesheetPeriodObjectId(random.nextInt(300) + 1);
+			timesheet.setResourceObjectId(random.nextInt(5000) + 1);
+			timesheet.setStatus(pick(STATUSES));
+			timesheets.add(timesheet);
+		}
+		return timesheets;
+	}
+
+	/**
+	 * @param rows number of records.
+	 * @return {@link ResourceAssignment} records.
+	 */
+	public List<ResourceAssignment> resourceAssignments(int rows) {
+		List<ResourceAssignment> assignments = new ArrayList<>(rows);
+		for(int i = 0; i < rows; i++) {
+			ResourceAssignment assignment = new ResourceAssignment();
+			assignment.setResourceObjectId(element(ASSIGNMENT_NS, "ResourceObjectId", Integer.class, maybeNull(random.nextInt(5000) + 1)));
+			assignment.setActualUnits(element(ASSIGNMENT_NS, "ActualUnits", Double.class, hours()));
+			assignment.setProjectId("PRJ" + (random.nextInt(500) + 1));
+			assignment.setObjectId(i + 1);
+			assignment.setLastUpdateDate(element(ASSIGNMENT_NS, "LastUpdateDate", XMLGregorianCalendar.class, date()));
+			assignment.setLastUpdateUser(pick(USERS));
+			assignments.add(assignment);
+		}
+		return assignments;
+	}
+
+	/**
+	 * @param rows number of records.
+	 * @return {@link ResourceAssignmentPeriodActual} records.
+	 */
+	public List<ResourceAssignmentPeriodActual> periodActuals(int rows) {
+		List<ResourceAssignmentPeriodActual> actuals = new ArrayList<>(rows);
+		for(int i = 0; i < rows; i++) {
+			ResourceAssignmentPeriodActual actual = new ResourceAssignmentPeriodActual();
+			actual.setResourceAssignmentObjectId(i / 4 + 1);
+			actual.setActualUnits(element(PERIOD_ACTUAL_NS, "ActualUnits", Double.class, hours()));
+			actual.setFinancialPeriodObjectId(i % 4 + 1);
+			actual.setLastUpdateDate(element(PERIOD_ACTUAL_NS, "LastUpdateDate", XMLGregorianCalendar.class, date()));
+			actual.setLastUpdateUser(pick(USERS));
+			actuals.add(actual);
+		}
+		return actuals;
+	}
+
+	/**
+	 * Builds the XML of a readResourceHours response, used as the inbound message for handler benchmarks.
+	 * @param rows number of ResourceHour elements in the body.
+	 * @return SOAP envelope.
+	 */
+	public String resourceHourResponse(int rows) {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>");
+		xml.append("<ReadResourceHoursResponse xmlns=\"").append(RESOURCE_HOUR_NS).append("\">");
+		for(int i = 0; i < rows; i++) {
+			xml.append("<ResourceHour><ObjectId>").append(i + 1).append("</ObjectId>")
+				.append("<ProjectObjectId>").append(random.nextInt(500) + 1).append("</ProjectObjectId>")
+				.append("<ResourceObjectId>").append(random.nextInt(5000) + 1).append("</ResourceObjectId>")
+				.append("<Status>").append(pick(STATUSES)).append("</Status>")
+				.append("<TimesheetPeriodObjectId>").append(random.nextInt(300) + 1).append("</TimesheetPeriodObjectId>")
+				.append("<UnapprovedHours>").append(hours()).append("</UnapprovedHours>")
+				.append("<ApprovedHours>").append(hours()).append("</ApprovedHours>")
+				.append("<Date>").append(date().toXMLFormat()).append("</Date>")
+				.append("<ProjectName>").append(pick(PROJECTS)).append("</ProjectName>")
+				.append("<LastUpdateDate>").append(date().toXMLFormat()).append("</LastUpdateDate>")
+				.append("<LastUpdateUser>").append(pick(USERS)).append("</LastUpdateUser></ResourceHour>");
+		}
+		xml.append("</ReadResourceHoursResponse></soapenv:Body></soapenv:Envelope>");
+		return xml.toString();
+	}
+
+	private <T> JAXBElement<T> element(String namespace, String name, Class<T> type, T value) {
+		return new JAXBElement<T>(new QName(namespace, name), type, value);
+	}
+
+	/**
+	 * Roughly one in ten optional values are null, as in the live ResourceHour table.
+	 */
+	private <T> T maybeNull(T value) {
+		return random.nextInt(10) == 0 ? null : value;
+	}
+
+	private double hours() {
+		return random.nextInt(48) / 4.0;
+	}
+
+	private XMLGregorianCalendar date() {
+		return dates.newXMLGregorianCalendar(2018 + random.nextInt(4), random.nextInt(12) + 1, random.nextInt(28) + 1,
+				random.nextInt(24), random.nextInt(60), random.nextInt(60), 0, 0);
+	}
+
+	private String pick(String [] values) {
+		return values[random.nextInt(values.length)];
+	}
+}
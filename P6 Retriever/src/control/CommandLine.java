@@ -0,0 +1,253 @@
+package control;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import read.P6Reader;
+import read.Partitioning;
+import read.ReaderOptions;
+import read.TransportOptions;
+import report.MissingTimesheetReport;
+import security.AuthMode;
+import write.CompressionCodec;
+import write.LogLevel;
+
+/**
+ * Headless entry point, used by {@link Run} when given arguments so scheduled exports need no display and never load Swing.
+ * Runs a single export, or with --every runs one every N minutes for as long as the JVM is up,
+ * reusing one {@link P6Reader} so later runs skip port creation, the WSDL load and, with --session, the login.
+ * The time from JVM start to the first export is printed, so changes to startup can be measured.
+ * With --partitions a full ResourceHour export is read as that many partitions at once, see {@link read.PartitionedReader}.
+ * With --metrics-file the call and write metrics are written as a Prometheus text file after each export.
+ * With --submitted-statuses the Missing Timesheet report counts timesheets in those statuses as submitted.
+ * With --max-resume-age a failed ResourceHour export is only resumed within that many minutes of its start.
+ * The password is never taken on the command line, where it would be visible to other users, but from an environment variable or a file.
+ */
+public class CommandLine {
+
+	/**
+	 * Exit status for a successful export.
+	 */
+	public static final int OK = 0;
+
+	/**
+	 * Exit status when the export failed.
+	 */
+	public static final int FAILED = 1;
+
+	/**
+	 * Exit status when the arguments are wrong.
+	 */
+	public static final int USAGE = 2;
+
+	private static final String DEFAULT_HOST = "firstgroup-ws.milestoneuk.com";
+	private static final String DEFAULT_PORT = "443";
+
+	/**
+	 * How long a shutdown waits for a scheduled export in progress to finish writing.
+	 */
+	private static final long SHUTDOWN_WAIT_MINUTES = 10;
+
+	private static final List<String> FLAGS = Arrays.asList("--incremental", "--session");
+
+	private static final String USAGE_TEXT =
+			"Usage: Run --output <dir> --user <name> (--password-env <variable> | --password-file <file>)\n"
+			+ "           [--host <host>] [--port <port>] [--tables <table>,...] (default all of " + Control.TABLES + ")\n"
+			+ "           [--every <minutes>] [--incremental] [--compression none|gzip] [--log-level OFF|HEADERS|TRUNCATED|FULL] (default TRUNCATED) [--session]\n"
+			+ "           [--connect-timeout <seconds>] [--read-timeout <seconds>] [--metrics-file <file>] [--max-resume-age <minutes>]\n"
+			+ "           [--submitted-statuses <status>,...] (default " + MissingTimesheetReport.DEFAULT_SUBMITTED + ")\n"
+			+ "           [--partitions <count> [--partition-by project|timesheet-period|object-id]]";
+
+	/**
+	 * Runs the export described by the arguments.
+	 * @param args command line arguments, see the usage text.
+	 * @return exit status, {@link #OK}, {@link #FAILED} or {@link #USAGE}.
+	 */
+	public static int run(String [] args) {
+		Map<String, String> options = new HashMap<>();
+		for(int i = 0; i < args.length; i++) {
+			if(FLAGS.contains(args[i])) {
+				options.put(args[i], "true");
+			}else if(args[i].startsWith("--") && i + 1 < args.length) {
+				options.put(args[i], args[++i]);
+			}else {
+				return usage("Unexpected argument " + args[i]);
+			}
+		}
+
+		String output = options.get("--output");
+		String user = options.get("--user");
+		if(output == null || user == null) {
+			return usage("--output and --user are required");
+		}
+		String pass;
+		try {
+			pass = password(options);
+		} catch (IllegalArgumentException | IOException e) {
+			return usage(e.getMessage());
+		}
+
+		ReaderOptions readerOptions = new ReaderOptions();
+		final Control control = new Control();
+		int every;
+		try {
+			if(options.containsKey("--log-level")) {
+				readerOptions.setLogLevel(LogLevel.valueOf(options.get("--log-level").toUpperCase()));
+			}
+			if(options.containsKey("--session")) {
+				readerOptions.setAuthMode(AuthMode.SESSION);
+			}
+			TransportOptions transport = readerOptions.getTransport();
+			if(options.containsKey("--connect-timeout")) {
+				transport.setConnectTimeout((int)TimeUnit.SECONDS.toMillis(Integer.parseInt(options.get("--connect-timeout"))));
+			}
+			if(options.containsKey("--read-timeout")) {
+				transport.setReadTimeout((int)TimeUnit.SECONDS.toMillis(Integer.parseInt(options.get("--read-timeout"))));
+			}
+			if(options.containsKey("--tables")) {
+				List<String> tables = Arrays.asList(options.get("--tables").split(","));
+				for(String table : tables) {
+					if(!Control.TABLES.contains(table)) {
+						throw new IllegalArgumentException("Unknown table " + table + ", expected one of " + Control.TABLES);
+					}
+				}
+				control.setTables(tables);
+			}
+			control.setCompression(codec(options.get("--compression")));
+			if(options.containsKey("--partitions")) {
+				String by = options.containsKey("--partition-by") ? options.get("--partition-by") : "project";
+				control.setResourceHourPartitions(Partitioning.valueOf(by.toUpperCase().replace('-', '_')), Integer.parseInt(options.get("--partitions")));
+			}
+			if(options.containsKey("--metrics-file")) {
+				control.setMetricsFile(new File(options.get("--metrics-file")));
+			}
+			if(options.containsKey("--submitted-statuses")) {
+				control.setSubmittedTimesheetStatuses(Arrays.asList(options.get("--submitted-statuses").split(",")));
+			}
+			if(options.containsKey("--max-resume-age")) {
+				control.setMaxCheckpointAge(TimeUnit.MINUTES.toMillis(Integer.parseInt(options.get("--max-resume-age"))));
+			}
+			every = options.containsKey("--every") ? Integer.parseInt(options.get("--every")) : 0;
+		} catch (IllegalArgumentException e) {
+			return usage(e.getMessage());
+		}
+
+		String host = options.containsKey("--host") ? options.get("--host") : DEFAULT_HOST;
+		String port = options.containsKey("--port") ? options.get("--port") : DEFAULT_PORT;
+		final P6Reader reader;
+		try {
+			reader = new P6Reader(host, Integer.parseInt(port), user, pass, readerOptions);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return FAILED;
+		}
+
+		File directory = new File(output);
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			System.err.println("Unable to create " + directory);
+			return FAILED;
+		}
+		final String outputDirectory = directory.getAbsolutePath();
+		final boolean incremental = options.containsKey("--incremental");
+		System.out.println("Started in " + (System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime()) + " ms");
+		if(every <= 0) {
+			return export(control, reader, outputDirectory, incremental) ? OK : FAILED;
+		}
+
+		schedule(new Runnable() {
+			public void run() {
+				export(control, reader, outputDirectory, incremental);
+			}
+		}, every);
+		return OK;
+	}
+
+	/**
+	 * Runs one export, reporting how long it took.
+	 */
+	private static boolean export(Control control, P6Reader reader, String outputDirectory, boolean incremental) {
+		long start = System.currentTimeMillis();
+		boolean success;
+		try {
+			success = control.control(reader, outputDirectory, incremental);
+		} catch (RuntimeException e) {
+			// Thrown out of a scheduled run it would cancel every later run
+			e.printStackTrace();
+			success = false;
+		}
+		System.out.println("Export " + (success ? "completed" : "failed") + " in " + (System.currentTimeMillis() - start) + " ms");
+		return success;
+	}
+
+	/**
+	 * Runs the export now and then every interval, until the JVM is shut down.
+	 * Runs never overlap, one that takes longer than the interval delays the next.
+	 * A shutdown waits for a run in progress so no file is left half written.
+	 */
+	private static void schedule(Runnable export, int minutes) {
+		final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			public void run() {
+				scheduler.shutdown();
+				try {
+					scheduler.awaitTermination(SHUTDOWN_WAIT_MINUTES, TimeUnit.MINUTES);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, "P6 export shutdown"));
+		scheduler.scheduleAtFixedRate(export, 0, minutes, TimeUnit.MINUTES);
+		try {
+			scheduler.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the password from the variable named by --password-env or the first line of --password-file.
+	 */
+	private static String password(Map<String, String> options) throws IOException {
+		if(options.containsKey("--password-env")) {
+			String pass = System.getenv(options.get("--password-env"));
+			if(pass == null) {
+				throw new IllegalArgumentException("Environment variable " + options.get("--password-env") + " is not set");
+			}
+			return pass;
+		}
+		if(options.containsKey("--password-file")) {
+			List<String> lines = Files.readAllLines(new File(options.get("--password-file")).toPath(), StandardCharsets.UTF_8);
+			if(lines.isEmpty()) {
+				throw new IllegalArgumentException(options.get("--password-file") + " is empty");
+			}
+			return lines.get(0);
+		}
+		throw new IllegalArgumentException("--password-env or --password-file is required");
+	}
+
+	private static CompressionCodec codec(String name) {
+		if(name == null || name.equalsIgnoreCase(CompressionCodec.NONE.getName())) {
+			return CompressionCodec.NONE;
+		}
+		if(name.equalsIgnoreCase(CompressionCodec.GZIP.getName())) {
+			return CompressionCodec.GZIP;
+		}
+		throw new IllegalArgumentException("Unknown compression " + name);
+	}
+
+	private static int usage(String message) {
+		System.err.println(message);
+		System.err.println(USAGE_TEXT);
+		return USAGE;
+	}
+}
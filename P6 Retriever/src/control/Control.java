@@ -1,19 +1,156 @@
 package control;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.datatype.XMLGregorianCalendar;
 
 import com.primavera.ws.p6.resource.Resource;
 import com.primavera.ws.p6.resourcehour.ResourceHour;
-import com.primavera.ws.p6.resourcerate.ResourceRate;
 import com.primavera.ws.p6.timesheet.Timesheet;
 
+import metrics.Metrics;
 import read.P6Reader;
+import read.PagedReader;
+import read.PartitionedReader;
+import read.Partitioning;
+import read.ReaderOptions;
+import report.MissingTimesheet;
+import report.MissingTimesheetReport;
+import write.AsyncLogAppender;
+import write.CheckpointStore;
+import write.CompressionCodec;
+import write.DeltaMerger;
+import write.ExportManifest;
 import write.SheetOutputter;
+import write.TableLayouts;
+import write.TableWriter;
+import write.WatermarkStore;
 
 public class Control {
-	
+
+	/**
+	 * Maximum number of tables fetched and written at the same time.
+	 */
+	private static final int EXPORT_THREADS = 4;
+
+	/**
+	 * File in the output directory holding the high-water marks of incremental exports.
+	 */
+	private static final String WATERMARK_FILE = ".p6-watermarks.properties";
+
+	/**
+	 * File in the output directory holding how far an unfinished export of each table got.
+	 */
+	private static final String CHECKPOINT_FILE = ".p6-checkpoints.properties";
+
+	/**
+	 * Names of the tables exported, see {@link #setTables(Collection)}.
+	 */
+	public static final List<String> TABLES = Arrays.asList("ResourceHour", "Resource", "ResourceRate", "Timesheet");
+
+	private ReaderOptions readerOptions = new ReaderOptions();
+
+	private CompressionCodec compression = CompressionCodec.NONE;
+
+	private Set<String> tables;
+
+	private ExportProgress progress;
+
+	private File metricsFile;
+
+	private Partitioning partitioning;
+
+	private int partitions;
+
+	private long maxCheckpointAge = CheckpointStore.DEFAULT_MAX_AGE_MILLIS;
+
+	private List<String> submittedTimesheetStatuses = MissingTimesheetReport.DEFAULT_SUBMITTED;
+
+	/**
+	 * @param readerOptions {@link ReaderOptions} the {@link P6Reader} is created with, e.g. to serve reruns from a {@link read.SnapshotCache}.
+	 */
+	public void setReaderOptions(ReaderOptions readerOptions) {
+		this.readerOptions = readerOptions;
+	}
+
+	/**
+	 * @param compression {@link CompressionCodec} the tables are written with, {@link CompressionCodec#NONE} by default.
+	 * The codec's extension is added to each file name, e.g. ResourceHours.csv.gz
+	 */
+	public void setCompression(CompressionCodec compression) {
+		this.compression = compression;
+	}
+
+	/**
+	 * @param tables names of the tables to export e.g. ResourceHour, Timesheet, or null for every table.
+	 * The Missing Timesheet report is only written when both Resource and Timesheet are exported.
+	 */
+	public void setTables(Collection<String> tables) {
+		this.tables = tables == null ? null : new HashSet<>(tables);
+	}
+
+	/**
+	 * @param progress {@link ExportProgress} the next run reports to and can be cancelled through, or null if it is not followed.
+	 */
+	public void setProgress(ExportProgress progress) {
+		this.progress = progress;
+	}
+
+	/**
+	 * Reads a full ResourceHour export as several partitions at once rather than a page at a time, see {@link PartitionedReader}.
+	 * The partitions are merged as they are written, each reading at most a page ahead, and the balance of the partitions is logged.
+	 * @param partitioning {@link Partitioning} to split the table by, or null to read it a page at a time.
+	 * @param partitions most partitions to read at once.
+	 */
+	public void setResourceHourPartitions(Partitioning partitioning, int partitions) {
+		if(partitioning != null && partitions <= 0) {
+			throw new IllegalArgumentException("Partitions must be positive: " + partitions);
+		}
+		this.partitioning = partitioning;
+		this.partitions = partitions;
+	}
+
+	/**
+	 * @param metricsFile file the {@link Metrics} are written to in the Prometheus text format at the end of each run, or null not to write them.
+	 * The metrics are of every run in the JVM so a scheduled export's counters keep increasing between runs.
+	 */
+	public void setMetricsFile(File metricsFile) {
+		this.metricsFile = metricsFile;
+	}
+
+	/**
+	 * @param submittedTimesheetStatuses Timesheet statuses the Missing Timesheet report counts as submitted,
+	 * defaults to {@link MissingTimesheetReport#DEFAULT_SUBMITTED}.
+	 */
+	public void setSubmittedTimesheetStatuses(List<String> submittedTimesheetStatuses) {
+		this.submittedTimesheetStatuses = new ArrayList<>(submittedTimesheetStatuses);
+	}
+
+	/**
+	 * @param maxCheckpointAge longest time in milliseconds after a failed ResourceHour export started that the next run resumes it,
+	 * an older partial file is discarded and the table exported again. Defaults to {@link CheckpointStore#DEFAULT_MAX_AGE_MILLIS}.
+	 */
+	public void setMaxCheckpointAge(long maxCheckpointAge) {
+		if(maxCheckpointAge < 0) {
+			throw new IllegalArgumentException("Checkpoint age must not be negative: " + maxCheckpointAge);
+		}
+		this.maxCheckpointAge = maxCheckpointAge;
+	}
+
 	/**
 	 * Controller function to process the reading of data from P6 and output to a simple CSV file.
+	 * Each table is fetched and written as its own task so the export takes roughly as long as the slowest table.
 	 * @param outputDirectory - Directory to place CSV files
 	 * @param user P6 Username
 	 * @param pass P6 Pass
@@ -22,22 +159,311 @@ public class Control {
 	 * @return true if read and output successful otherwise false if exception.
 	 */
 	public boolean control(String outputDirectory, String user, String pass, String host, String port) {
+		return control(outputDirectory, user, pass, host, port, false);
+	}
+
+	/**
+	 * Controller function to process the reading of data from P6 and output to a simple CSV file.
+	 * In incremental mode ResourceHours.csv is updated with only the rows changed since the previous run,
+	 * falling back to a full export when there is no previous run in the output directory.
+	 * Each file written is recorded in manifest.csv, see {@link ExportManifest}.
+	 * A full ResourceHour export is checkpointed as it is written, if it fails the next run carries on from the last page written.
+	 * @param outputDirectory - Directory to place CSV files
+	 * @param user P6 Username
+	 * @param pass P6 Pass
+	 * @param host P6 host address
+	 * @param port P6 port number
+	 * @param incremental true to merge changes into the previous export rather than export the full table.
+	 * @return true if read and output successful otherwise false if exception.
+	 */
+	public boolean control(String outputDirectory, String user, String pass, String host, String port, boolean incremental) {
+		P6Reader reader;
+		try {
+			reader = new P6Reader(host, Integer.parseInt(port), user, pass, readerOptions);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+		return control(reader, outputDirectory, incremental);
+	}
+
+	/**
+	 * Controller function to export from an existing {@link P6Reader}, so repeated runs reuse its ports and session.
+	 * The reader's {@link ReaderOptions} are those it was created with, {@link #setReaderOptions(ReaderOptions)} is not applied.
+	 * @param reader {@link P6Reader} to read from.
+	 * @param outputDirectory - Directory to place CSV files
+	 * @param incremental true to merge changes into the previous export rather than export the full table.
+	 * @return true if read and output successful otherwise false if exception or cancelled.
+	 */
+	public boolean control(final P6Reader reader, String outputDirectory, final boolean incremental) {
+		ExportProgress run = progress != null ? progress : new ExportProgress();
+		run.onCancel(new Runnable() {
+			public void run() {
+				reader.cancel();
+			}
+		});
+
+		final WatermarkStore watermarks;
+		final CheckpointStore checkpoints;
+		final ExecutorService prefetcher = Executors.newCachedThreadPool();
 		try {
-			P6Reader reader = new P6Reader(host, Integer.parseInt(port), user, pass);
-			List<ResourceHour> resourceHours = reader.readResourceHour();
-			List<Resource>resources = reader.readResources();
-			List<ResourceRate>resourceRates = reader.readResourceRate();
-			List<Timesheet>timesheets = reader.readTimesheets();
-			
-			SheetOutputter.outputResourceHour(resourceHours, new File(outputDirectory+"/ResourceHours.csv"));
-			SheetOutputter.outputResources(resources, new File(outputDirectory+"/Resources.csv"));
-			SheetOutputter.outputResourceRates(resourceRates, new File(outputDirectory+"/ResourceRates.csv"));
-			SheetOutputter.outputTimesheets(timesheets, new File(outputDirectory+"/Timesheets.csv"));
-			
+			watermarks = new WatermarkStore(new File(outputDirectory, WATERMARK_FILE));
+			checkpoints = new CheckpointStore(new File(outputDirectory, CHECKPOINT_FILE), maxCheckpointAge);
+		} catch (Exception e) {
+			e.printStackTrace();
+			prefetcher.shutdown();
+			return false;
+		}
+
+		// Kept from the exports to build the Missing Timesheet report without reading the tables again
+		final AtomicReference<List<Resource>> resources = new AtomicReference<>();
+		final AtomicReference<List<Timesheet>> timesheets = new AtomicReference<>();
+		final ExportManifest manifest = new ExportManifest();
+		String extension = compression.getExtension();
+
+		List<TableExport> exports = new ArrayList<>();
+		exports.add(new TableExport("ResourceHour", new File(outputDirectory+"/ResourceHours.csv"+extension), run) {
+			protected void export() throws Exception {
+				if(incremental) {
+					manifest.add(exportResourceHourIncremental(reader, watermarks, prefetcher, this));
+				}else {
+					// Paged even with a snapshot cache set, restoring a snapshot would hold the whole table in memory
+					manifest.add(exportResourceHourResumable(reader, checkpoints, prefetcher, this));
+				}
+			}
+		});
+		exports.add(new TableExport("Resource", new File(outputDirectory+"/Resources.csv"+extension), run) {
+			protected void export() throws Exception {
+				resources.set(reader.readResources());
+				manifest.add(SheetOutputter.output(TableLayouts.RESOURCE, track(resources.get()), getFile(), compression));
+			}
+		});
+		exports.add(new TableExport("ResourceRate", new File(outputDirectory+"/ResourceRates.csv"+extension), run) {
+			protected void export() throws Exception {
+				manifest.add(SheetOutputter.output(TableLayouts.RESOURCE_RATE, track(reader.readResourceRate()), getFile(), compression));
+			}
+		});
+		exports.add(new TableExport("Timesheet", new File(outputDirectory+"/Timesheets.csv"+extension), run) {
+			protected void export() throws Exception {
+				timesheets.set(reader.readTimesheets());
+				manifest.add(SheetOutputter.output(TableLayouts.TIMESHEET, track(timesheets.get()), getFile(), compression));
+			}
+		});
+
+		if(tables != null) {
+			for(Iterator<TableExport> export = exports.iterator(); export.hasNext();) {
+				if(!tables.contains(export.next().getTable())) {
+					export.remove();
+				}
+			}
+		}
+
+		try {
+			boolean success = exports.isEmpty() || runExports(exports, run);
+			if(run.isCancelled()) {
+				// Tables already written are kept, the rest were left as they were, and nothing more is written
+				return false;
+			}
+			if(resources.get() != null && timesheets.get() != null) {
+				success &= writeMissingTimesheets(reader, resources.get(), timesheets.get(), new File(outputDirectory+"/MissingTimesheets.csv"+extension), manifest);
+			}
+			return success & writeManifest(manifest, new File(outputDirectory, ExportManifest.FILE_NAME));
+		} finally {
+			prefetcher.shutdownNow();
+			if(metricsFile != null) {
+				writeMetrics(metricsFile);
+			}
+		}
+	}
+
+	/**
+	 * Exports the whole ResourceHour table a page at a time, saving a checkpoint after each page written.
+	 * If the previous run stopped part way through, its partial file is kept and only the rows after its last checkpoint are read.
+	 * With {@link #setResourceHourPartitions(Partitioning, int)} the rows are read as partitions at once, still in ObjectId order so checkpoints work the same.
+	 * @param reader {@link P6Reader} to read from.
+	 * @param checkpoints {@link CheckpointStore} holding the table's checkpoint.
+	 * @param prefetcher {@link ExecutorService} to read the next page on while the current one is written.
+	 * @param export {@link TableExport} of the table.
+	 * @return {@link ExportManifest.Entry} of the export, including rows written by the run resumed.
+	 * @throws Exception if the read or write fails. The partial file and last checkpoint are kept for the next run.
+	 */
+	private ExportManifest.Entry exportResourceHourResumable(P6Reader reader, CheckpointStore checkpoints, ExecutorService prefetcher, TableExport export) throws Exception {
+		String table = TableLayouts.RESOURCE_HOUR.getTable();
+		CheckpointStore.Checkpoint from = checkpoints.resume(table, TableWriter.getPartialFile(export.getFile()), compression);
+		String filter = null;
+		if(from != null) {
+			AsyncLogAppender.console().append("Resuming " + table + " after ObjectId " + from.getKey() + ", " + from.getRows() + " rows already written.");
+			filter = "ObjectId > " + from.getKey();
+		}
+		if(partitioning != null) {
+			// Merged as it is written, so checkpoints are saved as the partitions are read
+			PartitionedReader<ResourceHour> partitioned = reader.readResourceHourPartitioned(partitioning, partitions, filter);
+			try {
+				ExportManifest.Entry entry = TableWriter.write(TableLayouts.RESOURCE_HOUR, export.track(partitioned), export.getFile(), compression, checkpoints, from, "OBJECT_ID");
+				AsyncLogAppender.console().append(table + " " + partitioned.getReport());
+				return entry;
+			} finally {
+				partitioned.close();
+			}
+		}
+		return TableWriter.write(TableLayouts.RESOURCE_HOUR, export.track(reader.readResourceHourPaged(PagedReader.DEFAULT_PAGE_SIZE, filter).prefetch(prefetcher)),
+				export.getFile(), compression, checkpoints, from, "OBJECT_ID");
+	}
+
+	/**
+	 * Brings ResourceHours.csv up to date with the rows updated since the table's high-water mark,
+	 * then moves the mark on to when this read started, see {@link WatermarkStore#startOf(long, XMLGregorianCalendar)}.
+	 * @param reader {@link P6Reader} to read from.
+	 * @param watermarks {@link WatermarkStore} holding the table's mark.
+	 * @param prefetcher {@link ExecutorService} to read the next page on while the current one is written, when the whole table is read.
+	 * @param export {@link TableExport} naming the mark and the previous export to update, written with the current {@link CompressionCodec}.
+	 * @return {@link ExportManifest.Entry} of the updated export.
+	 * @throws Exception if the read, write or merge fails. The mark is left unchanged.
+	 */
+	private ExportManifest.Entry exportResourceHourIncremental(P6Reader reader, WatermarkStore watermarks, ExecutorService prefetcher, TableExport export) throws Exception {
+		String table = export.getTable();
+		File file = export.getFile();
+		String mark = watermarks.get(table);
+		long started = System.currentTimeMillis();
+		LastUpdateTracker resourceHours;
+		ExportManifest.Entry entry;
+		if(mark == null || !file.exists()) {
+			resourceHours = new LastUpdateTracker(export.track(reader.readResourceHourPaged(PagedReader.DEFAULT_PAGE_SIZE).prefetch(prefetcher)));
+			entry = SheetOutputter.output(TableLayouts.RESOURCE_HOUR, resourceHours, file, compression);
+		}else {
+			// One filtered read: paging the delta would walk ObjectId windows across the whole table to find a few changed rows
+			resourceHours = new LastUpdateTracker(export.track(reader.readResourceHour(P6Reader.updatedSince(mark))));
+			// The delta is small and read straight back, so it is never compressed
+			File delta = new File(file.getPath() + ".delta");
+			SheetOutputter.outputResourceHour(resourceHours, delta);
+			entry = DeltaMerger.merge(table, file, delta, compression, "OBJECT_ID");
+		}
+
+		if(resourceHours.latest != null) {
+			watermarks.put(table, WatermarkStore.startOf(started, resourceHours.latest));
+		}
+		return entry;
+	}
+
+	/**
+	 * Passes {@link ResourceHour} records through to the writer, noting the latest LastUpdateDate seen
+	 * so the high-water mark can be bounded by it without holding the records.
+	 */
+	private static class LastUpdateTracker implements Iterator<ResourceHour> {
+
+		private final Iterator<ResourceHour> resourceHours;
+		private XMLGregorianCalendar latest;
+
+		LastUpdateTracker(Iterator<ResourceHour> resourceHours) {
+			this.resourceHours = resourceHours;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return resourceHours.hasNext();
+		}
+
+		@Override
+		public ResourceHour next() {
+			ResourceHour resourceHour = resourceHours.next();
+			// Not set when the field was not read, or is empty
+			XMLGregorianCalendar updated = resourceHour.getLastUpdateDate() == null ? null : resourceHour.getLastUpdateDate().getValue();
+			if(updated != null && (latest == null || updated.compare(latest) > 0)) {
+				latest = updated;
+			}
+			return resourceHour;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Writes the Missing Timesheet report from the exported Resource and Timesheet tables, over the TimesheetPeriods read from P6.
+	 * @param reader {@link P6Reader} to read the periods from.
+	 * @param resources exported {@link Resource} records.
+	 * @param timesheets exported {@link Timesheet} records.
+	 * @param file CSV file to write.
+	 * @param manifest {@link ExportManifest} to record the file in.
+	 * @return true if the report was written.
+	 */
+	private boolean writeMissingTimesheets(P6Reader reader, List<Resource> resources, List<Timesheet> timesheets, File file, ExportManifest manifest) {
+		try {
+			List<MissingTimesheet> missing = MissingTimesheetReport.run(resources, timesheets, reader.readTimesheetPeriods(),
+					submittedTimesheetStatuses, System.currentTimeMillis());
+			manifest.add(TableWriter.write(MissingTimesheetReport.LAYOUT, missing.iterator(), file, compression));
+			return true;
+		} catch (Exception e) {
+			System.err.println("Missing Timesheet report failed.");
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the manifest of the files exported, including when some tables failed so it shows what was written.
+	 * @param manifest {@link ExportManifest} of the run.
+	 * @param file CSV file to write.
+	 * @return true if the manifest was written.
+	 */
+	private boolean writeManifest(ExportManifest manifest, File file) {
+		try {
+			manifest.write(file);
 			return true;
 		} catch (Exception e) {
+			System.err.println("Export manifest failed.");
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the metrics of the calls made and files written, a run is not failed if they can't be written.
+	 * @param file Prometheus text file to write.
+	 */
+	private void writeMetrics(File file) {
+		try {
+			Metrics.global().writePrometheus(file);
+		} catch (Exception e) {
+			System.err.println("Writing metrics failed.");
 			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Runs each {@link TableExport} on a bounded pool and waits for all of them to finish.
+	 * A failed table does not stop the others, each failure is reported against its table.
+	 * @param exports tables to export.
+	 * @param run {@link ExportProgress} of the run, to tell failures from cancellation.
+	 * @return true if every table exported successfully.
+	 */
+	private boolean runExports(List<TableExport> exports, ExportProgress run) {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(EXPORT_THREADS, exports.size()));
+		try {
+			List<Future<Void>> results = executor.invokeAll(exports);
+			boolean success = true;
+			for(int i = 0; i < results.size(); i++) {
+				try {
+					results.get(i).get();
+				} catch (ExecutionException e) {
+					if(run.isCancelled()) {
+						// Reads fail however they were stopped, the cause is the cancellation
+						System.err.println("Export of " + exports.get(i).getTable() + " cancelled.");
+					}else {
+						System.err.println("Export of " + exports.get(i).getTable() + " failed.");
+						e.getCause().printStackTrace();
+					}
+					success = false;
+				}
+			}
+			return success;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			return false;
+		} finally {
+			executor.shutdownNow();
 		}
 	}
 
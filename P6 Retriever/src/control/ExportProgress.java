@@ -0,0 +1,156 @@
+package control;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress of one export run, table by table, and the means to cancel it.
+ * Counters are updated by the export threads and may be read from any other, e.g. polled by a UI timer,
+ * each value is current but the values of a table are not read as one snapshot.
+ */
+public class ExportProgress {
+
+	/**
+	 * Where a table is in its export.
+	 */
+	public enum State {
+		WAITING, RUNNING, DONE, FAILED, CANCELLED
+	}
+
+	/**
+	 * Progress of one table. Only its own export thread updates it.
+	 */
+	public static class TableProgress {
+		private final String table;
+		private volatile State state = State.WAITING;
+		private volatile long fetched;
+		private volatile long written;
+		private volatile long started;
+		private volatile long finished;
+
+		TableProgress(String table) {
+			this.table = table;
+		}
+
+		public String getTable() {
+			return table;
+		}
+
+		public State getState() {
+			return state;
+		}
+
+		/**
+		 * @return records read from P6 so far.
+		 */
+		public long getFetched() {
+			return fetched;
+		}
+
+		/**
+		 * @return rows written to file so far.
+		 */
+		public long getWritten() {
+			return written;
+		}
+
+		/**
+		 * @return milliseconds since the table started, or that it took once finished.
+		 */
+		public long getElapsedMillis() {
+			long start = started;
+			if(start == 0) {
+				return 0;
+			}
+			long end = finished;
+			return (end == 0 ? System.currentTimeMillis() : end) - start;
+		}
+
+		/**
+		 * @return rows written per second since the table started.
+		 */
+		public double getRowsPerSecond() {
+			long elapsed = getElapsedMillis();
+			return elapsed == 0 ? 0 : written * 1000.0 / elapsed;
+		}
+
+		void start() {
+			started = System.currentTimeMillis();
+			state = State.RUNNING;
+		}
+
+		void finish(State state) {
+			finished = System.currentTimeMillis();
+			this.state = state;
+		}
+
+		void setFetched(long fetched) {
+			this.fetched = fetched;
+		}
+
+		void written() {
+			written++;
+		}
+	}
+
+	private final Map<String, TableProgress> tables = new LinkedHashMap<>();
+	private final List<Runnable> cancelActions = new ArrayList<>();
+	private volatile boolean cancelled;
+
+	/**
+	 * @return progress of each table in the order the run added them.
+	 */
+	public synchronized List<TableProgress> getTables() {
+		return new ArrayList<>(tables.values());
+	}
+
+	/**
+	 * Cancels the run. Reads in progress are failed, no further rows are written and each table's file is left as it was before the run.
+	 * Returns straight away, the run finishes on its own threads.
+	 */
+	public void cancel() {
+		List<Runnable> actions;
+		synchronized (this) {
+			if(cancelled) {
+				return;
+			}
+			cancelled = true;
+			actions = new ArrayList<>(cancelActions);
+		}
+		for(Runnable action : actions) {
+			action.run();
+		}
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @param table name of the table e.g. ResourceHour
+	 * @return the table's progress, added in {@link State#WAITING} if new.
+	 */
+	synchronized TableProgress table(String table) {
+		TableProgress progress = tables.get(table);
+		if(progress == null) {
+			progress = new TableProgress(table);
+			tables.put(table, progress);
+		}
+		return progress;
+	}
+
+	/**
+	 * @param action run when the export is cancelled, straight away if it already has been.
+	 */
+	void onCancel(Runnable action) {
+		synchronized (this) {
+			if(!cancelled) {
+				cancelActions.add(action);
+				return;
+			}
+		}
+		action.run();
+	}
+}
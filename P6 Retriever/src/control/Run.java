@@ -5,7 +5,14 @@ import java.util.Properties;
 import ui.P6ExportFrame;
 
 public class Run {
+	/**
+	 * With no arguments opens the export wizard, otherwise runs headless, see {@link CommandLine}.
+	 */
 	public static void main (String [] args) {
+		if(args.length > 0) {
+			System.setProperty("java.awt.headless", "true");
+			System.exit(CommandLine.run(args));
+		}
 
 		P6ExportFrame ui = new P6ExportFrame();
 	}
@@ -0,0 +1,145 @@
+package control;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+import read.PagedReader;
+import read.PartitionedReader;
+
+/**
+ * A single table export (fetch from P6 then write to file) run as one task of the export pipeline.
+ * Tables do not depend on each other so each export can run on its own thread.
+ * Records are passed to the writer through {@link #track(List)}, {@link #track(PagedReader)} or {@link #track(PartitionedReader)},
+ * which count them into the table's {@link ExportProgress} and stop the write once the run is cancelled.
+ */
+abstract class TableExport implements Callable<Void> {
+
+	private final String table;
+	private final File file;
+	private final ExportProgress run;
+	private final ExportProgress.TableProgress progress;
+
+	/**
+	 * Constructor
+	 * @param table name of the P6 table being exported, used when reporting failures.
+	 * @param file {@link File} the table is written to.
+	 * @param run {@link ExportProgress} of the run the table is exported in.
+	 */
+	TableExport(String table, File file, ExportProgress run) {
+		this.table = table;
+		this.file = file;
+		this.run = run;
+		this.progress = run.table(table);
+	}
+
+	/**
+	 * Reads the table from P6 and writes it to {@link #getFile()}.
+	 * @throws Exception if either the read or the write fails.
+	 */
+	protected abstract void export() throws Exception;
+
+	@Override
+	public Void call() throws Exception {
+		progress.start();
+		try {
+			export();
+		} catch (Exception e) {
+			progress.finish(run.isCancelled() ? ExportProgress.State.CANCELLED : ExportProgress.State.FAILED);
+			throw e;
+		}
+		progress.finish(ExportProgress.State.DONE);
+		return null;
+	}
+
+	/**
+	 * @param records every record of the table, already read.
+	 * @return the records to write, counted as they are written.
+	 */
+	protected <T> Iterator<T> track(List<T> records) {
+		progress.setFetched(records.size());
+		return new Tracker<T>(records.iterator());
+	}
+
+	/**
+	 * @param records {@link PagedReader} of the table.
+	 * @return the records to write, counted as they are read and written.
+	 */
+	protected <T> Iterator<T> track(final PagedReader<T> records) {
+		return new Tracker<T>(records) {
+			long fetched() {
+				return records.getRecordsFetched();
+			}
+		};
+	}
+
+	/**
+	 * @param records {@link PartitionedReader} of the table.
+	 * @return the records to write, counted as the partitions read them and as they are written.
+	 */
+	protected <T> Iterator<T> track(final PartitionedReader<T> records) {
+		return new Tracker<T>(records) {
+			long fetched() {
+				return records.getRecordsFetched();
+			}
+		};
+	}
+
+	String getTable() {
+		return table;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * Counts records into the table's progress, ending the write with a {@link CancellationException} once the run is cancelled.
+	 */
+	private class Tracker<T> implements Iterator<T> {
+		private final Iterator<T> records;
+
+		Tracker(Iterator<T> records) {
+			this.records = records;
+		}
+
+		/**
+		 * @return records read so far by a reader that fetches as it is iterated, or -1 if they were all fetched up front.
+		 */
+		long fetched() {
+			return -1;
+		}
+
+		@Override
+		public boolean hasNext() {
+			checkCancelled();
+			boolean more = records.hasNext();
+			long fetched = fetched();
+			if(fetched >= 0) {
+				progress.setFetched(fetched);
+			}
+			return more;
+		}
+
+		@Override
+		public T next() {
+			checkCancelled();
+			T record = records.next();
+			progress.written();
+			return record;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private void checkCancelled() {
+			if(run.isCancelled()) {
+				throw new CancellationException("Export of " + table + " cancelled");
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package metrics;
+
+/**
+ * Time spent in one SOAP handler, e.g. building the WS-Security header in SecurityHandler, counted per message in either direction.
+ */
+public class HandlerMetrics implements HandlerMetricsMBean {
+
+	private final String handler;
+	private final Histogram time = new Histogram(Histogram.MICRO_BOUNDS);
+
+	HandlerMetrics(String handler) {
+		this.handler = handler;
+	}
+
+	public String getHandler() {
+		return handler;
+	}
+
+	/**
+	 * @param nanos time the handler took over one message.
+	 */
+	public void handled(long nanos) {
+		time.record(nanos);
+	}
+
+	public Histogram getTime() {
+		return time;
+	}
+
+	@Override
+	public long getMessages() {
+		return time.getCount();
+	}
+
+	@Override
+	public double getMeanMillis() {
+		return time.getMeanMillis();
+	}
+
+	@Override
+	public double getP99Millis() {
+		return time.getPercentileMillis(0.99);
+	}
+}
@@ -0,0 +1,13 @@
+package metrics;
+
+/**
+ * JMX view of a {@link HandlerMetrics}, registered as P6Connector:type=Handler,name=&lt;handler&gt;
+ */
+public interface HandlerMetricsMBean {
+
+	long getMessages();
+
+	double getMeanMillis();
+
+	double getP99Millis();
+}
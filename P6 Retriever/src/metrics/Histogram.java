@@ -0,0 +1,123 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts durations into fixed buckets matching a Prometheus histogram, by default from 1 millisecond to 5 minutes.
+ * Work measured in microseconds, such as a SOAP handler, is counted into {@link #MICRO_BOUNDS} instead so it does not all fall in the first bucket.
+ * Recording is a short bucket search and two lock-free increments so it is cheap enough for every SOAP call and table write.
+ * Percentiles are estimated as the upper bound of the bucket they fall in.
+ */
+public class Histogram {
+
+	/**
+	 * Upper bounds of the buckets in seconds, a last bucket counts everything above.
+	 */
+	static final double [] BOUNDS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300};
+
+	/**
+	 * Upper bounds in seconds from 5 microseconds to 100 milliseconds.
+	 */
+	static final double [] MICRO_BOUNDS = {0.000005, 0.00001, 0.000025, 0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.1};
+
+	private final double [] bounds;
+	private final long [] boundsNanos;
+	private final AtomicLongArray buckets;
+	private final LongAdder sumNanos = new LongAdder();
+
+	/**
+	 * Constructor, with buckets from 1 millisecond to 5 minutes.
+	 */
+	public Histogram() {
+		this(BOUNDS);
+	}
+
+	/**
+	 * Constructor
+	 * @param bounds upper bounds of the buckets in seconds, ascending.
+	 */
+	Histogram(double [] bounds) {
+		this.bounds = bounds;
+		this.boundsNanos = new long [bounds.length];
+		for(int i = 0; i < bounds.length; i++) {
+			boundsNanos[i] = (long)(bounds[i] * TimeUnit.SECONDS.toNanos(1));
+		}
+		this.buckets = new AtomicLongArray(bounds.length + 1);
+	}
+
+	/**
+	 * @param nanos duration to record.
+	 */
+	public void record(long nanos) {
+		int bucket = 0;
+		while(bucket < boundsNanos.length && nanos > boundsNanos[bucket]) {
+			bucket++;
+		}
+		buckets.incrementAndGet(bucket);
+		sumNanos.add(nanos);
+	}
+
+	/**
+	 * @return upper bounds of the buckets in seconds, not to be changed.
+	 */
+	double [] getBounds() {
+		return bounds;
+	}
+
+	public long getCount() {
+		long count = 0;
+		for(int i = 0; i < buckets.length(); i++) {
+			count += buckets.get(i);
+		}
+		return count;
+	}
+
+	public long getSumNanos() {
+		return sumNanos.sum();
+	}
+
+	/**
+	 * @return count in each bucket, not cumulative, the last being above the highest bound.
+	 */
+	public long [] getBucketCounts() {
+		long [] counts = new long [buckets.length()];
+		for(int i = 0; i < counts.length; i++) {
+			counts[i] = buckets.get(i);
+		}
+		return counts;
+	}
+
+	/**
+	 * @return mean duration in milliseconds, 0 if nothing has been recorded.
+	 */
+	public double getMeanMillis() {
+		long count = getCount();
+		return count == 0 ? 0 : getSumNanos() / 1e6 / count;
+	}
+
+	/**
+	 * @param quantile between 0 and 1 e.g. 0.99
+	 * @return upper bound in milliseconds of the bucket the quantile falls in, infinite if above the highest bound, 0 if nothing has been recorded.
+	 */
+	public double getPercentileMillis(double quantile) {
+		long [] counts = getBucketCounts();
+		long total = 0;
+		for(long count : counts) {
+			total += count;
+		}
+		if(total == 0) {
+			return 0;
+		}
+		long rank = (long)Math.ceil(quantile * total);
+		long seen = 0;
+		for(int i = 0; i < bounds.length; i++) {
+			seen += counts[i];
+			if(seen >= rank) {
+				return bounds[i] * 1000;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+}
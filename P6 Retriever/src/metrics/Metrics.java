@@ -0,0 +1,252 @@
+package metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.handler.MessageContext;
+
+/**
+ * Registry of the metrics kept for each P6 service, SOAP handler and table written.
+ * Each is exposed through JMX as it is first used and all of them can be written out as a Prometheus text file at the end of a run.
+ */
+public class Metrics {
+
+	public static final String DOMAIN = "P6Connector";
+
+	private static final Metrics GLOBAL = new Metrics();
+
+	private final ConcurrentMap<String, ServiceMetrics> services = new ConcurrentHashMap<String, ServiceMetrics>();
+	private final ConcurrentMap<String, HandlerMetrics> handlers = new ConcurrentHashMap<String, HandlerMetrics>();
+	private final ConcurrentMap<String, TableMetrics> tables = new ConcurrentHashMap<String, TableMetrics>();
+	private ExecutorService registrar;
+
+	/**
+	 * @return metrics shared by every reader and writer in the JVM.
+	 */
+	public static Metrics global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * @param service e.g. ResourceHourService
+	 */
+	public ServiceMetrics service(String service) {
+		ServiceMetrics metrics = services.get(service);
+		if(metrics == null) {
+			ServiceMetrics created = new ServiceMetrics(service);
+			metrics = services.putIfAbsent(service, created);
+			if(metrics == null) {
+				metrics = created;
+				register(created, "Service", service);
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * @param handler e.g. SecurityHandler
+	 */
+	public HandlerMetrics handler(String handler) {
+		HandlerMetrics metrics = handlers.get(handler);
+		if(metrics == null) {
+			HandlerMetrics created = new HandlerMetrics(handler);
+			metrics = handlers.putIfAbsent(handler, created);
+			if(metrics == null) {
+				metrics = created;
+				register(created, "Handler", handler);
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * @param table e.g. ResourceHour
+	 */
+	public TableMetrics table(String table) {
+		TableMetrics metrics = tables.get(table);
+		if(metrics == null) {
+			TableMetrics created = new TableMetrics(table);
+			metrics = tables.putIfAbsent(table, created);
+			if(metrics == null) {
+				metrics = created;
+				register(created, "Table", table);
+			}
+		}
+		return metrics;
+	}
+
+	public List<ServiceMetrics> getServices() {
+		return new ArrayList<ServiceMetrics>(services.values());
+	}
+
+	public List<HandlerMetrics> getHandlers() {
+		return new ArrayList<HandlerMetrics>(handlers.values());
+	}
+
+	public List<TableMetrics> getTables() {
+		return new ArrayList<TableMetrics>(tables.values());
+	}
+
+	/**
+	 * @param context context of a message sent through a port.
+	 * @return name of the service the message is for, the last part of the endpoint address e.g. ResourceHourService, null if there isn't one.
+	 */
+	public static String serviceOf(MessageContext context) {
+		Object address = context.get(BindingProvider.ENDPOINT_ADDRESS_PROPERTY);
+		if(address == null) {
+			return null;
+		}
+		String path = address.toString();
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	/**
+	 * Writes every metric in the Prometheus text format, suitable for the node exporter's textfile collector.
+	 * The file is written alongside and then moved into place so a collector never reads part of it.
+	 * @param file to write to, replaced if it exists.
+	 * @throws IOException if the file can't be written.
+	 */
+	public void writePrometheus(File file) throws IOException {
+		File partial = new File(file.getPath() + ".tmp");
+		try(PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(partial), StandardCharsets.UTF_8))) {
+			List<ServiceMetrics> services = getServices();
+			type(out, "p6_call_duration_seconds", "histogram", "Duration of calls to each P6 service including the handler chain");
+			for(ServiceMetrics service : services) {
+				histogram(out, "p6_call_duration_seconds", "service", service.getService(), service.getLatency());
+			}
+			type(out, "p6_call_errors_total", "counter", "Calls to each P6 service that failed");
+			for(ServiceMetrics service : services) {
+				sample(out, "p6_call_errors_total", "service", service.getService(), service.getErrors());
+			}
+			type(out, "p6_records_total", "counter", "Records returned by each P6 service");
+			for(ServiceMetrics service : services) {
+				sample(out, "p6_records_total", "service", service.getService(), service.getRecords());
+			}
+			type(out, "p6_response_bytes_total", "counter", "Size of responses from each P6 service as received, of streamed responses and those with a Content-Length only");
+			for(ServiceMetrics service : services) {
+				sample(out, "p6_response_bytes_total", "service", service.getService(), service.getResponseBytes());
+			}
+			type(out, "p6_responses_unsized_total", "counter", "Responses from each P6 service left out of p6_response_bytes_total as they had no Content-Length");
+			for(ServiceMetrics service : services) {
+				sample(out, "p6_responses_unsized_total", "service", service.getService(), service.getUnsizedResponses());
+			}
+			type(out, "p6_wsdl_load_seconds", "gauge", "Time taken to load each P6 service's WSDL");
+			for(ServiceMetrics service : services) {
+				sample(out, "p6_wsdl_load_seconds", "service", service.getService(), seconds(service.getWsdlLoadNanos()));
+			}
+			type(out, "p6_handler_duration_seconds", "histogram", "Time spent in each SOAP handler per message");
+			for(HandlerMetrics handler : getHandlers()) {
+				histogram(out, "p6_handler_duration_seconds", "handler", handler.getHandler(), handler.getTime());
+			}
+			List<TableMetrics> tables = getTables();
+			type(out, "p6_table_write_duration_seconds", "histogram", "Time taken to write each table's file");
+			for(TableMetrics table : tables) {
+				histogram(out, "p6_table_write_duration_seconds", "table", table.getTable(), table.getWriteTime());
+			}
+			type(out, "p6_table_rows_total", "counter", "Rows written for each table");
+			for(TableMetrics table : tables) {
+				sample(out, "p6_table_rows_total", "table", table.getTable(), table.getRows());
+			}
+			type(out, "p6_table_bytes_total", "counter", "Bytes written for each table before compression");
+			for(TableMetrics table : tables) {
+				sample(out, "p6_table_bytes_total", "table", table.getTable(), table.getBytes());
+			}
+			type(out, "p6_table_file_bytes_total", "counter", "Bytes written to disk for each table");
+			for(TableMetrics table : tables) {
+				sample(out, "p6_table_file_bytes_total", "table", table.getTable(), table.getFileBytes());
+			}
+			if(out.checkError()) {
+				throw new IOException("Failed writing " + partial);
+			}
+		}
+		Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void type(PrintWriter out, String name, String type, String help) {
+		out.print("# HELP " + name + " " + help + "\n");
+		out.print("# TYPE " + name + " " + type + "\n");
+	}
+
+	private static void histogram(PrintWriter out, String name, String label, String value, Histogram histogram) {
+		long [] counts = histogram.getBucketCounts();
+		double [] bounds = histogram.getBounds();
+		long cumulative = 0;
+		for(int i = 0; i < bounds.length; i++) {
+			cumulative += counts[i];
+			out.print(name + "_bucket{" + label + "=\"" + escape(value) + "\",le=\"" + format(bounds[i]) + "\"} " + cumulative + "\n");
+		}
+		cumulative += counts[bounds.length];
+		out.print(name + "_bucket{" + label + "=\"" + escape(value) + "\",le=\"+Inf\"} " + cumulative + "\n");
+		sample(out, name + "_sum", label, value, seconds(histogram.getSumNanos()));
+		sample(out, name + "_count", label, value, cumulative);
+	}
+
+	private static void sample(PrintWriter out, String name, String label, String value, long sample) {
+		out.print(name + "{" + label + "=\"" + escape(value) + "\"} " + sample + "\n");
+	}
+
+	private static void sample(PrintWriter out, String name, String label, String value, double sample) {
+		out.print(name + "{" + label + "=\"" + escape(value) + "\"} " + format(sample) + "\n");
+	}
+
+	private static double seconds(long nanos) {
+		return nanos / (double)TimeUnit.SECONDS.toNanos(1);
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%s", value);
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	/**
+	 * Registers an MBean on a background thread, starting the platform MBean server can take a noticeable time and shouldn't delay the first call to P6.
+	 */
+	private synchronized void register(final Object mbean, final String type, final String name) {
+		if(registrar == null) {
+			registrar = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "P6 metrics JMX");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		registrar.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+					if(!ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+						ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+					}
+				} catch (JMException | RuntimeException e) {
+					System.err.println("Couldn't register metrics for " + name + " with JMX");
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,75 @@
+package metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.namespace.QName;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.handler.soap.SOAPHandler;
+import javax.xml.ws.handler.soap.SOAPMessageContext;
+
+/**
+ * Records the size of each response from P6 against the service it came from.
+ * The size is taken from the Content-Length header so the message is never serialised to measure it.
+ * A port gives a handler no way to count the bytes of a response sent without one, i.e. chunked,
+ * so those are counted as unsized responses and the byte count covers only the rest. Streamed reads count the bytes they read themselves.
+ */
+public class ResponseSizeHandler implements SOAPHandler<SOAPMessageContext> {
+
+	private final Metrics metrics;
+
+	/**
+	 * Constructor
+	 * @param metrics registry to record to.
+	 */
+	public ResponseSizeHandler(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public boolean handleMessage(SOAPMessageContext context) {
+		record(context);
+		return true;
+	}
+
+	@Override
+	public boolean handleFault(SOAPMessageContext context) {
+		record(context);
+		return true;
+	}
+
+	@Override
+	public void close(MessageContext context) {
+	}
+
+	@Override
+	public Set<QName> getHeaders() {
+		return new TreeSet<QName>();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void record(SOAPMessageContext context) {
+		if(((Boolean)context.get(MessageContext.MESSAGE_OUTBOUND_PROPERTY)).booleanValue()) {
+			return;
+		}
+		String service = Metrics.serviceOf(context);
+		Map<String, List<String>> headers = (Map<String, List<String>>)context.get(MessageContext.HTTP_RESPONSE_HEADERS);
+		if(service == null || headers == null) {
+			return;
+		}
+		for(Map.Entry<String, List<String>> header : headers.entrySet()) {
+			if("Content-Length".equalsIgnoreCase(header.getKey()) && header.getValue() != null && !header.getValue().isEmpty()) {
+				try {
+					metrics.service(service).received(Long.parseLong(header.getValue().get(0).trim()));
+					return;
+				} catch (NumberFormatException e) {
+					// Not a length we can count
+				}
+				break;
+			}
+		}
+		metrics.service(service).unsized();
+	}
+}
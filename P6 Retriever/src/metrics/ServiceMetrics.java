@@ -0,0 +1,119 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Calls made to one P6 service, e.g. ResourceHourService, across every reader in the JVM.
+ * Latency is of the whole call as made by the port, including the handler chain, the HTTP exchange and unmarshalling the response.
+ */
+public class ServiceMetrics implements ServiceMetricsMBean {
+
+	private final String service;
+	private final Histogram latency = new Histogram();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder records = new LongAdder();
+	private final LongAdder responseBytes = new LongAdder();
+	private final LongAdder unsizedResponses = new LongAdder();
+	private volatile long wsdlLoadNanos;
+
+	ServiceMetrics(String service) {
+		this.service = service;
+	}
+
+	public String getService() {
+		return service;
+	}
+
+	/**
+	 * Records a call that returned.
+	 * @param nanos duration of the call.
+	 * @param returned number of records returned.
+	 */
+	public void called(long nanos, int returned) {
+		latency.record(nanos);
+		records.add(returned);
+	}
+
+	/**
+	 * Records a call that failed.
+	 * @param nanos duration of the call until it failed.
+	 */
+	public void failed(long nanos) {
+		latency.record(nanos);
+		errors.increment();
+	}
+
+	/**
+	 * @param bytes size of a response as received, i.e. compressed if it was sent compressed.
+	 */
+	public void received(long bytes) {
+		responseBytes.add(bytes);
+	}
+
+	/**
+	 * Records a response whose size is not known, so is missing from the response bytes, e.g. one sent chunked to a port.
+	 */
+	public void unsized() {
+		unsizedResponses.increment();
+	}
+
+	/**
+	 * @param nanos time taken to load the service's WSDL and build the service.
+	 */
+	public void wsdlLoaded(long nanos) {
+		wsdlLoadNanos = nanos;
+	}
+
+	public Histogram getLatency() {
+		return latency;
+	}
+
+	@Override
+	public long getCalls() {
+		return latency.getCount();
+	}
+
+	@Override
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	@Override
+	public long getRecords() {
+		return records.sum();
+	}
+
+	@Override
+	public long getResponseBytes() {
+		return responseBytes.sum();
+	}
+
+	@Override
+	public long getUnsizedResponses() {
+		return unsizedResponses.sum();
+	}
+
+	@Override
+	public double getMeanLatencyMillis() {
+		return latency.getMeanMillis();
+	}
+
+	@Override
+	public double getP50LatencyMillis() {
+		return latency.getPercentileMillis(0.5);
+	}
+
+	@Override
+	public double getP99LatencyMillis() {
+		return latency.getPercentileMillis(0.99);
+	}
+
+	@Override
+	public double getWsdlLoadMillis() {
+		return wsdlLoadNanos / 1e6;
+	}
+
+	long getWsdlLoadNanos() {
+		return wsdlLoadNanos;
+	}
+}
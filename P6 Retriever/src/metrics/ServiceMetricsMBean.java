@@ -0,0 +1,31 @@
+package metrics;
+
+/**
+ * JMX view of a {@link ServiceMetrics}, registered as P6Connector:type=Service,name=&lt;service&gt;
+ */
+public interface ServiceMetricsMBean {
+
+	long getCalls();
+
+	long getErrors();
+
+	long getRecords();
+
+	/**
+	 * @return bytes of the responses whose size is known, see {@link #getUnsizedResponses()}.
+	 */
+	long getResponseBytes();
+
+	/**
+	 * @return responses left out of {@link #getResponseBytes()} as their size was not known.
+	 */
+	long getUnsizedResponses();
+
+	double getMeanLatencyMillis();
+
+	double getP50LatencyMillis();
+
+	double getP99LatencyMillis();
+
+	double getWsdlLoadMillis();
+}
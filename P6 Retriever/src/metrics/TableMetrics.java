@@ -0,0 +1,74 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Files written for one table, e.g. ResourceHour. Write time runs from opening the file to it being complete,
+ * so for a table written as it is read it includes waiting on P6 for each page.
+ */
+public class TableMetrics implements TableMetricsMBean {
+
+	private final String table;
+	private final Histogram writeTime = new Histogram();
+	private final LongAdder rows = new LongAdder();
+	private final LongAdder bytes = new LongAdder();
+	private final LongAdder fileBytes = new LongAdder();
+	private volatile long lastWriteNanos;
+
+	TableMetrics(String table) {
+		this.table = table;
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	/**
+	 * Records a completed file.
+	 * @param nanos time taken to write it.
+	 * @param written rows written, excluding the header.
+	 * @param uncompressed bytes written before compression.
+	 * @param onDisk size of the file.
+	 */
+	public void written(long nanos, long written, long uncompressed, long onDisk) {
+		writeTime.record(nanos);
+		rows.add(written);
+		bytes.add(uncompressed);
+		fileBytes.add(onDisk);
+		lastWriteNanos = nanos;
+	}
+
+	public Histogram getWriteTime() {
+		return writeTime;
+	}
+
+	@Override
+	public long getWrites() {
+		return writeTime.getCount();
+	}
+
+	@Override
+	public long getRows() {
+		return rows.sum();
+	}
+
+	@Override
+	public long getBytes() {
+		return bytes.sum();
+	}
+
+	@Override
+	public long getFileBytes() {
+		return fileBytes.sum();
+	}
+
+	@Override
+	public double getMeanWriteMillis() {
+		return writeTime.getMeanMillis();
+	}
+
+	@Override
+	public double getLastWriteMillis() {
+		return lastWriteNanos / 1e6;
+	}
+}
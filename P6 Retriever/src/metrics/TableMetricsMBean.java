@@ -0,0 +1,19 @@
+package metrics;
+
+/**
+ * JMX view of a {@link TableMetrics}, registered as P6Connector:type=Table,name=&lt;table&gt;
+ */
+public interface TableMetricsMBean {
+
+	long getWrites();
+
+	long getRows();
+
+	long getBytes();
+
+	long getFileBytes();
+
+	double getMeanWriteMillis();
+
+	double getLastWriteMillis();
+}
@@ -0,0 +1,58 @@
+package metrics;
+
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.handler.soap.SOAPHandler;
+import javax.xml.ws.handler.soap.SOAPMessageContext;
+
+/**
+ * Wraps a SOAP handler to record the time it spends on each message in {@link HandlerMetrics} named after the handler's class,
+ * e.g. the cost of signing a UsernameToken in SecurityHandler can be told apart from the rest of a call.
+ */
+public class TimedHandler implements SOAPHandler<SOAPMessageContext> {
+
+	private final SOAPHandler<SOAPMessageContext> handler;
+	private final HandlerMetrics metrics;
+
+	/**
+	 * Constructor
+	 * @param handler handler to time.
+	 * @param metrics registry to record to.
+	 */
+	public TimedHandler(SOAPHandler<SOAPMessageContext> handler, Metrics metrics) {
+		this.handler = handler;
+		this.metrics = metrics.handler(handler.getClass().getSimpleName());
+	}
+
+	@Override
+	public boolean handleMessage(SOAPMessageContext context) {
+		long start = System.nanoTime();
+		try {
+			return handler.handleMessage(context);
+		} finally {
+			metrics.handled(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public boolean handleFault(SOAPMessageContext context) {
+		long start = System.nanoTime();
+		try {
+			return handler.handleFault(context);
+		} finally {
+			metrics.handled(System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public void close(MessageContext context) {
+		handler.close(context);
+	}
+
+	@Override
+	public Set<QName> getHeaders() {
+		return handler.getHeaders();
+	}
+}
@@ -0,0 +1,385 @@
+package read;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import com.primavera.ws.p6.resource.Resource;
+import com.primavera.ws.p6.resourceassignment.ResourceAssignment;
+import com.primavera.ws.p6.resourceassignmentperiodactual.ResourceAssignmentPeriodActual;
+import com.primavera.ws.p6.resourcecode.ResourceCode;
+import com.primavera.ws.p6.resourcecodeassignment.ResourceCodeAssignment;
+import com.primavera.ws.p6.resourcehour.ResourceHour;
+import com.primavera.ws.p6.resourcerate.ResourceRate;
+import com.primavera.ws.p6.timesheet.Timesheet;
+import com.primavera.ws.p6.timesheetperiod.TimesheetPeriod;
+import com.primavera.ws.p6.user.User;
+
+/**
+ * Asynchronous view of a {@link P6Reader}: each read returns a {@link CompletableFuture} at once and runs on an {@link Executor},
+ * so several tables can be read together and composed without the caller managing threads.
+ * e.g. readResourcesAsync().thenCombine(readTimesheetsAsync(), (resources, timesheets) -&gt; ...)
+ * <p>
+ * By default reads run on virtual threads, one per read, where the JVM has them (Java 21 on) and on daemon platform threads otherwise.
+ * A read blocks its thread on the SOAP call, so a bounded executor limits how many tables are read at once;
+ * calls to the server are limited in any case by the reader's {@link ConcurrencyLimit}.
+ * <p>
+ * A failed read completes its future with a {@link P6ReadException} naming the service, cancelling the reader with
+ * {@link P6Reader#cancel()} completes the reads in progress with a {@link CancellationException}.
+ * Cancelling a future only stops a read that has not started.
+ * <p>
+ * The publish methods return a {@link Flow.Publisher} instead, for consumers that pass records on to a queue or database
+ * and should not have the whole table buffered for them, see {@link RecordPublisher}.
+ */
+public class AsyncP6Reader {
+
+	private static final String RESOURCE_HOUR = "ResourceHourService";
+	private static final String RESOURCE_RATE = "ResourceRateService";
+	private static final String RESOURCE = "ResourceService";
+	private static final String TIMESHEET = "TimesheetService";
+	private static final String TIMESHEET_PERIOD = "TimesheetPeriodService";
+	private static final String RESOURCE_ASSIGNMENT = "ResourceAssignmentService";
+	private static final String RESOURCE_CODE = "ResourceCodeService";
+	private static final String RESOURCE_CODE_ASSIGNMENT = "ResourceCodeAssignmentService";
+	private static final String USER = "UserService";
+	private static final String RESOURCE_ASSIGNMENT_PERIOD_ACTUAL = "ResourceAssignmentPeriodActualService";
+
+	private final P6Reader reader;
+	private final Executor executor;
+
+	/**
+	 * Constructor, reads run on virtual threads where available.
+	 * @param reader {@link P6Reader} to read with.
+	 */
+	public AsyncP6Reader(P6Reader reader) {
+		this(reader, DefaultExecutor.INSTANCE);
+	}
+
+	/**
+	 * Constructor
+	 * @param reader {@link P6Reader} to read with.
+	 * @param executor {@link Executor} to run reads on, left running when done with.
+	 */
+	public AsyncP6Reader(P6Reader reader, Executor executor) {
+		this.reader = reader;
+		this.executor = executor;
+	}
+
+	/**
+	 * @return the reader reads are made with.
+	 */
+	public P6Reader getReader() {
+		return reader;
+	}
+
+	/**
+	 * Runs any read on the executor, e.g. a projection: submit("ResourceHourService", () -&gt; reader.readResourceHour(fields, filter))
+	 * @param service name of the P6 service read, given to the {@link P6ReadException} if the read fails.
+	 * @param read read to run.
+	 * @return future completed with the read's result.
+	 */
+	public <T> CompletableFuture<T> submit(final String service, final Callable<T> read) {
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			executor.execute(new Runnable() {
+				public void run() {
+					if(future.isDone()) {
+						// Cancelled before it started
+						return;
+					}
+					try {
+						future.complete(read.call());
+					} catch (P6ReadException | CancellationException e) {
+						future.completeExceptionally(e);
+					} catch (Exception e) {
+						future.completeExceptionally(new P6ReadException(service, "Read failed", e, reader.getRetryPolicy()));
+					} catch (Error e) {
+						future.completeExceptionally(e);
+						throw e;
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(new P6ReadException(service, "Read could not be started", e));
+		}
+		return future;
+	}
+
+	/**
+	 * @see P6Reader#readResourceHour()
+	 */
+	public CompletableFuture<List<ResourceHour>> readResourceHourAsync() {
+		return submit(RESOURCE_HOUR, new Callable<List<ResourceHour>>() {
+			public List<ResourceHour> call() throws Exception {
+				return reader.readResourceHour();
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readResourceHour(String)
+	 */
+	public CompletableFuture<List<ResourceHour>> readResourceHourAsync(final String filter) {
+		return submit(RESOURCE_HOUR, new Callable<List<ResourceHour>>() {
+			public List<ResourceHour> call() throws Exception {
+				return reader.readResourceHour(filter);
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readResourceHourTable()
+	 */
+	public CompletableFuture<ResourceHourTable> readResourceHourTableAsync() {
+		return submit(RESOURCE_HOUR, new Callable<ResourceHourTable>() {
+			public ResourceHourTable call() throws Exception {
+				return reader.readResourceHourTable();
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readResourceRate()
+	 */
+	public CompletableFuture<List<ResourceRate>> readResourceRateAsync() {
+		return submit(RESOURCE_RATE, new Callable<List<ResourceRate>>() {
+			public List<ResourceRate> call() throws Exception {
+				return reader.readResourceRate();
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readResources()
+	 */
+	public CompletableFuture<List<Resource>> readResourcesAsync() {
+		return submit(RESOURCE, new Callable<List<Resource>>() {
+			public List<Resource> call() throws Exception {
+				return reader.readResources();
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readTimesheets()
+	 */
+	public CompletableFuture<List<Timesheet>> readTimesheetsAsync() {
+		return submit(TIMESHEET, new Callable<List<Timesheet>>() {
+			public List<Timesheet> call() throws Exception {
+				return reader.readTimesheets();
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readTimesheetPeriods()
+	 */
+	public CompletableFuture<List<TimesheetPeriod>> readTimesheetPeriodsAsync() {
+		return submit(TIMESHEET_PERIOD, new Callable<List<TimesheetPeriod>>() {
+			public List<TimesheetPeriod> call() throws Exception {
+				return reader.readTimesheetPeriods();
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readResourceAssignments()
+	 */
+	public CompletableFuture<List<ResourceAssignment>> readResourceAssignmentsAsync() {
+		return submit(RESOURCE_ASSIGNMENT, new Callable<List<ResourceAssignment>>() {
+			public List<ResourceAssignment> call() throws Exception {
+				return reader.readResourceAssignments();
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readResourceAssignments(String)
+	 */
+	public CompletableFuture<List<ResourceAssignment>> readResourceAssignmentsAsync(final String filter) {
+		return submit(RESOURCE_ASSIGNMENT, new Callable<List<ResourceAssignment>>() {
+			public List<ResourceAssignment> call() throws Exception {
+				return reader.readResourceAssignments(filter);
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readResourceCodes()
+	 */
+	public CompletableFuture<List<ResourceCode>> readResourceCodesAsync() {
+		return submit(RESOURCE_CODE, new Callable<List<ResourceCode>>() {
+			public List<ResourceCode> call() throws Exception {
+				return reader.readResourceCodes();
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readResourceCodeAssignments()
+	 */
+	public CompletableFuture<List<ResourceCodeAssignment>> readResourceCodeAssignmentsAsync() {
+		return submit(RESOURCE_CODE_ASSIGNMENT, new Callable<List<ResourceCodeAssignment>>() {
+			public List<ResourceCodeAssignment> call() throws Exception {
+				return reader.readResourceCodeAssignments();
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readUsers()
+	 */
+	public CompletableFuture<List<User>> readUsersAsync() {
+		return submit(USER, new Callable<List<User>>() {
+			public List<User> call() throws Exception {
+				return reader.readUsers();
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readReassActual()
+	 */
+	public CompletableFuture<List<ResourceAssignmentPeriodActual>> readReassActualAsync() {
+		return submit(RESOURCE_ASSIGNMENT_PERIOD_ACTUAL, new Callable<List<ResourceAssignmentPeriodActual>>() {
+			public List<ResourceAssignmentPeriodActual> call() throws Exception {
+				return reader.readReassActual();
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readReassActual(String)
+	 */
+	public CompletableFuture<List<ResourceAssignmentPeriodActual>> readReassActualAsync(final String filter) {
+		return submit(RESOURCE_ASSIGNMENT_PERIOD_ACTUAL, new Callable<List<ResourceAssignmentPeriodActual>>() {
+			public List<ResourceAssignmentPeriodActual> call() throws Exception {
+				return reader.readReassActual(filter);
+			}
+		});
+	}
+
+	/**
+	 * Publishes a paged read, each subscriber gets its own {@link PagedReader} started on its first request.
+	 * @param service name of the P6 service read, given to the {@link P6ReadException} if the read fails.
+	 * @param read starts the paged read e.g. () -&gt; reader.readResourceHourPaged(pageSize, filter, fields)
+	 * @return publisher of the records, requesting each page from P6 only once subscribers have demand for it.
+	 */
+	public <T> RecordPublisher<T> publish(String service, Callable<? extends Iterator<? extends T>> read) {
+		return new RecordPublisher<T>(service, read, executor, reader.getRetryPolicy());
+	}
+
+	/**
+	 * @see P6Reader#readResourceHourPaged(int)
+	 */
+	public RecordPublisher<ResourceHour> publishResourceHour(int pageSize) {
+		return publishResourceHour(pageSize, null);
+	}
+
+	/**
+	 * @see P6Reader#readResourceHourPaged(int, String)
+	 */
+	public RecordPublisher<ResourceHour> publishResourceHour(final int pageSize, final String filter) {
+		return publish(RESOURCE_HOUR, new Callable<PagedReader<ResourceHour>>() {
+			public PagedReader<ResourceHour> call() throws Exception {
+				return reader.readResourceHourPaged(pageSize, filter);
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readResourceAssignmentsPaged(int)
+	 */
+	public RecordPublisher<ResourceAssignment> publishResourceAssignments(int pageSize) {
+		return publishResourceAssignments(pageSize, null);
+	}
+
+	/**
+	 * @see P6Reader#readResourceAssignmentsPaged(int, String)
+	 */
+	public RecordPublisher<ResourceAssignment> publishResourceAssignments(final int pageSize, final String filter) {
+		return publish(RESOURCE_ASSIGNMENT, new Callable<PagedReader<ResourceAssignment>>() {
+			public PagedReader<ResourceAssignment> call() throws Exception {
+				return reader.readResourceAssignmentsPaged(pageSize, filter);
+			}
+		});
+	}
+
+	/**
+	 * @see P6Reader#readReassActualPaged(int)
+	 */
+	public RecordPublisher<ResourceAssignmentPeriodActual> publishReassActual(int pageSize) {
+		return publishReassActual(pageSize, null);
+	}
+
+	/**
+	 * @see P6Reader#readReassActualPaged(int, String)
+	 */
+	public RecordPublisher<ResourceAssignmentPeriodActual> publishReassActual(final int pageSize, final String filter) {
+		return publish(RESOURCE_ASSIGNMENT_PERIOD_ACTUAL, new Callable<PagedReader<ResourceAssignmentPeriodActual>>() {
+			public PagedReader<ResourceAssignmentPeriodActual> call() throws Exception {
+				return reader.readReassActualPaged(pageSize, filter);
+			}
+		});
+	}
+
+	/**
+	 * Publishes the Resource table. P6 has no paging for it so it is read whole on the first request,
+	 * then emitted as subscribers ask; the table is small next to the paged ones.
+	 * @see P6Reader#readResources()
+	 */
+	public RecordPublisher<Resource> publishResources() {
+		return publish(RESOURCE, new Callable<Iterator<Resource>>() {
+			public Iterator<Resource> call() throws Exception {
+				return reader.readResources().iterator();
+			}
+		});
+	}
+
+	/**
+	 * Publishes the Timesheet table, read whole on the first request like {@link #publishResources()}.
+	 * @see P6Reader#readTimesheets()
+	 */
+	public RecordPublisher<Timesheet> publishTimesheets() {
+		return publish(TIMESHEET, new Callable<Iterator<Timesheet>>() {
+			public Iterator<Timesheet> call() throws Exception {
+				return reader.readTimesheets().iterator();
+			}
+		});
+	}
+
+	/**
+	 * Executor used when none is given, created on first use and shared by every {@link AsyncP6Reader}.
+	 */
+	private static class DefaultExecutor {
+
+		private static final Executor INSTANCE = create();
+
+		/**
+		 * @return a virtual thread per task executor if the JVM has one, otherwise a cached pool of daemon threads.
+		 */
+		private static Executor create() {
+			try {
+				// Looked up rather than called so the library still runs on JVMs before Java 21
+				return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				return Executors.newCachedThreadPool(new ThreadFactory() {
+					private int count;
+					public synchronized Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "P6 async read " + ++count);
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+		}
+	}
+}
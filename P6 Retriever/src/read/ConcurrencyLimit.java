@@ -0,0 +1,68 @@
+package read;
+
+/**
+ * How many SOAP calls may be in progress to one P6 server at once, set on {@link ReaderOptions}.
+ * The limit is shared by every reader in the JVM connecting to the same host and port, so parallel fetches can't add up to more than the cap.
+ * Creating a reader with different settings applies them to the shared limit, which keeps what it has learned up to the new cap.
+ * <p>
+ * When adaptive the limit starts at the initial value and is raised by one for each limit's worth of calls that complete at
+ * their usual latency, up to the cap. It is cut by a quarter when a call times out or is refused (see {@link RetryPolicy#isRetryable(Throwable)})
+ * or takes more than twice as long per record as that operation usually does for a similar number of records, so parallel reads get as much as the server sustains at the time
+ * without tipping it over.
+ */
+public class ConcurrencyLimit {
+
+	/**
+	 * Starts at 4 calls at once and adapts up to 16.
+	 */
+	public static final ConcurrencyLimit DEFAULT = new ConcurrencyLimit(4, 16);
+
+	private final int initialLimit;
+	private final int maxLimit;
+
+	/**
+	 * Constructor for an adaptive limit.
+	 * @param initialLimit calls allowed at once before any have completed, at least 1.
+	 * @param maxLimit cap on calls at once however well the server is responding, at least the initial limit.
+	 */
+	public ConcurrencyLimit(int initialLimit, int maxLimit) {
+		if(initialLimit < 1 || maxLimit < initialLimit) {
+			throw new IllegalArgumentException("Limit must be from 1 up to the maximum: " + initialLimit + ", " + maxLimit);
+		}
+		this.initialLimit = initialLimit;
+		this.maxLimit = maxLimit;
+	}
+
+	/**
+	 * @param limit calls allowed at once.
+	 * @return a limit which does not adapt.
+	 */
+	public static ConcurrencyLimit fixed(int limit) {
+		return new ConcurrencyLimit(limit, limit);
+	}
+
+	public int getInitialLimit() {
+		return initialLimit;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	/**
+	 * @return true if the limit adapts to the server, false if it is fixed.
+	 */
+	public boolean isAdaptive() {
+		return initialLimit < maxLimit;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof ConcurrencyLimit && ((ConcurrencyLimit)other).initialLimit == initialLimit && ((ConcurrencyLimit)other).maxLimit == maxLimit;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * initialLimit + maxLimit;
+	}
+}
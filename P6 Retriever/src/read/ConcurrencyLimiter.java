@@ -0,0 +1,182 @@
+package read;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the SOAP calls in progress to one P6 server, adapting the limit by additive increase and multiplicative decrease
+ * as described on {@link ConcurrencyLimit}. One limiter is kept per host and port for the life of the JVM, with the settings of the latest reader.
+ * <p>
+ * Calls of one operation range from an empty window to a whole table, so latency is compared per record returned,
+ * and only between calls returning a similar number of records: each operation has a usual time per record for each power of two of records.
+ * The usual time falls quickly towards faster calls and rises slowly with later calls at their usual speed.
+ * Slow calls only move it when they cut the limit, so a server that has become slower for good stops counting as overloaded
+ * after a few cuts rather than straight away.
+ */
+class ConcurrencyLimiter {
+
+	/**
+	 * A call taking longer than this many times its operation's usual latency is taken as the server queueing.
+	 */
+	private static final int LATENCY_TOLERANCE = 2;
+
+	/**
+	 * Share of the difference between a call and the usual latency the usual latency moves by.
+	 */
+	private static final int BASELINE_DRIFT = 64;
+
+	/**
+	 * Share of the difference the usual latency moves by towards a faster call, quicker so a first slow call doesn't set the bar.
+	 */
+	private static final int FAST_DRIFT = 8;
+
+	/**
+	 * Share of the difference between a slow call and the usual latency the usual latency moves by when the call cuts the limit.
+	 */
+	private static final int SLOW_DRIFT = 8;
+
+	/**
+	 * Share of the limit kept when it is cut.
+	 */
+	private static final double BACKOFF = 0.75;
+
+	/**
+	 * The limit is cut at most once in this time, calls in progress when the server became overloaded all fail or slow together.
+	 */
+	private static final long BACKOFF_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private static final Map<String, ConcurrencyLimiter> HOSTS = new HashMap<>();
+
+	private ConcurrencyLimit settings;
+	private final Map<String, Long> baselines = new HashMap<>();
+	private double limit;
+	private int inFlight;
+	private long lastBackoff = System.nanoTime() - BACKOFF_INTERVAL_NANOS;
+
+	ConcurrencyLimiter(ConcurrencyLimit settings) {
+		this.settings = settings;
+		this.limit = settings.getInitialLimit();
+	}
+
+	/**
+	 * @param host host and port of the server e.g. host:443
+	 * @param settings {@link ConcurrencyLimit} of the reader, replacing those of earlier readers of the host which share the limiter.
+	 * @return limiter of the host.
+	 */
+	static synchronized ConcurrencyLimiter forHost(String host, ConcurrencyLimit settings) {
+		ConcurrencyLimiter limiter = HOSTS.get(host);
+		if(limiter == null) {
+			limiter = new ConcurrencyLimiter(settings);
+			HOSTS.put(host, limiter);
+		}else {
+			limiter.update(settings);
+		}
+		return limiter;
+	}
+
+	/**
+	 * Applies new settings. The limit learned so far is kept, within the new cap, as other readers of the host still rely on it;
+	 * a fixed limit is taken as it is. Calls in progress are let finish.
+	 * @param settings {@link ConcurrencyLimit} to use from now on.
+	 */
+	synchronized void update(ConcurrencyLimit settings) {
+		if(!settings.equals(this.settings)) {
+			this.settings = settings;
+			if(settings.isAdaptive()) {
+				limit = Math.min(settings.getMaxLimit(), limit);
+			}else {
+				limit = settings.getMaxLimit();
+			}
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Waits for a call to be allowed.
+	 * @param timeout longest time to wait in milliseconds.
+	 * @return true if the call may go ahead and must be followed by {@link #succeeded(String, long, int)} or {@link #failed(boolean)}, false if the time ran out.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	synchronized boolean tryAcquire(long timeout) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		while(inFlight >= (int)limit) {
+			long remaining = deadline - System.nanoTime();
+			if(remaining <= 0) {
+				return false;
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		inFlight++;
+		return true;
+	}
+
+	/**
+	 * Ends a call that returned.
+	 * @param operation name of what was called, latency is compared between calls of the same operation.
+	 * @param nanos time the call took.
+	 * @param records records the call returned.
+	 */
+	synchronized void succeeded(String operation, long nanos, int records) {
+		boolean saturated = inFlight >= (int)limit;
+		inFlight--;
+		String size = operation + "/" + (32 - Integer.numberOfLeadingZeros(records));
+		long perRecord = nanos / Math.max(1, records);
+		Long baseline = baselines.get(size);
+		if(baseline == null) {
+			baselines.put(size, perRecord);
+		}else if(perRecord < baseline) {
+			baselines.put(size, baseline - (baseline - perRecord) / FAST_DRIFT);
+		}else if(perRecord > baseline * LATENCY_TOLERANCE) {
+			if(backoff()) {
+				baselines.put(size, baseline + (perRecord - baseline) / SLOW_DRIFT);
+			}
+		}else {
+			baselines.put(size, baseline + (perRecord - baseline) / BASELINE_DRIFT);
+			if(saturated) {
+				// Only grow while the limit is what holds calls back, otherwise a quiet period would let it creep up unchecked
+				limit = Math.min(settings.getMaxLimit(), limit + 1 / limit);
+			}
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Ends a call that failed.
+	 * @param overloaded true if the failure shows the server is overloaded, e.g. a timeout or HTTP 503.
+	 */
+	synchronized void failed(boolean overloaded) {
+		inFlight--;
+		if(overloaded) {
+			backoff();
+		}
+		notifyAll();
+	}
+
+	/**
+	 * @return true if the limit was cut, false if it is fixed or was cut too recently.
+	 */
+	private boolean backoff() {
+		long now = System.nanoTime();
+		if(!settings.isAdaptive() || now - lastBackoff < BACKOFF_INTERVAL_NANOS) {
+			return false;
+		}
+		limit = Math.max(1, limit * BACKOFF);
+		lastBackoff = now;
+		return true;
+	}
+
+	/**
+	 * @return calls currently allowed at once.
+	 */
+	synchronized int getLimit() {
+		return (int)limit;
+	}
+
+	/**
+	 * @return calls in progress.
+	 */
+	synchronized int getInFlight() {
+		return inFlight;
+	}
+}
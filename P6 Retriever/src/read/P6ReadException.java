@@ -0,0 +1,64 @@
+package read;
+
+/**
+ * Unchecked exception thrown when a read from a P6 service fails somewhere a checked exception can not be thrown,
+ * for example part way through iterating a {@link PagedReader} or completing a future of an {@link AsyncP6Reader}.
+ * Carries the name of the service that failed, and whether the failure was transient so the read is worth repeating,
+ * as judged by the {@link RetryPolicy} of the reader when the exception is made.
+ */
+public class P6ReadException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String service;
+	private final boolean transientFailure;
+
+	/**
+	 * Constructor, for a failure that is not transient unless its cause is a transient P6ReadException.
+	 * @param service name of the P6 service that failed e.g. ResourceHourService
+	 * @param message description of the failure.
+	 * @param cause underlying exception.
+	 */
+	public P6ReadException(String service, String message, Throwable cause) {
+		this(service, message, cause, cause instanceof P6ReadException && ((P6ReadException)cause).isTransient());
+	}
+
+	/**
+	 * Constructor
+	 * @param service name of the P6 service that failed e.g. ResourceHourService
+	 * @param message description of the failure.
+	 * @param cause underlying exception.
+	 * @param retryPolicy {@link RetryPolicy} of the reader, judges whether the cause is transient.
+	 */
+	public P6ReadException(String service, String message, Throwable cause, RetryPolicy retryPolicy) {
+		this(service, message, cause, retryPolicy.isRetryable(cause));
+	}
+
+	/**
+	 * Constructor
+	 * @param service name of the P6 service that failed e.g. ResourceHourService
+	 * @param message description of the failure.
+	 * @param cause underlying exception.
+	 * @param transientFailure true if the read is worth repeating.
+	 */
+	public P6ReadException(String service, String message, Throwable cause, boolean transientFailure) {
+		super(service + ": " + message, cause);
+		this.service = service;
+		this.transientFailure = transientFailure;
+	}
+
+	/**
+	 * @return name of the P6 service that failed.
+	 */
+	public String getService() {
+		return service;
+	}
+
+	/**
+	 * @return true if the failure was transient, e.g. a timeout or HTTP 503, as judged by the reader's {@link RetryPolicy#isRetryable(Throwable)}.
+	 * The reader's own retries have already been used up by the time this is thrown.
+	 */
+	public boolean isTransient() {
+		return transientFailure;
+	}
+}
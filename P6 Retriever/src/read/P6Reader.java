@@ -1,14 +1,15 @@
 package read;
 
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import javax.net.ssl.SSLException;
-import javax.xml.ws.Binding;
-import javax.xml.ws.BindingProvider;
 import javax.xml.ws.handler.Handler;
 
+import com.primavera.ws.p6.authentication.AuthenticationService;
+import com.primavera.ws.p6.authentication.AuthenticationServicePortType;
 import com.primavera.ws.p6.resource.Resource;
 import com.primavera.ws.p6.resource.ResourceFieldType;
 import com.primavera.ws.p6.resource.ResourcePortType;
@@ -41,12 +42,24 @@ import com.primavera.ws.p6.timesheet.Timesheet;
 import com.primavera.ws.p6.timesheet.TimesheetFieldType;
 import com.primavera.ws.p6.timesheet.TimesheetPortType;
 import com.primavera.ws.p6.timesheet.TimesheetService;
+import com.primavera.ws.p6.timesheetperiod.TimesheetPeriod;
+import com.primavera.ws.p6.timesheetperiod.TimesheetPeriodFieldType;
+import com.primavera.ws.p6.timesheetperiod.TimesheetPeriodPortType;
+import com.primavera.ws.p6.timesheetperiod.TimesheetPeriodService;
 import com.primavera.ws.p6.user.User;
 import com.primavera.ws.p6.user.UserFieldType;
 import com.primavera.ws.p6.user.UserPortType;
 import com.primavera.ws.p6.user.UserService;
 
+import metrics.Metrics;
+import metrics.ResponseSizeHandler;
+import metrics.TimedHandler;
+import security.AuthMode;
 import security.SecurityHandler;
+import security.SessionAuthenticator;
+import security.SessionHandler;
+import write.AsyncLogAppender;
+import write.LogLevel;
 import write.LoggingHandler;
 
 /**
@@ -61,14 +74,21 @@ public class P6Reader {
 	private static final String RESOURCERATE_SERVICE = "/p6ws/services/ResourceRateService";
 	private static final String RESOURCE_SERVICE = "/p6ws/services/ResourceService";
 	private static final String TIMESHEET_SERVICE = "/p6ws/services/TimesheetService";
+	private static final String TIMESHEET_PERIOD_SERVICE = "/p6ws/services/TimesheetPeriodService";
 	private static final String RESOURCE_ASSIGNMENT = "/p6ws/services/ResourceAssignmentService";
 	private static final String USER_SERVICE = "/p6ws/services/UserService";
 	private static final String RESOURCE_CODE_SERVICE = "/p6ws/services/ResourceCodeService";
 	private static final String RESOURCE_CODE_ASSIGNMENT_SERVICE = "/p6ws/services/ResourceCodeAssignmentService";
 	private static final String RESOURCE_ASSIGNMENT_PERIOD_ACTUAL_SERVICE = "/p6ws/services/ResourceAssignmentPeriodActualService";
+	private static final String AUTHENTICATION_SERVICE = "/p6ws/services/AuthenticationService";
 
 	private String host,user,pass;
 	private int port;
+	private final PortFactory ports;
+	private final SessionAuthenticator session;
+	private final SecurityHandler security;
+	private final SnapshotCache snapshots;
+	private final RetryPolicy retryPolicy;
 
 	/**
 	 * Constructor
@@ -78,10 +98,74 @@ public class P6Reader {
 	 * @param pass - Password
 	 */
 	public P6Reader (String host, int port, String user, String pass) {
+		this(host, port, user, pass, LogLevel.TRUNCATED);
+	}
+
+	/**
+	 * Constructor
+	 * @param host - Host of P6 Web-services
+	 * @param port - Port number (Should be 443) as set by Milestone/Epic
+	 * @param user - Username
+	 * @param pass - Password
+	 * @param logLevel - How much of each SOAP message to log, {@link LogLevel#OFF} leaves the logging handler off the ports entirely.
+	 */
+	public P6Reader (String host, int port, String user, String pass, LogLevel logLevel) {
+		this(host, port, user, pass, new ReaderOptions().setLogLevel(logLevel));
+	}
+
+	/**
+	 * Constructor
+	 * @param host - Host of P6 Web-services
+	 * @param port - Port number (Should be 443) as set by Milestone/Epic
+	 * @param user - Username
+	 * @param pass - Password
+	 * @param options - {@link ReaderOptions} e.g. log level and authentication mode.
+	 */
+	public P6Reader (String host, int port, String user, String pass, ReaderOptions options) {
 		this.host = host;
 		this.port = port;
 		this.user = user;
 		this.pass = pass;
+		if(options.getAuthMode() == AuthMode.SESSION) {
+			this.session = new SessionAuthenticator(new SessionAuthenticator.PortSource() {
+				public AuthenticationServicePortType getPort() throws Exception {
+					// No handlers so the login request, which carries the password, is never logged
+					return ports.createPort(AUTHENTICATION_SERVICE, AuthenticationService.class, AuthenticationServicePortType.class, new ArrayList<Handler>());
+				}
+			}, user, pass, options.getDatabaseInstanceId());
+			this.security = null;
+		}else {
+			this.session = null;
+			this.security = new SecurityHandler(user, pass);
+		}
+		this.snapshots = options.getSnapshotCache();
+		this.retryPolicy = options.getRetryPolicy();
+		options.getTransport().applyGlobal();
+		this.ports = new PortFactory(makeHttpURLString(host, port, "", true), createHandlerChain(options.getLogLevel()), session, options.getTransport(),
+				options.getRetryPolicy(), ConcurrencyLimiter.forHost(host + ":" + port, options.getConcurrencyLimit()));
+	}
+
+	/**
+	 * @return {@link RetryPolicy} calls are retried with, which also judges whether a read that failed anyway is transient.
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * @return {@link SnapshotCache} whole table reads are served from, or null if reads always go to P6.
+	 */
+	public SnapshotCache getSnapshotCache() {
+		return snapshots;
+	}
+
+	/**
+	 * Stops every read in progress and refuses later ones, e.g. when the user cancels an export.
+	 * Calls waiting on P6 have their connections closed so they fail straight away rather than when the response arrives.
+	 * A cancelled reader can not be used again.
+	 */
+	public void cancel() {
+		ports.cancel();
 	}
 
 	/**
@@ -95,23 +179,194 @@ public class P6Reader {
 	 * Will throw {@link SSLException} if certificate invalid or not loaded.
 	 */
 	public List<ResourceHour>readResourceHour() throws Exception{
-		ResourceHourPortType rhpt = createResouceHourPort(host, port);
-		List<ResourceHourFieldType> fields = new ArrayList<>();
-		fields.add(ResourceHourFieldType.OBJECT_ID);
-		fields.add(ResourceHourFieldType.PROJECT_OBJECT_ID);
-		fields.add(ResourceHourFieldType.RESOURCE_OBJECT_ID);
-		fields.add(ResourceHourFieldType.STATUS);
-		fields.add(ResourceHourFieldType.TIMESHEET_PERIOD_OBJECT_ID);
-		fields.add(ResourceHourFieldType.UNAPPROVED_HOURS);
-		fields.add(ResourceHourFieldType.APPROVED_HOURS);
-		fields.add(ResourceHourFieldType.DATE);
-		fields.add(ResourceHourFieldType.PROJECT_NAME);
-		fields.add(ResourceHourFieldType.LAST_UPDATE_DATE);
-		fields.add(ResourceHourFieldType.LAST_UPDATE_USER);
+		return cached(SnapshotTables.RESOURCE_HOUR, new Callable<List<ResourceHour>>() {
+			public List<ResourceHour> call() throws Exception {
+				return readResourceHour(null);
+			}
+		});
+	}
+
+	/**
+	 * Reads the ResourceHour records matching a filter, see {@link #readResourceHour()} for the fields populated.
+	 * @param filter P6 filter clause e.g. from {@link #updatedSince(String)}, null for all records.
+	 * @return List of matching {@link ResourceHour} values.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<ResourceHour>readResourceHour(String filter) throws Exception{
+		return readResourceHour(resourceHourFields(), filter);
+	}
+
+	/**
+	 * Reads chosen fields of the ResourceHour records matching a filter, never from the {@link SnapshotCache}.
+	 * Only the fields asked for are sent by P6, so a narrow projection means a smaller response, less parsing and less heap per record.
+	 * @param fields fields to read e.g. {@link #resourceHourFields()} with one added, written with TableLayouts.resourceHour(fields).
+	 * @param filter P6 filter clause, null for all records.
+	 * @return List of matching {@link ResourceHour} values with only the fields read set.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<ResourceHour>readResourceHour(List<ResourceHourFieldType> fields, String filter) throws Exception{
+		ResourceHourPortType rhpt = createResouceHourPort();
+		return rhpt.readResourceHours(fields, filter, null);
+	}
 
-		List<ResourceHour> resourceHours = rhpt.readResourceHours(fields, null, null);
+	/**
+	 * Streams the ResourceHour records matching a filter to a callback, see {@link #readResourceHour()} for the fields populated.
+	 * @see #streamResourceHour(List, String, RecordCallback)
+	 */
+	public int streamResourceHour(String filter, RecordCallback<? super ResourceHour> callback) throws Exception{
+		return streamResourceHour(resourceHourFields(), filter, callback);
+	}
 
-		return resourceHours;
+	/**
+	 * Streams chosen fields of the ResourceHour records matching a filter to a callback as the response arrives.
+	 * Records are decoded from the response one at a time and never gathered into a list, so the heap used does not grow with the table,
+	 * where {@link #readResourceHour(List, String)} holds the response, its parsed envelope and every record at once.
+	 * The call skips the port's handlers, so it is not logged; it is authenticated, limited, retried and cancelled as any other read,
+	 * except that a call which fails after passing on records is not repeated.
+	 * @param fields fields to read e.g. {@link #resourceHourFields()}.
+	 * @param filter P6 filter clause, null for all records.
+	 * @param callback {@link RecordCallback} called with each record on this thread.
+	 * @return number of records read.
+	 * @throws Exception if the read fails or the callback throws, records already passed on are not taken back.
+	 */
+	public int streamResourceHour(List<ResourceHourFieldType> fields, String filter, RecordCallback<? super ResourceHour> callback) throws Exception{
+		return streaming(RESOURCEHOUR_SERVICE).invoke(ResourceHourPortType.class, "readResourceHours", ResourceHour.class, callback, fields, filter, null);
+	}
+
+	/**
+	 * Reads the ResourceHour table a page at a time, see {@link #readResourceHour()} for the fields populated.
+	 * Pages are windows of ObjectId so only one page of records is held in memory at a time.
+	 * @param pageSize number of ObjectIds requested per page.
+	 * @return {@link PagedReader} iterating every record in the table in ObjectId order.
+	 * Read failures are thrown from the iterator as {@link P6ReadException}.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public PagedReader<ResourceHour> readResourceHourPaged(int pageSize) throws Exception{
+		return readResourceHourPaged(pageSize, null);
+	}
+
+	/**
+	 * Reads the ResourceHour records matching a filter a page at a time.
+	 * @param pageSize number of ObjectIds requested per page.
+	 * @param filter P6 filter clause applied to every page, null for all records.
+	 * @return {@link PagedReader} iterating the matching records in ObjectId order.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public PagedReader<ResourceHour> readResourceHourPaged(int pageSize, String filter) throws Exception{
+		return readResourceHourPaged(pageSize, filter, resourceHourFields());
+	}
+
+	/**
+	 * Reads chosen fields of the ResourceHour records matching a filter a page at a time.
+	 * @param pageSize number of ObjectIds requested per page.
+	 * @param filter P6 filter clause applied to every page, null for all records.
+	 * @param fields fields to read, ObjectId is added if missing as pages are windows of it.
+	 * @return {@link PagedReader} iterating the matching records in ObjectId order.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public PagedReader<ResourceHour> readResourceHourPaged(int pageSize, String filter, List<ResourceHourFieldType> fields) throws Exception{
+		final ResourceHourPortType rhpt = createResouceHourPort();
+		final List<ResourceHourFieldType> pageFields = withKey(fields, ResourceHourFieldType.OBJECT_ID);
+		final List<ResourceHourFieldType> keyFields = Collections.singletonList(ResourceHourFieldType.OBJECT_ID);
+		return new PagedReader<>(serviceName(RESOURCEHOUR_SERVICE), "ObjectId", pageSize, filter, new PagedReader.Source<ResourceHour>() {
+			public List<ResourceHour> read(String filter, String orderBy, boolean keyOnly) throws Exception {
+				return rhpt.readResourceHours(keyOnly ? keyFields : pageFields, filter, orderBy);
+			}
+			public int key(ResourceHour record) {
+				return record.getObjectId();
+			}
+		}).classifyFailures(retryPolicy);
+	}
+
+	/**
+	 * Reads the ResourceHour records matching a filter as several partitions at once, see {@link #readResourceHour()} for the fields populated.
+	 * Nothing is read until the reader is first iterated, once it has been iterated to the end {@link PartitionedReader#getReport()} shows how evenly it was split.
+	 * @param partitioning {@link Partitioning} to split the table by e.g. by project.
+	 * @param partitions most partitions to read at once.
+	 * @param filter P6 filter clause applied to every partition, null for all records.
+	 * @return {@link PartitionedReader} of the matching records in ObjectId order.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public PartitionedReader<ResourceHour> readResourceHourPartitioned(Partitioning partitioning, int partitions, String filter) throws Exception{
+		return readResourceHourPartitioned(partitioning, partitions, filter, resourceHourFields());
+	}
+
+	/**
+	 * Reads chosen fields of the ResourceHour records matching a filter as several partitions at once.
+	 * @param partitioning {@link Partitioning} to split the table by e.g. by project.
+	 * @param partitions most partitions to read at once.
+	 * @param filter P6 filter clause applied to every partition, null for all records.
+	 * @param fields fields to read e.g. {@link #resourceHourFields()}, ObjectId is added if missing as the partitions are merged on it.
+	 * @return {@link PartitionedReader} of the matching records in ObjectId order, with only the fields read set.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public PartitionedReader<ResourceHour> readResourceHourPartitioned(final Partitioning partitioning, int partitions, String filter, List<ResourceHourFieldType> fields) throws Exception{
+		final ResourceHourPortType rhpt = createResouceHourPort();
+		final List<ResourceHourFieldType> readFields = withKey(fields, ResourceHourFieldType.OBJECT_ID);
+		final List<ResourceHourFieldType> partitionFields;
+		switch(partitioning) {
+		case PROJECT:
+			partitionFields = withKey(Collections.singletonList(ResourceHourFieldType.PROJECT_OBJECT_ID), ResourceHourFieldType.OBJECT_ID);
+			break;
+		case TIMESHEET_PERIOD:
+			partitionFields = withKey(Collections.singletonList(ResourceHourFieldType.TIMESHEET_PERIOD_OBJECT_ID), ResourceHourFieldType.OBJECT_ID);
+			break;
+		default:
+			partitionFields = Collections.singletonList(ResourceHourFieldType.OBJECT_ID);
+		}
+		return new PartitionedReader<>(serviceName(RESOURCEHOUR_SERVICE), partitioning, "ObjectId", partitions, filter, new PartitionedReader.Source<ResourceHour>() {
+			public List<ResourceHour> read(String filter, String orderBy, boolean partitionFieldOnly) throws Exception {
+				return rhpt.readResourceHours(partitionFieldOnly ? partitionFields : readFields, filter, orderBy);
+			}
+			public Integer partitionKey(ResourceHour record) {
+				switch(partitioning) {
+				case PROJECT:
+					return record.getProjectObjectId() == null ? null : record.getProjectObjectId().getValue();
+				case TIMESHEET_PERIOD:
+					return record.getTimesheetPeriodObjectId();
+				default:
+					return record.getObjectId();
+				}
+			}
+			public int key(ResourceHour record) {
+				return record.getObjectId();
+			}
+		}).classifyFailures(retryPolicy);
+	}
+
+	/**
+	 * Reads the ResourceHour table into a compact {@link ResourceHourTable}, see {@link #readResourceHour()} for the fields populated.
+	 * Records are read a page at a time and decoded into the table as they arrive, so only one page of {@link ResourceHour} objects exists at once.
+	 * @return {@link ResourceHourTable} of every record in ObjectId order.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public ResourceHourTable readResourceHourTable() throws Exception{
+		return readResourceHourTable(null);
+	}
+
+	/**
+	 * Reads the ResourceHour records matching a filter into a compact {@link ResourceHourTable}.
+	 * @param filter P6 filter clause e.g. from {@link #updatedSince(String)}, null for all records.
+	 * @return {@link ResourceHourTable} of the matching records in ObjectId order.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public ResourceHourTable readResourceHourTable(String filter) throws Exception{
+		return readResourceHourTable(resourceHourFields(), filter);
+	}
+
+	/**
+	 * Reads chosen fields of the ResourceHour records matching a filter into a compact {@link ResourceHourTable}.
+	 * A column whose field is not read holds its null value in every row, e.g. {@link ResourceHourTable#NULL_INT}.
+	 * @param fields fields to read e.g. {@link #resourceHourFields()}, ObjectId is added if missing as the table is paged by it.
+	 * @param filter P6 filter clause, null for all records.
+	 * @return {@link ResourceHourTable} of the matching records in ObjectId order.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public ResourceHourTable readResourceHourTable(List<ResourceHourFieldType> fields, String filter) throws Exception{
+		ResourceHourTable table = new ResourceHourTable();
+		table.addAll(readResourceHourPaged(PagedReader.DEFAULT_PAGE_SIZE, filter, fields));
+		table.trimToSize();
+		return table;
 	}
 
 	/**
@@ -123,48 +378,135 @@ public class P6Reader {
 	 */
 
 	public List<ResourceRate> readResourceRate() throws Exception{
-		ResourceRatePortType rrpt = createResourceRatePort(host, port);
-		List<ResourceRateFieldType> fields = new ArrayList<>();
-		fields.add(ResourceRateFieldType.EFFECTIVE_DATE);
-		fields.add(ResourceRateFieldType.RESOURCE_OBJECT_ID);
+		return cached(SnapshotTables.RESOURCE_RATE, new Callable<List<ResourceRate>>() {
+			public List<ResourceRate> call() throws Exception {
+				return readResourceRate(resourceRateFields());
+			}
+		});
+	}
 
-		List<ResourceRate> resourceRates = rrpt.readResourceRates(fields, null, null);
-		return resourceRates;
+	/**
+	 * Reads chosen fields of every ResourceRate record, never from the {@link SnapshotCache}.
+	 * @param fields fields to read e.g. {@link #resourceRateFields()} with one added, written with TableLayouts.resourceRate(fields).
+	 * @return List of {@link ResourceRate} values with only the fields read set.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<ResourceRate> readResourceRate(List<ResourceRateFieldType> fields) throws Exception{
+		ResourceRatePortType rrpt = createResourceRatePort();
+		return rrpt.readResourceRates(fields, null, null);
 	}
 
 
 	/**
 	 * Reads a copy of the Resource table.
 	 * Only the following {@link ResourceFieldType} will be loaded:
-	 * ObjectID, Name, Timesheet Approval Manager, Uses Timesheets. All other fields set to null as not required.
+	 * ObjectID, Name, Timesheet Approval Manager, Uses Timesheets, User ObjectID, Is Active, Create Date. All other fields set to null as not required.
 	 * @return List of {@link Resource} objects
 	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
 	 */
 	public List<Resource> readResources() throws Exception{
-		ResourcePortType rpt = createResourcePort(host,port);
-		List<ResourceFieldType> fields = new ArrayList<>();
-		fields.add(ResourceFieldType.OBJECT_ID);
-		fields.add(ResourceFieldType.NAME);
-		fields.add(ResourceFieldType.TIMESHEET_APPROVAL_MANAGER);
-		fields.add(ResourceFieldType.USE_TIMESHEETS);
-		fields.add(ResourceFieldType.USER_OBJECT_ID);
+		return cached(SnapshotTables.RESOURCE, new Callable<List<Resource>>() {
+			public List<Resource> call() throws Exception {
+				return readResources(resourceFields());
+			}
+		});
+	}
 
-		List<Resource> resources = rpt.readResources(fields, null, null);
-		return resources;
+	/**
+	 * Reads chosen fields of every Resource record, never from the {@link SnapshotCache}.
+	 * @param fields fields to read e.g. {@link #resourceFields()} with one added, written with TableLayouts.resource(fields).
+	 * @return List of {@link Resource} values with only the fields read set.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<Resource> readResources(List<ResourceFieldType> fields) throws Exception{
+		ResourcePortType rpt = createResourcePort();
+		return rpt.readResources(fields, null, null);
 	}
 	
 	public List<ResourceAssignment>readResourceAssignments() throws Exception{
-		ResourceAssignmentPortType rapt = createResourceAssignmentPort(host, port);
-		List<ResourceAssignmentFieldType> fields = new ArrayList<ResourceAssignmentFieldType>();
-		fields.add(ResourceAssignmentFieldType.RESOURCE_OBJECT_ID);
-		fields.add(ResourceAssignmentFieldType.ACTUAL_UNITS);
-		fields.add(ResourceAssignmentFieldType.PROJECT_ID);
-		fields.add(ResourceAssignmentFieldType.OBJECT_ID);
-		fields.add(ResourceAssignmentFieldType.LAST_UPDATE_DATE);
-		fields.add(ResourceAssignmentFieldType.LAST_UPDATE_USER);
-		
-		List<ResourceAssignment> resAss = rapt.readResourceAssignments(fields, null, null);
-		return resAss;
+		return cached(SnapshotTables.RESOURCE_ASSIGNMENT, new Callable<List<ResourceAssignment>>() {
+			public List<ResourceAssignment> call() throws Exception {
+				return readResourceAssignments(null);
+			}
+		});
+	}
+
+	/**
+	 * Reads the ResourceAssignment records matching a filter.
+	 * @param filter P6 filter clause e.g. from {@link #updatedSince(String)}, null for all records.
+	 * @return List of matching {@link ResourceAssignment} values.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<ResourceAssignment>readResourceAssignments(String filter) throws Exception{
+		return readResourceAssignments(resourceAssignmentFields(), filter);
+	}
+
+	/**
+	 * Reads chosen fields of the ResourceAssignment records matching a filter, never from the {@link SnapshotCache}.
+	 * @param fields fields to read e.g. {@link #resourceAssignmentFields()}, written with TableLayouts.resourceAssignment(fields).
+	 * @param filter P6 filter clause, null for all records.
+	 * @return List of matching {@link ResourceAssignment} values with only the fields read set.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<ResourceAssignment>readResourceAssignments(List<ResourceAssignmentFieldType> fields, String filter) throws Exception{
+		ResourceAssignmentPortType rapt = createResourceAssignmentPort();
+		return rapt.readResourceAssignments(fields, filter, null);
+	}
+
+	/**
+	 * Streams chosen fields of the ResourceAssignment records matching a filter to a callback as the response arrives.
+	 * @param fields fields to read e.g. {@link #resourceAssignmentFields()}.
+	 * @param filter P6 filter clause, null for all records.
+	 * @param callback {@link RecordCallback} called with each record on this thread.
+	 * @return number of records read.
+	 * @throws Exception if the read fails or the callback throws.
+	 * @see #streamResourceHour(List, String, RecordCallback)
+	 */
+	public int streamResourceAssignments(List<ResourceAssignmentFieldType> fields, String filter, RecordCallback<? super ResourceAssignment> callback) throws Exception{
+		return streaming(RESOURCE_ASSIGNMENT).invoke(ResourceAssignmentPortType.class, "readResourceAssignments", ResourceAssignment.class, callback, fields, filter, null);
+	}
+
+	/**
+	 * Reads the ResourceAssignment table a page at a time in ObjectId windows.
+	 * @param pageSize number of ObjectIds requested per page.
+	 * @return {@link PagedReader} iterating every record in the table in ObjectId order.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public PagedReader<ResourceAssignment> readResourceAssignmentsPaged(int pageSize) throws Exception{
+		return readResourceAssignmentsPaged(pageSize, null);
+	}
+
+	/**
+	 * Reads the ResourceAssignment records matching a filter a page at a time.
+	 * @param pageSize number of ObjectIds requested per page.
+	 * @param filter P6 filter clause applied to every page, null for all records.
+	 * @return {@link PagedReader} iterating the matching records in ObjectId order.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public PagedReader<ResourceAssignment> readResourceAssignmentsPaged(int pageSize, String filter) throws Exception{
+		return readResourceAssignmentsPaged(pageSize, filter, resourceAssignmentFields());
+	}
+
+	/**
+	 * Reads chosen fields of the ResourceAssignment records matching a filter a page at a time.
+	 * @param pageSize number of ObjectIds requested per page.
+	 * @param filter P6 filter clause applied to every page, null for all records.
+	 * @param fields fields to read, ObjectId is added if missing as pages are windows of it.
+	 * @return {@link PagedReader} iterating the matching records in ObjectId order.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public PagedReader<ResourceAssignment> readResourceAssignmentsPaged(int pageSize, String filter, List<ResourceAssignmentFieldType> fields) throws Exception{
+		final ResourceAssignmentPortType rapt = createResourceAssignmentPort();
+		final List<ResourceAssignmentFieldType> pageFields = withKey(fields, ResourceAssignmentFieldType.OBJECT_ID);
+		final List<ResourceAssignmentFieldType> keyFields = Collections.singletonList(ResourceAssignmentFieldType.OBJECT_ID);
+		return new PagedReader<>(serviceName(RESOURCE_ASSIGNMENT), "ObjectId", pageSize, filter, new PagedReader.Source<ResourceAssignment>() {
+			public List<ResourceAssignment> read(String filter, String orderBy, boolean keyOnly) throws Exception {
+				return rapt.readResourceAssignments(keyOnly ? keyFields : pageFields, filter, orderBy);
+			}
+			public int key(ResourceAssignment record) {
+				return record.getObjectId();
+			}
+		}).classifyFailures(retryPolicy);
 	}
 	
 	/**
@@ -175,18 +517,255 @@ public class P6Reader {
 	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
 	 */
 	public List<ResourceCode> readResourceCodes() throws Exception{
-		ResourceCodePortType rpt = createResourceCodePort(host,port);
+		return cached(SnapshotTables.RESOURCE_CODE, new Callable<List<ResourceCode>>() {
+			public List<ResourceCode> call() throws Exception {
+				return readResourceCodes(resourceCodeFields());
+			}
+		});
+	}
+
+	/**
+	 * Reads chosen fields of every ResourceCode record, never from the {@link SnapshotCache}.
+	 * @param fields fields to read e.g. {@link #resourceCodeFields()} with one added, written with TableLayouts.resourceCode(fields).
+	 * @return List of {@link ResourceCode} values with only the fields read set.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<ResourceCode> readResourceCodes(List<ResourceCodeFieldType> fields) throws Exception{
+		ResourceCodePortType rpt = createResourceCodePort();
+		return rpt.readResourceCodes(fields, null, null);
+	}
+	
+	public List<ResourceCodeAssignment> readResourceCodeAssignments() throws Exception{
+		return cached(SnapshotTables.RESOURCE_CODE_ASSIGNMENT, new Callable<List<ResourceCodeAssignment>>() {
+			public List<ResourceCodeAssignment> call() throws Exception {
+				return readResourceCodeAssignments(resourceCodeAssignmentFields());
+			}
+		});
+	}
+
+	/**
+	 * Reads chosen fields of every ResourceCodeAssignment record, never from the {@link SnapshotCache}.
+	 * @param fields fields to read e.g. {@link #resourceCodeAssignmentFields()} with one added, written with TableLayouts.resourceCodeAssignment(fields).
+	 * @return List of {@link ResourceCodeAssignment} values with only the fields read set.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<ResourceCodeAssignment> readResourceCodeAssignments(List<ResourceCodeAssignmentFieldType> fields) throws Exception{
+		ResourceCodeAssignmentPortType rpt = createResourceCodeAssignmentPort();
+		return rpt.readResourceCodeAssignments(fields, null, null);
+	}
+	
+	public List<User>readUsers() throws Exception{
+		return cached(SnapshotTables.USER, new Callable<List<User>>() {
+			public List<User> call() throws Exception {
+				return readUsers(userFields());
+			}
+		});
+	}
+
+	/**
+	 * Reads chosen fields of every User record, never from the {@link SnapshotCache}.
+	 * @param fields fields to read e.g. {@link #userFields()} with one added, written with TableLayouts.user(fields).
+	 * @return List of {@link User} values with only the fields read set.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<User> readUsers(List<UserFieldType> fields) throws Exception{
+		UserPortType upt = createUserPort();
+		return upt.readUsers(fields, null, null);
+	}
+	
+	public List<com.primavera.ws.p6.resourceassignmentperiodactual.ResourceAssignmentPeriodActual> readReassActual() throws Exception{
+		return cached(SnapshotTables.RESOURCE_ASSIGNMENT_PERIOD_ACTUAL, new Callable<List<ResourceAssignmentPeriodActual>>() {
+			public List<ResourceAssignmentPeriodActual> call() throws Exception {
+				return readReassActual(null);
+			}
+		});
+	}
+
+	/**
+	 * Reads the ResourceAssignmentPeriodActual records matching a filter.
+	 * @param filter P6 filter clause e.g. from {@link #updatedSince(String)}, null for all records.
+	 * @return List of matching {@link ResourceAssignmentPeriodActual} values.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<ResourceAssignmentPeriodActual> readReassActual(String filter) throws Exception{
+		return readReassActual(reassActualFields(), filter);
+	}
+
+	/**
+	 * Reads chosen fields of the ResourceAssignmentPeriodActual records matching a filter, never from the {@link SnapshotCache}.
+	 * @param fields fields to read e.g. {@link #reassActualFields()}, written with TableLayouts.resourceAssignmentPeriodActual(fields).
+	 * @param filter P6 filter clause, null for all records.
+	 * @return List of matching {@link ResourceAssignmentPeriodActual} values with only the fields read set.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<ResourceAssignmentPeriodActual> readReassActual(List<ResourceAssignmentPeriodActualFieldType> fields, String filter) throws Exception{
+		ResourceAssignmentPeriodActualPortType rappt = createReassPort();
+		return rappt.readResourceAssignmentPeriodActuals(fields, filter, null);
+	}
+
+	/**
+	 * Streams the ResourceAssignmentPeriodActual records matching a filter to a callback, with the fields of {@link #readReassActual()}.
+	 * @see #streamReassActual(List, String, RecordCallback)
+	 */
+	public int streamReassActual(String filter, RecordCallback<? super ResourceAssignmentPeriodActual> callback) throws Exception{
+		return streamReassActual(reassActualFields(), filter, callback);
+	}
+
+	/**
+	 * Streams chosen fields of the ResourceAssignmentPeriodActual records matching a filter to a callback as the response arrives.
+	 * @param fields fields to read e.g. {@link #reassActualFields()}.
+	 * @param filter P6 filter clause, null for all records.
+	 * @param callback {@link RecordCallback} called with each record on this thread.
+	 * @return number of records read.
+	 * @throws Exception if the read fails or the callback throws.
+	 * @see #streamResourceHour(List, String, RecordCallback)
+	 */
+	public int streamReassActual(List<ResourceAssignmentPeriodActualFieldType> fields, String filter,
+			RecordCallback<? super ResourceAssignmentPeriodActual> callback) throws Exception{
+		return streaming(RESOURCE_ASSIGNMENT_PERIOD_ACTUAL_SERVICE).invoke(ResourceAssignmentPeriodActualPortType.class, "readResourceAssignmentPeriodActuals",
+				ResourceAssignmentPeriodActual.class, callback, fields, filter, null);
+	}
+
+	/**
+	 * Reads the ResourceAssignmentPeriodActual table a page at a time.
+	 * The table has no ObjectId so pages are windows of ResourceAssignmentObjectId.
+	 * @param pageSize number of ResourceAssignmentObjectIds requested per page.
+	 * @return {@link PagedReader} iterating every record in the table in ResourceAssignmentObjectId order.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public PagedReader<ResourceAssignmentPeriodActual> readReassActualPaged(int pageSize) throws Exception{
+		return readReassActualPaged(pageSize, null);
+	}
+
+	/**
+	 * Reads the ResourceAssignmentPeriodActual records matching a filter a page at a time.
+	 * @param pageSize number of ResourceAssignmentObjectIds requested per page.
+	 * @param filter P6 filter clause applied to every page, null for all records.
+	 * @return {@link PagedReader} iterating the matching records in ResourceAssignmentObjectId order.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public PagedReader<ResourceAssignmentPeriodActual> readReassActualPaged(int pageSize, String filter) throws Exception{
+		return readReassActualPaged(pageSize, filter, reassActualFields());
+	}
+
+	/**
+	 * Reads chosen fields of the ResourceAssignmentPeriodActual records matching a filter a page at a time.
+	 * @param pageSize number of ResourceAssignmentObjectIds requested per page.
+	 * @param filter P6 filter clause applied to every page, null for all records.
+	 * @param fields fields to read, ResourceAssignmentObjectId is added if missing as pages are windows of it.
+	 * @return {@link PagedReader} iterating the matching records in ResourceAssignmentObjectId order.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public PagedReader<ResourceAssignmentPeriodActual> readReassActualPaged(int pageSize, String filter, List<ResourceAssignmentPeriodActualFieldType> fields) throws Exception{
+		final ResourceAssignmentPeriodActualPortType rappt = createReassPort();
+		final List<ResourceAssignmentPeriodActualFieldType> pageFields = withKey(fields, ResourceAssignmentPeriodActualFieldType.RESOURCE_ASSIGNMENT_OBJECT_ID);
+		final List<ResourceAssignmentPeriodActualFieldType> keyFields = Collections.singletonList(ResourceAssignmentPeriodActualFieldType.RESOURCE_ASSIGNMENT_OBJECT_ID);
+		return new PagedReader<>(serviceName(RESOURCE_ASSIGNMENT_PERIOD_ACTUAL_SERVICE), "ResourceAssignmentObjectId", pageSize, filter, new PagedReader.Source<ResourceAssignmentPeriodActual>() {
+			public List<ResourceAssignmentPeriodActual> read(String filter, String orderBy, boolean keyOnly) throws Exception {
+				return rappt.readResourceAssignmentPeriodActuals(keyOnly ? keyFields : pageFields, filter, orderBy);
+			}
+			public int key(ResourceAssignmentPeriodActual record) {
+				return record.getResourceAssignmentObjectId();
+			}
+		}).classifyFailures(retryPolicy);
+	}
+
+	/**
+	 * Builds a filter selecting the records updated at or after a high-water mark.
+	 * Records updated in the same second as the mark are read again, re-reading a record is harmless once merged.
+	 * @param watermark LastUpdateDate in the form yyyy-MM-dd HH:mm:ss
+	 * @return P6 filter clause for the read methods.
+	 */
+	public static String updatedSince(String watermark) {
+		return "LastUpdateDate >= '" + watermark + "'";
+	}
+
+	/**
+	 * @return the ResourceHour fields read by default, a new list each time so it can be added to for a projection.
+	 */
+	public static List<ResourceHourFieldType> resourceHourFields() {
+		List<ResourceHourFieldType> fields = new ArrayList<>();
+		fields.add(ResourceHourFieldType.OBJECT_ID);
+		fields.add(ResourceHourFieldType.PROJECT_OBJECT_ID);
+		fields.add(ResourceHourFieldType.RESOURCE_OBJECT_ID);
+		fields.add(ResourceHourFieldType.STATUS);
+		fields.add(ResourceHourFieldType.TIMESHEET_PERIOD_OBJECT_ID);
+		fields.add(ResourceHourFieldType.UNAPPROVED_HOURS);
+		fields.add(ResourceHourFieldType.APPROVED_HOURS);
+		fields.add(ResourceHourFieldType.DATE);
+		fields.add(ResourceHourFieldType.PROJECT_NAME);
+		fields.add(ResourceHourFieldType.LAST_UPDATE_DATE);
+		fields.add(ResourceHourFieldType.LAST_UPDATE_USER);
+		return fields;
+	}
+
+	/**
+	 * @return the ResourceAssignment fields read by default, a new list each time so it can be added to for a projection.
+	 */
+	public static List<ResourceAssignmentFieldType> resourceAssignmentFields() {
+		List<ResourceAssignmentFieldType> fields = new ArrayList<ResourceAssignmentFieldType>();
+		fields.add(ResourceAssignmentFieldType.RESOURCE_OBJECT_ID);
+		fields.add(ResourceAssignmentFieldType.ACTUAL_UNITS);
+		fields.add(ResourceAssignmentFieldType.PROJECT_ID);
+		fields.add(ResourceAssignmentFieldType.OBJECT_ID);
+		fields.add(ResourceAssignmentFieldType.LAST_UPDATE_DATE);
+		fields.add(ResourceAssignmentFieldType.LAST_UPDATE_USER);
+		return fields;
+	}
+
+	/**
+	 * @return the ResourceAssignmentPeriodActual fields read by default, a new list each time so it can be added to for a projection.
+	 */
+	public static List<ResourceAssignmentPeriodActualFieldType> reassActualFields() {
+		List<ResourceAssignmentPeriodActualFieldType> fields = new ArrayList<ResourceAssignmentPeriodActualFieldType>();
+		fields.add(ResourceAssignmentPeriodActualFieldType.RESOURCE_ASSIGNMENT_OBJECT_ID);
+		fields.add(ResourceAssignmentPeriodActualFieldType.ACTUAL_UNITS);
+		fields.add(ResourceAssignmentPeriodActualFieldType.FINANCIAL_PERIOD_OBJECT_ID);
+		fields.add(ResourceAssignmentPeriodActualFieldType.LAST_UPDATE_DATE);
+		fields.add(ResourceAssignmentPeriodActualFieldType.LAST_UPDATE_USER);
+		return fields;
+	}
+
+	/**
+	 * @return the ResourceRate fields read by default, a new list each time so it can be added to for a projection.
+	 */
+	public static List<ResourceRateFieldType> resourceRateFields() {
+		List<ResourceRateFieldType> fields = new ArrayList<>();
+		fields.add(ResourceRateFieldType.EFFECTIVE_DATE);
+		fields.add(ResourceRateFieldType.RESOURCE_OBJECT_ID);
+		return fields;
+	}
+
+	/**
+	 * @return the Resource fields read by default, a new list each time so it can be added to for a projection.
+	 */
+	public static List<ResourceFieldType> resourceFields() {
+		List<ResourceFieldType> fields = new ArrayList<>();
+		fields.add(ResourceFieldType.OBJECT_ID);
+		fields.add(ResourceFieldType.NAME);
+		fields.add(ResourceFieldType.TIMESHEET_APPROVAL_MANAGER);
+		fields.add(ResourceFieldType.USE_TIMESHEETS);
+		fields.add(ResourceFieldType.USER_OBJECT_ID);
+		fields.add(ResourceFieldType.IS_ACTIVE);
+		fields.add(ResourceFieldType.CREATE_DATE);
+		return fields;
+	}
+
+	/**
+	 * @return the ResourceCode fields read by default, a new list each time so it can be added to for a projection.
+	 */
+	public static List<ResourceCodeFieldType> resourceCodeFields() {
 		List<ResourceCodeFieldType> fields = new ArrayList<>();
 		fields.add(ResourceCodeFieldType.CODE_TYPE_NAME);
 		fields.add(ResourceCodeFieldType.CODE_VALUE);
 		fields.add(ResourceCodeFieldType.OBJECT_ID);
-
-		List<ResourceCode> resourceCodes = rpt.readResourceCodes(fields, null, null);
-		return resourceCodes;
+		return fields;
 	}
-	
-	public List<ResourceCodeAssignment> readResourceCodeAssignments() throws Exception{
-		ResourceCodeAssignmentPortType rpt = createResourceCodeAssignmentPort(host,port);
+
+	/**
+	 * @return the ResourceCodeAssignment fields read by default, a new list each time so it can be added to for a projection.
+	 */
+	public static List<ResourceCodeAssignmentFieldType> resourceCodeAssignmentFields() {
 		List<ResourceCodeAssignmentFieldType> fields = new ArrayList<>();
 		fields.add(ResourceCodeAssignmentFieldType.RESOURCE_CODE_OBJECT_ID);
 		fields.add(ResourceCodeAssignmentFieldType.RESOURCE_CODE_VALUE);
@@ -194,34 +773,56 @@ public class P6Reader {
 		fields.add(ResourceCodeAssignmentFieldType.RESOURCE_OBJECT_ID);
 		fields.add(ResourceCodeAssignmentFieldType.RESOURCE_ID);
 		fields.add(ResourceCodeAssignmentFieldType.RESOURCE_CODE_DESCRIPTION);
-
-		List<ResourceCodeAssignment> resourceCodeAssignments = rpt.readResourceCodeAssignments(fields, null, null);
-		return resourceCodeAssignments;
+		return fields;
 	}
-	
-	public List<User>readUsers() throws Exception{
-		UserPortType upt = createUserPort(host, port);
-		List<UserFieldType> fields = new ArrayList<UserFieldType>();
+
+	/**
+	 * @return the User fields read by default, a new list each time so it can be added to for a projection.
+	 */
+	public static List<UserFieldType> userFields() {
+		List<UserFieldType> fields = new ArrayList<>();
 		fields.add(UserFieldType.CREATE_DATE);
 		fields.add(UserFieldType.NAME);
 		fields.add(UserFieldType.PERSONAL_NAME);
 		fields.add(UserFieldType.EMAIL_ADDRESS);
-		
-		List<User> users = upt.readUsers(fields, null, null);
-		return users;
+		return fields;
 	}
-	
-	public List<com.primavera.ws.p6.resourceassignmentperiodactual.ResourceAssignmentPeriodActual> readReassActual() throws Exception{
-		ResourceAssignmentPeriodActualPortType rappt = createReassPort(host, port);
-		List<ResourceAssignmentPeriodActualFieldType> fields = new ArrayList<ResourceAssignmentPeriodActualFieldType>();
-		fields.add(ResourceAssignmentPeriodActualFieldType.RESOURCE_ASSIGNMENT_OBJECT_ID);
-		fields.add(ResourceAssignmentPeriodActualFieldType.ACTUAL_UNITS);
-		fields.add(ResourceAssignmentPeriodActualFieldType.FINANCIAL_PERIOD_OBJECT_ID);
-		fields.add(ResourceAssignmentPeriodActualFieldType.LAST_UPDATE_DATE);
-		fields.add(ResourceAssignmentPeriodActualFieldType.LAST_UPDATE_USER);
-		
-		List<ResourceAssignmentPeriodActual> reasses = rappt.readResourceAssignmentPeriodActuals(fields, null, null);
-		return reasses;
+
+	/**
+	 * @return the Timesheet fields read by default, a new list each time so it can be added to for a projection.
+	 */
+	public static List<TimesheetFieldType> timesheetFields() {
+		List<TimesheetFieldType> fields = new ArrayList<>();
+		fields.add(TimesheetFieldType.TIMESHEET_PERIOD_OBJECT_ID);
+		fields.add(TimesheetFieldType.RESOURCE_OBJECT_ID);
+		fields.add(TimesheetFieldType.STATUS);
+		return fields;
+	}
+
+	/**
+	 * @return the TimesheetPeriod fields read by default, a new list each time so it can be added to for a projection.
+	 */
+	public static List<TimesheetPeriodFieldType> timesheetPeriodFields() {
+		List<TimesheetPeriodFieldType> fields = new ArrayList<>();
+		fields.add(TimesheetPeriodFieldType.OBJECT_ID);
+		fields.add(TimesheetPeriodFieldType.START_DATE);
+		fields.add(TimesheetPeriodFieldType.END_DATE);
+		return fields;
+	}
+
+	/**
+	 * @param fields fields to read.
+	 * @param key key field pages are windows of.
+	 * @return the fields with the key added first if it was missing.
+	 */
+	private static <F> List<F> withKey(List<F> fields, F key) {
+		if(fields.contains(key)) {
+			return fields;
+		}
+		List<F> withKey = new ArrayList<>();
+		withKey.add(key);
+		withKey.addAll(fields);
+		return withKey;
 	}
 
 
@@ -233,174 +834,163 @@ public class P6Reader {
 	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
 	 */
 	public List<Timesheet>readTimesheets() throws Exception{
-		TimesheetPortType tpr = createTimesheetPort(host, port);
-		List<TimesheetFieldType> fields = new ArrayList<>();
-		fields.add(TimesheetFieldType.TIMESHEET_PERIOD_OBJECT_ID);
-		fields.add(TimesheetFieldType.RESOURCE_OBJECT_ID);
-		fields.add(TimesheetFieldType.STATUS);
-
-		List<Timesheet> timesheets = tpr.readTimesheets(fields, null, null);
-		return timesheets;
+		return cached(SnapshotTables.TIMESHEET, new Callable<List<Timesheet>>() {
+			public List<Timesheet> call() throws Exception {
+				return readTimesheets(timesheetFields());
+			}
+		});
 	}
 
 	/**
-	 * Creates a SOAP port for Reading {@link ResourceHour} from P6 Live
-	 * @param hostname p6 host address
-	 * @param port port number
-	 * @return {@link ResourceHourPortType} to load data from.
-	 * @throws Exception
+	 * Reads chosen fields of every Timesheet record, never from the {@link SnapshotCache}.
+	 * @param fields fields to read e.g. {@link #timesheetFields()} with one added, written with TableLayouts.timesheet(fields).
+	 * @return List of {@link Timesheet} values with only the fields read set.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
 	 */
+	public List<Timesheet> readTimesheets(List<TimesheetFieldType> fields) throws Exception{
+		TimesheetPortType tpr = createTimesheetPort();
+		return tpr.readTimesheets(fields, null, null);
+	}
 
-	private ResourceHourPortType createResouceHourPort(String hostname, int port)throws Exception {
+	/**
+	 * Reads every TimesheetPeriod, with only its ObjectId, StartDate and EndDate.
+	 * A few records per week of history, so always read from P6 rather than the {@link SnapshotCache}.
+	 * @return List of {@link TimesheetPeriod} objects
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<TimesheetPeriod> readTimesheetPeriods() throws Exception{
+		return readTimesheetPeriods(timesheetPeriodFields());
+	}
 
-		String url = makeHttpURLString(hostname, port, RESOURCEHOUR_SERVICE, true);
-		URL wsdlURL = new URL(url);
-		ResourceHourService service = new ResourceHourService (wsdlURL);
-		ResourceHourPortType servicePort ;
-		servicePort = service.getResourceHourPort();
+	/**
+	 * Reads chosen fields of every TimesheetPeriod.
+	 * @param fields fields to read e.g. {@link #timesheetPeriodFields()} with one added.
+	 * @return List of {@link TimesheetPeriod} values with only the fields read set.
+	 * @throws Exception Will throw {@link SSLException} if certificate invalid or not loaded.
+	 */
+	public List<TimesheetPeriod> readTimesheetPeriods(List<TimesheetPeriodFieldType> fields) throws Exception{
+		TimesheetPeriodPortType tppt = ports.getPort(TIMESHEET_PERIOD_SERVICE, TimesheetPeriodService.class, TimesheetPeriodPortType.class);
+		return tppt.readTimesheetPeriods(fields, null, null);
+	}
 
+	/**
+	 * Reads a whole table through the {@link SnapshotCache} if one is set, otherwise straight from P6.
+	 * @param table {@link SnapshotTable} read.
+	 * @param p6 reads the table from P6.
+	 * @return every record of the table.
+	 * @throws Exception if the table is read from P6 and that fails.
+	 */
+	private <T> List<T> cached(SnapshotTable<T> table, Callable<List<T>> p6) throws Exception {
+		if(snapshots == null) {
+			return p6.call();
+		}
+		return snapshots.read(table, p6);
+	}
 
-		setUserTokenData((BindingProvider)servicePort);
+	/**
+	 * Creates a SOAP port for Reading {@link ResourceHour} from P6 Live
+	 * @return {@link ResourceHourPortType} to load data from.
+	 * @throws Exception
+	 */
 
-		return servicePort;
+	private ResourceHourPortType createResouceHourPort()throws Exception {
+		return ports.getPort(RESOURCEHOUR_SERVICE, ResourceHourService.class, ResourceHourPortType.class);
 	}
 	
-	private UserPortType createUserPort(String host, int port)throws Exception{
-		String url = makeHttpURLString(host, port, USER_SERVICE, true);
-		URL wsdlURL = new URL(url);
-		UserService service = new UserService(wsdlURL);
-		UserPortType userPort = service.getUserPort();
-		setUserTokenData((BindingProvider)userPort);
-		return userPort;
+	private UserPortType createUserPort()throws Exception{
+		return ports.getPort(USER_SERVICE, UserService.class, UserPortType.class);
 	}
 
 	/**
 	 * Creates a SOAP port for Reading {@link Resource} from P6 Live
-	 * @param hostname p6 host address
-	 * @param port port number
 	 * @return {@link ResourcePortType} to load data from.
 	 * @throws Exception
 	 */
-	private ResourcePortType createResourcePort(String hostname, int port)throws Exception {
-
-		String url = makeHttpURLString(hostname, port, RESOURCE_SERVICE, true);
-		URL wsdlURL = new URL(url);
-		ResourceService service = new ResourceService (wsdlURL);
-		ResourcePortType servicePort ;
-		servicePort = service.getResourcePort();
-
-
-		setUserTokenData((BindingProvider)servicePort);
-
-		return servicePort;
+	private ResourcePortType createResourcePort()throws Exception {
+		return ports.getPort(RESOURCE_SERVICE, ResourceService.class, ResourcePortType.class);
 	}
 	
-	private ResourceAssignmentPeriodActualPortType createReassPort(String host, int port)throws Exception{
-
-		String url = makeHttpURLString(host, port, RESOURCE_ASSIGNMENT_PERIOD_ACTUAL_SERVICE, true);
-		URL wsdlURL = new URL(url);
-		ResourceAssignmentPeriodActualService service = new ResourceAssignmentPeriodActualService(wsdlURL);
-		ResourceAssignmentPeriodActualPortType  servicePort ;
-		servicePort = service.getResourceAssignmentPeriodActualPort();
-
-
-		setUserTokenData((BindingProvider)servicePort);
-
-		return servicePort;
+	private ResourceAssignmentPeriodActualPortType createReassPort()throws Exception{
+		return ports.getPort(RESOURCE_ASSIGNMENT_PERIOD_ACTUAL_SERVICE, ResourceAssignmentPeriodActualService.class, ResourceAssignmentPeriodActualPortType.class);
 	}
 	
 	
-	private ResourceCodePortType createResourceCodePort(String hostname, int port)throws Exception {
-
-		String url = makeHttpURLString(hostname, port, RESOURCE_CODE_SERVICE, true);
-		URL wsdlURL = new URL(url);
-		ResourceCodeService service = new ResourceCodeService (wsdlURL);
-		ResourceCodePortType servicePort ;
-		servicePort = service.getResourceCodePort();
-		setUserTokenData((BindingProvider)servicePort);
-
-		return servicePort;
+	private ResourceCodePortType createResourceCodePort()throws Exception {
+		return ports.getPort(RESOURCE_CODE_SERVICE, ResourceCodeService.class, ResourceCodePortType.class);
 	}
 	
 	
-	private ResourceCodeAssignmentPortType createResourceCodeAssignmentPort(String hostname, int port)throws Exception {
-
-		String url = makeHttpURLString(hostname, port, RESOURCE_CODE_ASSIGNMENT_SERVICE, true);
-		URL wsdlURL = new URL(url);
-		ResourceCodeAssignmentService service = new ResourceCodeAssignmentService (wsdlURL);
-		ResourceCodeAssignmentPortType servicePort ;
-		servicePort = service.getResourceCodeAssignmentPort();
-		setUserTokenData((BindingProvider)servicePort);
-
-		return servicePort;
+	private ResourceCodeAssignmentPortType createResourceCodeAssignmentPort()throws Exception {
+		return ports.getPort(RESOURCE_CODE_ASSIGNMENT_SERVICE, ResourceCodeAssignmentService.class, ResourceCodeAssignmentPortType.class);
 	}
 
 	/**
 	 * Creates a SOAP port for Reading {@link ResourceRate} from P6 Live
-	 * @param hostname p6 host address
-	 * @param port port number
 	 * @return {@link ResourceRatePortType} to load data from.
 	 * @throws Exception
 	 */
-	private ResourceRatePortType createResourceRatePort(String hostname, int port)throws Exception{
-		String url = makeHttpURLString(hostname, port, RESOURCERATE_SERVICE, true);
-		URL wsdlURL = new URL(url);
-		ResourceRateService service = new ResourceRateService (wsdlURL);
-		ResourceRatePortType servicePort ;
-		servicePort = service.getResourceRatePort();
-		setUserTokenData((BindingProvider)servicePort);
-
-		return servicePort;
+	private ResourceRatePortType createResourceRatePort()throws Exception{
+		return ports.getPort(RESOURCERATE_SERVICE, ResourceRateService.class, ResourceRatePortType.class);
 	}
 
 
 	/**
 	 * Creates a SOAP port for Reading {@link Timesheet} from P6 Live
-	 * @param hostname p6 host address
-	 * @param port port number
 	 * @return {@link TimesheetPortType} to load data from.
 	 * @throws Exception
 	 */
-	private TimesheetPortType createTimesheetPort (String hostname, int port) throws Exception{
-		String url = makeHttpURLString(hostname, port, TIMESHEET_SERVICE, true);
-		URL wsdlURL = new URL(url);
-		TimesheetService service = new TimesheetService (wsdlURL);
-		TimesheetPortType servicePort ;
-		servicePort = service.getTimesheetPort();
-		setUserTokenData((BindingProvider)servicePort);
-
-		return servicePort;
+	private TimesheetPortType createTimesheetPort () throws Exception{
+		return ports.getPort(TIMESHEET_SERVICE, TimesheetService.class, TimesheetPortType.class);
 	}
 
 	/**
 	 * Creates a SOAP port for Reading {@link ResourceAssignment} from P6 Live
-	 * @param hostname p6 host address
-	 * @param port port number
 	 * @return {@link ResourceAssignmentPortType} to load data from.
 	 * @throws Exception
 	 */
-	private ResourceAssignmentPortType createResourceAssignmentPort (String hostname, int port) throws Exception {
-		String url = makeHttpURLString(hostname, port, RESOURCE_ASSIGNMENT, true);
-		URL wsdlURL = new URL(url);
-		ResourceAssignmentService service = new ResourceAssignmentService(wsdlURL);
-		ResourceAssignmentPortType servicePort ;
-		servicePort = service.getResourceAssignmentPort();
-		setUserTokenData((BindingProvider)servicePort);
-
-		return servicePort;
+	private ResourceAssignmentPortType createResourceAssignmentPort () throws Exception {
+		return ports.getPort(RESOURCE_ASSIGNMENT, ResourceAssignmentService.class, ResourceAssignmentPortType.class);
 	}
 
 
 
-	private void setUserTokenData(BindingProvider bp)
-	{
+	/**
+	 * @param servicePath path of the service on the P6 server.
+	 * @return {@link StreamingInvoker} for streamed reads of the service, authenticated as the ports are.
+	 */
+	private StreamingInvoker streaming(String servicePath) {
+		return ports.getStreamingInvoker(servicePath, security);
+	}
 
-		Binding binding = bp.getBinding();
-		List<Handler> handlerChain = binding.getHandlerChain();
-		handlerChain.add(new LoggingHandler());
-		handlerChain.add(new SecurityHandler(user,pass));
-		binding.setHandlerChain(handlerChain);
+	/**
+	 * Builds the handlers installed on every port. The handlers hold no per-message state so one set is shared by all ports.
+	 * Requests are authenticated by the session cookie if a session is in use, otherwise by a UsernameToken.
+	 * Each handler is timed and the size of each response recorded in {@link Metrics#global()}.
+	 * @param logLevel how much of each message to log.
+	 * @return handler chain to add to each port.
+	 */
+	private List<Handler> createHandlerChain(LogLevel logLevel)
+	{
+		Metrics metrics = Metrics.global();
+		List<Handler> handlerChain = new ArrayList<>();
+		handlerChain.add(new ResponseSizeHandler(metrics));
+		if(logLevel != LogLevel.OFF) {
+			handlerChain.add(new TimedHandler(new LoggingHandler(logLevel, LoggingHandler.DEFAULT_MAX_BODY_BYTES, AsyncLogAppender.console()), metrics));
+		}
+		if(session != null) {
+			handlerChain.add(new TimedHandler(new SessionHandler(session), metrics));
+		}else {
+			handlerChain.add(new TimedHandler(security, metrics));
+		}
+		return handlerChain;
+	}
 
+	/**
+	 * @param servicePath path of a service e.g. /p6ws/services/ResourceHourService
+	 * @return name of the service e.g. ResourceHourService
+	 */
+	private static String serviceName(String servicePath) {
+		return servicePath.substring(servicePath.lastIndexOf('/') + 1);
 	}
 
 	private String makeHttpURLString(String hostname, int port, String suffix, boolean bUseSSL)
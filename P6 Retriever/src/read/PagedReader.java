@@ -0,0 +1,259 @@
+package read;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates a P6 table one window of key values at a time, e.g. ObjectId 0-4999, then 5000-9999 and so on.
+ * Only the current window is held in memory so memory use is bounded by the window size rather than the table size.
+ * Windows are requested with the service's filter and orderBy parameters.
+ * <p>
+ * Keys are not guaranteed to be dense. When a window comes back empty the next key is looked for with reads of the key field only,
+ * over ranges doubling in width from one page, so a gap costs a few reads and a read returns no more keys than the gap already skipped.
+ * The end of the table is found the same way, by ranges reaching the largest possible key.
+ * <p>
+ * With {@link #prefetch(ExecutorService)} the next page is read in the background while the current one is consumed,
+ * so writing overlaps with fetching at the cost of holding up to two pages.
+ * Not thread safe.
+ * @param <T> record type of the table.
+ */
+public class PagedReader<T> implements Iterator<T> {
+
+	/**
+	 * Default number of key values requested per page.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 5000;
+
+	/**
+	 * Largest key value plus one, P6 keys are ints.
+	 */
+	private static final long KEY_LIMIT = (long)Integer.MAX_VALUE + 1;
+
+	/**
+	 * Source of pages for a {@link PagedReader}, normally a wrapper around a P6 port.
+	 * @param <T> record type of the table.
+	 */
+	public interface Source<T> {
+		/**
+		 * Reads the records matching a filter.
+		 * @param filter P6 filter clause.
+		 * @param orderBy P6 order by clause.
+		 * @param keyOnly true if only the key field is required.
+		 * @return matching records.
+		 * @throws Exception if the read fails.
+		 */
+		List<T> read(String filter, String orderBy, boolean keyOnly) throws Exception;
+
+		/**
+		 * @param record record read from this source.
+		 * @return value of the key field the table is paged by.
+		 */
+		int key(T record);
+	}
+
+	private final String service;
+	private final String keyField;
+	private final int pageSize;
+	private final String filter;
+	private final Source<T> source;
+
+	private long lowerBound;
+	private boolean finished;
+	private List<T> page = Collections.emptyList();
+	private int index;
+	private ExecutorService prefetcher;
+	private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+	private Future<List<T>> pending;
+	private volatile long fetched;
+
+	/**
+	 * Constructor
+	 * @param service name of the P6 service being read, used when reporting failures.
+	 * @param keyField field the table is paged by e.g. ObjectId
+	 * @param pageSize number of key values requested per page.
+	 * @param filter additional P6 filter applied to every page, may be null.
+	 * @param source {@link Source} to read pages from.
+	 */
+	public PagedReader(String service, String keyField, int pageSize, String filter, Source<T> source) {
+		if(pageSize <= 0) {
+			throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+		}
+		this.service = service;
+		this.keyField = keyField;
+		this.pageSize = pageSize;
+		this.filter = filter;
+		this.source = source;
+	}
+
+	/**
+	 * Reads each following page in the background on the given executor while the current page is consumed.
+	 * @param executor {@link ExecutorService} to read pages on.
+	 * @return this reader.
+	 */
+	public PagedReader<T> prefetch(ExecutorService executor) {
+		this.prefetcher = executor;
+		return this;
+	}
+
+	/**
+	 * @param retryPolicy {@link RetryPolicy} the pages were read with, judges whether a failed read is {@link P6ReadException#isTransient()}.
+	 * {@link RetryPolicy#DEFAULT} if not given.
+	 * @return this reader.
+	 */
+	public PagedReader<T> classifyFailures(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+		return this;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while(index >= page.size()) {
+			if(pending == null && finished) {
+				return false;
+			}
+			page = fetchPage();
+			index = 0;
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return page.get(index++);
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * @return number of records read from P6 so far, including a page read ahead and not yet consumed.
+	 * May be called from any thread, e.g. to show progress.
+	 */
+	public long getRecordsFetched() {
+		return fetched;
+	}
+
+	/**
+	 * @return the remaining records as a sequential {@link Stream}, read page by page as the stream is consumed.
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Takes the next page, from the background read if one is in progress, and starts reading the page after it.
+	 * @return next page, empty when finished.
+	 */
+	private List<T> fetchPage() {
+		List<T> next;
+		if(pending != null) {
+			next = awaitPending();
+		}else {
+			next = nextPage();
+		}
+		if(prefetcher != null && !finished) {
+			pending = prefetcher.submit(new Callable<List<T>>() {
+				public List<T> call() {
+					return nextPage();
+				}
+			});
+		}
+		return next;
+	}
+
+	private List<T> awaitPending() {
+		try {
+			return pending.get();
+		} catch (InterruptedException e) {
+			pending.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new P6ReadException(service, "Interrupted waiting for page", e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof P6ReadException) {
+				throw (P6ReadException)e.getCause();
+			}
+			throw new P6ReadException(service, "Failed to read page", e.getCause(), retryPolicy);
+		} finally {
+			pending = null;
+		}
+	}
+
+	/**
+	 * Reads windows until one has records or the end of the table is reached.
+	 * @return next non empty page, or an empty list when finished.
+	 */
+	private List<T> nextPage() {
+		while(true) {
+			if(lowerBound >= KEY_LIMIT) {
+				finished = true;
+				return Collections.emptyList();
+			}
+			long windowEnd = Math.min(lowerBound + pageSize, KEY_LIMIT);
+			List<T> records = read(filter(keyField + " >= " + lowerBound + " and " + keyField + " < " + windowEnd), false);
+			lowerBound = windowEnd;
+			if(!records.isEmpty()) {
+				// Pages are read one at a time, even when prefetching, so there is only ever one writer
+				fetched += records.size();
+				return records;
+			}
+			if(!skipGap()) {
+				finished = true;
+				return Collections.emptyList();
+			}
+		}
+	}
+
+	/**
+	 * Moves the lower bound up to the next key, reading the key field only over ranges that double in width from one page.
+	 * Each range starts where the last, empty, one ended, so it holds no more keys than the gap skipped so far is wide.
+	 * @return false if there are no keys left.
+	 */
+	private boolean skipGap() {
+		long width = pageSize;
+		while(lowerBound < KEY_LIMIT) {
+			long end = Math.min(lowerBound + width, KEY_LIMIT);
+			List<T> keys = read(filter(keyField + " >= " + lowerBound + " and " + keyField + " < " + end), true);
+			if(!keys.isEmpty()) {
+				long min = Long.MAX_VALUE;
+				for(T key : keys) {
+					min = Math.min(min, source.key(key));
+				}
+				lowerBound = min;
+				return true;
+			}
+			lowerBound = end;
+			width *= 2;
+		}
+		return false;
+	}
+
+	private List<T> read(String pageFilter, boolean keyOnly) {
+		try {
+			return source.read(pageFilter, keyOnly ? null : keyField, keyOnly);
+		} catch (Exception e) {
+			throw new P6ReadException(service, "Failed to read page where " + pageFilter, e, retryPolicy);
+		}
+	}
+
+	private String filter(String range) {
+		if(filter == null) {
+			return range;
+		}
+		return "(" + filter + ") and " + range;
+	}
+}
@@ -0,0 +1,147 @@
+package read;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * How evenly a {@link PartitionedReader} spread a table over its partitions: the records and time of each partition
+ * and how far the largest and slowest were from the mean. A read takes as long as its slowest partition, so a time imbalance well above 1
+ * means more partitions, or another {@link Partitioning}, would help.
+ */
+public class PartitionReport {
+
+	/**
+	 * One partition of the read.
+	 */
+	public static class Partition {
+
+		private final String filter;
+		private final int expected;
+		private final int records;
+		private final long millis;
+
+		Partition(String filter, int expected, int records, long millis) {
+			this.filter = filter;
+			this.expected = expected;
+			this.records = records;
+			this.millis = millis;
+		}
+
+		/**
+		 * @return P6 filter the partition was read with.
+		 */
+		public String getFilter() {
+			return filter;
+		}
+
+		/**
+		 * @return records the partition held when the read was planned.
+		 */
+		public int getExpected() {
+			return expected;
+		}
+
+		/**
+		 * @return records read.
+		 */
+		public int getRecords() {
+			return records;
+		}
+
+		/**
+		 * @return time taken to read the partition.
+		 */
+		public long getMillis() {
+			return millis;
+		}
+	}
+
+	private final Partitioning partitioning;
+	private final List<Partition> partitions;
+	private final long planMillis;
+	private final long totalMillis;
+
+	PartitionReport(Partitioning partitioning, List<Partition> partitions, long planMillis, long totalMillis) {
+		this.partitioning = partitioning;
+		this.partitions = Collections.unmodifiableList(new ArrayList<>(partitions));
+		this.planMillis = planMillis;
+		this.totalMillis = totalMillis;
+	}
+
+	public Partitioning getPartitioning() {
+		return partitioning;
+	}
+
+	public List<Partition> getPartitions() {
+		return partitions;
+	}
+
+	/**
+	 * @return time taken to read the partition field and plan the partitions.
+	 */
+	public long getPlanMillis() {
+		return planMillis;
+	}
+
+	/**
+	 * @return time taken by the whole read, including planning and merging.
+	 */
+	public long getTotalMillis() {
+		return totalMillis;
+	}
+
+	/**
+	 * @return records read across every partition.
+	 */
+	public long getRecords() {
+		long records = 0;
+		for(Partition partition : partitions) {
+			records += partition.getRecords();
+		}
+		return records;
+	}
+
+	/**
+	 * @return records in the largest partition over the mean, 1 when perfectly even.
+	 */
+	public double getRecordImbalance() {
+		if(partitions.isEmpty() || getRecords() == 0) {
+			return 1;
+		}
+		long max = 0;
+		for(Partition partition : partitions) {
+			max = Math.max(max, partition.getRecords());
+		}
+		return max / ((double)getRecords() / partitions.size());
+	}
+
+	/**
+	 * @return time of the slowest partition over the mean, 1 when perfectly even.
+	 */
+	public double getTimeImbalance() {
+		long total = 0;
+		long max = 0;
+		for(Partition partition : partitions) {
+			total += partition.getMillis();
+			max = Math.max(max, partition.getMillis());
+		}
+		if(total == 0) {
+			return 1;
+		}
+		return max / ((double)total / partitions.size());
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format(Locale.ROOT, "%d records in %d partitions by %s in %d ms (planned in %d ms), record imbalance %.2f, time imbalance %.2f%n",
+				getRecords(), partitions.size(), partitioning, totalMillis, planMillis, getRecordImbalance(), getTimeImbalance()));
+		for(Partition partition : partitions) {
+			report.append(String.format(Locale.ROOT, "  %8d records (%d planned) %8d ms  %s%n",
+					partition.getRecords(), partition.getExpected(), partition.getMillis(), partition.getFilter()));
+		}
+		return report.toString();
+	}
+}
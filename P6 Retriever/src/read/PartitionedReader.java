@@ -0,0 +1,560 @@
+package read;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a P6 table as several partitions at once, so a large table is served by more than one server thread.
+ * <p>
+ * The partition and key fields alone are read first, a window of keys at a time, giving each value of the partition field, how many records have it
+ * and the keys they span. Once there are more than {@value #PLAN_VALUES} values, neighbouring values are counted together, so planning holds a bounded
+ * number of counts rather than one per record, e.g. with {@link Partitioning#OBJECT_ID}. The values are then split into contiguous ranges holding about the same number of records, whole values per partition,
+ * e.g. whole projects with {@link Partitioning#PROJECT}. The first and last ranges are open ended, and records without a value get
+ * a partition of their own, so records added after planning are still read.
+ * <p>
+ * Partitions are read concurrently, each a page at a time in key order with a {@link PagedReader} whose windows are widened
+ * by how sparsely the partition's records are spread over the keys, so a page holds about as many records whatever the partition.
+ * The reader iterates the partitions merged by key, so the records come out in the same order however the table was split,
+ * and each partition reads at most a page ahead of the merge: memory is bounded by two pages per partition rather than by the table.
+ * How evenly the partitions were balanced is given by {@link #getReport()} once every record has been taken.
+ * <p>
+ * The calls still go through the reader's {@link ConcurrencyLimit}, so more partitions than the server sustains just wait their turn.
+ * A reader reads once, and must be closed if it is not iterated to the end. Not thread safe.
+ * @param <T> record type of the table.
+ */
+public class PartitionedReader<T> implements Iterator<T>, Closeable {
+
+	/**
+	 * Marks the end of a partition in its queue.
+	 */
+	private static final Object END = new Object();
+
+	/**
+	 * Most partition values counted separately when planning.
+	 */
+	private static final int PLAN_VALUES = 1024;
+
+	/**
+	 * Pages of keys read per call when planning, records holding only the partition and key fields being a fraction of the size of whole ones.
+	 */
+	private static final int PLAN_PAGES = 10;
+
+	/**
+	 * Source of partitions for a {@link PartitionedReader}, normally a wrapper around a P6 port.
+	 * @param <T> record type of the table.
+	 */
+	public interface Source<T> {
+		/**
+		 * Reads the records matching a filter.
+		 * @param filter P6 filter clause.
+		 * @param orderBy P6 order by clause, null for any order.
+		 * @param partitionFieldOnly true if only the partition and key fields are required.
+		 * @return matching records.
+		 * @throws Exception if the read fails.
+		 */
+		List<T> read(String filter, String orderBy, boolean partitionFieldOnly) throws Exception;
+
+		/**
+		 * @param record record read from this source.
+		 * @return value of the partition field, null if it has none.
+		 */
+		Integer partitionKey(T record);
+
+		/**
+		 * @param record record read from this source.
+		 * @return value of the key field the result is ordered by.
+		 */
+		int key(T record);
+	}
+
+	private final String service;
+	private final Partitioning partitioning;
+	private final String keyField;
+	private final int partitions;
+	private final String filter;
+	private final int pageSize;
+	private final Source<T> source;
+	private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+	private PartitionReport report;
+
+	// Set once the read starts
+	private boolean started;
+	private ExecutorService executor;
+	private ForkJoinPool pool;
+	private volatile List<Partition> reads;
+	private PriorityQueue<Partition> heads;
+	private long start;
+	private long planned;
+
+	/**
+	 * Constructor, partitions are read {@link PagedReader#DEFAULT_PAGE_SIZE} records at a time.
+	 * @param service name of the P6 service being read, used when reporting failures.
+	 * @param partitioning {@link Partitioning} to split the table by.
+	 * @param keyField unique field the result is ordered by e.g. ObjectId
+	 * @param partitions most partitions to read at once, fewer are used if the field has fewer values.
+	 * @param filter additional P6 filter applied to every read, may be null.
+	 * @param source {@link Source} to read from.
+	 */
+	public PartitionedReader(String service, Partitioning partitioning, String keyField, int partitions, String filter, Source<T> source) {
+		this(service, partitioning, keyField, partitions, filter, PagedReader.DEFAULT_PAGE_SIZE, source);
+	}
+
+	/**
+	 * Constructor
+	 * @param service name of the P6 service being read, used when reporting failures.
+	 * @param partitioning {@link Partitioning} to split the table by.
+	 * @param keyField unique field the result is ordered by e.g. ObjectId
+	 * @param partitions most partitions to read at once, fewer are used if the field has fewer values.
+	 * @param filter additional P6 filter applied to every read, may be null.
+	 * @param pageSize records each partition reads per page, and at most holds waiting to be merged.
+	 * @param source {@link Source} to read from.
+	 */
+	public PartitionedReader(String service, Partitioning partitioning, String keyField, int partitions, String filter, int pageSize, Source<T> source) {
+		if(partitions <= 0) {
+			throw new IllegalArgumentException("Partitions must be positive: " + partitions);
+		}
+		if(pageSize <= 0) {
+			throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+		}
+		this.service = service;
+		this.partitioning = partitioning;
+		this.keyField = keyField;
+		this.partitions = partitions;
+		this.filter = filter;
+		this.pageSize = pageSize;
+		this.source = source;
+	}
+
+	/**
+	 * @param retryPolicy {@link RetryPolicy} the partitions are read with, judges whether a failed read is {@link P6ReadException#isTransient()}.
+	 * {@link RetryPolicy#DEFAULT} if not given.
+	 * @return this reader.
+	 */
+	public PartitionedReader<T> classifyFailures(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+		return this;
+	}
+
+	/**
+	 * Reads the partitions on the given executor rather than a {@link ForkJoinPool} of the reader's own. Call before iterating.
+	 * @param executor {@link ExecutorService} to read the partitions on, it must run at least as many tasks at once as there are partitions.
+	 * @return this reader.
+	 */
+	public PartitionedReader<T> readOn(ExecutorService executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * Reads every partition into one list, on a {@link ForkJoinPool} with a thread per partition unless {@link #readOn(ExecutorService)} was called.
+	 * Holds the whole result, iterate the reader instead to take the records as they are merged.
+	 * @return every matching record in key order.
+	 * @throws Exception if planning or any partition fails, the rest are cancelled.
+	 */
+	public List<T> read() throws Exception {
+		if(started) {
+			throw new IllegalStateException("Already read");
+		}
+		List<T> records = new ArrayList<>();
+		try {
+			while(hasNext()) {
+				records.add(next());
+			}
+		} finally {
+			close();
+		}
+		return records;
+	}
+
+	/**
+	 * Reads every partition into one list on the given executor.
+	 * @param executor {@link ExecutorService} to read the partitions on, it must run at least as many tasks at once as there are partitions.
+	 * @return every matching record in key order.
+	 * @throws Exception if planning or any partition fails, the rest are cancelled.
+	 */
+	public List<T> read(ExecutorService executor) throws Exception {
+		return readOn(executor).read();
+	}
+
+	/**
+	 * Plans and starts reading the partitions on the first call.
+	 * @throws P6ReadException if planning or a partition fails, the rest are cancelled.
+	 */
+	@Override
+	public boolean hasNext() {
+		if(!started) {
+			startReads();
+		}
+		return !heads.isEmpty();
+	}
+
+	/**
+	 * @throws P6ReadException if a partition fails, the rest are cancelled.
+	 */
+	@Override
+	public T next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		Partition partition = heads.poll();
+		T record = partition.head;
+		if(partition.advance()) {
+			heads.add(partition);
+		}else if(heads.isEmpty()) {
+			finish();
+		}
+		return record;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Stops any partitions still being read. The reader can not be iterated further.
+	 */
+	@Override
+	public void close() {
+		if(reads != null) {
+			for(Partition partition : reads) {
+				partition.cancel();
+			}
+		}
+		if(heads != null) {
+			heads.clear();
+		}
+		if(pool != null) {
+			pool.shutdownNow();
+			pool = null;
+		}
+	}
+
+	/**
+	 * @return number of records the partitions have read so far, including those waiting to be merged.
+	 * May be called from any thread, e.g. to show progress.
+	 */
+	public long getRecordsFetched() {
+		List<Partition> current = reads;
+		long fetched = 0;
+		if(current != null) {
+			for(Partition partition : current) {
+				fetched += partition.records;
+			}
+		}
+		return fetched;
+	}
+
+	/**
+	 * @return how evenly the partitions were balanced, null until every record has been taken.
+	 */
+	public PartitionReport getReport() {
+		return report;
+	}
+
+	private void startReads() {
+		started = true;
+		heads = new PriorityQueue<>();
+		start = System.nanoTime();
+		List<Range> ranges = plan();
+		planned = System.nanoTime();
+		List<Partition> partitions = new ArrayList<>();
+		if(!ranges.isEmpty() && executor == null) {
+			pool = new ForkJoinPool(ranges.size());
+			executor = pool;
+		}
+		for(Range range : ranges) {
+			Partition partition = new Partition(range);
+			partitions.add(partition);
+			partition.future = executor.submit(partition);
+		}
+		reads = partitions;
+		try {
+			for(Partition partition : reads) {
+				if(partition.advance()) {
+					heads.add(partition);
+				}
+			}
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+		if(heads.isEmpty()) {
+			finish();
+		}
+	}
+
+	/**
+	 * Records the report once the last record has been taken.
+	 */
+	private void finish() {
+		List<PartitionReport.Partition> partitionReports = new ArrayList<>();
+		for(Partition partition : reads) {
+			partitionReports.add(new PartitionReport.Partition(partition.filter, partition.expected, partition.records, partition.millis));
+		}
+		report = new PartitionReport(partitioning, partitionReports, TimeUnit.NANOSECONDS.toMillis(planned - start),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		if(pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * Reads the partition and key fields of every matching record, a window of keys at a time,
+	 * and splits the partition values into ranges of about the same number of records.
+	 * @return ranges to read, empty if there are no records.
+	 */
+	private List<Range> plan() {
+		PagedReader<T> keys = new PagedReader<>(service, keyField, (int)Math.min(Integer.MAX_VALUE, (long)pageSize * PLAN_PAGES), filter,
+				new PagedReader.Source<T>() {
+			public List<T> read(String filter, String orderBy, boolean keyOnly) throws Exception {
+				return source.read(filter, null, true);
+			}
+			public int key(T record) {
+				return source.key(record);
+			}
+		}).classifyFailures(retryPolicy);
+		TreeMap<Integer, Span> values = new TreeMap<>();
+		Span nulls = new Span();
+		int total = 0;
+		try {
+			while(keys.hasNext()) {
+				T key = keys.next();
+				Integer value = source.partitionKey(key);
+				if(value == null) {
+					nulls.add(source.key(key));
+					continue;
+				}
+				Span span = values.get(value);
+				if(span == null) {
+					span = new Span();
+					values.put(value, span);
+				}
+				span.add(source.key(key));
+				total++;
+				if(values.size() > PLAN_VALUES) {
+					values = coarsen(values, total);
+				}
+			}
+		} catch (P6ReadException e) {
+			throw new P6ReadException(service, "Failed to read " + partitioning.getField() + " to plan partitions", e);
+		}
+
+		List<Range> ranges = new ArrayList<>();
+		String field = partitioning.getField();
+		int ranged = nulls.records > 0 ? Math.max(1, partitions - 1) : partitions;
+		Integer lower = null;
+		Span inRange = new Span();
+		int seen = 0;
+		for(Map.Entry<Integer, Span> value : values.entrySet()) {
+			inRange.add(value.getValue());
+			seen += value.getValue().records;
+			// Cut where the running total passes the next share, the last range takes whatever is left
+			boolean last = seen == total;
+			if(!last && ranges.size() < ranged - 1 && seen >= (long)total * (ranges.size() + 1) / ranged) {
+				ranges.add(new Range((lower == null ? "" : field + " > " + lower + " and ") + field + " <= " + value.getKey(), inRange));
+				lower = value.getKey();
+				inRange = new Span();
+			}
+		}
+		if(total > 0) {
+			// A single range needs no filter of its own unless records without a value are read separately
+			ranges.add(new Range(lower != null ? field + " > " + lower : nulls.records > 0 ? field + " is not null" : null, inRange));
+		}
+		if(nulls.records > 0) {
+			ranges.add(new Range(field + " is null", nulls));
+		}
+		return ranges;
+	}
+
+	/**
+	 * Counts runs of neighbouring values together under the highest of them, a run holding at most 4 / {@value #PLAN_VALUES} of the records
+	 * unless a single value does. Any two neighbouring runs hold more than that, so at most half as many counts are kept.
+	 * Ranges are still cut between whole values, there are just fewer places to cut, each within a run's records of the even share.
+	 * @param values records of each value, or run of values, so far.
+	 * @param total records counted in values.
+	 * @return values counted in runs.
+	 */
+	private static TreeMap<Integer, Span> coarsen(TreeMap<Integer, Span> values, int total) {
+		long most = Math.max(1, 4L * total / PLAN_VALUES);
+		TreeMap<Integer, Span> runs = new TreeMap<>();
+		Span run = null;
+		Integer highest = null;
+		for(Map.Entry<Integer, Span> value : values.entrySet()) {
+			if(run != null && run.records + value.getValue().records > most) {
+				runs.put(highest, run);
+				run = null;
+			}
+			if(run == null) {
+				run = new Span();
+			}
+			run.add(value.getValue());
+			highest = value.getKey();
+		}
+		runs.put(highest, run);
+		return runs;
+	}
+
+	private String filter(String range) {
+		if(range == null) {
+			return filter;
+		}
+		if(filter == null) {
+			return range;
+		}
+		return "(" + filter + ") and " + range;
+	}
+
+	/**
+	 * Number of records and the keys they fall between, of a partition value or a range of them.
+	 */
+	private static class Span {
+
+		private int records;
+		private long minKey = Long.MAX_VALUE;
+		private long maxKey = Long.MIN_VALUE;
+
+		void add(int key) {
+			records++;
+			minKey = Math.min(minKey, key);
+			maxKey = Math.max(maxKey, key);
+		}
+
+		void add(Span other) {
+			records += other.records;
+			minKey = Math.min(minKey, other.minKey);
+			maxKey = Math.max(maxKey, other.maxKey);
+		}
+	}
+
+	/**
+	 * A partition's filter and the records it held when planned.
+	 */
+	private static class Range {
+
+		private final String filter;
+		private final Span span;
+
+		Range(String filter, Span span) {
+			this.filter = filter;
+			this.span = span;
+		}
+	}
+
+	/**
+	 * One partition being read on the executor into a queue of at most a page, and its place in the merge.
+	 */
+	private class Partition implements Callable<Void>, Comparable<Partition> {
+
+		private final String filter;
+		private final int expected;
+		private final int window;
+		private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(pageSize);
+		private Future<?> future;
+		private volatile int records;
+		private volatile long millis;
+
+		// Only used by the merge
+		private T head;
+		private int key;
+
+		Partition(Range range) {
+			this.filter = PartitionedReader.this.filter(range.filter);
+			this.expected = range.span.records;
+			// A partition holding one record in n of its keys needs windows n pages wide to fill a page
+			long keys = range.span.maxKey - range.span.minKey + 1;
+			this.window = (int)Math.min(Integer.MAX_VALUE, Math.max(pageSize, keys * pageSize / Math.max(1, expected)));
+		}
+
+		@Override
+		public Void call() throws InterruptedException {
+			long begin = System.nanoTime();
+			try {
+				PagedReader<T> pages = new PagedReader<>(service, keyField, window, filter, new PagedReader.Source<T>() {
+					public List<T> read(String filter, String orderBy, boolean keyOnly) throws Exception {
+						return source.read(filter, orderBy, keyOnly);
+					}
+					public int key(T record) {
+						return source.key(record);
+					}
+				}).classifyFailures(retryPolicy);
+				while(pages.hasNext()) {
+					queue.put(pages.next());
+					records++;
+				}
+				queue.put(END);
+			} catch (P6ReadException e) {
+				queue.put(new Failure(e));
+			} catch (RuntimeException e) {
+				queue.put(new Failure(new P6ReadException(service, "Failed to read partition where " + filter, e, retryPolicy)));
+			} finally {
+				millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+			}
+			return null;
+		}
+
+		/**
+		 * Takes the partition's next record as its head, waiting for it to be read.
+		 * @return false if the partition has no more records.
+		 */
+		@SuppressWarnings("unchecked")
+		boolean advance() {
+			Object next;
+			try {
+				next = queue.take();
+			} catch (InterruptedException e) {
+				close();
+				Thread.currentThread().interrupt();
+				throw new P6ReadException(service, "Interrupted waiting for partition where " + filter, e);
+			}
+			if(next == END) {
+				head = null;
+				return false;
+			}
+			if(next instanceof Failure) {
+				close();
+				throw ((Failure)next).failure;
+			}
+			head = (T)next;
+			key = source.key(head);
+			return true;
+		}
+
+		void cancel() {
+			if(future != null) {
+				future.cancel(true);
+			}
+		}
+
+		@Override
+		public int compareTo(Partition other) {
+			return Integer.compare(key, other.key);
+		}
+	}
+
+	/**
+	 * A partition's failure, passed through its queue.
+	 */
+	private static class Failure {
+
+		private final P6ReadException failure;
+
+		Failure(P6ReadException failure) {
+			this.failure = failure;
+		}
+	}
+}
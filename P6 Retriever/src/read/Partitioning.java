@@ -0,0 +1,35 @@
+package read;
+
+/**
+ * Field a table is split on for a {@link PartitionedReader}.
+ */
+public enum Partitioning {
+
+	/**
+	 * Whole projects per partition, balanced by the number of records in each project.
+	 */
+	PROJECT("ProjectObjectId"),
+
+	/**
+	 * Whole timesheet periods per partition, balanced by the number of records in each period.
+	 */
+	TIMESHEET_PERIOD("TimesheetPeriodObjectId"),
+
+	/**
+	 * Ranges of ObjectId holding equal numbers of records.
+	 */
+	OBJECT_ID("ObjectId");
+
+	private final String field;
+
+	private Partitioning(String field) {
+		this.field = field;
+	}
+
+	/**
+	 * @return name of the field in P6 filters e.g. ProjectObjectId
+	 */
+	public String getField() {
+		return field;
+	}
+}
@@ -0,0 +1,174 @@
+package read;
+
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.ws.Binding;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.Service;
+import javax.xml.ws.handler.Handler;
+
+import metrics.Metrics;
+import security.SecurityHandler;
+import security.SessionAuthenticator;
+
+/**
+ * Builds and caches the SOAP {@link Service} and port objects for a single {@link P6Reader}.
+ * Building a {@link Service} parses its WSDL, so each is built once and reused for the lifetime of the reader.
+ * WSDL is loaded from the bundled copy on the classpath (/wsdl/&lt;ServiceName&gt;.wsdl) if present,
+ * otherwise it is fetched from the P6 server as before.
+ * Ports are configured (endpoint and handler chain) once when first requested and then shared by every read of that service.
+ * Shared ports are returned behind a {@link PortInvoker} so every call passes through one place.
+ * Every port connects through one {@link TrackedSocketFactory}, so {@link #cancel()} can fail the calls in progress
+ * and pooled connections can be reused by any port. Timeouts and compression are set on each port from the {@link TransportOptions}.
+ * The time taken to load each WSDL and every call through a shared port are recorded in {@link Metrics#global()}.
+ * Streamed reads go around the ports through a {@link StreamingInvoker} per service, sharing the same sockets, limit and metrics.
+ */
+class PortFactory {
+
+	private static final String WSDL_RESOURCE_DIRECTORY = "/wsdl/";
+	private static final String WSDL_EXTENSION = ".wsdl";
+
+	private final String baseUrl;
+	private final List<Handler> handlers;
+	private final SessionAuthenticator session;
+	private final TransportOptions transport;
+	private final RetryPolicy retry;
+	private final ConcurrencyLimiter limiter;
+	private final Map<Class<?>, Service> services = new HashMap<>();
+	private final Map<Class<?>, Object> ports = new HashMap<>();
+	private final Map<String, StreamingInvoker> streamers = new HashMap<>();
+	private final TrackedSocketFactory sockets = new TrackedSocketFactory();
+	private volatile boolean cancelled;
+
+	/**
+	 * Constructor
+	 * @param baseUrl address of the P6 server e.g. HTTPS://host:443
+	 * @param handlers handlers added to the chain of every port created.
+	 * @param session {@link SessionAuthenticator} the handlers authenticate with, null if UsernameToken is used.
+	 * @param transport {@link TransportOptions} every port is configured with.
+	 * @param retry {@link RetryPolicy} for calls through the shared ports.
+	 * @param limiter {@link ConcurrencyLimiter} of the server every call through the shared ports waits on.
+	 */
+	PortFactory(String baseUrl, List<Handler> handlers, SessionAuthenticator session, TransportOptions transport, RetryPolicy retry,
+			ConcurrencyLimiter limiter) {
+		this.baseUrl = baseUrl;
+		this.handlers = handlers;
+		this.session = session;
+		this.transport = transport;
+		this.retry = retry;
+		this.limiter = limiter;
+	}
+
+	/**
+	 * Returns the port for a P6 service, creating and configuring it on first use.
+	 * @param servicePath path of the service on the P6 server e.g. /p6ws/services/ResourceHourService
+	 * @param serviceType generated {@link Service} class for the service.
+	 * @param portType port interface to return.
+	 * @return configured port.
+	 * @throws Exception if the WSDL cannot be loaded or the service cannot be built.
+	 */
+	synchronized <P> P getPort(String servicePath, Class<? extends Service> serviceType, Class<P> portType) throws Exception {
+		Object cached = ports.get(portType);
+		if(cached != null) {
+			return portType.cast(cached);
+		}
+
+		P port = createPort(servicePath, serviceType, portType, handlers);
+		P invoker = portType.cast(Proxy.newProxyInstance(portType.getClassLoader(), new Class<?>[] {portType}, new PortInvoker(port, session, this, retry, limiter,
+				Metrics.global().service(serviceName(servicePath)))));
+		ports.put(portType, invoker);
+		return invoker;
+	}
+
+	/**
+	 * Creates a new port which is not shared, with its own handlers, e.g. for logging in.
+	 * @param servicePath path of the service on the P6 server.
+	 * @param serviceType generated {@link Service} class for the service.
+	 * @param portType port interface to return.
+	 * @param portHandlers handlers added to the port's chain.
+	 * @return configured port.
+	 * @throws Exception if the WSDL cannot be loaded or the service cannot be built.
+	 */
+	synchronized <P> P createPort(String servicePath, Class<? extends Service> serviceType, Class<P> portType, List<Handler> portHandlers) throws Exception {
+		P port = getService(servicePath, serviceType).getPort(portType);
+		BindingProvider bp = (BindingProvider)port;
+		bp.getRequestContext().put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, baseUrl + servicePath);
+		sockets.install(port, bp.getRequestContext());
+		transport.configure(bp.getRequestContext());
+
+		Binding binding = bp.getBinding();
+		List<Handler> handlerChain = binding.getHandlerChain();
+		handlerChain.addAll(portHandlers);
+		binding.setHandlerChain(handlerChain);
+
+		return port;
+	}
+
+	/**
+	 * Returns the invoker for streamed reads of a P6 service, creating it on first use.
+	 * @param servicePath path of the service on the P6 server.
+	 * @param security {@link SecurityHandler} adding the UsernameToken to each request, null if the session is used.
+	 * @return {@link StreamingInvoker} of the service.
+	 */
+	synchronized StreamingInvoker getStreamingInvoker(String servicePath, SecurityHandler security) {
+		StreamingInvoker invoker = streamers.get(servicePath);
+		if(invoker == null) {
+			invoker = new StreamingInvoker(baseUrl + servicePath, session, security, this, transport, sockets, retry, limiter,
+					Metrics.global().service(serviceName(servicePath)));
+			streamers.put(servicePath, invoker);
+		}
+		return invoker;
+	}
+
+	/**
+	 * Refuses every later call through the shared ports and closes the connections of the calls in progress, so they fail straight away.
+	 */
+	void cancel() {
+		cancelled = true;
+		sockets.closeAll();
+	}
+
+	/**
+	 * @return true once {@link #cancel()} has been called.
+	 */
+	boolean isCancelled() {
+		return cancelled;
+	}
+
+	private Service getService(String servicePath, Class<? extends Service> serviceType) throws Exception {
+		Service service = services.get(serviceType);
+		if(service == null) {
+			long start = System.nanoTime();
+			service = serviceType.getConstructor(URL.class).newInstance(getWsdlLocation(servicePath));
+			Metrics.global().service(serviceName(servicePath)).wsdlLoaded(System.nanoTime() - start);
+			services.put(serviceType, service);
+		}
+		return service;
+	}
+
+	/**
+	 * Finds the WSDL for a service, preferring the bundled copy over the remote one.
+	 * @param servicePath path of the service on the P6 server.
+	 * @return {@link URL} of the WSDL.
+	 * @throws Exception if the remote URL is malformed.
+	 */
+	private URL getWsdlLocation(String servicePath) throws Exception {
+		URL local = PortFactory.class.getResource(WSDL_RESOURCE_DIRECTORY + serviceName(servicePath) + WSDL_EXTENSION);
+		if(local != null) {
+			return local;
+		}
+		return new URL(baseUrl + servicePath);
+	}
+
+	/**
+	 * @param servicePath path of a service e.g. /p6ws/services/ResourceHourService
+	 * @return name of the service e.g. ResourceHourService
+	 */
+	private static String serviceName(String servicePath) {
+		return servicePath.substring(servicePath.lastIndexOf('/') + 1);
+	}
+}
@@ -0,0 +1,121 @@
+package read;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import metrics.ServiceMetrics;
+import security.SessionAuthenticator;
+import write.AsyncLogAppender;
+
+/**
+ * Sits in front of a SOAP port so every call made through it passes through one place.
+ * With session authentication a call rejected because the session expired is repeated once after logging in again.
+ * A call failing transiently is repeated as its {@link RetryPolicy} allows.
+ * Once the reader is cancelled no further call is made.
+ * Each attempt waits for its {@link ConcurrencyLimiter} to allow it, and reports back how it went so the limit can adapt.
+ * Every attempt is timed in the service's {@link ServiceMetrics}, along with the records it returned or that it failed.
+ */
+class PortInvoker implements InvocationHandler {
+
+	/**
+	 * Milliseconds between checks for cancellation while waiting for the {@link ConcurrencyLimiter}.
+	 */
+	static final long CANCEL_CHECK_MILLIS = 250;
+
+	private final Object port;
+	private final SessionAuthenticator session;
+	private final PortFactory ports;
+	private final RetryPolicy retry;
+	private final ConcurrencyLimiter limiter;
+	private final ServiceMetrics metrics;
+
+	/**
+	 * Constructor
+	 * @param port configured port to call.
+	 * @param session {@link SessionAuthenticator} used by the port, null if the port uses UsernameToken.
+	 * @param ports {@link PortFactory} the port was created by, checked for cancellation before each call.
+	 * @param retry {@link RetryPolicy} for failed calls.
+	 * @param limiter {@link ConcurrencyLimiter} of the server the port calls.
+	 * @param metrics {@link ServiceMetrics} of the port's service.
+	 */
+	PortInvoker(Object port, SessionAuthenticator session, PortFactory ports, RetryPolicy retry, ConcurrencyLimiter limiter, ServiceMetrics metrics) {
+		this.port = port;
+		this.session = session;
+		this.ports = ports;
+		this.retry = retry;
+		this.limiter = limiter;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if(method.getDeclaringClass() == Object.class) {
+			return call(method, args);
+		}
+		for(int attempt = 1; ; attempt++) {
+			try {
+				return authenticatedCall(method, args);
+			} catch (Throwable e) {
+				if(attempt >= retry.getMaxAttempts() || ports.isCancelled() || !retry.isRetryable(e)) {
+					throw e;
+				}
+				long delay = retry.delay(attempt);
+				AsyncLogAppender.console().append(method.getName() + " failed (" + e + "), retrying in " + delay + " ms, attempt " + (attempt + 1) + " of " + retry.getMaxAttempts());
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	private Object authenticatedCall(Method method, Object[] args) throws Throwable {
+		if(session == null) {
+			return call(method, args);
+		}
+
+		String cookie = session.getCookie();
+		try {
+			return call(method, args);
+		} catch (Exception e) {
+			if(!SessionAuthenticator.isSessionFault(e)) {
+				throw e;
+			}
+			session.invalidate(cookie);
+			return call(method, args);
+		}
+	}
+
+	private Object call(Method method, Object[] args) throws Throwable {
+		if(method.getDeclaringClass() == Object.class) {
+			return method.invoke(port, args);
+		}
+		do {
+			if(ports.isCancelled()) {
+				throw new CancellationException("Reads from P6 have been cancelled");
+			}
+		} while(!limiter.tryAcquire(CANCEL_CHECK_MILLIS));
+
+		long start = System.nanoTime();
+		try {
+			Object result = method.invoke(port, args);
+			long nanos = System.nanoTime() - start;
+			int records = result instanceof List ? ((List<?>)result).size() : 0;
+			limiter.succeeded(method.getDeclaringClass().getSimpleName() + "." + method.getName(), nanos, records);
+			metrics.called(nanos, records);
+			return result;
+		} catch (InvocationTargetException e) {
+			limiter.failed(retry.isRetryable(e.getCause()));
+			metrics.failed(System.nanoTime() - start);
+			throw e.getCause();
+		} catch (IllegalAccessException | RuntimeException | Error e) {
+			limiter.failed(false);
+			throw e;
+		}
+	}
+}
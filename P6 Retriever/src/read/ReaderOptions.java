@@ -0,0 +1,109 @@
+package read;
+
+import security.AuthMode;
+import write.LogLevel;
+
+/**
+ * Optional settings for a {@link P6Reader}. Defaults match the behaviour of the basic constructor.
+ */
+public class ReaderOptions {
+
+	private LogLevel logLevel = LogLevel.TRUNCATED;
+	private AuthMode authMode = AuthMode.USERNAME_TOKEN;
+	private Integer databaseInstanceId;
+	private SnapshotCache snapshotCache;
+	private TransportOptions transport = new TransportOptions();
+	private RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+	private ConcurrencyLimit concurrencyLimit = ConcurrencyLimit.DEFAULT;
+
+	/**
+	 * @param logLevel how much of each SOAP message to log, {@link LogLevel#OFF} leaves the logging handler off the ports entirely.
+	 * @return these options.
+	 */
+	public ReaderOptions setLogLevel(LogLevel logLevel) {
+		this.logLevel = logLevel;
+		return this;
+	}
+
+	/**
+	 * @param authMode how requests are authenticated.
+	 * @return these options.
+	 */
+	public ReaderOptions setAuthMode(AuthMode authMode) {
+		this.authMode = authMode;
+		return this;
+	}
+
+	/**
+	 * @param databaseInstanceId P6 database instance logged in to with {@link AuthMode#SESSION}, null for the default instance.
+	 * @return these options.
+	 */
+	public ReaderOptions setDatabaseInstanceId(Integer databaseInstanceId) {
+		this.databaseInstanceId = databaseInstanceId;
+		return this;
+	}
+
+	/**
+	 * @param snapshotCache {@link SnapshotCache} to serve whole table reads from while fresh, null to always read from P6.
+	 * @return these options.
+	 */
+	public ReaderOptions setSnapshotCache(SnapshotCache snapshotCache) {
+		this.snapshotCache = snapshotCache;
+		return this;
+	}
+
+	/**
+	 * @param transport {@link TransportOptions} for the HTTP connections to P6, e.g. timeouts and compression.
+	 * @return these options.
+	 */
+	public ReaderOptions setTransport(TransportOptions transport) {
+		this.transport = transport;
+		return this;
+	}
+
+	/**
+	 * @param retryPolicy {@link RetryPolicy} for calls that fail transiently, {@link RetryPolicy#NONE} to fail straight away.
+	 * @return these options.
+	 */
+	public ReaderOptions setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+		return this;
+	}
+
+	/**
+	 * @param concurrencyLimit {@link ConcurrencyLimit} on the calls in progress to the P6 server, shared with other readers of the same server.
+	 * @return these options.
+	 */
+	public ReaderOptions setConcurrencyLimit(ConcurrencyLimit concurrencyLimit) {
+		this.concurrencyLimit = concurrencyLimit;
+		return this;
+	}
+
+	public LogLevel getLogLevel() {
+		return logLevel;
+	}
+
+	public AuthMode getAuthMode() {
+		return authMode;
+	}
+
+	public Integer getDatabaseInstanceId() {
+		return databaseInstanceId;
+	}
+
+	public SnapshotCache getSnapshotCache() {
+		return snapshotCache;
+	}
+
+	public TransportOptions getTransport() {
+		return transport;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	public ConcurrencyLimit getConcurrencyLimit() {
+		return concurrencyLimit;
+	}
+}
@@ -0,0 +1,15 @@
+package read;
+
+/**
+ * Receives records one at a time as a streamed read decodes them, see {@link P6Reader#streamResourceHour(String, RecordCallback)}.
+ * @param <T> record type of the table.
+ */
+public interface RecordCallback<T> {
+
+	/**
+	 * Called on the reading thread for each record, in the order P6 sent them. The response is not read further until it returns.
+	 * @param record the record decoded, not kept by the reader.
+	 * @throws Exception to stop the read, thrown on from the read.
+	 */
+	void accept(T record) throws Exception;
+}
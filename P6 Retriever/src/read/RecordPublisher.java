@@ -0,0 +1,212 @@
+package read;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import write.AsyncLogAppender;
+
+/**
+ * Publishes the records of a P6 read to {@link Flow.Subscriber}s as they ask for them, see {@link AsyncP6Reader}.
+ * Each subscriber gets its own read, started once it first requests records. Records are taken from the read one at a time
+ * and only while the subscriber has outstanding demand. After each record the read is asked whether it has another,
+ * so the subscriber is completed as soon as the last record has been sent, demand or not. With a {@link PagedReader} that means
+ * a page is requested from P6 once the one before it has been emitted rather than all at once, and a slow subscriber holds at most one page in memory.
+ * <p>
+ * Records are emitted on the {@link Executor}, never on the thread calling {@link Flow.Subscription#request(long)},
+ * one subscriber's signals never overlap. A failed read is signalled with a {@link P6ReadException} naming the service,
+ * or with the {@link Error} itself, which is then rethrown on the executor.
+ * A subscriber that throws from a signal is cancelled and sent nothing more. Cancelling closes a read that is {@link Closeable},
+ * e.g. a {@link PartitionedReader}, so its reads stop too.
+ * @param <T> record type of the table.
+ */
+public class RecordPublisher<T> implements Flow.Publisher<T> {
+
+	private final String service;
+	private final Callable<? extends Iterator<? extends T>> source;
+	private final Executor executor;
+	private final RetryPolicy retryPolicy;
+
+	/**
+	 * Constructor, failures are judged transient or not by {@link RetryPolicy#DEFAULT}.
+	 * @param service name of the P6 service read, given to the {@link P6ReadException} if the read fails.
+	 * @param source starts a read for each subscriber e.g. a {@link PagedReader}, called on the executor.
+	 * @param executor {@link Executor} to read and emit on.
+	 */
+	public RecordPublisher(String service, Callable<? extends Iterator<? extends T>> source, Executor executor) {
+		this(service, source, executor, RetryPolicy.DEFAULT);
+	}
+
+	/**
+	 * Constructor
+	 * @param service name of the P6 service read, given to the {@link P6ReadException} if the read fails.
+	 * @param source starts a read for each subscriber e.g. a {@link PagedReader}, called on the executor.
+	 * @param executor {@link Executor} to read and emit on.
+	 * @param retryPolicy {@link RetryPolicy} of the reader, judges whether a failed read is {@link P6ReadException#isTransient()}.
+	 */
+	public RecordPublisher(String service, Callable<? extends Iterator<? extends T>> source, Executor executor, RetryPolicy retryPolicy) {
+		this.service = service;
+		this.source = source;
+		this.executor = executor;
+		this.retryPolicy = retryPolicy;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		if(subscriber == null) {
+			throw new NullPointerException("subscriber");
+		}
+		subscriber.onSubscribe(new RecordSubscription(subscriber));
+	}
+
+	/**
+	 * One subscriber's read. Signals are sent from {@link #run()}, which only one thread runs at a time:
+	 * each request or cancel counts as work and the thread that finds no work in progress drains until none is left.
+	 */
+	private class RecordSubscription implements Flow.Subscription, Runnable {
+
+		private final Flow.Subscriber<? super T> subscriber;
+		private final AtomicLong demand = new AtomicLong();
+		private final AtomicInteger work = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile IllegalArgumentException invalidRequest;
+
+		// Only used while draining
+		private Iterator<? extends T> records;
+		private boolean done;
+
+		RecordSubscription(Flow.Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if(n <= 0) {
+				invalidRequest = new IllegalArgumentException("Requested " + n + " records, must be positive");
+			}else {
+				long current;
+				do {
+					current = demand.get();
+					if(current == Long.MAX_VALUE) {
+						break;
+					}
+				} while(!demand.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			schedule();
+		}
+
+		private void schedule() {
+			if(work.getAndIncrement() == 0) {
+				try {
+					executor.execute(this);
+				} catch (RejectedExecutionException e) {
+					work.set(0);
+					if(!cancelled) {
+						cancelled = true;
+						subscriber.onError(new P6ReadException(service, "Read could not be started", e));
+					}
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			int missed = 1;
+			do {
+				try {
+					drain();
+				} catch (Throwable e) {
+					// Read failures are signalled by drain, so this was thrown by a signal to the subscriber, or is an Error: nothing more is sent
+					cancelled = true;
+					done = true;
+					release();
+					if(e instanceof Error) {
+						throw (Error)e;
+					}
+					AsyncLogAppender.console().append("Subscriber to " + service + " threw from a signal, its read is cancelled", e);
+				}
+				missed = work.addAndGet(-missed);
+			} while(missed != 0);
+		}
+
+		private void drain() {
+			if(done) {
+				return;
+			}
+			if(cancelled) {
+				done = true;
+				release();
+				return;
+			}
+			if(invalidRequest != null) {
+				finish(invalidRequest);
+				return;
+			}
+			while(!cancelled) {
+				T record;
+				try {
+					if(records == null) {
+						records = source.call();
+					}
+					// hasNext reads the next page once the current one is used up, at most a page ahead of the subscriber
+					if(!records.hasNext()) {
+						done = true;
+						release();
+						subscriber.onComplete();
+						return;
+					}
+					if(demand.get() == 0) {
+						return;
+					}
+					record = records.next();
+				} catch (P6ReadException | CancellationException e) {
+					finish(e);
+					return;
+				} catch (Exception e) {
+					finish(new P6ReadException(service, "Read failed", e, retryPolicy));
+					return;
+				} catch (Error e) {
+					finish(e);
+					throw e;
+				}
+				if(demand.get() != Long.MAX_VALUE) {
+					demand.decrementAndGet();
+				}
+				subscriber.onNext(record);
+			}
+		}
+
+		private void finish(Throwable failure) {
+			done = true;
+			release();
+			subscriber.onError(failure);
+		}
+
+		/**
+		 * Drops the read, closing it if it holds threads or connections of its own.
+		 */
+		private void release() {
+			if(records instanceof Closeable) {
+				try {
+					((Closeable)records).close();
+				} catch (IOException e) {
+					AsyncLogAppender.console().append("Read of " + service + " could not be closed", e);
+				}
+			}
+			records = null;
+		}
+	}
+}
@@ -0,0 +1,287 @@
+package read;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.primavera.ws.p6.resourcehour.ResourceHour;
+
+import write.Column;
+import write.ColumnarFile;
+import write.ColumnarWriter;
+
+/**
+ * ResourceHour records held column by column in parallel primitive arrays, about 60 bytes a row
+ * against several hundred for a {@link ResourceHour} with its JAXBElement wrappers, boxed Integers and Strings.
+ * Status, project name and last update user are dictionary coded, each distinct value is held once.
+ * Nulls and dates are held as in a {@link ColumnarFile}, so a table can be scanned the same way whether decoded from P6 or mapped from a snapshot.
+ * Rows can be read one at a time with the getters or a column scanned through its read-only buffer.
+ * Not thread safe while rows are being added.
+ */
+public class ResourceHourTable {
+
+	/**
+	 * Null ObjectId value.
+	 */
+	public static final int NULL_INT = ColumnarFile.NULL_INT;
+
+	/**
+	 * Null date value.
+	 */
+	public static final long NULL_DATE = ColumnarFile.NULL_DATE;
+
+	/**
+	 * Null string code.
+	 */
+	public static final int NULL_CODE = ColumnarFile.NULL_CODE;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private int size;
+	private int [] objectId = new int [INITIAL_CAPACITY];
+	private int [] projectObjectId = new int [INITIAL_CAPACITY];
+	private int [] resourceObjectId = new int [INITIAL_CAPACITY];
+	private int [] timesheetPeriodObjectId = new int [INITIAL_CAPACITY];
+	private double [] unapprovedHours = new double [INITIAL_CAPACITY];
+	private double [] approvedHours = new double [INITIAL_CAPACITY];
+	private long [] date = new long [INITIAL_CAPACITY];
+	private long [] lastUpdateDate = new long [INITIAL_CAPACITY];
+	private int [] status = new int [INITIAL_CAPACITY];
+	private int [] projectName = new int [INITIAL_CAPACITY];
+	private int [] lastUpdateUser = new int [INITIAL_CAPACITY];
+
+	private final Dictionary statuses = new Dictionary();
+	private final Dictionary projectNames = new Dictionary();
+	private final Dictionary users = new Dictionary();
+
+	/**
+	 * Decodes a record into a new row. The record is not kept.
+	 * @param resourceHour {@link ResourceHour} to add.
+	 */
+	public void add(ResourceHour resourceHour) {
+		if(size == objectId.length) {
+			resize(Math.max(INITIAL_CAPACITY, size * 2));
+		}
+		int row = size++;
+		objectId[row] = toInt(resourceHour.getObjectId());
+		projectObjectId[row] = toInt(Column.unwrap(resourceHour.getProjectObjectId()));
+		resourceObjectId[row] = toInt(resourceHour.getResourceObjectId());
+		timesheetPeriodObjectId[row] = toInt(resourceHour.getTimesheetPeriodObjectId());
+		unapprovedHours[row] = toDouble(Column.unwrap(resourceHour.getUnapprovedHours()));
+		approvedHours[row] = toDouble(Column.unwrap(resourceHour.getApprovedHours()));
+		date[row] = ColumnarWriter.toMillis(Column.unwrap(resourceHour.getDate()));
+		lastUpdateDate[row] = ColumnarWriter.toMillis(Column.unwrap(resourceHour.getLastUpdateDate()));
+		status[row] = statuses.code(resourceHour.getStatus());
+		projectName[row] = projectNames.code(resourceHour.getProjectName());
+		lastUpdateUser[row] = users.code(resourceHour.getLastUpdateUser());
+	}
+
+	/**
+	 * Decodes every record taken from an {@link Iterator}, e.g. a {@link PagedReader} so only one page of records exists at a time.
+	 * @param resourceHours records to add.
+	 */
+	public void addAll(Iterator<ResourceHour> resourceHours) {
+		while(resourceHours.hasNext()) {
+			add(resourceHours.next());
+		}
+	}
+
+	/**
+	 * Releases the spare capacity left by growing the arrays, once all rows have been added.
+	 */
+	public void trimToSize() {
+		resize(size);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getObjectId(int row) {
+		return objectId[check(row)];
+	}
+
+	/**
+	 * @return ProjectObjectId or {@link #NULL_INT}.
+	 */
+	public int getProjectObjectId(int row) {
+		return projectObjectId[check(row)];
+	}
+
+	public int getResourceObjectId(int row) {
+		return resourceObjectId[check(row)];
+	}
+
+	public int getTimesheetPeriodObjectId(int row) {
+		return timesheetPeriodObjectId[check(row)];
+	}
+
+	/**
+	 * @return UnapprovedHours or NaN.
+	 */
+	public double getUnapprovedHours(int row) {
+		return unapprovedHours[check(row)];
+	}
+
+	/**
+	 * @return ApprovedHours or NaN.
+	 */
+	public double getApprovedHours(int row) {
+		return approvedHours[check(row)];
+	}
+
+	/**
+	 * @return Date in milliseconds or {@link #NULL_DATE}.
+	 */
+	public long getDate(int row) {
+		return date[check(row)];
+	}
+
+	/**
+	 * @return LastUpdateDate in milliseconds or {@link #NULL_DATE}.
+	 */
+	public long getLastUpdateDate(int row) {
+		return lastUpdateDate[check(row)];
+	}
+
+	public String getStatus(int row) {
+		return statuses.value(status[check(row)]);
+	}
+
+	public String getProjectName(int row) {
+		return projectNames.value(projectName[check(row)]);
+	}
+
+	public String getLastUpdateUser(int row) {
+		return users.value(lastUpdateUser[check(row)]);
+	}
+
+	/**
+	 * Column scans. Each returns a read-only view of the column's first {@link #size()} values, valid until more rows are added.
+	 */
+	public IntBuffer objectIds() {
+		return IntBuffer.wrap(objectId, 0, size).slice().asReadOnlyBuffer();
+	}
+
+	public IntBuffer projectObjectIds() {
+		return IntBuffer.wrap(projectObjectId, 0, size).slice().asReadOnlyBuffer();
+	}
+
+	public IntBuffer resourceObjectIds() {
+		return IntBuffer.wrap(resourceObjectId, 0, size).slice().asReadOnlyBuffer();
+	}
+
+	public IntBuffer timesheetPeriodObjectIds() {
+		return IntBuffer.wrap(timesheetPeriodObjectId, 0, size).slice().asReadOnlyBuffer();
+	}
+
+	public DoubleBuffer unapprovedHours() {
+		return DoubleBuffer.wrap(unapprovedHours, 0, size).slice().asReadOnlyBuffer();
+	}
+
+	public DoubleBuffer approvedHours() {
+		return DoubleBuffer.wrap(approvedHours, 0, size).slice().asReadOnlyBuffer();
+	}
+
+	public LongBuffer dates() {
+		return LongBuffer.wrap(date, 0, size).slice().asReadOnlyBuffer();
+	}
+
+	public LongBuffer lastUpdateDates() {
+		return LongBuffer.wrap(lastUpdateDate, 0, size).slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return status code per row, an index into {@link #statusDictionary()} or {@link #NULL_CODE}.
+	 */
+	public IntBuffer statusCodes() {
+		return IntBuffer.wrap(status, 0, size).slice().asReadOnlyBuffer();
+	}
+
+	public IntBuffer projectNameCodes() {
+		return IntBuffer.wrap(projectName, 0, size).slice().asReadOnlyBuffer();
+	}
+
+	public IntBuffer lastUpdateUserCodes() {
+		return IntBuffer.wrap(lastUpdateUser, 0, size).slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return distinct statuses indexed by code, e.g. to find the code to compare a scan against.
+	 */
+	public String [] statusDictionary() {
+		return statuses.values();
+	}
+
+	public String [] projectNameDictionary() {
+		return projectNames.values();
+	}
+
+	public String [] lastUpdateUserDictionary() {
+		return users.values();
+	}
+
+	private int check(int row) {
+		if(row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+		}
+		return row;
+	}
+
+	private void resize(int capacity) {
+		objectId = Arrays.copyOf(objectId, capacity);
+		projectObjectId = Arrays.copyOf(projectObjectId, capacity);
+		resourceObjectId = Arrays.copyOf(resourceObjectId, capacity);
+		timesheetPeriodObjectId = Arrays.copyOf(timesheetPeriodObjectId, capacity);
+		unapprovedHours = Arrays.copyOf(unapprovedHours, capacity);
+		approvedHours = Arrays.copyOf(approvedHours, capacity);
+		date = Arrays.copyOf(date, capacity);
+		lastUpdateDate = Arrays.copyOf(lastUpdateDate, capacity);
+		status = Arrays.copyOf(status, capacity);
+		projectName = Arrays.copyOf(projectName, capacity);
+		lastUpdateUser = Arrays.copyOf(lastUpdateUser, capacity);
+	}
+
+	private static int toInt(Integer value) {
+		return value == null ? NULL_INT : value;
+	}
+
+	private static double toDouble(Double value) {
+		return value == null ? Double.NaN : value;
+	}
+
+	/**
+	 * Distinct values of a string column, coded in order of first use.
+	 */
+	private static class Dictionary {
+		private final Map<String, Integer> codes = new HashMap<>();
+		private final List<String> values = new ArrayList<>();
+
+		int code(String value) {
+			if(value == null) {
+				return NULL_CODE;
+			}
+			Integer code = codes.get(value);
+			if(code == null) {
+				code = values.size();
+				codes.put(value, code);
+				values.add(value);
+			}
+			return code;
+		}
+
+		String value(int code) {
+			return code == NULL_CODE ? null : values.get(code);
+		}
+
+		String [] values() {
+			return values.toArray(new String [values.size()]);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package read;
+
+import java.io.InputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.ws.soap.SOAPFaultException;
+
+/**
+ * Pulls the records out of a P6 read response with StAX, unmarshalling one record element at a time and passing it to a {@link RecordCallback}.
+ * No tree of the envelope is built and a record is dropped once the callback returns, so the memory used does not grow with the response.
+ * A SOAP fault in the response is thrown as a {@link SOAPFaultException} holding its code and message, as a port would throw it.
+ * A decoder can be shared, each call to {@link #decode(InputStream, RecordCallback)} uses its own parser and unmarshaller.
+ * @param <T> record type of the table.
+ */
+public class ResponseDecoder<T> {
+
+	private static final QName SOAP_11_FAULT = new QName("http://schemas.xmlsoap.org/soap/envelope/", "Fault");
+	private static final QName SOAP_12_FAULT = new QName("http://www.w3.org/2003/05/soap-envelope", "Fault");
+	private static final XMLInputFactory XML = createInputFactory();
+
+	private final Class<T> recordType;
+	private final QName recordElement;
+	private final JAXBContext context;
+
+	/**
+	 * Constructor
+	 * @param recordType class of the records e.g. ResourceHour.class, its package's ObjectFactory is used to unmarshal them.
+	 * @param recordElement name of each record's element in the response body.
+	 * @throws JAXBException if the record type's package has no JAXB context.
+	 */
+	public ResponseDecoder(Class<T> recordType, QName recordElement) throws JAXBException {
+		this.recordType = recordType;
+		this.recordElement = recordElement;
+		this.context = JAXBContext.newInstance(recordType.getPackage().getName(), recordType.getClassLoader());
+	}
+
+	public QName getRecordElement() {
+		return recordElement;
+	}
+
+	/**
+	 * Decodes a whole response, calling back with each record as soon as its closing tag has been read.
+	 * @param response SOAP envelope as sent by P6, left open.
+	 * @param callback {@link RecordCallback} given each record.
+	 * @return number of records decoded.
+	 * @throws Exception if the response can not be parsed, holds a SOAP fault ({@link SOAPFaultException}), or the callback throws.
+	 */
+	public int decode(InputStream response, RecordCallback<? super T> callback) throws Exception {
+		XMLStreamReader xml = XML.createXMLStreamReader(response);
+		try {
+			Unmarshaller unmarshaller = context.createUnmarshaller();
+			int records = 0;
+			int event = xml.next();
+			while(event != XMLStreamConstants.END_DOCUMENT) {
+				if(event == XMLStreamConstants.START_ELEMENT) {
+					QName name = xml.getName();
+					if(name.equals(recordElement)) {
+						callback.accept(unmarshaller.unmarshal(xml, recordType).getValue());
+						records++;
+						// The unmarshaller leaves the parser on the event after the record's end tag
+						event = xml.getEventType();
+						continue;
+					}
+					if(name.equals(SOAP_11_FAULT) || name.equals(SOAP_12_FAULT)) {
+						throw fault(xml);
+					}
+				}
+				event = xml.next();
+			}
+			return records;
+		} finally {
+			xml.close();
+		}
+	}
+
+	/**
+	 * @param xml parser positioned on the start of a Fault element.
+	 * @return the fault with its faultcode and faultstring (SOAP 1.1) or innermost Code Value and Reason Text (SOAP 1.2).
+	 * A fault without a code is a Server fault, one without a message is Unknown.
+	 */
+	private static SOAPFaultException fault(XMLStreamReader xml) throws XMLStreamException, SOAPException {
+		String namespace = xml.getNamespaceURI();
+		String message = null;
+		QName code = null;
+		int depth = 1;
+		while(depth > 0) {
+			int event = xml.next();
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				String local = xml.getLocalName();
+				if(message == null && ("faultstring".equals(local) || "Text".equals(local))) {
+					message = xml.getElementText();
+				}else if("faultcode".equals(local) || "Value".equals(local)) {
+					// A Subcode's Value follows its parent's, so the most specific code is the one kept
+					code = qName(xml.getElementText().trim(), xml);
+				}else {
+					depth++;
+				}
+			}else if(event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}else if(event == XMLStreamConstants.END_DOCUMENT) {
+				break;
+			}
+		}
+		if(code == null) {
+			code = new QName(namespace, SOAP_11_FAULT.getNamespaceURI().equals(namespace) ? "Server" : "Receiver");
+		}
+		return new SOAPFaultException(SOAPFactory.newInstance().createFault(message == null ? "Unknown" : message.trim(), code));
+	}
+
+	/**
+	 * @param text prefixed name e.g. soapenv:Server, read from the element the parser is at the end of.
+	 * @return the name with its prefix resolved in the element's scope.
+	 */
+	private static QName qName(String text, XMLStreamReader xml) {
+		int colon = text.indexOf(':');
+		String prefix = colon < 0 ? "" : text.substring(0, colon);
+		String namespace = xml.getNamespaceURI(prefix);
+		return new QName(namespace == null ? "" : namespace, text.substring(colon + 1), prefix);
+	}
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		// A P6 response never needs a DTD, refusing them stops entity expansion in a hostile response
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		return factory;
+	}
+}
@@ -0,0 +1,105 @@
+package read;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.net.ssl.SSLHandshakeException;
+import javax.xml.ws.http.HTTPException;
+
+/**
+ * How a failed SOAP call is retried, set on {@link ReaderOptions}.
+ * Only transient failures are retried: I/O errors such as a timeout or reset connection,
+ * and HTTP 429, 502, 503 or 504 from the server or a proxy in front of it. SOAP faults and certificate failures are not.
+ * Every P6 call made by a reader only reads, so repeating one is always safe.
+ * <p>
+ * Delays grow exponentially from the initial delay up to the maximum, and each is chosen at random between zero and that limit
+ * ("full jitter") so the threads of an export retrying together do not all hit the server at the same moment.
+ */
+public class RetryPolicy {
+
+	/**
+	 * Each call is made once, failures are thrown straight away.
+	 */
+	public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+	/**
+	 * Up to four attempts, waiting at most 1, 2 then 4 seconds.
+	 */
+	public static final RetryPolicy DEFAULT = new RetryPolicy(4, 1000, 30000);
+
+	/**
+	 * HTTP status in the JAX-WS runtime's transport error, e.g. "The server sent HTTP status code 503: Service Unavailable".
+	 */
+	private static final Pattern HTTP_STATUS = Pattern.compile("HTTP status code (\\d{3})");
+
+	private final int maxAttempts;
+	private final long initialDelay;
+	private final long maxDelay;
+
+	/**
+	 * Constructor
+	 * @param maxAttempts times a call is made before its failure is thrown, at least 1.
+	 * @param initialDelay upper limit in milliseconds of the delay before the first retry.
+	 * @param maxDelay upper limit in milliseconds of any delay.
+	 */
+	public RetryPolicy(int maxAttempts, long initialDelay, long maxDelay) {
+		if(maxAttempts < 1) {
+			throw new IllegalArgumentException("At least one attempt is needed: " + maxAttempts);
+		}
+		this.maxAttempts = maxAttempts;
+		this.initialDelay = initialDelay;
+		this.maxDelay = maxDelay;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public long getInitialDelay() {
+		return initialDelay;
+	}
+
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+
+	/**
+	 * @param attempt number of the attempt that failed, from 1.
+	 * @return milliseconds to wait before the next attempt.
+	 */
+	public long delay(int attempt) {
+		long limit = Math.min(maxDelay, initialDelay << Math.min(attempt - 1, 30));
+		return limit <= 0 ? 0 : ThreadLocalRandom.current().nextLong(limit + 1);
+	}
+
+	/**
+	 * @param failure thrown by a call.
+	 * @return true if the failure is transient and the call worth repeating.
+	 */
+	public boolean isRetryable(Throwable failure) {
+		for(Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if(cause instanceof SSLHandshakeException) {
+				return false;
+			}
+			if(cause instanceof IOException) {
+				return true;
+			}
+			if(cause instanceof HTTPException) {
+				return isRetryable(((HTTPException)cause).getStatusCode());
+			}
+			if(cause.getMessage() != null) {
+				Matcher status = HTTP_STATUS.matcher(cause.getMessage());
+				if(status.find()) {
+					return isRetryable(Integer.parseInt(status.group(1)));
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean isRetryable(int status) {
+		return status == 429 || status == 502 || status == 503 || status == 504;
+	}
+}
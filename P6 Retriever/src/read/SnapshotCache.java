@@ -0,0 +1,276 @@
+package read;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import write.Column;
+import write.ColumnarFile;
+import write.ColumnarWriter;
+
+/**
+ * Keeps a local copy of whole P6 tables between runs, so re-running a report over the same data does not download it again.
+ * Each table is saved as a columnar snapshot (see {@link ColumnarFile}) named &lt;table&gt;.&lt;taken&gt;.p6c,
+ * taken being the time in milliseconds the table was read from P6.
+ * A read is served from the newest snapshot of its table while that is younger than the maximum age, otherwise P6 is read and a new snapshot saved.
+ * Snapshots are written under a temporary name then renamed, so a run never sees half a snapshot.
+ * Older snapshots are deleted once a new one is saved; on Windows a file still mapped by an earlier read can not be deleted and is removed by a later save.
+ */
+public class SnapshotCache {
+
+	private static final String EXTENSION = ".p6c";
+
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	private final File directory;
+	private final long maxAge;
+
+	/**
+	 * Constructor
+	 * @param directory directory the snapshots are kept in, created if it does not exist.
+	 * @param maxAge how long a snapshot is served for after it was taken.
+	 * @param unit {@link TimeUnit} of maxAge.
+	 */
+	public SnapshotCache(File directory, long maxAge, TimeUnit unit) {
+		this.directory = directory;
+		this.maxAge = unit.toMillis(maxAge);
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @param unit {@link TimeUnit} to return the age in.
+	 * @return how long a snapshot is served for after it was taken.
+	 */
+	public long getMaxAge(TimeUnit unit) {
+		return unit.convert(maxAge, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param table name of the table e.g. ResourceHour
+	 * @return time in milliseconds the newest snapshot of the table was taken, or 0 if there is none.
+	 */
+	public long getTaken(String table) {
+		File latest = latest(table);
+		return latest == null ? 0 : taken(latest);
+	}
+
+	/**
+	 * @param table name of the table e.g. ResourceHour
+	 * @return true if reads of the table will be served from its snapshot.
+	 */
+	public boolean isFresh(String table) {
+		long taken = getTaken(table);
+		return taken > 0 && System.currentTimeMillis() - taken <= maxAge;
+	}
+
+	/**
+	 * Deletes every snapshot of a table, so the next read goes to P6.
+	 * @param table name of the table e.g. ResourceHour
+	 */
+	public void invalidate(String table) {
+		for(File snapshot : snapshots(table)) {
+			snapshot.delete();
+		}
+	}
+
+	/**
+	 * Reads a table from its snapshot if fresh, otherwise from P6 saving the records as the new snapshot.
+	 * An unreadable snapshot is treated as missing, and a snapshot that can not be saved only costs the next run a download,
+	 * so neither fails the read.
+	 * @param table {@link SnapshotTable} to read.
+	 * @param p6 reads the table from P6.
+	 * @return every record of the table.
+	 * @throws Exception if the table has to be read from P6 and that fails.
+	 */
+	<T> List<T> read(SnapshotTable<T> table, Callable<List<T>> p6) throws Exception {
+		File latest = latest(table.getTable());
+		if(latest != null && System.currentTimeMillis() - taken(latest) <= maxAge) {
+			try {
+				return load(table, latest);
+			} catch (IOException | RuntimeException e) {
+				System.err.println("Unable to read snapshot " + latest + ", reading " + table.getTable() + " from P6.");
+				e.printStackTrace();
+			}
+		}
+
+		long taken = System.currentTimeMillis();
+		List<T> records = p6.call();
+		try {
+			save(table, records, taken);
+		} catch (IOException e) {
+			System.err.println("Unable to save snapshot of " + table.getTable() + ".");
+			e.printStackTrace();
+		}
+		return records;
+	}
+
+	/**
+	 * Rebuilds the records of a snapshot a column at a time, each column's block is mapped and scanned once.
+	 */
+	private <T> List<T> load(SnapshotTable<T> table, File snapshot) throws IOException {
+		DatatypeFactory dates;
+		try {
+			dates = DatatypeFactory.newInstance();
+		} catch (DatatypeConfigurationException e) {
+			throw new IOException("Unable to restore dates", e);
+		}
+
+		try (ColumnarFile file = new ColumnarFile(snapshot)) {
+			int rows = file.getRowCount();
+			List<T> records = new ArrayList<>(rows);
+			for(int row = 0; row < rows; row++) {
+				records.add(table.newRecord());
+			}
+
+			for(Column<T> column : table.getLayout().getColumns()) {
+				String header = column.getHeader();
+				if(!file.hasColumn(header) || file.getType(header) != column.getType()) {
+					throw new IOException(snapshot + " does not match the " + table.getTable() + " columns read");
+				}
+				switch(column.getType()) {
+				case INTEGER:
+					IntBuffer ints = file.ints(header);
+					for(int row = 0; row < rows; row++) {
+						int value = ints.get(row);
+						column.set(records.get(row), value == ColumnarFile.NULL_INT ? null : Integer.valueOf(value));
+					}
+					break;
+				case DOUBLE:
+					DoubleBuffer doubles = file.doubles(header);
+					for(int row = 0; row < rows; row++) {
+						double value = doubles.get(row);
+						column.set(records.get(row), Double.isNaN(value) ? null : Double.valueOf(value));
+					}
+					break;
+				case DATE:
+					LongBuffer millis = file.dates(header);
+					IntBuffer forms = file.dateForms(header);
+					for(int row = 0; row < rows; row++) {
+						long value = millis.get(row);
+						column.set(records.get(row), value == ColumnarFile.NULL_DATE ? null : toDate(dates, value, forms.get(row)));
+					}
+					break;
+				case BOOLEAN:
+					ByteBuffer flags = file.booleans(header);
+					for(int row = 0; row < rows; row++) {
+						byte value = flags.get(row);
+						column.set(records.get(row), value == ColumnarFile.NULL_BOOLEAN ? null : Boolean.valueOf(value == 1));
+					}
+					break;
+				default:
+					IntBuffer codes = file.codes(header);
+					String [] dictionary = file.dictionary(header);
+					for(int row = 0; row < rows; row++) {
+						int code = codes.get(row);
+						column.set(records.get(row), code == ColumnarFile.NULL_CODE ? null : dictionary[code]);
+					}
+				}
+			}
+			return records;
+		}
+	}
+
+	private <T> void save(SnapshotTable<T> table, List<T> records, long taken) throws IOException {
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create " + directory);
+		}
+		File tmp = File.createTempFile(table.getTable() + ".", ".tmp", directory);
+		File snapshot = new File(directory, table.getTable() + "." + taken + EXTENSION);
+		try {
+			ColumnarWriter.write(table.getLayout(), records.iterator(), tmp);
+		} catch (IOException e) {
+			tmp.delete();
+			throw e;
+		}
+		try {
+			Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			tmp.delete();
+			throw e;
+		}
+
+		for(File older : snapshots(table.getTable())) {
+			if(taken(older) < taken) {
+				older.delete();
+			}
+		}
+	}
+
+	/**
+	 * Restores a date written by {@link ColumnarWriter}, the field values were read as UTC so they are taken back out in UTC.
+	 * The form gives back the time zone and fractional seconds it was sent with, so it prints the same as when read from P6.
+	 */
+	private static XMLGregorianCalendar toDate(DatatypeFactory dates, long millis, int form) {
+		Calendar calendar = new GregorianCalendar(UTC);
+		calendar.setTimeInMillis(millis);
+		int zone = ColumnarFile.zone(form);
+		int digits = ColumnarFile.fractionDigits(form);
+		BigDecimal fraction = digits == 0 ? null : BigDecimal.valueOf(calendar.get(Calendar.MILLISECOND), 3).setScale(digits, RoundingMode.DOWN);
+		return dates.newXMLGregorianCalendar(BigInteger.valueOf(calendar.get(Calendar.YEAR)), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH),
+				calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND),
+				fraction, zone == ColumnarFile.NO_ZONE ? DatatypeConstants.FIELD_UNDEFINED : zone);
+	}
+
+	private File latest(String table) {
+		File latest = null;
+		for(File snapshot : snapshots(table)) {
+			if(latest == null || taken(snapshot) > taken(latest)) {
+				latest = snapshot;
+			}
+		}
+		return latest;
+	}
+
+	private File [] snapshots(final String table) {
+		File [] snapshots = directory.listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return taken(file, table) > 0;
+			}
+		});
+		return snapshots == null ? new File [0] : snapshots;
+	}
+
+	private static long taken(File snapshot) {
+		String name = snapshot.getName();
+		return taken(snapshot, name.substring(0, name.indexOf('.')));
+	}
+
+	/**
+	 * @return the time the snapshot was taken from its name, or 0 if the file is not a snapshot of the table.
+	 */
+	private static long taken(File file, String table) {
+		String name = file.getName();
+		if(!name.startsWith(table + ".") || !name.endsWith(EXTENSION)) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(name.substring(table.length() + 1, name.length() - EXTENSION.length()));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+}
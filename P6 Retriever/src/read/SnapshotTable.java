@@ -0,0 +1,34 @@
+package read;
+
+import write.TableLayout;
+
+/**
+ * A table kept by the {@link SnapshotCache}: the columns saved, which must cover every field P6Reader reads for the table,
+ * and how to create an empty record to restore them into.
+ * @param <T> record type of the table.
+ */
+abstract class SnapshotTable<T> {
+
+	private final TableLayout<T> layout;
+
+	/**
+	 * Constructor
+	 * @param layout columns saved, each must support {@link write.Column#set(Object, Object)}.
+	 */
+	SnapshotTable(TableLayout<T> layout) {
+		this.layout = layout;
+	}
+
+	/**
+	 * @return a record with no fields set.
+	 */
+	abstract T newRecord();
+
+	TableLayout<T> getLayout() {
+		return layout;
+	}
+
+	String getTable() {
+		return layout.getTable();
+	}
+}
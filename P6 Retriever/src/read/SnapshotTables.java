@@ -0,0 +1,109 @@
+package read;
+
+import static write.Column.unwrap;
+import static write.Column.wrap;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import com.primavera.ws.p6.resource.Resource;
+import com.primavera.ws.p6.resource.ResourceFieldType;
+import com.primavera.ws.p6.resourceassignment.ResourceAssignment;
+import com.primavera.ws.p6.resourceassignmentperiodactual.ResourceAssignmentPeriodActual;
+import com.primavera.ws.p6.resourcecode.ResourceCode;
+import com.primavera.ws.p6.resourcecodeassignment.ResourceCodeAssignment;
+import com.primavera.ws.p6.resourcehour.ResourceHour;
+import com.primavera.ws.p6.resourcerate.ResourceRate;
+import com.primavera.ws.p6.timesheet.Timesheet;
+import com.primavera.ws.p6.user.User;
+
+import write.Column;
+import write.TableLayout;
+import write.TableLayouts;
+
+/**
+ * The {@link SnapshotTable} of each table read in full by {@link P6Reader}.
+ * The export layouts are reused where they hold every field read, Resource also needs the UserObjectId, IsActive and CreateDate it is read with.
+ */
+class SnapshotTables {
+
+	private static final String RESOURCE_NS = "http://xmlns.oracle.com/Primavera/P6/WS/Resource/V1";
+
+	static final SnapshotTable<ResourceHour> RESOURCE_HOUR = new SnapshotTable<ResourceHour>(TableLayouts.RESOURCE_HOUR) {
+		ResourceHour newRecord() {
+			return new ResourceHour();
+		}
+	};
+
+	static final SnapshotTable<Resource> RESOURCE = new SnapshotTable<Resource>(new TableLayout<Resource>("Resource")
+			.addAll(TableLayouts.RESOURCE)
+			.add(new Column<Resource>(ResourceFieldType.USER_OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(Resource record) {
+					return unwrap(record.getUserObjectId());
+				}
+				public void set(Resource record, Object value) {
+					record.setUserObjectId(wrap(RESOURCE_NS, "UserObjectId", Integer.class, (Integer)value));
+				}
+			})
+			.add(new Column<Resource>(ResourceFieldType.IS_ACTIVE.name(), Column.Type.BOOLEAN) {
+				public Object value(Resource record) {
+					return record.isIsActive();
+				}
+				public void set(Resource record, Object value) {
+					record.setIsActive((Boolean)value);
+				}
+			})
+			.add(new Column<Resource>(ResourceFieldType.CREATE_DATE.name(), Column.Type.DATE) {
+				public Object value(Resource record) {
+					return unwrap(record.getCreateDate());
+				}
+				public void set(Resource record, Object value) {
+					record.setCreateDate(wrap(RESOURCE_NS, "CreateDate", XMLGregorianCalendar.class, (XMLGregorianCalendar)value));
+				}
+			})) {
+		Resource newRecord() {
+			return new Resource();
+		}
+	};
+
+	static final SnapshotTable<ResourceRate> RESOURCE_RATE = new SnapshotTable<ResourceRate>(TableLayouts.RESOURCE_RATE) {
+		ResourceRate newRecord() {
+			return new ResourceRate();
+		}
+	};
+
+	static final SnapshotTable<Timesheet> TIMESHEET = new SnapshotTable<Timesheet>(TableLayouts.TIMESHEET) {
+		Timesheet newRecord() {
+			return new Timesheet();
+		}
+	};
+
+	static final SnapshotTable<ResourceAssignment> RESOURCE_ASSIGNMENT = new SnapshotTable<ResourceAssignment>(TableLayouts.RESOURCE_ASSIGNMENT) {
+		ResourceAssignment newRecord() {
+			return new ResourceAssignment();
+		}
+	};
+
+	static final SnapshotTable<ResourceAssignmentPeriodActual> RESOURCE_ASSIGNMENT_PERIOD_ACTUAL = new SnapshotTable<ResourceAssignmentPeriodActual>(TableLayouts.RESOURCE_ASSIGNMENT_PERIOD_ACTUAL) {
+		ResourceAssignmentPeriodActual newRecord() {
+			return new ResourceAssignmentPeriodActual();
+		}
+	};
+
+	static final SnapshotTable<ResourceCode> RESOURCE_CODE = new SnapshotTable<ResourceCode>(TableLayouts.RESOURCE_CODE) {
+		ResourceCode newRecord() {
+			return new ResourceCode();
+		}
+	};
+
+	static final SnapshotTable<ResourceCodeAssignment> RESOURCE_CODE_ASSIGNMENT = new SnapshotTable<ResourceCodeAssignment>(TableLayouts.RESOURCE_CODE_ASSIGNMENT) {
+		ResourceCodeAssignment newRecord() {
+			return new ResourceCodeAssignment();
+		}
+	};
+
+	static final SnapshotTable<User> USER = new SnapshotTable<User>(TableLayouts.USER) {
+		User newRecord() {
+			return new User();
+		}
+	};
+}
@@ -0,0 +1,385 @@
+package read;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+
+import javax.jws.WebMethod;
+import javax.jws.WebParam;
+import javax.jws.WebResult;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.soap.MessageFactory;
+import javax.xml.soap.SOAPElement;
+import javax.xml.soap.SOAPMessage;
+import javax.xml.ws.RequestWrapper;
+import javax.xml.ws.WebServiceException;
+
+import metrics.ServiceMetrics;
+import security.SecurityHandler;
+import security.SessionAuthenticator;
+import write.AsyncLogAppender;
+
+/**
+ * Makes a read of one P6 service over a plain HTTP connection and decodes the response as it arrives with a {@link ResponseDecoder},
+ * for reads whose response is too large to hold whole. The request is built from the JAX-WS annotations of the port's operation,
+ * so it is the request the port would send. The port's handlers are not run: the request is authenticated here,
+ * with the session cookie or a UsernameToken from the {@link SecurityHandler}, and nothing is logged.
+ * <p>
+ * Otherwise a call is made as {@link PortInvoker} makes it: it waits on the same {@link ConcurrencyLimiter}, is timed in the service's {@link ServiceMetrics},
+ * less the time spent in the callback so a slow consumer is not taken for a slow server,
+ * connects through the {@link PortFactory}'s sockets so cancelling the reader stops it, and is logged in again once if the session has expired.
+ * A failed call is only repeated by the {@link RetryPolicy} while no record has been passed on, so the callback never sees a record twice.
+ * The read timeout applies to each read from the connection rather than the whole response.
+ */
+class StreamingInvoker {
+
+	private static final String CONTENT_TYPE = "text/xml; charset=utf-8";
+	private static final String GZIP = "gzip";
+
+	private final String endpoint;
+	private final SessionAuthenticator session;
+	private final SecurityHandler security;
+	private final PortFactory ports;
+	private final TransportOptions transport;
+	private final SSLSocketFactory sockets;
+	private final RetryPolicy retry;
+	private final ConcurrencyLimiter limiter;
+	private final ServiceMetrics metrics;
+	private final ConcurrentMap<String, Operation> operations = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor
+	 * @param endpoint address of the service e.g. HTTPS://host:443/p6ws/services/ResourceHourService
+	 * @param session {@link SessionAuthenticator} to authenticate with, null to use a UsernameToken.
+	 * @param security {@link SecurityHandler} adding the UsernameToken, null if a session is used.
+	 * @param ports {@link PortFactory} of the reader, checked for cancellation before each call.
+	 * @param transport {@link TransportOptions} for timeouts.
+	 * @param sockets socket factory every connection is made through.
+	 * @param retry {@link RetryPolicy} for failed calls.
+	 * @param limiter {@link ConcurrencyLimiter} of the server.
+	 * @param metrics {@link ServiceMetrics} of the service.
+	 */
+	StreamingInvoker(String endpoint, SessionAuthenticator session, SecurityHandler security, PortFactory ports, TransportOptions transport,
+			SSLSocketFactory sockets, RetryPolicy retry, ConcurrencyLimiter limiter, ServiceMetrics metrics) {
+		this.endpoint = endpoint;
+		this.session = session;
+		this.security = security;
+		this.ports = ports;
+		this.transport = transport;
+		this.sockets = sockets;
+		this.retry = retry;
+		this.limiter = limiter;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Calls a read operation of the service, passing each record to the callback as it is decoded.
+	 * @param portType port interface declaring the operation e.g. ResourceHourPortType.class
+	 * @param operationName name of the port's method e.g. readResourceHours
+	 * @param recordType class of the records the operation returns.
+	 * @param callback {@link RecordCallback} given each record.
+	 * @param args arguments of the operation, as they would be passed to the port.
+	 * @return number of records read.
+	 * @throws Exception if the call fails, or the callback throws.
+	 */
+	<T> int invoke(Class<?> portType, String operationName, Class<T> recordType, final RecordCallback<? super T> callback, Object... args) throws Exception {
+		Operation operation = operation(portType, operationName, recordType);
+		@SuppressWarnings("unchecked")
+		ResponseDecoder<T> decoder = (ResponseDecoder<T>)operation.decoder;
+		final int [] passed = new int [1];
+		RecordCallback<T> counted = new RecordCallback<T>() {
+			public void accept(T record) throws Exception {
+				passed[0]++;
+				callback.accept(record);
+			}
+		};
+
+		for(int attempt = 1; ; attempt++) {
+			try {
+				return authenticatedCall(operation, decoder, counted, args);
+			} catch (Exception e) {
+				if(passed[0] > 0 || attempt >= retry.getMaxAttempts() || ports.isCancelled() || !retry.isRetryable(e)) {
+					throw e;
+				}
+				long delay = retry.delay(attempt);
+				AsyncLogAppender.console().append(operationName + " failed (" + e + "), retrying in " + delay + " ms, attempt " + (attempt + 1) + " of " + retry.getMaxAttempts());
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	private <T> int authenticatedCall(Operation operation, ResponseDecoder<T> decoder, RecordCallback<T> callback, Object [] args) throws Exception {
+		if(session == null) {
+			return call(operation, decoder, callback, args, null);
+		}
+
+		String cookie = session.getCookie();
+		try {
+			return call(operation, decoder, callback, args, cookie);
+		} catch (Exception e) {
+			if(!SessionAuthenticator.isSessionFault(e)) {
+				throw e;
+			}
+			session.invalidate(cookie);
+			return call(operation, decoder, callback, args, session.getCookie());
+		}
+	}
+
+	private <T> int call(Operation operation, ResponseDecoder<T> decoder, final RecordCallback<T> callback, Object [] args, String cookie) throws Exception {
+		do {
+			if(ports.isCancelled()) {
+				throw new CancellationException("Reads from P6 have been cancelled");
+			}
+		} while(!limiter.tryAcquire(PortInvoker.CANCEL_CHECK_MILLIS));
+
+		// Time spent writing or merging the records is the consumer's, taken off so the limiter and metrics see the server's time
+		final long [] consuming = new long [1];
+		RecordCallback<T> timed = new RecordCallback<T>() {
+			public void accept(T record) throws Exception {
+				long begin = System.nanoTime();
+				try {
+					callback.accept(record);
+				} finally {
+					consuming[0] += System.nanoTime() - begin;
+				}
+			}
+		};
+		long start = System.nanoTime();
+		try {
+			int records = exchange(operation, decoder, timed, args, cookie);
+			long nanos = System.nanoTime() - start - consuming[0];
+			limiter.succeeded(operation.name, nanos, records);
+			metrics.called(nanos, records);
+			return records;
+		} catch (Exception e) {
+			limiter.failed(retry.isRetryable(e));
+			metrics.failed(System.nanoTime() - start - consuming[0]);
+			throw e;
+		} catch (Error e) {
+			limiter.failed(false);
+			throw e;
+		}
+	}
+
+	private <T> int exchange(Operation operation, ResponseDecoder<T> decoder, RecordCallback<T> callback, Object [] args, String cookie) throws Exception {
+		HttpURLConnection connection = (HttpURLConnection)new URL(endpoint).openConnection();
+		if(connection instanceof HttpsURLConnection) {
+			((HttpsURLConnection)connection).setSSLSocketFactory(sockets);
+		}
+		connection.setConnectTimeout(transport.getConnectTimeout());
+		connection.setReadTimeout(transport.getReadTimeout());
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", CONTENT_TYPE);
+		connection.setRequestProperty("SOAPAction", "\"" + operation.action + "\"");
+		// The response is inflated below, so gzip can be asked for whatever the ports do
+		connection.setRequestProperty("Accept-Encoding", GZIP);
+		if(cookie != null) {
+			connection.setRequestProperty("Cookie", cookie);
+		}
+
+		SOAPMessage request = operation.request(args);
+		if(security != null) {
+			security.secure(request);
+		}
+		try (OutputStream out = connection.getOutputStream()) {
+			request.writeTo(out);
+		}
+
+		int status = connection.getResponseCode();
+		InputStream body = status < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream() : connection.getErrorStream();
+		if(body == null || status == HttpURLConnection.HTTP_UNAUTHORIZED) {
+			// Thrown with its status whatever the body holds, as the status is what shows the session has to be logged in again
+			if(body != null) {
+				body.close();
+			}
+			throw httpError(connection, status);
+		}
+		// Counted as read rather than from the Content-Length, which a chunked response does not have
+		CountingInputStream received = new CountingInputStream(body);
+		try (InputStream raw = received;
+				InputStream response = GZIP.equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(raw) : raw) {
+			int records = decoder.decode(response, callback);
+			if(status != HttpURLConnection.HTTP_OK) {
+				// A fault would have been thrown by the decoder, so this is an error page rather than a SOAP response
+				throw httpError(connection, status);
+			}
+			return records;
+		} catch (IOException | javax.xml.stream.XMLStreamException e) {
+			if(status != HttpURLConnection.HTTP_OK) {
+				throw httpError(connection, status);
+			}
+			throw e;
+		} finally {
+			metrics.received(received.getCount());
+		}
+	}
+
+	/**
+	 * @return exception worded as JAX-WS words it, so the {@link RetryPolicy} and session checks read the status in the same way.
+	 */
+	private static WebServiceException httpError(HttpURLConnection connection, int status) throws IOException {
+		return new WebServiceException("The server sent HTTP status code " + status + ": " + connection.getResponseMessage());
+	}
+
+	private Operation operation(Class<?> portType, String operationName, Class<?> recordType) throws Exception {
+		String key = portType.getName() + "." + operationName;
+		Operation operation = operations.get(key);
+		if(operation == null) {
+			operation = new Operation(portType, operationName, recordType);
+			Operation existing = operations.putIfAbsent(key, operation);
+			if(existing != null) {
+				operation = existing;
+			}
+		}
+		return operation;
+	}
+
+	/**
+	 * Counts the bytes read from a response body as they arrive, before any decompression.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		private long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if(b >= 0) {
+				count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if(read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+
+		long getCount() {
+			return count;
+		}
+	}
+
+	/**
+	 * The request and response elements of a port operation, read once from its annotations.
+	 */
+	static class Operation {
+
+		private final String name;
+		private final String action;
+		private final QName requestElement;
+		private final List<QName> parameters = new ArrayList<>();
+		private final ResponseDecoder<?> decoder;
+
+		Operation(Class<?> portType, String operationName, Class<?> recordType) throws Exception {
+			Method method = null;
+			for(Method candidate : portType.getMethods()) {
+				if(candidate.getName().equals(operationName)) {
+					method = candidate;
+					break;
+				}
+			}
+			if(method == null) {
+				throw new IllegalArgumentException(portType.getSimpleName() + " has no operation " + operationName);
+			}
+			RequestWrapper wrapper = method.getAnnotation(RequestWrapper.class);
+			WebResult result = method.getAnnotation(WebResult.class);
+			if(wrapper == null || result == null) {
+				throw new IllegalArgumentException(portType.getSimpleName() + "." + operationName + " is not a wrapped read operation");
+			}
+			WebMethod webMethod = method.getAnnotation(WebMethod.class);
+
+			// Limited separately from the same operation made through the port, as its time includes the callback's
+			this.name = portType.getSimpleName() + "." + operationName + " streamed";
+			this.action = webMethod == null ? "" : webMethod.action();
+			this.requestElement = new QName(wrapper.targetNamespace(), wrapper.localName());
+			for(java.lang.annotation.Annotation [] annotations : method.getParameterAnnotations()) {
+				WebParam param = null;
+				for(java.lang.annotation.Annotation annotation : annotations) {
+					if(annotation instanceof WebParam) {
+						param = (WebParam)annotation;
+					}
+				}
+				if(param == null) {
+					throw new IllegalArgumentException(portType.getSimpleName() + "." + operationName + " has a parameter without a name");
+				}
+				parameters.add(new QName(param.targetNamespace().isEmpty() ? wrapper.targetNamespace() : param.targetNamespace(), param.name()));
+			}
+			this.decoder = new ResponseDecoder<>(recordType,
+					new QName(result.targetNamespace().isEmpty() ? wrapper.targetNamespace() : result.targetNamespace(), result.name()));
+		}
+
+		/**
+		 * Builds the request envelope. It holds only the field list and filter so, unlike the response, it is small enough to build as a tree.
+		 * @param args arguments of the operation, null ones are left out and each item of a list is its own element.
+		 */
+		SOAPMessage request(Object [] args) throws Exception {
+			if(args.length != parameters.size()) {
+				throw new IllegalArgumentException(requestElement.getLocalPart() + " takes " + parameters.size() + " arguments, given " + args.length);
+			}
+			SOAPMessage message = MessageFactory.newInstance().createMessage();
+			SOAPElement wrapper = message.getSOAPBody().addChildElement(requestElement);
+			for(int i = 0; i < args.length; i++) {
+				if(args[i] instanceof Iterable) {
+					for(Object item : (Iterable<?>)args[i]) {
+						wrapper.addChildElement(parameters.get(i)).addTextNode(text(item));
+					}
+				}else if(args[i] != null) {
+					wrapper.addChildElement(parameters.get(i)).addTextNode(text(args[i]));
+				}
+			}
+			message.saveChanges();
+			return message;
+		}
+
+		/**
+		 * @return value as written in XML, generated enums e.g. ResourceHourFieldType.OBJECT_ID are written as their value, ObjectId.
+		 */
+		private static String text(Object value) throws Exception {
+			if(value instanceof Enum) {
+				try {
+					return String.valueOf(value.getClass().getMethod("value").invoke(value));
+				} catch (NoSuchMethodException e) {
+					return ((Enum<?>)value).name();
+				}
+			}
+			if(value instanceof XMLGregorianCalendar) {
+				return ((XMLGregorianCalendar)value).toXMLFormat();
+			}
+			return value.toString();
+		}
+	}
+}
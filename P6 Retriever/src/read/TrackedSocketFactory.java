@@ -0,0 +1,174 @@
+package read;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Creates the TLS sockets of a {@link P6Reader}'s ports and remembers them, so every call in progress can be failed at once
+ * by closing its socket, which a thread blocked reading a response would otherwise never notice.
+ * Sockets are held weakly, one dropped by the connection pool is forgotten once collected.
+ * The factory has to be installed on each port with {@link #install(Object, Map)}, as each JAX-WS runtime is told about it differently.
+ */
+class TrackedSocketFactory extends SSLSocketFactory {
+
+	/**
+	 * Request context properties the Metro runtime reads its socket factory from, bundled with older JDKs and standalone. CXF ignores them.
+	 */
+	private static final String [] SOCKET_FACTORY_PROPERTIES = {
+			"com.sun.xml.internal.ws.transport.https.client.SSLSocketFactory",
+			"com.sun.xml.ws.transport.https.client.SSLSocketFactory"};
+
+	private final SSLSocketFactory factory;
+	private final Set<Socket> sockets = Collections.newSetFromMap(new WeakHashMap<Socket, Boolean>());
+
+	/**
+	 * Constructor, creates sockets as the default HTTPS connections do at the time, so a trust store loaded later is still used.
+	 */
+	TrackedSocketFactory() {
+		this(null);
+	}
+
+	/**
+	 * Constructor
+	 * @param factory {@link SSLSocketFactory} sockets are created by, null for the default at the time each socket is created.
+	 */
+	TrackedSocketFactory(SSLSocketFactory factory) {
+		this.factory = factory;
+	}
+
+	/**
+	 * Makes a port create its TLS sockets through this factory: on the conduit's TLS parameters under CXF,
+	 * through the request context under Metro.
+	 * @param port port to install on.
+	 * @param requestContext request context of the port.
+	 */
+	void install(Object port, Map<String, Object> requestContext) {
+		if(Cxf.AVAILABLE) {
+			Cxf.install(port, this);
+		}else {
+			for(String property : SOCKET_FACTORY_PROPERTIES) {
+				requestContext.put(property, this);
+			}
+		}
+	}
+
+	/**
+	 * Closes every socket created so far that is still open, failing any call using one.
+	 */
+	void closeAll() {
+		List<Socket> open;
+		synchronized (sockets) {
+			open = new ArrayList<>(sockets);
+			sockets.clear();
+		}
+		for(Socket socket : open) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Already broken, which is all closing it was for
+			}
+		}
+	}
+
+	@Override
+	public String[] getDefaultCipherSuites() {
+		return factory().getDefaultCipherSuites();
+	}
+
+	@Override
+	public String[] getSupportedCipherSuites() {
+		return factory().getSupportedCipherSuites();
+	}
+
+	@Override
+	public Socket createSocket() throws IOException {
+		return track(factory().createSocket());
+	}
+
+	@Override
+	public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+		return track(factory().createSocket(socket, host, port, autoClose));
+	}
+
+	@Override
+	public Socket createSocket(String host, int port) throws IOException {
+		return track(factory().createSocket(host, port));
+	}
+
+	@Override
+	public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+		return track(factory().createSocket(host, port, localHost, localPort));
+	}
+
+	@Override
+	public Socket createSocket(InetAddress host, int port) throws IOException {
+		return track(factory().createSocket(host, port));
+	}
+
+	@Override
+	public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+		return track(factory().createSocket(address, port, localAddress, localPort));
+	}
+
+	private Socket track(Socket socket) {
+		synchronized (sockets) {
+			sockets.add(socket);
+		}
+		return socket;
+	}
+
+	private SSLSocketFactory factory() {
+		return factory != null ? factory : HttpsURLConnection.getDefaultSSLSocketFactory();
+	}
+
+	/**
+	 * Sets the socket factory on a CXF port's conduit. CXF is not needed to build the project, so its classes are only
+	 * reached by reflection, once they have been found on the classpath.
+	 */
+	private static class Cxf {
+
+		private static final ClassLoader LOADER = TrackedSocketFactory.class.getClassLoader();
+		private static final boolean AVAILABLE = isAvailable();
+
+		private static boolean isAvailable() {
+			try {
+				Class.forName("org.apache.cxf.frontend.ClientProxy", false, LOADER);
+				return true;
+			} catch (ClassNotFoundException e) {
+				return false;
+			}
+		}
+
+		private static void install(Object port, SSLSocketFactory sockets) {
+			try {
+				Class<?> proxy = Class.forName("org.apache.cxf.frontend.ClientProxy", true, LOADER);
+				Class<?> clientClass = Class.forName("org.apache.cxf.endpoint.Client", true, LOADER);
+				Class<?> conduitClass = Class.forName("org.apache.cxf.transport.http.HTTPConduit", true, LOADER);
+				Class<?> tlsClass = Class.forName("org.apache.cxf.configuration.jsse.TLSClientParameters", true, LOADER);
+				Object client = proxy.getMethod("getClient", Object.class).invoke(null, port);
+				Object conduit = conduitClass.cast(clientClass.getMethod("getConduit").invoke(client));
+				Object tls = conduitClass.getMethod("getTlsClientParameters").invoke(conduit);
+				if(tls == null) {
+					tls = tlsClass.getConstructor().newInstance();
+				}
+				tlsClass.getMethod("setSSLSocketFactory", SSLSocketFactory.class).invoke(tls, sockets);
+				conduitClass.getMethod("setTlsClientParameters", tlsClass).invoke(conduit, tls);
+			} catch (InvocationTargetException e) {
+				throw new IllegalStateException("Unable to set the socket factory of a CXF port", e.getCause());
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException("Unable to set the socket factory of a CXF port", e);
+			}
+		}
+	}
+}
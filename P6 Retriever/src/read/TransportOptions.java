@@ -0,0 +1,126 @@
+package read;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.ws.handler.MessageContext;
+
+/**
+ * HTTP settings for the SOAP calls of a {@link P6Reader}, set on {@link ReaderOptions}.
+ * <p>
+ * Timeouts are set through the standard JAX-WS client properties, which CXF reads, and the older JDK runtime's own names.
+ * <p>
+ * SOAP responses are large and compress very well, but asking for gzip is left off by default:
+ * a port can only read a gzip encoded response if the JAX-WS runtime inflates it, e.g. CXF with its GZIPFeature,
+ * otherwise the response can not be parsed. Streamed reads inflate responses themselves and always ask for gzip.
+ */
+public class TransportOptions {
+
+	private static final String GZIP = "gzip";
+
+	/**
+	 * Request context properties the JAX-WS runtime reads its timeouts from: the standard names first, then those of the runtime bundled with older JDKs.
+	 */
+	private static final String [] CONNECT_TIMEOUT_PROPERTIES = {"javax.xml.ws.client.connectionTimeout",
+			"com.sun.xml.internal.ws.connect.timeout", "com.sun.xml.ws.connect.timeout"};
+	private static final String [] REQUEST_TIMEOUT_PROPERTIES = {"javax.xml.ws.client.receiveTimeout",
+			"com.sun.xml.internal.ws.request.timeout", "com.sun.xml.ws.request.timeout"};
+
+	/**
+	 * JDK property limiting the idle connections kept per host.
+	 */
+	private static final String MAX_CONNECTIONS_PROPERTY = "http.maxConnections";
+
+	private int connectTimeout;
+	private int readTimeout;
+	private boolean compressResponses;
+	private int maxIdleConnections;
+
+	/**
+	 * @param connectTimeout milliseconds to wait for a connection to P6, 0 to wait indefinitely.
+	 * @return these options.
+	 */
+	public TransportOptions setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+		return this;
+	}
+
+	/**
+	 * @param readTimeout milliseconds to wait for a whole response, 0 to wait indefinitely. Whole table reads can take minutes.
+	 * @return these options.
+	 */
+	public TransportOptions setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+		return this;
+	}
+
+	/**
+	 * @param compressResponses true to ask for gzip encoded responses, only if the JAX-WS runtime inflates them.
+	 * @return these options.
+	 */
+	public TransportOptions setCompressResponses(boolean compressResponses) {
+		this.compressResponses = compressResponses;
+		return this;
+	}
+
+	/**
+	 * The JDK reads this limit once, for every host, when the first HTTP connection is made.
+	 * It is applied when a reader is created, unless http.maxConnections is already set, and has no effect after the first connection.
+	 * @param maxIdleConnections connections kept open per host between calls, at least the number of tables read at once. 0 leaves the JDK default of 5.
+	 * @return these options.
+	 */
+	public TransportOptions setMaxIdleConnections(int maxIdleConnections) {
+		this.maxIdleConnections = maxIdleConnections;
+		return this;
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	public boolean isCompressResponses() {
+		return compressResponses;
+	}
+
+	public int getMaxIdleConnections() {
+		return maxIdleConnections;
+	}
+
+	/**
+	 * Applies the JVM wide settings, once per reader.
+	 */
+	void applyGlobal() {
+		if(maxIdleConnections > 0 && System.getProperty(MAX_CONNECTIONS_PROPERTY) == null) {
+			System.setProperty(MAX_CONNECTIONS_PROPERTY, Integer.toString(maxIdleConnections));
+		}
+	}
+
+	/**
+	 * Sets the timeouts and, if asked for, the Accept-Encoding header on a port.
+	 * Handlers that add headers of their own, e.g. the session cookie, keep these.
+	 * @param requestContext request context of the port.
+	 */
+	void configure(Map<String, Object> requestContext) {
+		for(String property : CONNECT_TIMEOUT_PROPERTIES) {
+			requestContext.put(property, connectTimeout);
+		}
+		for(String property : REQUEST_TIMEOUT_PROPERTIES) {
+			requestContext.put(property, readTimeout);
+		}
+
+		Map<String, List<String>> headers = new HashMap<>();
+		if(compressResponses) {
+			headers.put("Accept-Encoding", new ArrayList<>(Collections.singletonList(GZIP)));
+		}
+		if(!headers.isEmpty()) {
+			requestContext.put(MessageContext.HTTP_REQUEST_HEADERS, headers);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package report;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from long keys to int values, with no boxing of either.
+ * Used for the report's joins where a HashMap would allocate an entry, a Long and an Integer per row.
+ * Keys may be any long except {@link #FREE}, values any int; get returns a caller supplied default when absent.
+ */
+class LongIntHashMap {
+
+	/**
+	 * Marks an empty slot, so can not be used as a key.
+	 */
+	static final long FREE = Long.MIN_VALUE;
+
+	private long [] keys;
+	private int [] values;
+	private int size;
+	private int mask;
+
+	/**
+	 * Constructor
+	 * @param expected number of keys expected, the map grows beyond this if needed.
+	 */
+	LongIntHashMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+		allocate(capacity);
+	}
+
+	/**
+	 * @param key key to find.
+	 * @param absent value returned if the key is not in the map.
+	 * @return the key's value or absent.
+	 */
+	int get(long key, int absent) {
+		int slot = slot(key);
+		while(keys[slot] != FREE) {
+			if(keys[slot] == key) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return absent;
+	}
+
+	/**
+	 * Sets the value of a key, replacing any previous value.
+	 * @param key key, not {@link #FREE}.
+	 * @param value value.
+	 */
+	void put(long key, int value) {
+		int slot = slot(key);
+		while(keys[slot] != FREE) {
+			if(keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		// Kept at most half full so probe runs stay short
+		if(++size * 2 > keys.length) {
+			rehash();
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	private int slot(long key) {
+		// Mixes the high bits down, keys are often two packed ObjectIds which differ mainly in their low bits
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int)(hash ^ (hash >>> 32)) & mask;
+	}
+
+	private void rehash() {
+		long [] oldKeys = keys;
+		int [] oldValues = values;
+		allocate(oldKeys.length * 2);
+		size = 0;
+		for(int i = 0; i < oldKeys.length; i++) {
+			if(oldKeys[i] != FREE) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long [capacity];
+		Arrays.fill(keys, FREE);
+		values = new int [capacity];
+		mask = capacity - 1;
+	}
+}
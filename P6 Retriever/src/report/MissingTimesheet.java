@@ -0,0 +1,49 @@
+package report;
+
+/**
+ * One row of the Missing Timesheet report: a resource that uses timesheets with no submitted timesheet for a period.
+ */
+public class MissingTimesheet {
+
+	private final int resourceObjectId;
+	private final String resourceName;
+	private final String approvalManager;
+	private final int timesheetPeriodObjectId;
+	private final String status;
+
+	/**
+	 * Constructor
+	 * @param resourceObjectId ObjectId of the resource.
+	 * @param resourceName name of the resource.
+	 * @param approvalManager the resource's timesheet approval manager.
+	 * @param timesheetPeriodObjectId ObjectId of the timesheet period.
+	 * @param status {@link MissingTimesheetReport#MISSING} if there is no timesheet, otherwise the unsubmitted timesheet's status.
+	 */
+	public MissingTimesheet(int resourceObjectId, String resourceName, String approvalManager, int timesheetPeriodObjectId, String status) {
+		this.resourceObjectId = resourceObjectId;
+		this.resourceName = resourceName;
+		this.approvalManager = approvalManager;
+		this.timesheetPeriodObjectId = timesheetPeriodObjectId;
+		this.status = status;
+	}
+
+	public int getResourceObjectId() {
+		return resourceObjectId;
+	}
+
+	public String getResourceName() {
+		return resourceName;
+	}
+
+	public String getApprovalManager() {
+		return approvalManager;
+	}
+
+	public int getTimesheetPeriodObjectId() {
+		return timesheetPeriodObjectId;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+}
@@ -0,0 +1,208 @@
+package report;
+
+import static write.Column.unwrap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import com.primavera.ws.p6.resource.Resource;
+import com.primavera.ws.p6.timesheet.Timesheet;
+import com.primavera.ws.p6.timesheetperiod.TimesheetPeriod;
+
+import write.Column;
+import write.TableLayout;
+
+/**
+ * Builds the WCPD Missing Timesheet report in process: every (resource, period) where an active resource that uses timesheets
+ * has no timesheet, or has one that has not been submitted. Periods are taken from the TimesheetPeriod table, not from the timesheets filed,
+ * so a period nobody has filed for yet is reported too.
+ * Resources and periods are numbered densely so each (resource, period) is one cell of a grid. One bit per cell marks a submitted timesheet
+ * and the few unsubmitted timesheets are held by cell in a {@link LongIntHashMap},
+ * so the join allocates nothing per timesheet and tens of thousands of resources by hundreds of periods take milliseconds.
+ */
+public class MissingTimesheetReport {
+
+	/**
+	 * Status reported where there is no timesheet at all.
+	 */
+	public static final String MISSING = "Missing";
+
+	/**
+	 * Timesheet statuses counted as submitted unless others are given, anything else (e.g. Active or Rejected) is reported.
+	 */
+	public static final List<String> DEFAULT_SUBMITTED = Collections.unmodifiableList(
+			Arrays.asList("Submitted", "Approved", "Resource Manager Approved", "Project Manager Approved"));
+
+	private static final int ABSENT = -1;
+
+	/**
+	 * Columns of MissingTimesheets.csv
+	 */
+	public static final TableLayout<MissingTimesheet> LAYOUT = new TableLayout<MissingTimesheet>("MissingTimesheet")
+			.add(new Column<MissingTimesheet>("RESOURCE_OBJECT_ID", Column.Type.INTEGER) {
+				public Object value(MissingTimesheet record) {
+					return record.getResourceObjectId();
+				}
+			})
+			.add(new Column<MissingTimesheet>("NAME", Column.Type.STRING) {
+				public Object value(MissingTimesheet record) {
+					return record.getResourceName();
+				}
+			})
+			.add(new Column<MissingTimesheet>("TIMESHEET_APPROVAL_MANAGER", Column.Type.STRING) {
+				public Object value(MissingTimesheet record) {
+					return record.getApprovalManager();
+				}
+			})
+			.add(new Column<MissingTimesheet>("TIMESHEET_PERIOD_OBJECT_ID", Column.Type.INTEGER) {
+				public Object value(MissingTimesheet record) {
+					return record.getTimesheetPeriodObjectId();
+				}
+			})
+			.add(new Column<MissingTimesheet>("STATUS", Column.Type.STRING) {
+				public Object value(MissingTimesheet record) {
+					return record.getStatus();
+				}
+			});
+
+	/**
+	 * Runs the report over every period that has ended, counting {@link #DEFAULT_SUBMITTED} timesheets as submitted.
+	 * @param resources Resource records, see {@link #run(List, List, List, Collection, long)} for those reported on.
+	 * @param timesheets Timesheet records.
+	 * @param periods TimesheetPeriod records with their StartDate and EndDate.
+	 * @return missing and unsubmitted timesheets, by resource in the order given then by period start.
+	 */
+	public static List<MissingTimesheet> run(List<Resource> resources, List<Timesheet> timesheets, List<TimesheetPeriod> periods) {
+		return run(resources, timesheets, periods, DEFAULT_SUBMITTED, System.currentTimeMillis());
+	}
+
+	/**
+	 * Runs the report over every period that had ended by a given time, so a period with no timesheets filed at all is still reported.
+	 * Only active resources that use timesheets are reported on, and each only for the periods ending after it was created,
+	 * so a resource added this year is not reported missing for every period before it.
+	 * @param resources Resource records, with UseTimesheets, IsActive and CreateDate read.
+	 * @param timesheets Timesheet records, those for other resources or periods are ignored.
+	 * @param periods TimesheetPeriod records with their StartDate and EndDate, those without a StartDate are ignored.
+	 * @param submittedStatuses Timesheet statuses that count as submitted, any other status is reported.
+	 * @param asOf time in milliseconds periods must have ended by to be reported, normally now.
+	 * @return missing and unsubmitted timesheets, by resource in the order given then by period start.
+	 */
+	public static List<MissingTimesheet> run(List<Resource> resources, List<Timesheet> timesheets, List<TimesheetPeriod> periods,
+			Collection<String> submittedStatuses, long asOf) {
+		List<TimesheetPeriod> ended = new ArrayList<>();
+		for(TimesheetPeriod period : periods) {
+			if(period.getObjectId() != null && period.getStartDate() != null && period.getEndDate() != null && millis(period.getEndDate()) < asOf) {
+				ended.add(period);
+			}
+		}
+		Collections.sort(ended, new Comparator<TimesheetPeriod>() {
+			public int compare(TimesheetPeriod a, TimesheetPeriod b) {
+				return Long.compare(millis(a.getStartDate()), millis(b.getStartDate()));
+			}
+		});
+		int periodCount = ended.size();
+		long [] periodEnds = new long [periodCount];
+		LongIntHashMap periodIndex = new LongIntHashMap(periodCount);
+		for(int p = 0; p < periodCount; p++) {
+			periodIndex.put(ended.get(p).getObjectId(), p);
+			periodEnds[p] = millis(ended.get(p).getEndDate());
+		}
+
+		List<Resource> reported = new ArrayList<>();
+		LongIntHashMap resourceIndex = new LongIntHashMap(resources.size());
+		for(Resource resource : resources) {
+			if(Boolean.TRUE.equals(resource.isUseTimesheets()) && !Boolean.FALSE.equals(resource.isIsActive()) && resource.getObjectId() != null
+					&& resourceIndex.get(resource.getObjectId(), ABSENT) == ABSENT) {
+				resourceIndex.put(resource.getObjectId(), reported.size());
+				reported.add(resource);
+			}
+		}
+
+		// Periods that ended before a resource was created are marked as if submitted, so the scan below skips them
+		BitSet submitted = new BitSet(reported.size() * periodCount);
+		for(int r = 0; r < reported.size(); r++) {
+			XMLGregorianCalendar created = unwrap(reported.get(r).getCreateDate());
+			if(created != null) {
+				int first = firstEndingAfter(periodEnds, millis(created));
+				submitted.set(r * periodCount, r * periodCount + first);
+			}
+		}
+
+		// Statuses are coded once each, a handful of distinct values across every timesheet
+		Map<String, Integer> statusCodes = new HashMap<>();
+		List<String> statuses = new ArrayList<>();
+		BitSet submittedCodes = new BitSet();
+
+		LongIntHashMap unsubmitted = new LongIntHashMap(64);
+		for(Timesheet timesheet : timesheets) {
+			if(timesheet.getResourceObjectId() == null || timesheet.getTimesheetPeriodObjectId() == null) {
+				continue;
+			}
+			int r = resourceIndex.get(timesheet.getResourceObjectId(), ABSENT);
+			int p = periodIndex.get(timesheet.getTimesheetPeriodObjectId(), ABSENT);
+			if(r == ABSENT || p == ABSENT) {
+				continue;
+			}
+
+			String status = timesheet.getStatus() == null ? "" : timesheet.getStatus();
+			Integer code = statusCodes.get(status);
+			if(code == null) {
+				code = statuses.size();
+				statusCodes.put(status, code);
+				statuses.add(status);
+				submittedCodes.set(code, submittedStatuses.contains(status));
+			}
+			int cell = r * periodCount + p;
+			if(submittedCodes.get(code)) {
+				submitted.set(cell);
+			}else {
+				unsubmitted.put(cell, code);
+			}
+		}
+
+		List<MissingTimesheet> missing = new ArrayList<>();
+		int cells = reported.size() * periodCount;
+		for(int cell = submitted.nextClearBit(0); cell < cells; cell = submitted.nextClearBit(cell + 1)) {
+			Resource resource = reported.get(cell / periodCount);
+			int code = unsubmitted.get(cell, ABSENT);
+			missing.add(new MissingTimesheet(resource.getObjectId(), resource.getName(), resource.getTimesheetApprovalManager(),
+					ended.get(cell % periodCount).getObjectId(), code == ABSENT ? MISSING : statuses.get(code)));
+		}
+		return missing;
+	}
+
+	/**
+	 * @param periodEnds end of each period in milliseconds, ascending.
+	 * @param time time in milliseconds.
+	 * @return index of the first period ending after the time, or the number of periods if none does.
+	 */
+	private static int firstEndingAfter(long [] periodEnds, long time) {
+		int low = 0;
+		int high = periodEnds.length;
+		while(low < high) {
+			int middle = (low + high) >>> 1;
+			if(periodEnds[middle] <= time) {
+				low = middle + 1;
+			}else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * P6 dates carry no time zone, so they are read in the JVM's own as is the time they are compared to.
+	 */
+	private static long millis(XMLGregorianCalendar date) {
+		return date.toGregorianCalendar().getTimeInMillis();
+	}
+}
@@ -0,0 +1,16 @@
+package security;
+
+/**
+ * How a P6Reader authenticates its requests.
+ */
+public enum AuthMode {
+	/**
+	 * A WS-Security UsernameToken is built and added to every request by {@link SecurityHandler}.
+	 */
+	USERNAME_TOKEN,
+	/**
+	 * Logs in once through the AuthenticationService and sends the session cookie with every request,
+	 * see {@link SessionAuthenticator}. The P6 server must have cookie authentication enabled.
+	 */
+	SESSION
+}
@@ -147,15 +147,24 @@ public class SecurityHandler implements SOAPHandler<SOAPMessageContext> {
 	public boolean handleMessage(SOAPMessageContext context)
 	{
 		boolean outbound = ((Boolean)context.get(SOAPMessageContext.MESSAGE_OUTBOUND_PROPERTY)).booleanValue();
-		SOAPMessage soapMessage = context.getMessage();
 
+		// Nothing is checked on a response, so it is left alone
 		if (outbound)
 		{     
-			handleOutBoundMessage(soapMessage);
+			handleOutBoundMessage(context.getMessage());
 		}
 		return true;
 	}
 
+	/**
+	 * Adds the security header to a request sent without a handler chain, e.g. a streamed read.
+	 * @param soapMessage request to send to P6.
+	 */
+	public void secure(SOAPMessage soapMessage)
+	{
+		handleOutBoundMessage(soapMessage);
+	}
+
 	@Override
 	public boolean handleFault(SOAPMessageContext context) {
 		// TODO Auto-generated method stub
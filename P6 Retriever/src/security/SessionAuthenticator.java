@@ -0,0 +1,154 @@
+package security;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPFault;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.http.HTTPException;
+import javax.xml.ws.soap.SOAPFaultException;
+
+import com.primavera.ws.p6.authentication.AuthenticationServicePortType;
+
+/**
+ * Holds the P6 session cookie shared by every port of a reader.
+ * Logs in through the AuthenticationService on first use and again after the session is invalidated,
+ * so the per-message cost is a header rather than building a UsernameToken.
+ */
+public class SessionAuthenticator {
+
+	private static final String SET_COOKIE = "Set-Cookie";
+
+	private static final int HTTP_UNAUTHORIZED = 401;
+
+	/**
+	 * The JAX-WS runtime's transport error for a 401, the only place it gives the status, e.g. "The server sent HTTP status code 401: Unauthorized".
+	 */
+	private static final Pattern UNAUTHORIZED_TRANSPORT_ERROR = Pattern.compile("^The server sent HTTP status code 401\\b");
+
+	private static final String WS_SECURITY_NS = "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd";
+
+	/**
+	 * WS-Security fault codes P6 answers with when the credentials or session sent with a request are not accepted.
+	 */
+	private static final Set<QName> AUTHENTICATION_FAULTS = new HashSet<>(Arrays.asList(
+			new QName(WS_SECURITY_NS, "FailedAuthentication"),
+			new QName(WS_SECURITY_NS, "InvalidSecurity"),
+			new QName(WS_SECURITY_NS, "InvalidSecurityToken"),
+			new QName(WS_SECURITY_NS, "SecurityTokenUnavailable")));
+
+	/**
+	 * Supplies the AuthenticationService port when the first login is needed.
+	 */
+	public interface PortSource {
+		/**
+		 * @return port of the P6 AuthenticationService, without {@link SessionHandler} on its chain.
+		 * @throws Exception if the port can not be created.
+		 */
+		AuthenticationServicePortType getPort() throws Exception;
+	}
+
+	private final PortSource authPorts;
+	private final String user, pass;
+	private final Integer databaseInstanceId;
+	private String cookie;
+
+	/**
+	 * Constructor
+	 * @param authPorts {@link PortSource} for the P6 AuthenticationService.
+	 * @param user P6 Username
+	 * @param pass P6 Password
+	 * @param databaseInstanceId P6 database instance to log in to, null for the default instance.
+	 */
+	public SessionAuthenticator(PortSource authPorts, String user, String pass, Integer databaseInstanceId) {
+		this.authPorts = authPorts;
+		this.user = user;
+		this.pass = pass;
+		this.databaseInstanceId = databaseInstanceId;
+	}
+
+	/**
+	 * @return the current session cookie, logging in first if there is no session.
+	 * @throws Exception if the login fails.
+	 */
+	public synchronized String getCookie() throws Exception {
+		if(cookie == null) {
+			cookie = login();
+		}
+		return cookie;
+	}
+
+	/**
+	 * Marks a session as expired so the next request logs in again.
+	 * Only clears the session if it is still the current one, so several requests failing together cause one login.
+	 * @param expired cookie of the session that was rejected.
+	 */
+	public synchronized void invalidate(String expired) {
+		if(cookie != null && cookie.equals(expired)) {
+			cookie = null;
+		}
+	}
+
+	/**
+	 * @param e exception thrown by a request.
+	 * @return true if the exception (or one of its causes) is an HTTP 401 or a WS-Security authentication fault,
+	 * so the session has expired or was not accepted. The wording of other faults is not looked at.
+	 */
+	public static boolean isSessionFault(Throwable e) {
+		for(Throwable t = e; t != null; t = t.getCause()) {
+			if(t instanceof HTTPException) {
+				if(((HTTPException)t).getStatusCode() == HTTP_UNAUTHORIZED) {
+					return true;
+				}
+			}else if(t instanceof SOAPFaultException) {
+				SOAPFault fault = ((SOAPFaultException)t).getFault();
+				if(fault != null && AUTHENTICATION_FAULTS.contains(fault.getFaultCodeAsQName())) {
+					return true;
+				}
+			}else if(t instanceof WebServiceException && t.getMessage() != null) {
+				if(UNAUTHORIZED_TRANSPORT_ERROR.matcher(t.getMessage()).find()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private String login() throws Exception {
+		AuthenticationServicePortType authPort = authPorts.getPort();
+		Boolean success = authPort.login(user, pass, databaseInstanceId);
+		if(success == null || !success.booleanValue()) {
+			throw new SecurityException("P6 login failed for user " + user);
+		}
+
+		@SuppressWarnings("unchecked")
+		Map<String, List<String>> headers = (Map<String, List<String>>)((BindingProvider)authPort).getResponseContext().get(MessageContext.HTTP_RESPONSE_HEADERS);
+		StringBuilder cookies = new StringBuilder();
+		if(headers != null) {
+			for(Map.Entry<String, List<String>> header : headers.entrySet()) {
+				if(!SET_COOKIE.equalsIgnoreCase(header.getKey())) {
+					continue;
+				}
+				for(String setCookie : header.getValue()) {
+					// Only name=value is sent back, attributes such as Path follow the first ';'
+					int end = setCookie.indexOf(';');
+					if(cookies.length() > 0) {
+						cookies.append("; ");
+					}
+					cookies.append(end < 0 ? setCookie : setCookie.substring(0, end));
+				}
+			}
+		}
+		if(cookies.length() == 0) {
+			throw new SecurityException("P6 login returned no cookie, check cookie authentication is enabled on the server");
+		}
+		return cookies.toString();
+	}
+}
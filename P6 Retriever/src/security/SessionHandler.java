@@ -0,0 +1,68 @@
+package security;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.namespace.QName;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.handler.soap.SOAPHandler;
+import javax.xml.ws.handler.soap.SOAPMessageContext;
+
+/**
+ * Alternative to {@link SecurityHandler} which authenticates each outbound message with the shared session cookie
+ * from a {@link SessionAuthenticator}. The SOAP envelope is not touched.
+ */
+public class SessionHandler implements SOAPHandler<SOAPMessageContext> {
+
+	private static final String COOKIE = "Cookie";
+
+	private final SessionAuthenticator authenticator;
+
+	/**
+	 * Constructor
+	 * @param authenticator {@link SessionAuthenticator} holding the session.
+	 */
+	public SessionHandler(SessionAuthenticator authenticator) {
+		this.authenticator = authenticator;
+	}
+
+	@Override
+	public boolean handleMessage(SOAPMessageContext context) {
+		boolean outbound = ((Boolean)context.get(SOAPMessageContext.MESSAGE_OUTBOUND_PROPERTY)).booleanValue();
+		if(outbound) {
+			try {
+				addCookie(context, authenticator.getCookie());
+			} catch (Exception ex) {
+				throw new RuntimeException("Error while logging in to P6.", ex);
+			}
+		}
+		return true;
+	}
+
+	private void addCookie(SOAPMessageContext context, String cookie) {
+		@SuppressWarnings("unchecked")
+		Map<String, List<String>> existing = (Map<String, List<String>>)context.get(MessageContext.HTTP_REQUEST_HEADERS);
+		Map<String, List<String>> headers = existing == null ? new HashMap<String, List<String>>() : new HashMap<>(existing);
+		headers.put(COOKIE, new ArrayList<>(Collections.singletonList(cookie)));
+		context.put(MessageContext.HTTP_REQUEST_HEADERS, headers);
+	}
+
+	@Override
+	public boolean handleFault(SOAPMessageContext context) {
+		return true;
+	}
+
+	@Override
+	public void close(MessageContext context) {
+	}
+
+	@Override
+	public Set<QName> getHeaders() {
+		return new TreeSet<QName>();
+	}
+}
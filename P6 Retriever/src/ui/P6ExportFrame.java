@@ -9,6 +9,7 @@ import java.awt.event.ActionListener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -21,11 +22,17 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPasswordField;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
 import javax.swing.JTextField;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
 import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
 
 import control.Control;
+import control.ExportProgress;
 
 public class P6ExportFrame extends JFrame {
 
@@ -36,6 +43,8 @@ public class P6ExportFrame extends JFrame {
 	private static final int s_pnlMinimumHeight = 25;
 
 	private static final String CARD_CONNECTION_INFO = "ConnectionInfo";
+	private static final String CARD_PROGRESS = "Progress";
+	private static final int PROGRESS_REFRESH_MILLIS = 500;
 
 	private JTextField txtfldUserName;
 	private JPasswordField txtfldPassword;
@@ -44,6 +53,8 @@ public class P6ExportFrame extends JFrame {
 	private JPanel pnlCards;
 	private JButton btnNext;
 	private JButton btnCancel;
+	private ProgressTableModel progressModel;
+	private ExportProgress progress;
 	
 	/**
 	 * Class to create a simple UI for logging into P6 and exporting timesheet information.
@@ -65,6 +76,7 @@ public class P6ExportFrame extends JFrame {
 
 	        // Initialize cards
 	        initConnectionInfoCard();
+	        initProgressCard();
 	        getContentPane().setLayout(new BorderLayout());
 	        getContentPane().add(pnlCards, BorderLayout.NORTH);
 
@@ -82,15 +94,7 @@ public class P6ExportFrame extends JFrame {
 	                    {
 	                         String path = chooseFiles();
 	                         if(path !=null) {
-		                         Control control = new Control();
-		                         boolean success = control.control(path, txtfldUserName.getText(), txtfldPassword.getText(),
-		                        		 txtfldHostName.getText(), txtfldPort.getText());
-		                         if(success) {
-		                        	 JOptionPane.showMessageDialog(btnNext, "Files Exported Successfully", "Great Success", JOptionPane.INFORMATION_MESSAGE);
-		                         }else {
-		                        	 JOptionPane.showMessageDialog(btnNext, "Something went horribly wrong", "Epic Fail", JOptionPane.ERROR_MESSAGE);
-		                         }
-		                         System.exit(0);
+		                         startExport(path);
 	                         }
 	                    }
 	                });
@@ -98,7 +102,13 @@ public class P6ExportFrame extends JFrame {
 	                {
 	                    public void actionPerformed(ActionEvent e)
 	                    {
-	                        System.exit(0);
+	                        if(progress != null) {
+	                        	// The export stops on its own threads and reports back through done()
+	                        	btnCancel.setEnabled(false);
+	                        	progress.cancel();
+	                        }else {
+	                        	System.exit(0);
+	                        }
 	                    }
 	                });
 
@@ -188,6 +198,73 @@ public class P6ExportFrame extends JFrame {
 		pnlCards.add(pnlCardCenter, CARD_CONNECTION_INFO);
 	}
 
+	private void initProgressCard()
+	{
+		progressModel = new ProgressTableModel();
+		JTable tblProgress = new JTable(progressModel);
+		tblProgress.setFillsViewportHeight(true);
+
+		JPanel pnlCardCenter = new JPanel(new BorderLayout());
+		pnlCardCenter.setBorder(s_defaultCardBorder);
+		pnlCardCenter.add(new JScrollPane(tblProgress), BorderLayout.CENTER);
+		pnlCards.add(pnlCardCenter, CARD_PROGRESS);
+	}
+
+	/**
+	 * Runs the export on a background thread so the window stays responsive, showing each table's progress until it finishes or is cancelled.
+	 * @param path directory to export to.
+	 */
+	private void startExport(final String path) {
+		final String user = txtfldUserName.getText();
+		final String pass = txtfldPassword.getText();
+		final String host = txtfldHostName.getText();
+		final String port = txtfldPort.getText();
+		final Control control = new Control();
+		progress = new ExportProgress();
+		control.setProgress(progress);
+		progressModel.setProgress(progress);
+
+		btnNext.setEnabled(false);
+		((CardLayout)pnlCards.getLayout()).show(pnlCards, CARD_PROGRESS);
+		final Timer refresh = new Timer(PROGRESS_REFRESH_MILLIS, new ActionListener()
+			{
+				public void actionPerformed(ActionEvent e)
+				{
+					progressModel.refresh();
+				}
+			});
+		refresh.start();
+
+		new SwingWorker<Boolean, Void>()
+			{
+				protected Boolean doInBackground()
+				{
+					return control.control(path, user, pass, host, port);
+				}
+
+				protected void done()
+				{
+					refresh.stop();
+					progressModel.refresh();
+					boolean success;
+					try {
+						success = get();
+					} catch (InterruptedException | ExecutionException e) {
+						e.printStackTrace();
+						success = false;
+					}
+					if(progress.isCancelled()) {
+						JOptionPane.showMessageDialog(btnNext, "Export cancelled, files not yet exported were left as they were", "Cancelled", JOptionPane.WARNING_MESSAGE);
+					}else if(success) {
+						JOptionPane.showMessageDialog(btnNext, "Files Exported Successfully", "Great Success", JOptionPane.INFORMATION_MESSAGE);
+					}else {
+						JOptionPane.showMessageDialog(btnNext, "Something went horribly wrong", "Epic Fail", JOptionPane.ERROR_MESSAGE);
+					}
+					System.exit(0);
+				}
+			}.execute();
+	}
+
 	private static void sizeUniformly(JComponent mainComponent, JComponent[] otherComponents){
 		Dimension dim = mainComponent.getPreferredSize();
 
@@ -209,4 +286,64 @@ public class P6ExportFrame extends JFrame {
 		}
 		return null;
 	}
+
+	/**
+	 * One row per table of the export, read from its {@link ExportProgress} each time the table is refreshed.
+	 */
+	private static class ProgressTableModel extends AbstractTableModel {
+
+		private static final long serialVersionUID = 1L;
+		private static final String [] COLUMNS = {"Table", "Status", "Fetched", "Written", "Rows/s", "Elapsed"};
+
+		private ExportProgress progress;
+		private List<ExportProgress.TableProgress> rows = new ArrayList<>();
+
+		void setProgress(ExportProgress progress) {
+			this.progress = progress;
+			refresh();
+		}
+
+		/**
+		 * Takes the current tables and counts and repaints them.
+		 */
+		void refresh() {
+			rows = progress == null ? new ArrayList<ExportProgress.TableProgress>() : progress.getTables();
+			fireTableDataChanged();
+		}
+
+		@Override
+		public int getRowCount() {
+			return rows.size();
+		}
+
+		@Override
+		public int getColumnCount() {
+			return COLUMNS.length;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			return COLUMNS[column];
+		}
+
+		@Override
+		public Object getValueAt(int row, int column) {
+			ExportProgress.TableProgress table = rows.get(row);
+			switch(column) {
+			case 0:
+				return table.getTable();
+			case 1:
+				return table.getState();
+			case 2:
+				return table.getFetched();
+			case 3:
+				return table.getWritten();
+			case 4:
+				return Math.round(table.getRowsPerSecond());
+			default:
+				long seconds = table.getElapsedMillis() / 1000;
+				return String.format("%d:%02d", seconds / 60, seconds % 60);
+			}
+		}
+	}
 }
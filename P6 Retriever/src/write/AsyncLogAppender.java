@@ -0,0 +1,122 @@
+package write;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes log entries to a {@link PrintStream} on a background thread so the caller never blocks on console I/O.
+ * The queue is bounded by the size of the entries waiting rather than their number, as one FULL envelope can be many megabytes.
+ * An entry that would take the queue past its bound is dropped and counted rather than waited for.
+ */
+public class AsyncLogAppender {
+
+	/**
+	 * Default number of bytes of entries that can be waiting to be written.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+	private static AsyncLogAppender console;
+
+	private final BlockingQueue<String> queue;
+	private final PrintStream out;
+	private final long maxBytes;
+	private final AtomicLong queuedBytes = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Constructor, starts the writer thread. The thread is a daemon so it does not keep the JVM alive.
+	 * @param out {@link PrintStream} to write entries to.
+	 * @param maxBytes maximum bytes of entries waiting to be written, an entry larger than this is always dropped.
+	 */
+	public AsyncLogAppender(PrintStream out, long maxBytes) {
+		this.out = out;
+		this.maxBytes = maxBytes;
+		this.queue = new LinkedBlockingQueue<>();
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "P6 log appender");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * @return appender shared by all handlers logging to System.out
+	 */
+	public static synchronized AsyncLogAppender console() {
+		if(console == null) {
+			console = new AsyncLogAppender(System.out, DEFAULT_MAX_BYTES);
+		}
+		return console;
+	}
+
+	/**
+	 * Queues an entry to be written. Never blocks.
+	 * @param entry text to write.
+	 * @return false if the queue had no room for the entry and it was dropped.
+	 */
+	public boolean append(String entry) {
+		long size = bytes(entry);
+		long queued;
+		do {
+			queued = queuedBytes.get();
+			if(queued + size > maxBytes) {
+				dropped.incrementAndGet();
+				return false;
+			}
+		} while(!queuedBytes.compareAndSet(queued, queued + size));
+		queue.add(entry);
+		return true;
+	}
+
+	/**
+	 * Queues an entry followed by the stack trace of a failure. Never blocks.
+	 * @param entry text to write.
+	 * @param failure {@link Throwable} to describe.
+	 * @return false if the queue had no room for the entry and it was dropped.
+	 */
+	public boolean append(String entry, Throwable failure) {
+		StringWriter trace = new StringWriter();
+		try (PrintWriter writer = new PrintWriter(trace)) {
+			failure.printStackTrace(writer);
+		}
+		return append(entry + System.lineSeparator() + trace.toString().trim());
+	}
+
+	/**
+	 * @return number of entries dropped because the queue had no room for them.
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	private void drain() {
+		long reportedDrops = 0;
+		try {
+			while(true) {
+				String entry = queue.take();
+				queuedBytes.addAndGet(-bytes(entry));
+				long drops = dropped.get();
+				if(drops != reportedDrops) {
+					out.println("[" + (drops - reportedDrops) + " log entries dropped]");
+					reportedDrops = drops;
+				}
+				out.println(entry);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return heap held by an entry's characters, counted at two bytes each.
+	 */
+	private static long bytes(String entry) {
+		return 2L * entry.length();
+	}
+}
@@ -0,0 +1,210 @@
+package write;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists how far each table's export had got, so a run that failed part way through resumes where it stopped
+ * rather than downloading the whole table again.
+ * A {@link Checkpoint} is saved each time {@link TableWriter} has written another page of rows to the table's partial file,
+ * and removed once the file is complete. Checkpoints are stored in a properties file, as &lt;table&gt;.&lt;field&gt;=value.
+ * <p>
+ * Rows already written are not read again on resuming, so rows changed or deleted since then are exported as they were.
+ * A checkpoint therefore records when its export started, and is only resumed within a maximum age of that.
+ */
+public class CheckpointStore {
+
+	private static final String KEY = ".key";
+	private static final String ROWS = ".rows";
+	private static final String FILE_BYTES = ".fileBytes";
+	private static final String BYTES = ".bytes";
+	private static final String CODEC = ".codec";
+	private static final String STARTED = ".started";
+
+	/**
+	 * Default age after which an export is started again rather than resumed.
+	 */
+	public static final long DEFAULT_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(6);
+
+	/**
+	 * Point a table's export had reached: every row up to and including the key has been written.
+	 */
+	public static class Checkpoint {
+		private final long key;
+		private final int rows;
+		private final long fileBytes;
+		private final long bytes;
+		private final String codec;
+		private final long started;
+
+		/**
+		 * Constructor
+		 * @param key value of the key column of the last row written, rows are written in ascending key order.
+		 * @param rows number of rows written, excluding the header.
+		 * @param fileBytes length of the partial file holding those rows, any bytes after it are discarded on resuming.
+		 * @param bytes size of those rows before compression.
+		 * @param codec name of the {@link CompressionCodec} the partial file is written with.
+		 * @param started time the export's first row was written, in milliseconds since the epoch, kept when it is resumed.
+		 */
+		public Checkpoint(long key, int rows, long fileBytes, long bytes, String codec, long started) {
+			this.key = key;
+			this.rows = rows;
+			this.fileBytes = fileBytes;
+			this.bytes = bytes;
+			this.codec = codec;
+			this.started = started;
+		}
+
+		public long getKey() {
+			return key;
+		}
+
+		public int getRows() {
+			return rows;
+		}
+
+		public long getFileBytes() {
+			return fileBytes;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public String getCodec() {
+			return codec;
+		}
+
+		public long getStarted() {
+			return started;
+		}
+	}
+
+	private final File file;
+	private final long maxAgeMillis;
+	private final Properties checkpoints = new Properties();
+
+	/**
+	 * Constructor, loads any checkpoints already saved to the file. Exports are resumed within {@link #DEFAULT_MAX_AGE_MILLIS}.
+	 * @param file properties {@link File} the checkpoints are kept in.
+	 * @throws IOException if the file exists but can not be read.
+	 */
+	public CheckpointStore(File file) throws IOException {
+		this(file, DEFAULT_MAX_AGE_MILLIS);
+	}
+
+	/**
+	 * Constructor, loads any checkpoints already saved to the file.
+	 * @param file properties {@link File} the checkpoints are kept in.
+	 * @param maxAgeMillis longest time after an export started that it may be resumed.
+	 * @throws IOException if the file exists but can not be read.
+	 */
+	public CheckpointStore(File file, long maxAgeMillis) throws IOException {
+		this.file = file;
+		this.maxAgeMillis = maxAgeMillis;
+		if(file.exists()) {
+			try (InputStream in = new FileInputStream(file)) {
+				checkpoints.load(in);
+			}
+		}
+	}
+
+	/**
+	 * @param table name of the table.
+	 * @return the table's checkpoint, or null if its last export completed or has not started.
+	 */
+	public synchronized Checkpoint get(String table) {
+		String key = checkpoints.getProperty(table + KEY);
+		if(key == null) {
+			return null;
+		}
+		try {
+			return new Checkpoint(Long.parseLong(key), Integer.parseInt(checkpoints.getProperty(table + ROWS)),
+					Long.parseLong(checkpoints.getProperty(table + FILE_BYTES)), Long.parseLong(checkpoints.getProperty(table + BYTES)),
+					checkpoints.getProperty(table + CODEC), Long.parseLong(checkpoints.getProperty(table + STARTED)));
+		} catch (NumberFormatException | NullPointerException e) {
+			// A checkpoint that can not be read only costs a full export
+			return null;
+		}
+	}
+
+	/**
+	 * Finds where a table's export can resume from. A checkpoint is only usable if its export started within the maximum age,
+	 * its partial file still holds every byte it recorded and was written with the same codec,
+	 * otherwise the checkpoint is removed and the export starts again.
+	 * @param table name of the table.
+	 * @param partial partial file of the export, see {@link TableWriter#getPartialFile(File)}.
+	 * @param codec {@link CompressionCodec} the export is written with.
+	 * @return checkpoint to resume from, or null to export the whole table.
+	 * @throws IOException if an unusable checkpoint can not be removed.
+	 */
+	public synchronized Checkpoint resume(String table, File partial, CompressionCodec codec) throws IOException {
+		Checkpoint checkpoint = get(table);
+		if(checkpoint == null) {
+			// Includes checkpoints saved before their start was recorded, whose age is unknown
+			clear(table);
+			return null;
+		}
+		long age = System.currentTimeMillis() - checkpoint.getStarted();
+		if(age > maxAgeMillis) {
+			AsyncLogAppender.console().append("Not resuming " + table + ", its export started " + new Date(checkpoint.getStarted()) + " and rows written then may have changed since.");
+			clear(table);
+			return null;
+		}
+		if(!codec.getName().equals(checkpoint.getCodec()) || !partial.isFile() || partial.length() < checkpoint.getFileBytes()) {
+			clear(table);
+			return null;
+		}
+		return checkpoint;
+	}
+
+	/**
+	 * Saves a table's checkpoint, replacing any before it.
+	 * @param table name of the table.
+	 * @param checkpoint {@link Checkpoint} reached.
+	 * @throws IOException if the file can not be written.
+	 */
+	public synchronized void put(String table, Checkpoint checkpoint) throws IOException {
+		checkpoints.setProperty(table + KEY, Long.toString(checkpoint.getKey()));
+		checkpoints.setProperty(table + ROWS, Integer.toString(checkpoint.getRows()));
+		checkpoints.setProperty(table + FILE_BYTES, Long.toString(checkpoint.getFileBytes()));
+		checkpoints.setProperty(table + BYTES, Long.toString(checkpoint.getBytes()));
+		checkpoints.setProperty(table + CODEC, checkpoint.getCodec());
+		checkpoints.setProperty(table + STARTED, Long.toString(checkpoint.getStarted()));
+		save();
+	}
+
+	/**
+	 * Removes a table's checkpoint, once its export is complete.
+	 * @param table name of the table.
+	 * @throws IOException if the file can not be written.
+	 */
+	public synchronized void clear(String table) throws IOException {
+		if(checkpoints.remove(table + KEY) == null) {
+			return;
+		}
+		checkpoints.remove(table + ROWS);
+		checkpoints.remove(table + FILE_BYTES);
+		checkpoints.remove(table + BYTES);
+		checkpoints.remove(table + CODEC);
+		checkpoints.remove(table + STARTED);
+		save();
+	}
+
+	private void save() throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		try (OutputStream out = new FileOutputStream(tmp)) {
+			checkpoints.store(out, "P6 export checkpoints");
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,90 @@
+package write;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+
+/**
+ * One column of an exported table: the header and how to read the value from a record.
+ * Optional P6 fields arrive wrapped in {@link JAXBElement}s which may be null or hold null, {@link #unwrap(JAXBElement)} handles both.
+ * @param <T> record type of the table.
+ */
+public abstract class Column<T> {
+
+	/**
+	 * Type of the values in a column.
+	 */
+	public enum Type {
+		INTEGER,
+		DOUBLE,
+		DATE,
+		STRING,
+		BOOLEAN
+	}
+
+	private final String header;
+	private final Type type;
+
+	/**
+	 * Constructor
+	 * @param header column header, by convention the name of the P6 field type e.g. OBJECT_ID
+	 * @param type {@link Type} of the values.
+	 */
+	protected Column(String header, Type type) {
+		this.header = header;
+		this.type = type;
+	}
+
+	/**
+	 * @param record record to read.
+	 * @return the column's value for the record, null if not set. Integer, Double, XMLGregorianCalendar, String or Boolean as per {@link #getType()}.
+	 */
+	public abstract Object value(T record);
+
+	/**
+	 * @param record record to read.
+	 * @return the value as written to CSV, empty if not set.
+	 */
+	public String text(T record) {
+		Object value = value(record);
+		return value == null ? "" : value.toString();
+	}
+
+	/**
+	 * Sets the column's field on a record, used to rebuild records from a snapshot.
+	 * @param record record to set.
+	 * @param value value of the type {@link #value(Object)} returns, may be null.
+	 * @throws UnsupportedOperationException if the column can only be read.
+	 */
+	public void set(T record, Object value) {
+		throw new UnsupportedOperationException(header + " can not be set");
+	}
+
+	public String getHeader() {
+		return header;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @param element optional field, may be null.
+	 * @return the element's value or null.
+	 */
+	public static <V> V unwrap(JAXBElement<V> element) {
+		return element == null ? null : element.getValue();
+	}
+
+	/**
+	 * Wraps a value for an optional field. The element is created even for a null value, which reads as nil as P6 returns an unset field,
+	 * so callers can always read the element.
+	 * @param namespace namespace of the P6 service e.g. http://xmlns.oracle.com/Primavera/P6/WS/ResourceHour/V1
+	 * @param name element name e.g. ProjectObjectId
+	 * @param type type of the value.
+	 * @param value value, may be null.
+	 * @return element holding the value.
+	 */
+	public static <V> JAXBElement<V> wrap(String namespace, String name, Class<V> type, V value) {
+		return new JAXBElement<V>(new QName(namespace, name), type, value);
+	}
+}
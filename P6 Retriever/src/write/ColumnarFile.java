@@ -0,0 +1,363 @@
+package write;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads a columnar snapshot written by {@link ColumnarWriter}.
+ * Only the footer is read when the file is opened, each column's block is memory-mapped the first time it is asked for,
+ * so a scan of two columns of a multi-million row table touches only those two blocks.
+ * Column accessors return read-only buffers with one entry per row; nulls are stored as the NULL_ constants (NaN for doubles).
+ */
+public class ColumnarFile implements Closeable {
+
+	/**
+	 * Marks the start and end of a snapshot file.
+	 */
+	static final byte [] MAGIC = {'P', '6', 'C', 'O', 'L', 'S', '0', '2'};
+
+	/**
+	 * Null INTEGER value.
+	 */
+	public static final int NULL_INT = Integer.MIN_VALUE;
+
+	/**
+	 * Null DATE value.
+	 */
+	public static final long NULL_DATE = Long.MIN_VALUE;
+
+	/**
+	 * Time zone of a DATE sent without one, see {@link #zone(int)}.
+	 */
+	public static final int NO_ZONE = Short.MAX_VALUE;
+
+	/**
+	 * Null BOOLEAN value, true is 1 and false 0.
+	 */
+	public static final byte NULL_BOOLEAN = -1;
+
+	/**
+	 * Null STRING code.
+	 */
+	public static final int NULL_CODE = -1;
+
+	private static final int TRAILER_SIZE = 8 + MAGIC.length;
+
+	private final File file;
+	private final RandomAccessFile access;
+	private final FileChannel channel;
+	private final String table;
+	private final int rowCount;
+	private final Map<String, Block> blocks = new LinkedHashMap<>();
+
+	/**
+	 * Constructor, opens the file and reads the footer.
+	 * @param file snapshot {@link File}.
+	 * @throws IOException if the file can not be read or was not written by {@link ColumnarWriter}.
+	 */
+	public ColumnarFile(File file) throws IOException {
+		this.file = file;
+		this.access = new RandomAccessFile(file, "r");
+		this.channel = access.getChannel();
+		try {
+			long size = channel.size();
+			if(size < MAGIC.length + TRAILER_SIZE || !hasMagic(map(0, MAGIC.length))) {
+				throw new IOException(file + " is not a P6 columnar snapshot");
+			}
+			ByteBuffer trailer = map(size - TRAILER_SIZE, TRAILER_SIZE);
+			long footerOffset = trailer.getLong();
+			if(!hasMagic(trailer) || footerOffset < MAGIC.length || footerOffset > size - TRAILER_SIZE) {
+				throw new IOException(file + " is not a complete P6 columnar snapshot");
+			}
+
+			ByteBuffer footer = map(footerOffset, size - TRAILER_SIZE - footerOffset);
+			this.table = getString(footer);
+			this.rowCount = footer.getInt();
+			int columnCount = footer.getInt();
+			Column.Type [] types = Column.Type.values();
+			for(int i = 0; i < columnCount; i++) {
+				String header = getString(footer);
+				Column.Type type = types[footer.getInt()];
+				blocks.put(header, new Block(type, footer.getLong(), footer.getLong(), footer.getLong(), footer.getLong()));
+			}
+		} catch (IOException | RuntimeException e) {
+			access.close();
+			throw e;
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return name of the P6 table e.g. ResourceHour
+	 */
+	public String getTable() {
+		return table;
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return column headers in the order they were written.
+	 */
+	public String [] getHeaders() {
+		return blocks.keySet().toArray(new String [blocks.size()]);
+	}
+
+	/**
+	 * @param header column header.
+	 * @return true if the snapshot has the column.
+	 */
+	public boolean hasColumn(String header) {
+		return blocks.containsKey(header);
+	}
+
+	/**
+	 * @param header column header.
+	 * @return {@link Column.Type} of the column.
+	 */
+	public Column.Type getType(String header) {
+		return block(header).type;
+	}
+
+	/**
+	 * @param header INTEGER column header.
+	 * @return one value per row, {@link #NULL_INT} where not set.
+	 * @throws IOException if the block can not be mapped.
+	 */
+	public IntBuffer ints(String header) throws IOException {
+		return block(header, Column.Type.INTEGER).values().asIntBuffer();
+	}
+
+	/**
+	 * @param header DOUBLE column header.
+	 * @return one value per row, NaN where not set.
+	 * @throws IOException if the block can not be mapped.
+	 */
+	public DoubleBuffer doubles(String header) throws IOException {
+		return block(header, Column.Type.DOUBLE).values().asDoubleBuffer();
+	}
+
+	/**
+	 * @param header DATE column header.
+	 * @return milliseconds since 1970 per row, of the server's own field values read as UTC. {@link #NULL_DATE} where not set.
+	 * @throws IOException if the block can not be mapped.
+	 */
+	public LongBuffer dates(String header) throws IOException {
+		return block(header, Column.Type.DATE).values().asLongBuffer();
+	}
+
+	/**
+	 * How each date was written by the server, so it can be given back as sent: read with {@link #zone(int)} and {@link #fractionDigits(int)}.
+	 * @param header DATE column header.
+	 * @return one form per row, 0 where not set.
+	 * @throws IOException if the block can not be mapped.
+	 */
+	public IntBuffer dateForms(String header) throws IOException {
+		return block(header, Column.Type.DATE).side().asIntBuffer();
+	}
+
+	/**
+	 * @param zone time zone offset in minutes, or {@link #NO_ZONE}.
+	 * @param fractionDigits digits of fractional seconds written, 0 to 3.
+	 * @return the date form stored, see {@link #dateForms(String)}.
+	 */
+	public static int dateForm(int zone, int fractionDigits) {
+		return zone << 2 | fractionDigits;
+	}
+
+	/**
+	 * @param form date form of a row.
+	 * @return time zone offset of the date in minutes, or {@link #NO_ZONE} if it had none.
+	 */
+	public static int zone(int form) {
+		return form >> 2;
+	}
+
+	/**
+	 * @param form date form of a row.
+	 * @return digits of fractional seconds the date had, 0 if none.
+	 */
+	public static int fractionDigits(int form) {
+		return form & 3;
+	}
+
+	/**
+	 * @param header BOOLEAN column header.
+	 * @return 1, 0 or {@link #NULL_BOOLEAN} per row.
+	 * @throws IOException if the block can not be mapped.
+	 */
+	public ByteBuffer booleans(String header) throws IOException {
+		return block(header, Column.Type.BOOLEAN).values();
+	}
+
+	/**
+	 * @param header STRING column header.
+	 * @return index into {@link #dictionary(String)} per row, {@link #NULL_CODE} where not set.
+	 * @throws IOException if the block can not be mapped.
+	 */
+	public IntBuffer codes(String header) throws IOException {
+		return block(header, Column.Type.STRING).values().asIntBuffer();
+	}
+
+	/**
+	 * @param header STRING column header.
+	 * @return distinct values of the column, indexed by code.
+	 * @throws IOException if the block can not be mapped.
+	 */
+	public String [] dictionary(String header) throws IOException {
+		return block(header, Column.Type.STRING).dictionary();
+	}
+
+	/**
+	 * Reads a single value, for occasional lookups. Use the column accessors to scan.
+	 * @param header column header.
+	 * @param row row index.
+	 * @return Integer, Double, Long (milliseconds), String or Boolean as per the column type, null if not set.
+	 * @throws IOException if the block can not be mapped.
+	 */
+	public Object get(String header, int row) throws IOException {
+		Block block = block(header);
+		switch(block.type) {
+		case INTEGER:
+			int intValue = ints(header).get(row);
+			return intValue == NULL_INT ? null : Integer.valueOf(intValue);
+		case DOUBLE:
+			double doubleValue = doubles(header).get(row);
+			return Double.isNaN(doubleValue) ? null : Double.valueOf(doubleValue);
+		case DATE:
+			long date = dates(header).get(row);
+			return date == NULL_DATE ? null : Long.valueOf(date);
+		case BOOLEAN:
+			byte flag = booleans(header).get(row);
+			return flag == NULL_BOOLEAN ? null : Boolean.valueOf(flag == 1);
+		default:
+			int code = codes(header).get(row);
+			return code == NULL_CODE ? null : block.entry(code);
+		}
+	}
+
+	/**
+	 * Closes the file. Buffers already returned stay readable until they are garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		access.close();
+	}
+
+	private Block block(String header) {
+		Block block = blocks.get(header);
+		if(block == null) {
+			throw new IllegalArgumentException(table + " snapshot has no column " + header);
+		}
+		return block;
+	}
+
+	private Block block(String header, Column.Type type) {
+		Block block = block(header);
+		if(block.type != type) {
+			throw new IllegalArgumentException(table + "." + header + " is " + block.type + " not " + type);
+		}
+		return block;
+	}
+
+	private ByteBuffer map(long offset, long length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+	}
+
+	private static boolean hasMagic(ByteBuffer buffer) {
+		byte [] magic = new byte [MAGIC.length];
+		buffer.get(magic);
+		return Arrays.equals(magic, MAGIC);
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		byte [] bytes = new byte [buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Position of one column in the file, mapped on first use.
+	 */
+	private class Block {
+		private final Column.Type type;
+		private final long offset;
+		private final long length;
+		private final long dictionaryOffset;
+		private final long dictionaryLength;
+		private ByteBuffer values;
+		private ByteBuffer side;
+		private String [] dictionary;
+
+		Block(Column.Type type, long offset, long length, long dictionaryOffset, long dictionaryLength) {
+			this.type = type;
+			this.offset = offset;
+			this.length = length;
+			this.dictionaryOffset = dictionaryOffset;
+			this.dictionaryLength = dictionaryLength;
+		}
+
+		/**
+		 * @return a new read-only view of the block, so callers each have their own position.
+		 */
+		synchronized ByteBuffer values() throws IOException {
+			if(values == null) {
+				values = map(offset, length);
+			}
+			return values.asReadOnlyBuffer();
+		}
+
+		/**
+		 * @return a new read-only view of the block written after the values, a STRING column's dictionary or a DATE column's forms.
+		 */
+		synchronized ByteBuffer side() throws IOException {
+			if(side == null) {
+				side = map(dictionaryOffset, dictionaryLength);
+			}
+			return side.asReadOnlyBuffer();
+		}
+
+		/**
+		 * @return a copy of the STRING column's dictionary, so callers can't change the entries shared by {@link #entry(int)}.
+		 */
+		String [] dictionary() throws IOException {
+			return decoded().clone();
+		}
+
+		/**
+		 * @param code index into the dictionary.
+		 * @return one entry of the STRING column's dictionary, read without copying it.
+		 */
+		String entry(int code) throws IOException {
+			return decoded()[code];
+		}
+
+		private synchronized String [] decoded() throws IOException {
+			if(dictionary == null) {
+				ByteBuffer buffer = side();
+				String [] entries = new String [buffer.getInt()];
+				for(int i = 0; i < entries.length; i++) {
+					entries[i] = getString(buffer);
+				}
+				dictionary = entries;
+			}
+			return dictionary;
+		}
+	}
+}
@@ -0,0 +1,389 @@
+package write;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+/**
+ * Writes any table in the columnar snapshot format read by {@link ColumnarFile}, from its {@link TableLayout}.
+ * Values are collected into one primitive array per column as records are taken, then each column is written as a single block:
+ * <ul>
+ * <li>INTEGER: 4 byte ints, null as {@link ColumnarFile#NULL_INT}</li>
+ * <li>DOUBLE: 8 byte doubles, null as NaN</li>
+ * <li>DATE: 8 byte milliseconds since 1970 of the server's own field values read as UTC, null as {@link ColumnarFile#NULL_DATE},
+ * followed by a block of 4 byte forms holding the time zone and fractional seconds the value was sent with, see {@link ColumnarFile#dateForms(String)}</li>
+ * <li>BOOLEAN: 1 byte, 1 true, 0 false, null as {@link ColumnarFile#NULL_BOOLEAN}</li>
+ * <li>STRING: 4 byte codes into a dictionary block of the distinct values in order of first use, null as {@link ColumnarFile#NULL_CODE}</li>
+ * </ul>
+ * Blocks start on 8 byte boundaries so they can be viewed directly as int, long and double buffers once mapped.
+ * The footer after the blocks lists the table, row count and each column's header, type and block positions.
+ */
+public class ColumnarWriter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	/**
+	 * Writes the records as a columnar snapshot.
+	 * @param layout {@link TableLayout} of the table.
+	 * @param records records to write, taken one at a time.
+	 * @param toWriteTo {@link File} to output to
+	 * @return number of rows written.
+	 * @throws IOException if the file can not be written.
+	 */
+	public static <T> int write(TableLayout<T> layout, Iterator<? extends T> records, File toWriteTo) throws IOException {
+		List<Column<T>> columns = layout.getColumns();
+		Values [] values = new Values [columns.size()];
+		for(int i = 0; i < values.length; i++) {
+			values[i] = Values.of(columns.get(i).getType());
+		}
+
+		int rows = 0;
+		while(records.hasNext()) {
+			T record = records.next();
+			for(int i = 0; i < values.length; i++) {
+				values[i].add(columns.get(i).value(record));
+			}
+			rows++;
+		}
+
+		try (FileChannel channel = new FileOutputStream(toWriteTo).getChannel()) {
+			BlockOutput out = new BlockOutput(channel);
+			out.putBytes(ColumnarFile.MAGIC);
+
+			long [] offsets = new long [values.length];
+			long [] lengths = new long [values.length];
+			long [] dictionaryOffsets = new long [values.length];
+			long [] dictionaryLengths = new long [values.length];
+			for(int i = 0; i < values.length; i++) {
+				out.align();
+				offsets[i] = out.position();
+				values[i].write(out);
+				lengths[i] = out.position() - offsets[i];
+				if(values[i].hasSide()) {
+					out.align();
+					dictionaryOffsets[i] = out.position();
+					values[i].writeSide(out);
+					dictionaryLengths[i] = out.position() - dictionaryOffsets[i];
+				}
+			}
+
+			out.align();
+			long footer = out.position();
+			out.putString(layout.getTable());
+			out.putInt(rows);
+			out.putInt(values.length);
+			for(int i = 0; i < values.length; i++) {
+				out.putString(columns.get(i).getHeader());
+				out.putInt(columns.get(i).getType().ordinal());
+				out.putLong(offsets[i]);
+				out.putLong(lengths[i]);
+				out.putLong(dictionaryOffsets[i]);
+				out.putLong(dictionaryLengths[i]);
+			}
+			out.putLong(footer);
+			out.putBytes(ColumnarFile.MAGIC);
+			out.flush();
+		}
+		return rows;
+	}
+
+	/**
+	 * Reads a date from the server's own field values so no time zone conversion takes place, as {@link WatermarkStore#format(XMLGregorianCalendar)}.
+	 * @param date date to encode, may be null.
+	 * @return milliseconds since 1970 with the fields read as UTC, or {@link ColumnarFile#NULL_DATE}.
+	 */
+	public static long toMillis(XMLGregorianCalendar date) {
+		if(date == null) {
+			return ColumnarFile.NULL_DATE;
+		}
+		Calendar calendar = new GregorianCalendar(UTC);
+		calendar.clear();
+		calendar.set(date.getYear(), date.getMonth() - 1, date.getDay(), field(date.getHour()), field(date.getMinute()), field(date.getSecond()));
+		calendar.set(Calendar.MILLISECOND, field(date.getMillisecond()));
+		return calendar.getTimeInMillis();
+	}
+
+	/**
+	 * Keeps what {@link #toMillis(XMLGregorianCalendar)} drops, so a restored date prints as the server sent it.
+	 * @param date date to encode, may be null.
+	 * @return form of the date, see {@link ColumnarFile#dateForm(int, int)}, 0 if null.
+	 */
+	public static int toForm(XMLGregorianCalendar date) {
+		if(date == null) {
+			return 0;
+		}
+		int zone = date.getTimezone() == DatatypeConstants.FIELD_UNDEFINED ? ColumnarFile.NO_ZONE : date.getTimezone();
+		BigDecimal fraction = date.getFractionalSecond();
+		return ColumnarFile.dateForm(zone, fraction == null ? 0 : Math.min(3, Math.max(1, fraction.scale())));
+	}
+
+	private static int field(int value) {
+		return value == DatatypeConstants.FIELD_UNDEFINED ? 0 : value;
+	}
+
+	/**
+	 * Values of one column collected in memory until the block is written.
+	 */
+	private static abstract class Values {
+
+		protected int size;
+
+		abstract void add(Object value);
+
+		abstract void write(BlockOutput out) throws IOException;
+
+		/**
+		 * @return true if a second block follows the values, see {@link #writeSide(BlockOutput)}.
+		 */
+		boolean hasSide() {
+			return false;
+		}
+
+		void writeSide(BlockOutput out) throws IOException {
+		}
+
+		/**
+		 * @return new capacity once the array is full.
+		 */
+		protected static int grow(int size) {
+			return Math.max(16, size * 2);
+		}
+
+		static Values of(Column.Type type) {
+			switch(type) {
+			case INTEGER:
+				return new IntValues();
+			case DOUBLE:
+				return new DoubleValues();
+			case DATE:
+				return new DateValues();
+			case BOOLEAN:
+				return new BooleanValues();
+			default:
+				return new StringValues();
+			}
+		}
+	}
+
+	private static class IntValues extends Values {
+		private int [] values = new int [0];
+
+		void add(Object value) {
+			if(size == values.length) {
+				values = Arrays.copyOf(values, grow(size));
+			}
+			values[size++] = value == null ? ColumnarFile.NULL_INT : ((Number)value).intValue();
+		}
+
+		void write(BlockOutput out) throws IOException {
+			for(int i = 0; i < size; i++) {
+				out.putInt(values[i]);
+			}
+		}
+	}
+
+	private static class DoubleValues extends Values {
+		private double [] values = new double [0];
+
+		void add(Object value) {
+			if(size == values.length) {
+				values = Arrays.copyOf(values, grow(size));
+			}
+			values[size++] = value == null ? Double.NaN : ((Number)value).doubleValue();
+		}
+
+		void write(BlockOutput out) throws IOException {
+			for(int i = 0; i < size; i++) {
+				out.putDouble(values[i]);
+			}
+		}
+	}
+
+	private static class DateValues extends Values {
+		private long [] values = new long [0];
+		private int [] forms = new int [0];
+
+		void add(Object value) {
+			if(size == values.length) {
+				values = Arrays.copyOf(values, grow(size));
+				forms = Arrays.copyOf(forms, values.length);
+			}
+			forms[size] = toForm((XMLGregorianCalendar)value);
+			values[size++] = toMillis((XMLGregorianCalendar)value);
+		}
+
+		void write(BlockOutput out) throws IOException {
+			for(int i = 0; i < size; i++) {
+				out.putLong(values[i]);
+			}
+		}
+
+		boolean hasSide() {
+			return true;
+		}
+
+		void writeSide(BlockOutput out) throws IOException {
+			for(int i = 0; i < size; i++) {
+				out.putInt(forms[i]);
+			}
+		}
+	}
+
+	private static class BooleanValues extends Values {
+		private byte [] values = new byte [0];
+
+		void add(Object value) {
+			if(size == values.length) {
+				values = Arrays.copyOf(values, grow(size));
+			}
+			values[size++] = value == null ? ColumnarFile.NULL_BOOLEAN : ((Boolean)value).booleanValue() ? (byte)1 : (byte)0;
+		}
+
+		void write(BlockOutput out) throws IOException {
+			for(int i = 0; i < size; i++) {
+				out.putByte(values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Dictionary encoded, P6 status, project and user columns repeat a handful of values across millions of rows.
+	 */
+	private static class StringValues extends Values {
+		private int [] codes = new int [0];
+		private final Map<String, Integer> dictionary = new LinkedHashMap<>();
+
+		void add(Object value) {
+			if(size == codes.length) {
+				codes = Arrays.copyOf(codes, grow(size));
+			}
+			if(value == null) {
+				codes[size++] = ColumnarFile.NULL_CODE;
+				return;
+			}
+			String text = value.toString();
+			Integer code = dictionary.get(text);
+			if(code == null) {
+				code = dictionary.size();
+				dictionary.put(text, code);
+			}
+			codes[size++] = code;
+		}
+
+		void write(BlockOutput out) throws IOException {
+			for(int i = 0; i < size; i++) {
+				out.putInt(codes[i]);
+			}
+		}
+
+		boolean hasSide() {
+			return true;
+		}
+
+		/**
+		 * Writes the dictionary.
+		 */
+		void writeSide(BlockOutput out) throws IOException {
+			out.putInt(dictionary.size());
+			for(String text : dictionary.keySet()) {
+				out.putString(text);
+			}
+		}
+	}
+
+	/**
+	 * Buffered writes to a {@link FileChannel}, keeping count of the position for the footer.
+	 */
+	private static class BlockOutput {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		private long position;
+
+		BlockOutput(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		long position() {
+			return position;
+		}
+
+		void putByte(byte value) throws IOException {
+			ensure(1);
+			buffer.put(value);
+			position += 1;
+		}
+
+		void putInt(int value) throws IOException {
+			ensure(4);
+			buffer.putInt(value);
+			position += 4;
+		}
+
+		void putLong(long value) throws IOException {
+			ensure(8);
+			buffer.putLong(value);
+			position += 8;
+		}
+
+		void putDouble(double value) throws IOException {
+			ensure(8);
+			buffer.putDouble(value);
+			position += 8;
+		}
+
+		void putBytes(byte [] bytes) throws IOException {
+			for(byte value : bytes) {
+				putByte(value);
+			}
+		}
+
+		/**
+		 * Length prefixed UTF-8.
+		 */
+		void putString(String text) throws IOException {
+			byte [] bytes = text.getBytes(StandardCharsets.UTF_8);
+			putInt(bytes.length);
+			putBytes(bytes);
+		}
+
+		/**
+		 * Pads to the next 8 byte boundary.
+		 */
+		void align() throws IOException {
+			while(position % 8 != 0) {
+				putByte((byte)0);
+			}
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if(buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+	}
+}
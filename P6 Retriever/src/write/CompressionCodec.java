@@ -0,0 +1,76 @@
+package write;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression applied to exported files. {@link #GZIP} and {@link #NONE} are built in,
+ * other formats can be plugged in by implementing this interface around the format's stream classes.
+ */
+public interface CompressionCodec {
+
+	/**
+	 * @return name of the codec, recorded in the export manifest.
+	 */
+	String getName();
+
+	/**
+	 * @return extension added to the names of files written with the codec e.g. .gz
+	 */
+	String getExtension();
+
+	/**
+	 * @param out stream to write the compressed bytes to, closed when the returned stream is closed.
+	 * @return stream compressing everything written to it.
+	 * @throws IOException if the stream can not be opened.
+	 */
+	OutputStream compress(OutputStream out) throws IOException;
+
+	/**
+	 * @param in stream of compressed bytes, closed when the returned stream is closed.
+	 * @return stream of the original bytes.
+	 * @throws IOException if the stream is not in the codec's format.
+	 */
+	InputStream decompress(InputStream in) throws IOException;
+
+	/**
+	 * Files are written as is.
+	 */
+	CompressionCodec NONE = new CompressionCodec() {
+		public String getName() {
+			return "none";
+		}
+		public String getExtension() {
+			return "";
+		}
+		public OutputStream compress(OutputStream out) {
+			return out;
+		}
+		public InputStream decompress(InputStream in) {
+			return in;
+		}
+	};
+
+	/**
+	 * gzip, readable by Excel's Power Query, 7-Zip and most reporting tools. CSV exports typically shrink by 85 to 90%.
+	 */
+	CompressionCodec GZIP = new CompressionCodec() {
+		private static final int BUFFER_SIZE = 64 * 1024;
+
+		public String getName() {
+			return "gzip";
+		}
+		public String getExtension() {
+			return ".gz";
+		}
+		public OutputStream compress(OutputStream out) throws IOException {
+			return new GZIPOutputStream(out, BUFFER_SIZE);
+		}
+		public InputStream decompress(InputStream in) throws IOException {
+			return new GZIPInputStream(in, BUFFER_SIZE);
+		}
+	};
+}
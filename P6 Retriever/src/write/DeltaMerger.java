@@ -0,0 +1,125 @@
+package write;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVWriter;
+import com.opencsv.exceptions.CsvValidationException;
+
+/**
+ * Merges a CSV of changed rows (a delta) into a previous export of the same table.
+ * Rows are matched on one or more key columns: a delta row replaces the previous row with the same key,
+ * delta rows with a new key are appended. Only the delta is held in memory, the previous export is streamed.
+ * NB deleted records are not in a delta so they remain in the merged export until the next full export.
+ */
+public class DeltaMerger {
+
+	/**
+	 * Merges delta into previous, replacing previous. The delta file is deleted once merged.
+	 * Both files must have been written with the same header.
+	 * @param previous {@link File} holding the previous export.
+	 * @param delta {@link File} holding the changed rows.
+	 * @param keyColumns header names of the columns that identify a row e.g. OBJECT_ID
+	 * @return number of rows in the merged export.
+	 * @throws IOException if either file can not be read or the merged file can not be written.
+	 */
+	public static int merge(File previous, File delta, String... keyColumns) throws IOException {
+		return merge(previous.getName(), previous, delta, CompressionCodec.NONE, keyColumns).getRows();
+	}
+
+	/**
+	 * Merges an uncompressed delta into a previous export written with a {@link CompressionCodec}, replacing previous.
+	 * The merged export is written with the same codec. The delta file is deleted once merged.
+	 * @param table name of the table, for the {@link ExportManifest.Entry}.
+	 * @param previous {@link File} holding the previous export.
+	 * @param delta {@link File} holding the changed rows, uncompressed.
+	 * @param codec {@link CompressionCodec} previous was written with.
+	 * @param keyColumns header names of the columns that identify a row e.g. OBJECT_ID
+	 * @return {@link ExportManifest.Entry} of the merged export.
+	 * @throws IOException if either file can not be read or the merged file can not be written.
+	 */
+	public static ExportManifest.Entry merge(String table, File previous, File delta, CompressionCodec codec, String... keyColumns) throws IOException {
+		String [] header;
+		int [] keyIndexes;
+		Map<List<String>, String[]> changes = new LinkedHashMap<>();
+		try (CSVReader reader = new CSVReader(new FileReader(delta))) {
+			header = reader.readNext();
+			if(header == null) {
+				throw new IOException("Delta " + delta + " has no header");
+			}
+			keyIndexes = keyIndexes(header, keyColumns);
+			String [] row;
+			while((row = reader.readNext()) != null) {
+				changes.put(key(row, keyIndexes), row);
+			}
+		} catch (CsvValidationException e) {
+			throw new IOException("Invalid row in " + delta, e);
+		}
+
+		File merged = new File(previous.getPath() + ".tmp");
+		int rows = 0;
+		long bytes;
+		try (ExportOutputStream out = new ExportOutputStream(merged, codec);
+				CSVWriter writer = new CSVWriter(new OutputStreamWriter(out));
+				CSVReader reader = new CSVReader(new InputStreamReader(codec.decompress(new FileInputStream(previous))))) {
+			String [] previousHeader = reader.readNext();
+			if(!Arrays.equals(header, previousHeader)) {
+				throw new IOException("Columns of " + previous + " do not match " + delta);
+			}
+			writer.writeNext(header);
+			String [] row;
+			while((row = reader.readNext()) != null) {
+				String [] changed = changes.remove(key(row, keyIndexes));
+				writer.writeNext(changed != null ? changed : row);
+				rows++;
+			}
+			for(String [] added : changes.values()) {
+				writer.writeNext(added);
+				rows++;
+			}
+			writer.flush();
+			bytes = out.getBytesWritten();
+		} catch (CsvValidationException e) {
+			merged.delete();
+			throw new IOException("Invalid row in " + previous, e);
+		} catch (IOException | RuntimeException e) {
+			merged.delete();
+			throw e;
+		}
+
+		// Replaced in one step, so a failure here leaves the previous export whole rather than missing
+		Files.move(merged.toPath(), previous.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		delta.delete();
+		return new ExportManifest.Entry(table, previous, rows, bytes, codec.getName());
+	}
+
+	private static int [] keyIndexes(String [] header, String [] keyColumns) throws IOException {
+		int [] indexes = new int [keyColumns.length];
+		for(int i = 0; i < keyColumns.length; i++) {
+			indexes[i] = Arrays.asList(header).indexOf(keyColumns[i]);
+			if(indexes[i] < 0) {
+				throw new IOException("Key column " + keyColumns[i] + " not in header");
+			}
+		}
+		return indexes;
+	}
+
+	private static List<String> key(String [] row, int [] keyIndexes) {
+		String [] key = new String [keyIndexes.length];
+		for(int i = 0; i < keyIndexes.length; i++) {
+			key[i] = keyIndexes[i] < row.length ? row[keyIndexes[i]] : null;
+		}
+		return Arrays.asList(key);
+	}
+}
@@ -0,0 +1,133 @@
+package write;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records what each export run wrote: per table the file, row count, size before compression and size on disk.
+ * Written alongside the exports as manifest.csv so whoever picks the files up can check they are complete.
+ * Entries may be added from several export threads at once.
+ */
+public class ExportManifest {
+
+	/**
+	 * Name of the manifest file in the output directory.
+	 */
+	public static final String FILE_NAME = "manifest.csv";
+
+	/**
+	 * One exported file.
+	 */
+	public static class Entry {
+		private final String table;
+		private final File file;
+		private final int rows;
+		private final long bytes;
+		private final String codec;
+
+		/**
+		 * Constructor
+		 * @param table name of the table e.g. ResourceHour
+		 * @param file {@link File} written, already closed.
+		 * @param rows number of rows, excluding the header.
+		 * @param bytes size before compression.
+		 * @param codec name of the {@link CompressionCodec} written with.
+		 */
+		public Entry(String table, File file, int rows, long bytes, String codec) {
+			this.table = table;
+			this.file = file;
+			this.rows = rows;
+			this.bytes = bytes;
+			this.codec = codec;
+		}
+
+		public String getTable() {
+			return table;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public int getRows() {
+			return rows;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return size of the file on disk.
+		 */
+		public long getFileBytes() {
+			return file.length();
+		}
+
+		public String getCodec() {
+			return codec;
+		}
+	}
+
+	/**
+	 * Columns of manifest.csv
+	 */
+	private static final TableLayout<Entry> LAYOUT = new TableLayout<Entry>("Manifest")
+			.add(new Column<Entry>("TABLE", Column.Type.STRING) {
+				public Object value(Entry record) {
+					return record.getTable();
+				}
+			})
+			.add(new Column<Entry>("FILE", Column.Type.STRING) {
+				public Object value(Entry record) {
+					return record.getFile().getName();
+				}
+			})
+			.add(new Column<Entry>("ROWS", Column.Type.INTEGER) {
+				public Object value(Entry record) {
+					return record.getRows();
+				}
+			})
+			.add(new Column<Entry>("BYTES", Column.Type.INTEGER) {
+				public Object value(Entry record) {
+					return record.getBytes();
+				}
+			})
+			.add(new Column<Entry>("FILE_BYTES", Column.Type.INTEGER) {
+				public Object value(Entry record) {
+					return record.getFileBytes();
+				}
+			})
+			.add(new Column<Entry>("CODEC", Column.Type.STRING) {
+				public Object value(Entry record) {
+					return record.getCodec();
+				}
+			});
+
+	private final List<Entry> entries = new ArrayList<>();
+
+	/**
+	 * @param entry {@link Entry} of a file written.
+	 */
+	public synchronized void add(Entry entry) {
+		entries.add(entry);
+	}
+
+	/**
+	 * @return entries added so far, in the order they were added.
+	 */
+	public synchronized List<Entry> getEntries() {
+		return new ArrayList<>(entries);
+	}
+
+	/**
+	 * Writes the manifest as CSV, uncompressed so it can always be read first.
+	 * @param toWriteTo {@link File} to output to
+	 * @throws IOException if the file can not be written.
+	 */
+	public void write(File toWriteTo) throws IOException {
+		TableWriter.write(LAYOUT, getEntries().iterator(), toWriteTo);
+	}
+}
@@ -0,0 +1,315 @@
+package write;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes an export file through a {@link CompressionCodec}, counting the bytes written before compression.
+ * When compressing, bytes are collected into blocks on the writing thread and handed to a compressor thread of their own,
+ * so rows are encoded while earlier rows are being compressed. A fixed set of blocks is passed back and forth,
+ * the writer waits for a free block if the compressor falls behind rather than buffering the whole table.
+ * A compression or disk failure is thrown to the writer by its next write or by {@link #close()}.
+ * <p>
+ * {@link #checkpoint()} makes everything written so far a complete file on disk, so a later stream can truncate the file back to
+ * that point and carry on appending to it. Each checkpoint ends one compressed stream and starts another,
+ * the codec's streams must decompress as one when written one after another, as gzip members do.
+ */
+public class ExportOutputStream extends OutputStream {
+
+	private static final int BLOCK_SIZE = 64 * 1024;
+
+	/**
+	 * Blocks in flight between the writer and the compressor. The queue to the compressor holds them all plus the end marker.
+	 */
+	private static final int BLOCKS = 4;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File file;
+	private final FileOutputStream fileOut;
+	private final OutputStream direct;
+	private final BlockingQueue<Block> full;
+	private final BlockingQueue<Block> free;
+	private final BlockingQueue<Long> positions;
+	private final Thread compressor;
+	private volatile IOException failure;
+	private Block block;
+	private long bytes;
+	private boolean closed;
+
+	/**
+	 * Constructor, creates or replaces the file.
+	 * @param file {@link File} to write.
+	 * @param codec {@link CompressionCodec} to write through, {@link CompressionCodec#NONE} writes on the calling thread.
+	 * @throws IOException if the file can not be opened.
+	 */
+	public ExportOutputStream(File file, CompressionCodec codec) throws IOException {
+		this(file, codec, 0);
+	}
+
+	/**
+	 * Constructor, resuming a file written up to a {@link #checkpoint()}.
+	 * @param file {@link File} to write.
+	 * @param codec {@link CompressionCodec} to write through, the same the file was written with.
+	 * @param resumeAt position returned by the checkpoint, anything after it is discarded and writing carries on from there.
+	 * 0 creates or replaces the file.
+	 * @throws IOException if the file can not be opened.
+	 */
+	public ExportOutputStream(File file, final CompressionCodec codec, long resumeAt) throws IOException {
+		this.file = file;
+		if(resumeAt > 0) {
+			try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+				truncated.setLength(resumeAt);
+			}
+		}
+		this.fileOut = new FileOutputStream(file, resumeAt > 0);
+		final OutputStream out = new BufferedOutputStream(fileOut, BUFFER_SIZE);
+		if(codec == CompressionCodec.NONE) {
+			this.direct = out;
+			this.full = null;
+			this.free = null;
+			this.positions = null;
+			this.compressor = null;
+			return;
+		}
+
+		this.direct = null;
+		this.full = new ArrayBlockingQueue<>(BLOCKS + 1);
+		this.free = new ArrayBlockingQueue<>(BLOCKS);
+		this.positions = new ArrayBlockingQueue<>(1);
+		for(int i = 0; i < BLOCKS; i++) {
+			free.add(new Block(BLOCK_SIZE));
+		}
+		this.compressor = new Thread(new Runnable() {
+			public void run() {
+				compress(codec, out);
+			}
+		}, "P6 compressor " + file.getName());
+		compressor.setDaemon(true);
+		compressor.start();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte [] {(byte)b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte [] b, int off, int len) throws IOException {
+		if(closed) {
+			throw new IOException(file + " is closed");
+		}
+		bytes += len;
+		if(direct != null) {
+			direct.write(b, off, len);
+			return;
+		}
+		while(len > 0) {
+			if(block == null) {
+				block = take(free);
+			}
+			int copied = Math.min(len, block.data.length - block.length);
+			System.arraycopy(b, off, block.data, block.length, copied);
+			block.length += copied;
+			off += copied;
+			len -= copied;
+			if(block.length == block.data.length) {
+				put(block);
+				block = null;
+			}
+		}
+	}
+
+	/**
+	 * Only flushes when not compressing, blocks are passed to the compressor when full or on {@link #close()}.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if(direct != null) {
+			direct.flush();
+		}
+	}
+
+	/**
+	 * Writes out everything written so far, ending the current compressed stream, and waits for it to reach the file.
+	 * @return length of the file, which now holds every byte written so far. A resumed stream can start from here.
+	 * @throws IOException if the file can not be written.
+	 */
+	public long checkpoint() throws IOException {
+		if(closed) {
+			throw new IOException(file + " is closed");
+		}
+		if(direct != null) {
+			direct.flush();
+			return fileOut.getChannel().position();
+		}
+		if(block != null && block.length > 0) {
+			put(block);
+			block = null;
+		}
+		// At most every block but the one kept is queued, so there is room for the marker
+		put(Block.CHECKPOINT);
+		long position = take(positions);
+		if(failure != null) {
+			throw failure;
+		}
+		return position;
+	}
+
+	/**
+	 * Passes the last block to the compressor and waits for the file to be completely written.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		if(direct != null) {
+			direct.close();
+			return;
+		}
+		// The queue has room for every block and the end marker so neither add can block or fail
+		if(block != null && block.length > 0 && failure == null) {
+			full.add(block);
+		}
+		block = null;
+		full.add(Block.END);
+		try {
+			compressor.join();
+		} catch (InterruptedException e) {
+			compressor.interrupt();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for " + file + " to be compressed");
+		}
+		if(failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * @return bytes written to the stream, before compression.
+	 */
+	public long getBytesWritten() {
+		return bytes;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Runs on the compressor thread. After a failure blocks are still taken and returned, so the writer is never left waiting.
+	 */
+	private void compress(CompressionCodec codec, OutputStream file) {
+		OutputStream out = null;
+		try {
+			out = codec.compress(new Unclosed(file));
+		} catch (IOException e) {
+			failure = e;
+		}
+		try {
+			Block next;
+			while((next = full.take()) != Block.END) {
+				if(next == Block.CHECKPOINT) {
+					long position = -1;
+					if(failure == null) {
+						try {
+							out.close();
+							file.flush();
+							position = fileOut.getChannel().position();
+							out = codec.compress(new Unclosed(file));
+						} catch (IOException e) {
+							failure = e;
+						}
+					}
+					positions.put(position);
+					continue;
+				}
+				if(failure == null) {
+					try {
+						out.write(next.data, 0, next.length);
+					} catch (IOException e) {
+						failure = e;
+					}
+				}
+				next.length = 0;
+				free.put(next);
+			}
+		} catch (InterruptedException e) {
+			failure = new InterruptedIOException("Compression of " + this.file + " interrupted");
+		} finally {
+			try {
+				try {
+					if(out != null) {
+						out.close();
+					}
+				} finally {
+					file.close();
+				}
+			} catch (IOException e) {
+				if(failure == null) {
+					failure = e;
+				}
+			}
+		}
+	}
+
+	private void put(Block block) throws IOException {
+		if(failure != null) {
+			throw failure;
+		}
+		full.add(block);
+	}
+
+	private <E> E take(BlockingQueue<E> queue) throws IOException {
+		if(failure != null) {
+			throw failure;
+		}
+		try {
+			return queue.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted writing " + file);
+		}
+	}
+
+	/**
+	 * Passes writes through but only flushes on close, so a compressed stream can be ended without closing the file.
+	 */
+	private static class Unclosed extends FilterOutputStream {
+		Unclosed(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte [] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+
+	private static class Block {
+		static final Block END = new Block(0);
+		static final Block CHECKPOINT = new Block(0);
+
+		final byte [] data;
+		int length;
+
+		Block(int size) {
+			this.data = new byte [size];
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package write;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+/**
+ * Column for any field of a P6 record, found from the field type, e.g. ResourceHourFieldType.PROJECT_NAME reads getProjectName().
+ * Lets a projection include fields that have no column in {@link TableLayouts}. The getter is looked up once,
+ * its type decides the column's {@link Column.Type}, and optional fields are unwrapped. Columns built this way can only be read.
+ * @param <T> record type of the table.
+ */
+public class FieldColumn<T> extends Column<T> {
+
+	private final Method getter;
+
+	/**
+	 * Constructor
+	 * @param recordType class of the records e.g. ResourceHour.class
+	 * @param field P6 field type e.g. ResourceHourFieldType.PROJECT_NAME, its name is the header.
+	 * @throws IllegalArgumentException if the record has no getter for the field.
+	 */
+	public FieldColumn(Class<T> recordType, Enum<?> field) {
+		this(field.name(), getter(recordType, field));
+	}
+
+	private FieldColumn(String header, Method getter) {
+		super(header, type(getter));
+		this.getter = getter;
+	}
+
+	@Override
+	public Object value(T record) {
+		Object value;
+		try {
+			value = getter.invoke(record);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException("Unable to read " + getHeader(), e);
+		}
+		if(value instanceof JAXBElement) {
+			value = ((JAXBElement<?>)value).getValue();
+		}
+		if(value != null && getType() == Type.STRING && !(value instanceof String)) {
+			value = value.toString();
+		}
+		return value;
+	}
+
+	/**
+	 * @return getter of the field, named from the field type's value e.g. ProjectName, or from its name if it has no value.
+	 */
+	private static Method getter(Class<?> recordType, Enum<?> field) {
+		String property = property(field);
+		for(String prefix : new String [] {"get", "is"}) {
+			try {
+				return recordType.getMethod(prefix + property);
+			} catch (NoSuchMethodException e) {
+				// Try the next prefix
+			}
+		}
+		throw new IllegalArgumentException(recordType.getSimpleName() + " has no field " + field.name());
+	}
+
+	private static String property(Enum<?> field) {
+		try {
+			Object value = field.getClass().getMethod("value").invoke(field);
+			if(value != null) {
+				return value.toString();
+			}
+		} catch (ReflectiveOperationException e) {
+			// Not a generated field type, fall back to its name
+		}
+		StringBuilder property = new StringBuilder();
+		for(String word : field.name().split("_")) {
+			if(!word.isEmpty()) {
+				property.append(word.charAt(0)).append(word.substring(1).toLowerCase());
+			}
+		}
+		return property.toString();
+	}
+
+	private static Type type(Method getter) {
+		java.lang.reflect.Type valueType = getter.getGenericReturnType();
+		if(valueType instanceof ParameterizedType && ((ParameterizedType)valueType).getRawType() == JAXBElement.class) {
+			valueType = ((ParameterizedType)valueType).getActualTypeArguments()[0];
+		}
+		if(valueType == Integer.class || valueType == int.class) {
+			return Type.INTEGER;
+		}
+		if(valueType == Double.class || valueType == double.class) {
+			return Type.DOUBLE;
+		}
+		if(valueType == Boolean.class || valueType == boolean.class) {
+			return Type.BOOLEAN;
+		}
+		if(valueType == XMLGregorianCalendar.class) {
+			return Type.DATE;
+		}
+		return Type.STRING;
+	}
+}
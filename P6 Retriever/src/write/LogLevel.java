@@ -0,0 +1,25 @@
+package write;
+
+/**
+ * How much of each SOAP message {@link LoggingHandler} logs.
+ */
+public enum LogLevel {
+	/**
+	 * Nothing is logged and the message is never serialised.
+	 */
+	OFF,
+	/**
+	 * Direction, time and HTTP headers only.
+	 */
+	HEADERS,
+	/**
+	 * Headers plus the start of each request envelope, up to the handler's size cap. Responses are logged by their headers only:
+	 * a handler can only see a response body by having the whole response parsed into a tree first, however little of it is logged.
+	 * The default.
+	 */
+	TRUNCATED,
+	/**
+	 * Headers plus the whole SOAP envelope of every request and response.
+	 */
+	FULL
+}
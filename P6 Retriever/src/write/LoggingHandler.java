@@ -1,6 +1,8 @@
 package write;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -14,45 +16,86 @@ import javax.xml.ws.handler.soap.SOAPHandler;
 import javax.xml.ws.handler.soap.SOAPMessageContext;
 
 
+/**
+ * Logs SOAP messages sent to and received from P6 at a chosen {@link LogLevel}.
+ * Entries are written by an {@link AsyncLogAppender} so the SOAP thread never waits on console I/O.
+ * At {@link LogLevel#OFF} messages are not serialised at all, and below {@link LogLevel#FULL} responses are not parsed for their body.
+ */
 public class LoggingHandler implements SOAPHandler<SOAPMessageContext>
 {
-	
+	/**
+	 * Default number of bytes of the envelope logged at {@link LogLevel#TRUNCATED}.
+	 */
+	public static final int DEFAULT_MAX_BODY_BYTES = 4096;
+
+	private final LogLevel level;
+	private final int maxBodyBytes;
+	private final AsyncLogAppender appender;
+
+	/**
+	 * Constructor, logs headers and the start of each request to System.out
+	 */
+	public LoggingHandler() {
+		this(LogLevel.TRUNCATED, DEFAULT_MAX_BODY_BYTES, AsyncLogAppender.console());
+	}
+
+	/**
+	 * Constructor
+	 * @param level how much of each message to log.
+	 * @param maxBodyBytes bytes of the envelope logged at {@link LogLevel#TRUNCATED}.
+	 * @param appender {@link AsyncLogAppender} to write entries to.
+	 */
+	public LoggingHandler(LogLevel level, int maxBodyBytes, AsyncLogAppender appender) {
+		this.level = level;
+		this.maxBodyBytes = maxBodyBytes;
+		this.appender = appender;
+	}
+
 	public Set<QName> getHeaders() {
         return new TreeSet<QName>();
     }
 
 	public boolean handleMessage(SOAPMessageContext context)
     {
-    	
+		if(level == LogLevel.OFF) {
+			return true;
+		}
         boolean outbound = ((Boolean)context.get(SOAPMessageContext.MESSAGE_OUTBOUND_PROPERTY)).booleanValue();
-        System.out.println("LoggingHandler.handleMessage called: " + (outbound ? "outbound" : "inbound"));
         dumpMsg(context, outbound);
         return true;
     }
 
 	public void close(MessageContext context)
     {
-        System.out.println("LoggingHandler.close called.");
+		if(level != LogLevel.OFF) {
+			appender.append("LoggingHandler.close called.");
+		}
     }
 
 	public boolean handleFault(SOAPMessageContext context)
     {
-        System.out.println("LoggingHandler.handleFault called.");
+		if(level != LogLevel.OFF) {
+			appender.append("LoggingHandler.handleFault called.");
+		}
         return true;
     }
 
     public void dumpMsg(MessageContext context, boolean outbound) {
        try {
-          SOAPMessage soapmsg = ((SOAPMessageContext)context).getMessage();
-          
+          StringBuilder entry = new StringBuilder();
           DateFormat dateFormat = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
-          Date date = new Date();
-          System.out.println(dateFormat.format(date));
-          
-          System.out.println(outbound ? "HTTP Response Headers" + context.get(MessageContext.HTTP_RESPONSE_HEADERS) : "HTTP Request Headers" + context.get(MessageContext.HTTP_REQUEST_HEADERS));
-          
-          System.out.print(outbound ? "Outbound " : "Inbound ");
-          System.out.println("SOAP Message:\n\n"+getMsgAsString(soapmsg) + "\n");
+          entry.append("LoggingHandler.handleMessage called: ").append(outbound ? "outbound" : "inbound").append('\n');
+          entry.append(dateFormat.format(new Date())).append('\n');
+
+          entry.append(outbound ? "HTTP Request Headers" + context.get(MessageContext.HTTP_REQUEST_HEADERS) : "HTTP Response Headers" + context.get(MessageContext.HTTP_RESPONSE_HEADERS)).append('\n');
+
+          // Responses run to whole tables, so below FULL only their headers are logged
+          if(level == LogLevel.FULL || (outbound && level == LogLevel.TRUNCATED)) {
+              SOAPMessage soapmsg = ((SOAPMessageContext)context).getMessage();
+              entry.append(outbound ? "Outbound " : "Inbound ");
+              entry.append("SOAP Message:\n\n").append(level == LogLevel.FULL ? getMsgAsString(soapmsg) : getMsgAsString(soapmsg, maxBodyBytes)).append('\n');
+          }
+          appender.append(entry.toString());
 
        } catch (Exception e) {
            e.printStackTrace();
@@ -72,4 +115,64 @@ public class LoggingHandler implements SOAPHandler<SOAPMessageContext>
         }
         return msg;
     }
+
+    /**
+     * Serialises the start of a message. Serialisation is abandoned once the cap is reached
+     * so the cost does not grow with the size of the message.
+     * @param message {@link SOAPMessage} to serialise.
+     * @param maxBytes maximum number of bytes to keep.
+     * @return the first maxBytes of the message, marked if truncated.
+     */
+    public String getMsgAsString(SOAPMessage message, int maxBytes) {
+        CappedOutputStream capped = new CappedOutputStream(maxBytes);
+        try {
+            message.writeTo(capped);
+        } catch (Exception e) {
+            if(!capped.isTruncated()) {
+                e.printStackTrace();
+            }
+        }
+        if(capped.isTruncated()) {
+            return capped.toString() + "... [truncated at " + maxBytes + " bytes]";
+        }
+        return capped.toString();
+    }
+
+    /**
+     * Keeps the first maxBytes written then fails the write so the message is not serialised any further.
+     */
+    private static class CappedOutputStream extends OutputStream {
+        private final ByteArrayOutputStream buffer;
+        private final int maxBytes;
+        private boolean truncated;
+
+        CappedOutputStream(int maxBytes) {
+            this.buffer = new ByteArrayOutputStream(Math.min(maxBytes, 1024));
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte)b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int room = maxBytes - buffer.size();
+            buffer.write(b, off, Math.min(room, len));
+            if(len > room) {
+                truncated = true;
+                throw new IOException("Log cap of " + maxBytes + " bytes reached");
+            }
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+    }
 }
@@ -1,23 +1,16 @@
 package write;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 
-import com.opencsv.CSVWriter;
 import com.primavera.ws.p6.resource.Resource;
-import com.primavera.ws.p6.resource.ResourceFieldType;
 import com.primavera.ws.p6.resourceassignment.ResourceAssignment;
-import com.primavera.ws.p6.resourceassignment.ResourceAssignmentFieldType;
 import com.primavera.ws.p6.resourceassignmentperiodactual.ResourceAssignmentPeriodActual;
-import com.primavera.ws.p6.resourceassignmentperiodactual.ResourceAssignmentPeriodActualFieldType;
 import com.primavera.ws.p6.resourcehour.ResourceHour;
-import com.primavera.ws.p6.resourcehour.ResourceHourFieldType;
 import com.primavera.ws.p6.resourcerate.ResourceRate;
-import com.primavera.ws.p6.resourcerate.ResourceRateFieldType;
 import com.primavera.ws.p6.timesheet.Timesheet;
-import com.primavera.ws.p6.timesheet.TimesheetFieldType;
 
 /**
  * Class to output the loaded information from P6 to CSV files.
@@ -28,20 +21,14 @@ import com.primavera.ws.p6.timesheet.TimesheetFieldType;
  * ResourceHour
  * ResourceRate
  * TimesheetPeriod. 
+ * The columns of each file are defined in {@link TableLayouts} and written by {@link TableWriter}.
+ * The {@link Iterator} overloads write each record as it is taken, so a table can be written while later pages
+ * are still being read, e.g. from a {@link read.PagedReader}.
+ * Any of the tables can be written compressed with {@link #output(TableLayout, Iterator, File, CompressionCodec)}
+ * or as a columnar snapshot with {@link #outputColumnar(TableLayout, Iterator, File)}.
  */
 public class SheetOutputter {
 	
-	
-	/**
-	 * Statics for the count of fields in each table that are used.
-	 */
-	private static final int TIMESHEET_FIELDS = 3;
-	private static final int RESOURCEHOUR_FIELDS = 11;
-	private static final int RESOURCERATE_FIELDS = 2;
-	private static final int RESOURCE_FIELDS = 4;
-	private static final int RESOURCE_ASS_P_A_FIELDS = 5;
-	private static final int RESOURCE_ASSIGNMENT_FIELDS = 6;
-	
 	/**
 	 * Creates Timesheets.csv for a List of {@link Timesheet} records.
 	 * @param timesheets list of {@link Timesheet}s to output.
@@ -49,167 +36,45 @@ public class SheetOutputter {
 	 * @throws IOException
 	 */
 	public static void outputTimesheets(List<Timesheet>timesheets, File toWriteTo) throws IOException {
-		String [] header = new String [TIMESHEET_FIELDS];
-		for(int i = 0; i< TIMESHEET_FIELDS; i++) {
-			switch(i) {
-			case 0:
-				header[i] = TimesheetFieldType.TIMESHEET_PERIOD_OBJECT_ID.name();
-				break;
-			case 1:
-				header[i] = TimesheetFieldType.RESOURCE_OBJECT_ID.name();
-				break;
-			case 2:
-				header[i] = TimesheetFieldType.STATUS.name();
-				break;
-			default:
-				break;
-			}
-		}
-		CSVWriter writer = new CSVWriter(new FileWriter(toWriteTo));
-		writer.writeNext(header);
-		
-		for(Timesheet timesheet : timesheets) {
-			String [] valueRow = new String [TIMESHEET_FIELDS];
-			for(int i = 0; i< TIMESHEET_FIELDS; i++) {
-				switch(i) {
-				case 0:
-					valueRow[i] = timesheet.getTimesheetPeriodObjectId().toString();
-					break;
-				case 1:
-					valueRow[i] = timesheet.getResourceObjectId().toString();
-					break;
-				case 2:
-					valueRow[i] = timesheet.getStatus();
-					break;
-				default:
-					break;
-				}
-			}
-			writer.writeNext(valueRow);
-		}
-		writer.flush();
-		writer.close();
+		outputTimesheets(timesheets.iterator(), toWriteTo);
+	}
+
+	/**
+	 * Writes the Timesheet table to a CSV file from an {@link Iterator} of {@link Timesheet} records.
+	 * @param timesheets {@link Iterator} of {@link Timesheet} records to output.
+	 * @param toWriteTo {@link File} to output to
+	 * @throws IOException
+	 */
+	public static void outputTimesheets(Iterator<Timesheet>timesheets, File toWriteTo) throws IOException {
+		TableWriter.write(TableLayouts.TIMESHEET, timesheets, toWriteTo);
 	}
 	
 	public static void outputReassignmentPeriodActuals(List<ResourceAssignmentPeriodActual> actuals, File toWriteTo) throws IOException{
-		String [] header = new String [RESOURCE_ASS_P_A_FIELDS];
-		for(int i = 0; i< RESOURCE_ASS_P_A_FIELDS; i++) {
-			switch(i) {
-			case 0:
-				header[i] = ResourceAssignmentPeriodActualFieldType.RESOURCE_ASSIGNMENT_OBJECT_ID.name();
-				break;
-			case 1:
-				header[i] = ResourceAssignmentPeriodActualFieldType.ACTUAL_UNITS.name();
-				break;
-			case 2:
-				header[i] = ResourceAssignmentPeriodActualFieldType.FINANCIAL_PERIOD_OBJECT_ID.name();
-				break;
-			case 3:
-				header[i] = ResourceAssignmentPeriodActualFieldType.LAST_UPDATE_DATE.name();
-				break;
-			case 4:
-				header[i] = ResourceAssignmentPeriodActualFieldType.LAST_UPDATE_USER.name();
-				break;
-			default:
-				break;
-			}
-		}
-		CSVWriter writer = new CSVWriter(new FileWriter(toWriteTo));
-		writer.writeNext(header);
-		
-		for(ResourceAssignmentPeriodActual actual : actuals) {
-			String [] valueRow = new String [RESOURCE_ASS_P_A_FIELDS];
-			for(int i = 0; i< RESOURCE_ASS_P_A_FIELDS; i++) {
-				switch(i) {
-				case 0:
-					valueRow[i] = actual.getResourceAssignmentObjectId().toString();
-					break;
-				case 1:
-					valueRow[i] = actual.getActualUnits().getValue().toString();
-					break;
-				case 2:
-					valueRow[i] = actual.getFinancialPeriodObjectId().toString();
-					break;
-				case 3:
-					valueRow[i] = actual.getLastUpdateDate().getValue().toString();
-					break;
-				case 4:
-					valueRow[i] = actual.getLastUpdateUser();
-					break;
-				default:
-					break;
-				}
-			}
-			writer.writeNext(valueRow);
-		}
-		writer.flush();
-		writer.close();
+		outputReassignmentPeriodActuals(actuals.iterator(), toWriteTo);
+	}
+
+	/**
+	 * Writes the ResourceAssignmentPeriodActual table to a CSV file from an {@link Iterator} of {@link ResourceAssignmentPeriodActual} records.
+	 * @param actuals {@link Iterator} of {@link ResourceAssignmentPeriodActual} records to output.
+	 * @param toWriteTo {@link File} to output to
+	 * @throws IOException
+	 */
+	public static void outputReassignmentPeriodActuals(Iterator<ResourceAssignmentPeriodActual>actuals, File toWriteTo) throws IOException {
+		TableWriter.write(TableLayouts.RESOURCE_ASSIGNMENT_PERIOD_ACTUAL, actuals, toWriteTo);
 	}
 	
 	public static void outputReassignmens(List<ResourceAssignment> assignments, File toWriteTo) throws IOException{
-		String [] header = new String [RESOURCE_ASSIGNMENT_FIELDS];
-		for(int i = 0; i< RESOURCE_ASSIGNMENT_FIELDS; i++) {
-			switch(i) {
-			case 0:
-				header[i] = ResourceAssignmentFieldType.RESOURCE_OBJECT_ID.name();
-				break;
-			case 1:
-				header[i] = ResourceAssignmentFieldType.ACTUAL_UNITS.name();
-				break;
-			case 2:
-				header[i] = ResourceAssignmentFieldType.PROJECT_ID.name();
-				break;
-			case 3:
-				header[i] = ResourceAssignmentFieldType.OBJECT_ID.name();
-				break;
-			case 5:
-				header[i] = ResourceAssignmentFieldType.LAST_UPDATE_DATE.name();
-				break;
-			case 6:
-				header[i] = ResourceAssignmentFieldType.LAST_UPDATE_USER.name();
-				break;
-			default:
-				break;
-			}
-		}
-		CSVWriter writer = new CSVWriter(new FileWriter(toWriteTo));
-		writer.writeNext(header);
-		
-		for(ResourceAssignment assignment : assignments) {
-			String [] valueRow = new String [RESOURCE_ASSIGNMENT_FIELDS];
-			for(int i = 0; i< RESOURCE_ASSIGNMENT_FIELDS; i++) {
-				switch(i) {
-				case 0:
-					if(assignment.getResourceObjectId().getValue() != null) {
-						valueRow[i] = assignment.getResourceObjectId().getValue().toString();
-					}else {
-						valueRow[i] = "";
-					}
-					
-					break;
-				case 1:
-					valueRow[i] = assignment.getActualUnits().getValue().toString();
-					break;
-				case 2:
-					valueRow[i] = assignment.getProjectId().toString();
-					break;
-				case 3:
-					valueRow[i] = assignment.getObjectId().toString();
-					break;
-				case 4:
-					valueRow[i] = assignment.getLastUpdateDate().getValue().toString();
-					break;
-				case 5:
-					valueRow[i] = assignment.getLastUpdateUser();
-					break;
-				default:
-					break;
-				}
-			}
-			writer.writeNext(valueRow);
-		}
-		writer.flush();
-		writer.close();
+		outputReassignmens(assignments.iterator(), toWriteTo);
+	}
+
+	/**
+	 * Writes the ResourceAssignment table to a CSV file from an {@link Iterator} of {@link ResourceAssignment} records.
+	 * @param assignments {@link Iterator} of {@link ResourceAssignment} records to output.
+	 * @param toWriteTo {@link File} to output to
+	 * @throws IOException
+	 */
+	public static void outputReassignmens(Iterator<ResourceAssignment>assignments, File toWriteTo) throws IOException {
+		TableWriter.write(TableLayouts.RESOURCE_ASSIGNMENT, assignments, toWriteTo);
 	}
 	
 	/**
@@ -220,112 +85,17 @@ public class SheetOutputter {
 	 */
 	
 	public static void outputResourceHour(List<ResourceHour>resourceHours, File toWriteTo) throws IOException {
-		String [] header = new String [RESOURCEHOUR_FIELDS];
-		for(int i = 0; i< RESOURCEHOUR_FIELDS; i++) {
-			switch(i) {
-			case 0:
-				header[i] = ResourceHourFieldType.OBJECT_ID.name();
-				break;
-			case 1:
-				header[i] = ResourceHourFieldType.PROJECT_OBJECT_ID.name();
-				break;
-			case 2:
-				header[i] = ResourceHourFieldType.RESOURCE_OBJECT_ID.name();
-				break;
-			case 3:
-				header[i] = ResourceHourFieldType.STATUS.name();
-				break;
-			case 4:
-				header[i] = ResourceHourFieldType.TIMESHEET_PERIOD_OBJECT_ID.name();
-				break;
-			case 5:
-				header[i] = ResourceHourFieldType.UNAPPROVED_HOURS.name();
-				break;
-			case 6:
-				header[i] = ResourceHourFieldType.APPROVED_HOURS.name();
-				break;
-			case 7:
-				header[i] = ResourceHourFieldType.DATE.name();
-				break;
-			case 8:
-				header[i] = ResourceHourFieldType.PROJECT_NAME.name();
-				break;
-			case 9:
-				header[i] = ResourceHourFieldType.LAST_UPDATE_DATE.name();
-				break;
-			case 10:
-				header[i] = ResourceHourFieldType.LAST_UPDATE_USER.name();
-				break;
-			default:
-				break;
-			}
-		}
-		CSVWriter writer = new CSVWriter(new FileWriter(toWriteTo));
-		writer.writeNext(header);
-		
-		for(ResourceHour resourceHour : resourceHours) {
-			String [] valueRow = new String [RESOURCEHOUR_FIELDS];
-			for(int i = 0; i< RESOURCEHOUR_FIELDS; i++) {
-				switch(i) {
-				case 0:
-					valueRow [i] = resourceHour.getObjectId().toString();
-					break;
-				case 1:
-					if(resourceHour.getProjectObjectId().getValue()!=null) {
-						valueRow [i] = resourceHour.getProjectObjectId().getValue().toString();
-					}else {
-						valueRow [i] = "";
-					}
-					break;
-				case 2:
-					valueRow [i] = resourceHour.getResourceObjectId().toString();
-					break;
-				case 3:
-					valueRow [i] = resourceHour.getStatus().toString();
-					break;
-				case 4:
-					valueRow [i] = resourceHour.getTimesheetPeriodObjectId().toString();
-					break;
-				case 5:
-					if(resourceHour.getUnapprovedHours().getValue()!=null) {
-						valueRow [i] = resourceHour.getUnapprovedHours().getValue().toString();
-					}else {
-						valueRow [i] = "";
-					}
-					break;
-				case 6:
-					if(resourceHour.getApprovedHours().getValue()!=null) {
-						valueRow [i] = resourceHour.getApprovedHours().getValue().toString();
-					}else {
-						valueRow[i]= "";
-					}
-					
-					break;
-				case 7:
-					if(resourceHour.getDate().getValue() != null) {
-						valueRow [i] = resourceHour.getDate().getValue().toString();
-					}else {
-						valueRow [i] = "";
-					}
-					
-					break;
-				case 8:
-					valueRow [i] = resourceHour.getProjectName().toString();
-					break;
-				case 9:
-					valueRow [i] = resourceHour.getLastUpdateDate().getValue().toString();
-					break;
-				case 10:
-					valueRow [i] = resourceHour.getLastUpdateUser();
-					break;
-				default:
-					break;
-				}
-			}
-			writer.writeNext(valueRow);
-		}
-		writer.flush();
-		writer.close();
+		outputResourceHour(resourceHours.iterator(), toWriteTo);
+	}
+
+	/**
+	 * Writes the ResourceHour table to a CSV file from an {@link Iterator} of {@link ResourceHour} records.
+	 * @param resourceHours {@link Iterator} of {@link ResourceHour} records to output.
+	 * @param toWriteTo {@link File} to output to
+	 * @throws IOException
+	 */
+	public static void outputResourceHour(Iterator<ResourceHour>resourceHours, File toWriteTo) throws IOException {
+		TableWriter.write(TableLayouts.RESOURCE_HOUR, resourceHours, toWriteTo);
 	}
 	
 	
@@ -336,88 +106,60 @@ public class SheetOutputter {
 	 * @throws IOException
 	 */
 	public static void outputResourceRates(List<ResourceRate>resourceRates, File toWriteTo) throws IOException {
-		String [] header = new String [RESOURCERATE_FIELDS];
-		for(int i = 0; i< RESOURCERATE_FIELDS; i++) {
-			switch(i) {
-			case 0:
-				header[i] = ResourceRateFieldType.EFFECTIVE_DATE.name();
-				break;
-			case 1:
-				header[i] = ResourceRateFieldType.RESOURCE_OBJECT_ID.name();
-				break;
-			default:
-				break;
-			}
-		}
-		CSVWriter writer = new CSVWriter(new FileWriter(toWriteTo));
-		writer.writeNext(header);
-		
-		for(ResourceRate rates : resourceRates) {
-			String [] valueRow = new String [RESOURCERATE_FIELDS];
-			for(int i = 0; i< RESOURCERATE_FIELDS; i++) {
-				switch(i) {
-				case 0:
-					valueRow[i] = rates.getEffectiveDate().toString();
-					break;
-				case 1:
-					valueRow[i] = rates.getResourceObjectId().toString();
-					break;
-				default:
-					break;
-				}
-			}
-			writer.writeNext(valueRow);
-		}
-		writer.flush();
-		writer.close();
+		outputResourceRates(resourceRates.iterator(), toWriteTo);
+	}
+
+	/**
+	 * Writes the ResourceRate table to a CSV file from an {@link Iterator} of {@link ResourceRate} records.
+	 * @param resourceRates {@link Iterator} of {@link ResourceRate} records to output.
+	 * @param toWriteTo {@link File} to output to
+	 * @throws IOException
+	 */
+	public static void outputResourceRates(Iterator<ResourceRate>resourceRates, File toWriteTo) throws IOException {
+		TableWriter.write(TableLayouts.RESOURCE_RATE, resourceRates, toWriteTo);
 	}
 	
 	public static void outputResources(List<Resource>resources, File toWriteTo) throws IOException {
-		String [] header = new String [RESOURCE_FIELDS];
-		for(int i = 0; i< RESOURCE_FIELDS; i++) {
-			switch(i) {
-			case 0:
-				header[i] = ResourceFieldType.OBJECT_ID.name();
-				break;
-			case 1:
-				header[i] = ResourceFieldType.NAME.name();
-				break;
-			case 2:
-				header[i] = ResourceFieldType.TIMESHEET_APPROVAL_MANAGER.name();
-				break;
-			case 3:
-				header[i] = ResourceFieldType.USE_TIMESHEETS.name();
-				break;
-			default:
-				break;
-			}
-		}
-		CSVWriter writer = new CSVWriter(new FileWriter(toWriteTo));
-		writer.writeNext(header);
-		
-		for(Resource resource : resources) {
-			String [] valueRow = new String [RESOURCE_FIELDS];
-			for(int i = 0; i< RESOURCE_FIELDS; i++) {
-				switch(i) {
-				case 0:
-					valueRow[i] = resource.getObjectId().toString();
-					break;
-				case 1:
-					valueRow[i] = resource.getName().toString();
-					break;
-				case 2:
-					valueRow[i] = resource.getTimesheetApprovalManager().toString();
-					break;
-				case 3:
-					valueRow[i] = resource.isUseTimesheets().toString();
-					break;
-				default:
-					break;
-				}
-			}
-			writer.writeNext(valueRow);
-		}
-		writer.flush();
-		writer.close();
+		outputResources(resources.iterator(), toWriteTo);
+	}
+
+	/**
+	 * Writes the Resource table to a CSV file from an {@link Iterator} of {@link Resource} records.
+	 * @param resources {@link Iterator} of {@link Resource} records to output.
+	 * @param toWriteTo {@link File} to output to
+	 * @throws IOException
+	 */
+	public static void outputResources(Iterator<Resource>resources, File toWriteTo) throws IOException {
+		TableWriter.write(TableLayouts.RESOURCE, resources, toWriteTo);
+	}
+
+	/**
+	 * Writes records of any table as a columnar snapshot, to be read with {@link ColumnarFile} instead of re-parsing the CSV.
+	 * e.g. outputColumnar(TableLayouts.RESOURCE_HOUR, resourceHours, new File("ResourceHours.p6c"))
+	 * @param layout {@link TableLayout} of the table, from {@link TableLayouts}.
+	 * @param records {@link Iterator} of records to output.
+	 * @param toWriteTo {@link File} to output to
+	 * @throws IOException
+	 */
+	public static <T> void outputColumnar(TableLayout<T> layout, Iterator<? extends T> records, File toWriteTo) throws IOException {
+		ColumnarWriter.write(layout, records, toWriteTo);
+	}
+
+	public static <T> void outputColumnar(TableLayout<T> layout, List<? extends T> records, File toWriteTo) throws IOException {
+		outputColumnar(layout, records.iterator(), toWriteTo);
+	}
+
+	/**
+	 * Writes records of any table to CSV through a {@link CompressionCodec}, compression running on its own thread while rows are encoded.
+	 * e.g. output(TableLayouts.RESOURCE_HOUR, resourceHours, new File("ResourceHours.csv.gz"), CompressionCodec.GZIP)
+	 * @param layout {@link TableLayout} of the table, from {@link TableLayouts}.
+	 * @param records {@link Iterator} of records to output.
+	 * @param toWriteTo {@link File} to output to
+	 * @param codec {@link CompressionCodec} to write through.
+	 * @return {@link ExportManifest.Entry} of the file written, for the run's {@link ExportManifest}.
+	 * @throws IOException
+	 */
+	public static <T> ExportManifest.Entry output(TableLayout<T> layout, Iterator<? extends T> records, File toWriteTo, CompressionCodec codec) throws IOException {
+		return TableWriter.write(layout, records, toWriteTo, codec);
 	}
 }
@@ -0,0 +1,65 @@
+package write;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The columns written for one table, in order. See {@link TableLayouts} for the layout of each table.
+ * @param <T> record type of the table.
+ */
+public class TableLayout<T> {
+
+	private final String table;
+	private final List<Column<T>> columns = new ArrayList<>();
+
+	/**
+	 * Constructor
+	 * @param table name of the P6 table e.g. ResourceHour
+	 */
+	public TableLayout(String table) {
+		this.table = table;
+	}
+
+	/**
+	 * Adds a column after those already added.
+	 * @param column {@link Column} to add.
+	 * @return this layout.
+	 */
+	public TableLayout<T> add(Column<T> column) {
+		columns.add(column);
+		return this;
+	}
+
+	/**
+	 * Adds every column of another layout after those already added.
+	 * @param layout {@link TableLayout} to copy the columns of.
+	 * @return this layout.
+	 */
+	public TableLayout<T> addAll(TableLayout<T> layout) {
+		columns.addAll(layout.columns);
+		return this;
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	/**
+	 * @return the columns in order, unmodifiable.
+	 */
+	public List<Column<T>> getColumns() {
+		return Collections.unmodifiableList(columns);
+	}
+
+	/**
+	 * @return column headers in order.
+	 */
+	public String [] header() {
+		String [] header = new String [columns.size()];
+		for(int i = 0; i < header.length; i++) {
+			header[i] = columns.get(i).getHeader();
+		}
+		return header;
+	}
+}
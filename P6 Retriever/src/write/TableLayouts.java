@@ -0,0 +1,498 @@
+package write;
+
+import static write.Column.unwrap;
+import static write.Column.wrap;
+
+import java.util.List;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import com.primavera.ws.p6.resource.Resource;
+import com.primavera.ws.p6.resource.ResourceFieldType;
+import com.primavera.ws.p6.resourceassignment.ResourceAssignment;
+import com.primavera.ws.p6.resourceassignment.ResourceAssignmentFieldType;
+import com.primavera.ws.p6.resourceassignmentperiodactual.ResourceAssignmentPeriodActual;
+import com.primavera.ws.p6.resourceassignmentperiodactual.ResourceAssignmentPeriodActualFieldType;
+import com.primavera.ws.p6.resourcecode.ResourceCode;
+import com.primavera.ws.p6.resourcecode.ResourceCodeFieldType;
+import com.primavera.ws.p6.resourcecodeassignment.ResourceCodeAssignment;
+import com.primavera.ws.p6.resourcecodeassignment.ResourceCodeAssignmentFieldType;
+import com.primavera.ws.p6.resourcehour.ResourceHour;
+import com.primavera.ws.p6.resourcehour.ResourceHourFieldType;
+import com.primavera.ws.p6.resourcerate.ResourceRate;
+import com.primavera.ws.p6.resourcerate.ResourceRateFieldType;
+import com.primavera.ws.p6.timesheet.Timesheet;
+import com.primavera.ws.p6.timesheet.TimesheetFieldType;
+import com.primavera.ws.p6.user.User;
+import com.primavera.ws.p6.user.UserFieldType;
+
+/**
+ * The {@link TableLayout} of every table exported by {@link SheetOutputter}.
+ * Each table's columns are listed once here, header and value together, so they can not drift apart.
+ * Every column can also set its field, so records can be rebuilt from a columnar snapshot.
+ * {@link #project(TableLayout, Class, List)} builds the layout matching a P6Reader read of chosen fields.
+ */
+public class TableLayouts {
+
+	private static final String RESOURCE_HOUR_NS = "http://xmlns.oracle.com/Primavera/P6/WS/ResourceHour/V1";
+	private static final String RESOURCE_ASSIGNMENT_NS = "http://xmlns.oracle.com/Primavera/P6/WS/ResourceAssignment/V1";
+	private static final String PERIOD_ACTUAL_NS = "http://xmlns.oracle.com/Primavera/P6/WS/ResourceAssignmentPeriodActual/V1";
+
+	/**
+	 * Columns of ResourceHour.csv
+	 */
+	public static final TableLayout<ResourceHour> RESOURCE_HOUR = new TableLayout<ResourceHour>("ResourceHour")
+			.add(new Column<ResourceHour>(ResourceHourFieldType.OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(ResourceHour record) {
+					return record.getObjectId();
+				}
+				public void set(ResourceHour record, Object value) {
+					record.setObjectId((Integer)value);
+				}
+			})
+			.add(new Column<ResourceHour>(ResourceHourFieldType.PROJECT_OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(ResourceHour record) {
+					return unwrap(record.getProjectObjectId());
+				}
+				public void set(ResourceHour record, Object value) {
+					record.setProjectObjectId(wrap(RESOURCE_HOUR_NS, "ProjectObjectId", Integer.class, (Integer)value));
+				}
+			})
+			.add(new Column<ResourceHour>(ResourceHourFieldType.RESOURCE_OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(ResourceHour record) {
+					return record.getResourceObjectId();
+				}
+				public void set(ResourceHour record, Object value) {
+					record.setResourceObjectId((Integer)value);
+				}
+			})
+			.add(new Column<ResourceHour>(ResourceHourFieldType.STATUS.name(), Column.Type.STRING) {
+				public Object value(ResourceHour record) {
+					return record.getStatus();
+				}
+				public void set(ResourceHour record, Object value) {
+					record.setStatus((String)value);
+				}
+			})
+			.add(new Column<ResourceHour>(ResourceHourFieldType.TIMESHEET_PERIOD_OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(ResourceHour record) {
+					return record.getTimesheetPeriodObjectId();
+				}
+				public void set(ResourceHour record, Object value) {
+					record.setTimesheetPeriodObjectId((Integer)value);
+				}
+			})
+			.add(new Column<ResourceHour>(ResourceHourFieldType.UNAPPROVED_HOURS.name(), Column.Type.DOUBLE) {
+				public Object value(ResourceHour record) {
+					return unwrap(record.getUnapprovedHours());
+				}
+				public void set(ResourceHour record, Object value) {
+					record.setUnapprovedHours(wrap(RESOURCE_HOUR_NS, "UnapprovedHours", Double.class, (Double)value));
+				}
+			})
+			.add(new Column<ResourceHour>(ResourceHourFieldType.APPROVED_HOURS.name(), Column.Type.DOUBLE) {
+				public Object value(ResourceHour record) {
+					return unwrap(record.getApprovedHours());
+				}
+				public void set(ResourceHour record, Object value) {
+					record.setApprovedHours(wrap(RESOURCE_HOUR_NS, "ApprovedHours", Double.class, (Double)value));
+				}
+			})
+			.add(new Column<ResourceHour>(ResourceHourFieldType.DATE.name(), Column.Type.DATE) {
+				public Object value(ResourceHour record) {
+					return unwrap(record.getDate());
+				}
+				public void set(ResourceHour record, Object value) {
+					record.setDate(wrap(RESOURCE_HOUR_NS, "Date", XMLGregorianCalendar.class, (XMLGregorianCalendar)value));
+				}
+			})
+			.add(new Column<ResourceHour>(ResourceHourFieldType.PROJECT_NAME.name(), Column.Type.STRING) {
+				public Object value(ResourceHour record) {
+					return record.getProjectName();
+				}
+				public void set(ResourceHour record, Object value) {
+					record.setProjectName((String)value);
+				}
+			})
+			.add(new Column<ResourceHour>(ResourceHourFieldType.LAST_UPDATE_DATE.name(), Column.Type.DATE) {
+				public Object value(ResourceHour record) {
+					return unwrap(record.getLastUpdateDate());
+				}
+				public void set(ResourceHour record, Object value) {
+					record.setLastUpdateDate(wrap(RESOURCE_HOUR_NS, "LastUpdateDate", XMLGregorianCalendar.class, (XMLGregorianCalendar)value));
+				}
+			})
+			.add(new Column<ResourceHour>(ResourceHourFieldType.LAST_UPDATE_USER.name(), Column.Type.STRING) {
+				public Object value(ResourceHour record) {
+					return record.getLastUpdateUser();
+				}
+				public void set(ResourceHour record, Object value) {
+					record.setLastUpdateUser((String)value);
+				}
+			});
+
+	/**
+	 * Columns of Resource.csv
+	 */
+	public static final TableLayout<Resource> RESOURCE = new TableLayout<Resource>("Resource")
+			.add(new Column<Resource>(ResourceFieldType.OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(Resource record) {
+					return record.getObjectId();
+				}
+				public void set(Resource record, Object value) {
+					record.setObjectId((Integer)value);
+				}
+			})
+			.add(new Column<Resource>(ResourceFieldType.NAME.name(), Column.Type.STRING) {
+				public Object value(Resource record) {
+					return record.getName();
+				}
+				public void set(Resource record, Object value) {
+					record.setName((String)value);
+				}
+			})
+			.add(new Column<Resource>(ResourceFieldType.TIMESHEET_APPROVAL_MANAGER.name(), Column.Type.STRING) {
+				public Object value(Resource record) {
+					return record.getTimesheetApprovalManager();
+				}
+				public void set(Resource record, Object value) {
+					record.setTimesheetApprovalManager((String)value);
+				}
+			})
+			.add(new Column<Resource>(ResourceFieldType.USE_TIMESHEETS.name(), Column.Type.BOOLEAN) {
+				public Object value(Resource record) {
+					return record.isUseTimesheets();
+				}
+				public void set(Resource record, Object value) {
+					record.setUseTimesheets((Boolean)value);
+				}
+			});
+
+	/**
+	 * Columns of ResourceRate.csv
+	 */
+	public static final TableLayout<ResourceRate> RESOURCE_RATE = new TableLayout<ResourceRate>("ResourceRate")
+			.add(new Column<ResourceRate>(ResourceRateFieldType.EFFECTIVE_DATE.name(), Column.Type.DATE) {
+				public Object value(ResourceRate record) {
+					return record.getEffectiveDate();
+				}
+				public void set(ResourceRate record, Object value) {
+					record.setEffectiveDate((XMLGregorianCalendar)value);
+				}
+			})
+			.add(new Column<ResourceRate>(ResourceRateFieldType.RESOURCE_OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(ResourceRate record) {
+					return record.getResourceObjectId();
+				}
+				public void set(ResourceRate record, Object value) {
+					record.setResourceObjectId((Integer)value);
+				}
+			});
+
+	/**
+	 * Columns of Timesheet.csv
+	 */
+	public static final TableLayout<Timesheet> TIMESHEET = new TableLayout<Timesheet>("Timesheet")
+			.add(new Column<Timesheet>(TimesheetFieldType.TIMESHEET_PERIOD_OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(Timesheet record) {
+					return record.getTimesheetPeriodObjectId();
+				}
+				public void set(Timesheet record, Object value) {
+					record.setTimesheetPeriodObjectId((Integer)value);
+				}
+			})
+			.add(new Column<Timesheet>(TimesheetFieldType.RESOURCE_OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(Timesheet record) {
+					return record.getResourceObjectId();
+				}
+				public void set(Timesheet record, Object value) {
+					record.setResourceObjectId((Integer)value);
+				}
+			})
+			.add(new Column<Timesheet>(TimesheetFieldType.STATUS.name(), Column.Type.STRING) {
+				public Object value(Timesheet record) {
+					return record.getStatus();
+				}
+				public void set(Timesheet record, Object value) {
+					record.setStatus((String)value);
+				}
+			});
+
+	/**
+	 * Columns of ResourceAssignment.csv
+	 */
+	public static final TableLayout<ResourceAssignment> RESOURCE_ASSIGNMENT = new TableLayout<ResourceAssignment>("ResourceAssignment")
+			.add(new Column<ResourceAssignment>(ResourceAssignmentFieldType.RESOURCE_OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(ResourceAssignment record) {
+					return unwrap(record.getResourceObjectId());
+				}
+				public void set(ResourceAssignment record, Object value) {
+					record.setResourceObjectId(wrap(RESOURCE_ASSIGNMENT_NS, "ResourceObjectId", Integer.class, (Integer)value));
+				}
+			})
+			.add(new Column<ResourceAssignment>(ResourceAssignmentFieldType.ACTUAL_UNITS.name(), Column.Type.DOUBLE) {
+				public Object value(ResourceAssignment record) {
+					return unwrap(record.getActualUnits());
+				}
+				public void set(ResourceAssignment record, Object value) {
+					record.setActualUnits(wrap(RESOURCE_ASSIGNMENT_NS, "ActualUnits", Double.class, (Double)value));
+				}
+			})
+			.add(new Column<ResourceAssignment>(ResourceAssignmentFieldType.PROJECT_ID.name(), Column.Type.STRING) {
+				public Object value(ResourceAssignment record) {
+					return record.getProjectId();
+				}
+				public void set(ResourceAssignment record, Object value) {
+					record.setProjectId((String)value);
+				}
+			})
+			.add(new Column<ResourceAssignment>(ResourceAssignmentFieldType.OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(ResourceAssignment record) {
+					return record.getObjectId();
+				}
+				public void set(ResourceAssignment record, Object value) {
+					record.setObjectId((Integer)value);
+				}
+			})
+			.add(new Column<ResourceAssignment>(ResourceAssignmentFieldType.LAST_UPDATE_DATE.name(), Column.Type.DATE) {
+				public Object value(ResourceAssignment record) {
+					return unwrap(record.getLastUpdateDate());
+				}
+				public void set(ResourceAssignment record, Object value) {
+					record.setLastUpdateDate(wrap(RESOURCE_ASSIGNMENT_NS, "LastUpdateDate", XMLGregorianCalendar.class, (XMLGregorianCalendar)value));
+				}
+			})
+			.add(new Column<ResourceAssignment>(ResourceAssignmentFieldType.LAST_UPDATE_USER.name(), Column.Type.STRING) {
+				public Object value(ResourceAssignment record) {
+					return record.getLastUpdateUser();
+				}
+				public void set(ResourceAssignment record, Object value) {
+					record.setLastUpdateUser((String)value);
+				}
+			});
+
+	/**
+	 * Columns of ResourceAssignmentPeriodActual.csv
+	 */
+	public static final TableLayout<ResourceAssignmentPeriodActual> RESOURCE_ASSIGNMENT_PERIOD_ACTUAL = new TableLayout<ResourceAssignmentPeriodActual>("ResourceAssignmentPeriodActual")
+			.add(new Column<ResourceAssignmentPeriodActual>(ResourceAssignmentPeriodActualFieldType.RESOURCE_ASSIGNMENT_OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(ResourceAssignmentPeriodActual record) {
+					return record.getResourceAssignmentObjectId();
+				}
+				public void set(ResourceAssignmentPeriodActual record, Object value) {
+					record.setResourceAssignmentObjectId((Integer)value);
+				}
+			})
+			.add(new Column<ResourceAssignmentPeriodActual>(ResourceAssignmentPeriodActualFieldType.ACTUAL_UNITS.name(), Column.Type.DOUBLE) {
+				public Object value(ResourceAssignmentPeriodActual record) {
+					return unwrap(record.getActualUnits());
+				}
+				public void set(ResourceAssignmentPeriodActual record, Object value) {
+					record.setActualUnits(wrap(PERIOD_ACTUAL_NS, "ActualUnits", Double.class, (Double)value));
+				}
+			})
+			.add(new Column<ResourceAssignmentPeriodActual>(ResourceAssignmentPeriodActualFieldType.FINANCIAL_PERIOD_OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(ResourceAssignmentPeriodActual record) {
+					return record.getFinancialPeriodObjectId();
+				}
+				public void set(ResourceAssignmentPeriodActual record, Object value) {
+					record.setFinancialPeriodObjectId((Integer)value);
+				}
+			})
+			.add(new Column<ResourceAssignmentPeriodActual>(ResourceAssignmentPeriodActualFieldType.LAST_UPDATE_DATE.name(), Column.Type.DATE) {
+				public Object value(ResourceAssignmentPeriodActual record) {
+					return unwrap(record.getLastUpdateDate());
+				}
+				public void set(ResourceAssignmentPeriodActual record, Object value) {
+					record.setLastUpdateDate(wrap(PERIOD_ACTUAL_NS, "LastUpdateDate", XMLGregorianCalendar.class, (XMLGregorianCalendar)value));
+				}
+			})
+			.add(new Column<ResourceAssignmentPeriodActual>(ResourceAssignmentPeriodActualFieldType.LAST_UPDATE_USER.name(), Column.Type.STRING) {
+				public Object value(ResourceAssignmentPeriodActual record) {
+					return record.getLastUpdateUser();
+				}
+				public void set(ResourceAssignmentPeriodActual record, Object value) {
+					record.setLastUpdateUser((String)value);
+				}
+			});
+
+	/**
+	 * Columns of ResourceCode records, as read by P6Reader
+	 */
+	public static final TableLayout<ResourceCode> RESOURCE_CODE = new TableLayout<ResourceCode>("ResourceCode")
+			.add(new Column<ResourceCode>(ResourceCodeFieldType.CODE_TYPE_NAME.name(), Column.Type.STRING) {
+				public Object value(ResourceCode record) {
+					return record.getCodeTypeName();
+				}
+				public void set(ResourceCode record, Object value) {
+					record.setCodeTypeName((String)value);
+				}
+			})
+			.add(new Column<ResourceCode>(ResourceCodeFieldType.CODE_VALUE.name(), Column.Type.STRING) {
+				public Object value(ResourceCode record) {
+					return record.getCodeValue();
+				}
+				public void set(ResourceCode record, Object value) {
+					record.setCodeValue((String)value);
+				}
+			})
+			.add(new Column<ResourceCode>(ResourceCodeFieldType.OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(ResourceCode record) {
+					return record.getObjectId();
+				}
+				public void set(ResourceCode record, Object value) {
+					record.setObjectId((Integer)value);
+				}
+			});
+
+	/**
+	 * Columns of ResourceCodeAssignment records, as read by P6Reader
+	 */
+	public static final TableLayout<ResourceCodeAssignment> RESOURCE_CODE_ASSIGNMENT = new TableLayout<ResourceCodeAssignment>("ResourceCodeAssignment")
+			.add(new Column<ResourceCodeAssignment>(ResourceCodeAssignmentFieldType.RESOURCE_CODE_OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(ResourceCodeAssignment record) {
+					return record.getResourceCodeObjectId();
+				}
+				public void set(ResourceCodeAssignment record, Object value) {
+					record.setResourceCodeObjectId((Integer)value);
+				}
+			})
+			.add(new Column<ResourceCodeAssignment>(ResourceCodeAssignmentFieldType.RESOURCE_CODE_VALUE.name(), Column.Type.STRING) {
+				public Object value(ResourceCodeAssignment record) {
+					return record.getResourceCodeValue();
+				}
+				public void set(ResourceCodeAssignment record, Object value) {
+					record.setResourceCodeValue((String)value);
+				}
+			})
+			.add(new Column<ResourceCodeAssignment>(ResourceCodeAssignmentFieldType.RESOURCE_CODE_TYPE_NAME.name(), Column.Type.STRING) {
+				public Object value(ResourceCodeAssignment record) {
+					return record.getResourceCodeTypeName();
+				}
+				public void set(ResourceCodeAssignment record, Object value) {
+					record.setResourceCodeTypeName((String)value);
+				}
+			})
+			.add(new Column<ResourceCodeAssignment>(ResourceCodeAssignmentFieldType.RESOURCE_OBJECT_ID.name(), Column.Type.INTEGER) {
+				public Object value(ResourceCodeAssignment record) {
+					return record.getResourceObjectId();
+				}
+				public void set(ResourceCodeAssignment record, Object value) {
+					record.setResourceObjectId((Integer)value);
+				}
+			})
+			.add(new Column<ResourceCodeAssignment>(ResourceCodeAssignmentFieldType.RESOURCE_ID.name(), Column.Type.STRING) {
+				public Object value(ResourceCodeAssignment record) {
+					return record.getResourceId();
+				}
+				public void set(ResourceCodeAssignment record, Object value) {
+					record.setResourceId((String)value);
+				}
+			})
+			.add(new Column<ResourceCodeAssignment>(ResourceCodeAssignmentFieldType.RESOURCE_CODE_DESCRIPTION.name(), Column.Type.STRING) {
+				public Object value(ResourceCodeAssignment record) {
+					return record.getResourceCodeDescription();
+				}
+				public void set(ResourceCodeAssignment record, Object value) {
+					record.setResourceCodeDescription((String)value);
+				}
+			});
+
+	/**
+	 * Columns of User records, as read by P6Reader
+	 */
+	public static final TableLayout<User> USER = new TableLayout<User>("User")
+			.add(new Column<User>(UserFieldType.CREATE_DATE.name(), Column.Type.DATE) {
+				public Object value(User record) {
+					return record.getCreateDate();
+				}
+				public void set(User record, Object value) {
+					record.setCreateDate((XMLGregorianCalendar)value);
+				}
+			})
+			.add(new Column<User>(UserFieldType.NAME.name(), Column.Type.STRING) {
+				public Object value(User record) {
+					return record.getName();
+				}
+				public void set(User record, Object value) {
+					record.setName((String)value);
+				}
+			})
+			.add(new Column<User>(UserFieldType.PERSONAL_NAME.name(), Column.Type.STRING) {
+				public Object value(User record) {
+					return record.getPersonalName();
+				}
+				public void set(User record, Object value) {
+					record.setPersonalName((String)value);
+				}
+			})
+			.add(new Column<User>(UserFieldType.EMAIL_ADDRESS.name(), Column.Type.STRING) {
+				public Object value(User record) {
+					return record.getEmailAddress();
+				}
+				public void set(User record, Object value) {
+					record.setEmailAddress((String)value);
+				}
+			});
+
+	/**
+	 * Builds the layout matching a projection, one column per field in the order given.
+	 * Fields with a column in the table's layout use it, any other field is read with a {@link FieldColumn}.
+	 * e.g. project(RESOURCE_HOUR, ResourceHour.class, Arrays.asList(ResourceHourFieldType.OBJECT_ID, ResourceHourFieldType.APPROVED_HOURS))
+	 * @param layout full {@link TableLayout} of the table.
+	 * @param recordType class of the table's records.
+	 * @param fields P6 field types read, as passed to the P6Reader.
+	 * @return {@link TableLayout} of the fields.
+	 * @throws IllegalArgumentException if a field is not one of the record's.
+	 */
+	public static <T> TableLayout<T> project(TableLayout<T> layout, Class<T> recordType, List<? extends Enum<?>> fields) {
+		TableLayout<T> projection = new TableLayout<T>(layout.getTable());
+		for(Enum<?> field : fields) {
+			Column<T> column = null;
+			for(Column<T> existing : layout.getColumns()) {
+				if(existing.getHeader().equals(field.name())) {
+					column = existing;
+					break;
+				}
+			}
+			projection.add(column != null ? column : new FieldColumn<T>(recordType, field));
+		}
+		return projection;
+	}
+
+	public static TableLayout<ResourceHour> resourceHour(List<ResourceHourFieldType> fields) {
+		return project(RESOURCE_HOUR, ResourceHour.class, fields);
+	}
+
+	public static TableLayout<Resource> resource(List<ResourceFieldType> fields) {
+		return project(RESOURCE, Resource.class, fields);
+	}
+
+	public static TableLayout<ResourceRate> resourceRate(List<ResourceRateFieldType> fields) {
+		return project(RESOURCE_RATE, ResourceRate.class, fields);
+	}
+
+	public static TableLayout<Timesheet> timesheet(List<TimesheetFieldType> fields) {
+		return project(TIMESHEET, Timesheet.class, fields);
+	}
+
+	public static TableLayout<ResourceAssignment> resourceAssignment(List<ResourceAssignmentFieldType> fields) {
+		return project(RESOURCE_ASSIGNMENT, ResourceAssignment.class, fields);
+	}
+
+	public static TableLayout<ResourceAssignmentPeriodActual> resourceAssignmentPeriodActual(List<ResourceAssignmentPeriodActualFieldType> fields) {
+		return project(RESOURCE_ASSIGNMENT_PERIOD_ACTUAL, ResourceAssignmentPeriodActual.class, fields);
+	}
+
+	public static TableLayout<ResourceCode> resourceCode(List<ResourceCodeFieldType> fields) {
+		return project(RESOURCE_CODE, ResourceCode.class, fields);
+	}
+
+	public static TableLayout<ResourceCodeAssignment> resourceCodeAssignment(List<ResourceCodeAssignmentFieldType> fields) {
+		return project(RESOURCE_CODE_ASSIGNMENT, ResourceCodeAssignment.class, fields);
+	}
+
+	public static TableLayout<User> user(List<UserFieldType> fields) {
+		return project(USER, User.class, fields);
+	}
+}
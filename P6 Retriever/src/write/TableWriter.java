@@ -0,0 +1,135 @@
+package write;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+
+import com.opencsv.CSVWriter;
+
+import metrics.Metrics;
+
+/**
+ * Writes any table to CSV from its {@link TableLayout}. One loop serves every table:
+ * the header comes from the layout and each row is filled column by column into a single reused buffer.
+ * Rows are written to a .tmp file which replaces the file only once complete, so a failed or cancelled write leaves the previous file as it was.
+ * With a {@link CheckpointStore} the .tmp file is kept on failure and a later write can resume it.
+ * Each completed file's write time, rows and bytes are recorded against its table in {@link Metrics#global()}.
+ */
+public class TableWriter {
+
+	/**
+	 * Rows written between checkpoints, one page of a paged read at the default page size.
+	 */
+	public static final int CHECKPOINT_ROWS = 5000;
+
+	/**
+	 * Writes the header then one row per record.
+	 * @param layout {@link TableLayout} of the table.
+	 * @param records records to write, taken one at a time.
+	 * @param toWriteTo {@link File} to output to
+	 * @return number of rows written, excluding the header.
+	 * @throws IOException if the file can not be written.
+	 */
+	public static <T> int write(TableLayout<T> layout, Iterator<? extends T> records, File toWriteTo) throws IOException {
+		return write(layout, records, toWriteTo, CompressionCodec.NONE).getRows();
+	}
+
+	/**
+	 * Writes the header then one row per record through a {@link CompressionCodec}, compressing on a separate thread.
+	 * @param layout {@link TableLayout} of the table.
+	 * @param records records to write, taken one at a time.
+	 * @param toWriteTo {@link File} to output to, the codec's extension is not added.
+	 * @param codec {@link CompressionCodec} to write through.
+	 * @return {@link ExportManifest.Entry} of the file written.
+	 * @throws IOException if the file can not be written.
+	 */
+	public static <T> ExportManifest.Entry write(TableLayout<T> layout, Iterator<? extends T> records, File toWriteTo, CompressionCodec codec) throws IOException {
+		return write(layout, records, toWriteTo, codec, null, null, null);
+	}
+
+	/**
+	 * Writes the table saving a {@link CheckpointStore.Checkpoint} every {@link #CHECKPOINT_ROWS} rows, so a failed export can be resumed.
+	 * On failure the partial file is kept for resuming, and the table's checkpoint is removed once the file is complete.
+	 * Records must be in ascending order of the key column, those to resume with are the ones after the checkpoint's key.
+	 * @param layout {@link TableLayout} of the table, its name is the checkpoint's table.
+	 * @param records records to write, taken one at a time.
+	 * @param toWriteTo {@link File} to output to, the codec's extension is not added.
+	 * @param codec {@link CompressionCodec} to write through.
+	 * @param checkpoints {@link CheckpointStore} to save checkpoints to.
+	 * @param from checkpoint to resume the partial file from, see {@link CheckpointStore#resume(String, File, CompressionCodec)}, null to start again.
+	 * @param keyColumn header of the integer column rows are ordered by e.g. OBJECT_ID
+	 * @return {@link ExportManifest.Entry} of the file written, counting the rows written before resuming.
+	 * @throws IOException if the file can not be written.
+	 */
+	public static <T> ExportManifest.Entry write(TableLayout<T> layout, Iterator<? extends T> records, File toWriteTo, CompressionCodec codec,
+			CheckpointStore checkpoints, CheckpointStore.Checkpoint from, String keyColumn) throws IOException {
+		long start = System.nanoTime();
+		List<Column<T>> columns = layout.getColumns();
+		int width = columns.size();
+		Column<T> key = checkpoints == null ? null : column(layout, keyColumn);
+		int rows = from == null ? 0 : from.getRows();
+		long resumedBytes = from == null ? 0 : from.getBytes();
+		long started = from == null ? System.currentTimeMillis() : from.getStarted();
+		File written = getPartialFile(toWriteTo);
+		ExportOutputStream out = new ExportOutputStream(written, codec, from == null ? 0 : from.getFileBytes());
+		try (CSVWriter writer = new CSVWriter(new OutputStreamWriter(out))) {
+			if(from == null) {
+				writer.writeNext(layout.header());
+			}
+
+			// CSVWriter writes the row out before returning so the same buffer is refilled for every record
+			String [] valueRow = new String [width];
+			int sinceCheckpoint = 0;
+			while(records.hasNext()) {
+				T record = records.next();
+				for(int i = 0; i < width; i++) {
+					valueRow[i] = columns.get(i).text(record);
+				}
+				writer.writeNext(valueRow);
+				rows++;
+				if(key != null && ++sinceCheckpoint == CHECKPOINT_ROWS) {
+					writer.flush();
+					long fileBytes = out.checkpoint();
+					checkpoints.put(layout.getTable(), new CheckpointStore.Checkpoint(((Number)key.value(record)).longValue(), rows, fileBytes,
+							resumedBytes + out.getBytesWritten(), codec.getName(), started));
+					sinceCheckpoint = 0;
+				}
+			}
+			writer.flush();
+		} catch (IOException | RuntimeException e) {
+			if(checkpoints == null) {
+				written.delete();
+			}
+			throw e;
+		}
+
+		Files.move(written.toPath(), toWriteTo.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		if(checkpoints != null) {
+			checkpoints.clear(layout.getTable());
+		}
+		Metrics.global().table(layout.getTable()).written(System.nanoTime() - start, rows - (from == null ? 0 : from.getRows()), out.getBytesWritten(),
+				toWriteTo.length() - (from == null ? 0 : from.getFileBytes()));
+		return new ExportManifest.Entry(layout.getTable(), toWriteTo, rows, resumedBytes + out.getBytesWritten(), codec.getName());
+	}
+
+	/**
+	 * @param toWriteTo {@link File} being written.
+	 * @return the file rows are written to until the table is complete.
+	 */
+	public static File getPartialFile(File toWriteTo) {
+		return new File(toWriteTo.getPath() + ".tmp");
+	}
+
+	private static <T> Column<T> column(TableLayout<T> layout, String header) {
+		for(Column<T> column : layout.getColumns()) {
+			if(column.getHeader().equals(header)) {
+				return column;
+			}
+		}
+		throw new IllegalArgumentException(layout.getTable() + " has no column " + header);
+	}
+}
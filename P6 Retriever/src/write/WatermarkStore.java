@@ -0,0 +1,108 @@
+package write;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Properties;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+/**
+ * Persists the high-water mark (latest LastUpdateDate exported) of each table between runs,
+ * so an incremental export only needs to request rows updated since the previous run.
+ * Marks are stored as P6 filter timestamps (yyyy-MM-dd HH:mm:ss) in a properties file.
+ */
+public class WatermarkStore {
+
+	private static final String WATERMARK_FORMAT = "%04d-%02d-%02d %02d:%02d:%02d";
+
+	/**
+	 * Taken off the start of a read for its mark, covering a difference between this machine's clock and the server's
+	 * and updates still being committed when the read started.
+	 */
+	public static final long START_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	private final File file;
+	private final Properties marks = new Properties();
+
+	/**
+	 * Constructor, loads any marks already saved to the file.
+	 * @param file properties {@link File} the marks are kept in.
+	 * @throws IOException if the file exists but can not be read.
+	 */
+	public WatermarkStore(File file) throws IOException {
+		this.file = file;
+		if(file.exists()) {
+			try (InputStream in = new FileInputStream(file)) {
+				marks.load(in);
+			}
+		}
+	}
+
+	/**
+	 * @param table name of the table.
+	 * @return the table's mark, or null if the table has not been exported before.
+	 */
+	public synchronized String get(String table) {
+		return marks.getProperty(table);
+	}
+
+	/**
+	 * Sets the mark for a table and saves the file. Should only be called once the table has been written successfully.
+	 * @param table name of the table.
+	 * @param mark new high-water mark.
+	 * @throws IOException if the file can not be written.
+	 */
+	public synchronized void put(String table, String mark) throws IOException {
+		marks.setProperty(table, mark);
+		File tmp = new File(file.getPath() + ".tmp");
+		try (OutputStream out = new FileOutputStream(tmp)) {
+			marks.store(out, "P6 export high-water marks (LastUpdateDate)");
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Formats a LastUpdateDate as a mark. The server's own field values are used so no time zone conversion takes place.
+	 * @param date LastUpdateDate of a record.
+	 * @return mark in the form yyyy-MM-dd HH:mm:ss
+	 */
+	public static String format(XMLGregorianCalendar date) {
+		return String.format(WATERMARK_FORMAT, date.getYear(), date.getMonth(), date.getDay(),
+				date.getHour(), date.getMinute(), date.getSecond());
+	}
+
+	/**
+	 * Gives the mark for a read from when it started rather than the latest record it saw: a record updated while a long read is under way
+	 * can be behind it in key order, so missed by the read and dated before its latest record. The start, less {@link #START_MARGIN_MILLIS},
+	 * is given in the time zone of the server's dates, or this machine's if they have none, and never after the latest record read
+	 * in case this machine's clock is ahead. Records updated since are read again by the next run, which is harmless once merged.
+	 * @param startMillis time the read started, from {@link System#currentTimeMillis()}.
+	 * @param latest latest LastUpdateDate read.
+	 * @return mark in the form yyyy-MM-dd HH:mm:ss
+	 */
+	public static String startOf(long startMillis, XMLGregorianCalendar latest) {
+		TimeZone zone = TimeZone.getDefault();
+		if(latest.getTimezone() != DatatypeConstants.FIELD_UNDEFINED) {
+			zone = new SimpleTimeZone((int)TimeUnit.MINUTES.toMillis(latest.getTimezone()), "P6");
+		}
+		Calendar start = new GregorianCalendar(zone);
+		start.setTimeInMillis(startMillis - START_MARGIN_MILLIS);
+		String mark = String.format(WATERMARK_FORMAT, start.get(Calendar.YEAR), start.get(Calendar.MONTH) + 1, start.get(Calendar.DAY_OF_MONTH),
+				start.get(Calendar.HOUR_OF_DAY), start.get(Calendar.MINUTE), start.get(Calendar.SECOND));
+		String latestMark = format(latest);
+		// Fixed width, so the earlier mark sorts first
+		return mark.compareTo(latestMark) <= 0 ? mark : latestMark;
+	}
+}
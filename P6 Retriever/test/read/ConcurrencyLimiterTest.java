@@ -0,0 +1,48 @@
+package read;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * A reader of the same host with other settings doesn't throw away the limit learned by the readers before it.
+ */
+public class ConcurrencyLimiterTest {
+
+	@Test
+	public void newSettingsKeepTheLearnedLimitUpToTheirCap() throws Exception {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimit(4, 16));
+		grow(limiter, 10);
+
+		limiter.update(new ConcurrencyLimit(2, 32));
+		assertEquals(10, limiter.getLimit());
+		limiter.update(new ConcurrencyLimit(2, 6));
+		assertEquals(6, limiter.getLimit());
+	}
+
+	@Test
+	public void fixedSettingsReplaceTheLimit() throws Exception {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimit(4, 16));
+		grow(limiter, 10);
+
+		limiter.update(ConcurrencyLimit.fixed(3));
+		assertEquals(3, limiter.getLimit());
+		limiter.update(new ConcurrencyLimit(2, 16));
+		assertEquals(3, limiter.getLimit());
+	}
+
+	/**
+	 * Keeps the limiter saturated with calls at the same latency until the limit reaches the given value.
+	 */
+	private static void grow(ConcurrencyLimiter limiter, int to) throws Exception {
+		while(limiter.getLimit() < to) {
+			while(limiter.tryAcquire(0)) {
+				// Fill the limit
+			}
+			limiter.succeeded("readResourceHours", 100000, 100);
+		}
+		while(limiter.getInFlight() > 0) {
+			limiter.succeeded("readResourceHours", 100000, 100);
+		}
+	}
+}
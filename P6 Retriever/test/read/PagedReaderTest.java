@@ -0,0 +1,104 @@
+package read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Gaps in the keys, however wide, cost a few reads of the key field rather than a read per empty window.
+ */
+public class PagedReaderTest {
+
+	private static final int PAGE_SIZE = 10;
+
+	@Test
+	public void crossesAGapOfManyPages() throws Exception {
+		KeySource table = new KeySource();
+		table.add(0, 25);
+		// A gap of about 100000 pages
+		table.add(1000000, 1000025);
+		PagedReader<Integer> reader = new PagedReader<>("ResourceHourService", "ObjectId", PAGE_SIZE, null, table);
+		List<Integer> keys = new ArrayList<>();
+		while(reader.hasNext()) {
+			keys.add(reader.next());
+		}
+
+		assertEquals(table.keys, keys);
+		assertEquals(50, reader.getRecordsFetched());
+		// 6 pages, and doubling ranges across the gap and from the last key to the largest int, about 17 and 28 of them
+		assertTrue(table.reads + " reads", table.reads < 60);
+		// Each range holds no more keys than the gap it follows
+		assertTrue(table.largestKeyRead + " keys in one read", table.largestKeyRead <= 25);
+	}
+
+	@Test
+	public void keysAfterAGapStartTheNextPage() throws Exception {
+		KeySource table = new KeySource();
+		table.add(3, 5);
+		table.add(500, 530);
+		PagedReader<Integer> reader = new PagedReader<>("ResourceHourService", "ObjectId", PAGE_SIZE, null, table);
+		for(int key = 3; key < 5; key++) {
+			assertEquals(Integer.valueOf(key), reader.next());
+		}
+		// The window after the gap starts at its first key rather than on a page boundary
+		for(int key = 500; key < 530; key++) {
+			assertEquals(Integer.valueOf(key), reader.next());
+		}
+		assertFalse(reader.hasNext());
+	}
+
+	@Test
+	public void emptyTableEnds() throws Exception {
+		KeySource table = new KeySource();
+		PagedReader<Integer> reader = new PagedReader<>("ResourceHourService", "ObjectId", PAGE_SIZE, null, table);
+		assertFalse(reader.hasNext());
+		assertTrue(table.reads + " reads", table.reads < 40);
+	}
+
+	/**
+	 * A table of keys only, answering the ranges the reader asks for.
+	 */
+	private static class KeySource implements PagedReader.Source<Integer> {
+
+		private static final Pattern RANGE = Pattern.compile("ObjectId >= (\\d+) and ObjectId < (\\d+)");
+
+		private final List<Integer> keys = new ArrayList<>();
+		private int reads;
+		private int largestKeyRead;
+
+		void add(int from, int to) {
+			for(int key = from; key < to; key++) {
+				keys.add(key);
+			}
+		}
+
+		public List<Integer> read(String filter, String orderBy, boolean keyOnly) {
+			reads++;
+			Matcher range = RANGE.matcher(filter);
+			assertTrue(filter, range.matches());
+			long from = Long.parseLong(range.group(1));
+			long to = Long.parseLong(range.group(2));
+			List<Integer> matching = new ArrayList<>();
+			for(Integer key : keys) {
+				if(key >= from && key < to) {
+					matching.add(key);
+				}
+			}
+			if(keyOnly) {
+				largestKeyRead = Math.max(largestKeyRead, matching.size());
+			}
+			return matching;
+		}
+
+		public int key(Integer record) {
+			return record;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Partitions are merged in key order as they are read, each reading no more than about a page ahead of the merge.
+ */
+public class PartitionedReaderTest {
+
+	private static final int PAGE_SIZE = 100;
+
+	@Test
+	public void mergesPartitionsInKeyOrder() throws Exception {
+		// Every 7th record has no project, so gets a partition of its own
+		TableSource table = new TableSource(10000, 4);
+		PartitionedReader<Row> reader = new PartitionedReader<>("ResourceHourService", Partitioning.PROJECT, "ObjectId", 4, null, PAGE_SIZE, table);
+		int previous = -1;
+		int records = 0;
+		while(reader.hasNext()) {
+			Row row = reader.next();
+			assertTrue("Key " + row.key + " after " + previous, row.key > previous);
+			previous = row.key;
+			records++;
+		}
+		assertEquals(10000, records);
+		assertNotNull(reader.getReport());
+		assertEquals(4, reader.getReport().getPartitions().size());
+		assertEquals(10000, reader.getReport().getRecords());
+	}
+
+	@Test
+	public void sparsePartitionsReadWholePages() throws Exception {
+		TableSource table = new TableSource(10000, 4);
+		PartitionedReader<Row> reader = new PartitionedReader<>("ResourceHourService", Partitioning.PROJECT, "ObjectId", 4, null, PAGE_SIZE, table);
+		assertEquals(10000, reader.read().size());
+		// 100 pages of records, where windows of one page of keys would take 400
+		int partitionReads = table.reads.get() - table.planReads;
+		assertTrue(partitionReads + " reads", partitionReads < 200);
+	}
+
+	@Test
+	public void planHoldsBoundedCountsOfKeysReadInPages() throws Exception {
+		// One partition value per record, far more than the plan counts separately
+		TableSource table = new TableSource(30000, 4);
+		table.partitionByKey = true;
+		PartitionedReader<Row> reader = new PartitionedReader<>("ResourceHourService", Partitioning.OBJECT_ID, "ObjectId", 4, null, PAGE_SIZE, table);
+		assertEquals(30000, reader.read().size());
+		assertTrue(table.largestPlanRead + " keys in one read", table.largestPlanRead <= 10 * PAGE_SIZE);
+		assertTrue(table.planReads + " reads", table.planReads > 1);
+		assertEquals(4, reader.getReport().getPartitions().size());
+		for(PartitionReport.Partition partition : reader.getReport().getPartitions()) {
+			assertTrue(partition.getRecords() + " records", Math.abs(partition.getRecords() - 7500) <= 750);
+		}
+	}
+
+	@Test
+	public void readsAtMostAPageAhead() throws Exception {
+		TableSource table = new TableSource(10000, 4);
+		PartitionedReader<Row> reader = new PartitionedReader<>("ResourceHourService", Partitioning.PROJECT, "ObjectId", 4, null, PAGE_SIZE, table);
+		try {
+			reader.next();
+			Thread.sleep(500);
+			// Each partition holds its queue, the page it is putting into it and the record it is blocked on
+			assertTrue(reader.getRecordsFetched() + " fetched", reader.getRecordsFetched() <= 4 * (2 * PAGE_SIZE + 1) + 1);
+			assertNull(reader.getReport());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void failedPartitionFailsTheRead() throws Exception {
+		TableSource table = new TableSource(10000, 4);
+		table.failWhere = "ProjectObjectId > 1";
+		PartitionedReader<Row> reader = new PartitionedReader<>("ResourceHourService", Partitioning.PROJECT, "ObjectId", 4, null, PAGE_SIZE, table);
+		try {
+			while(reader.hasNext()) {
+				reader.next();
+			}
+			fail("Read completed");
+		} catch (P6ReadException e) {
+			assertEquals("ResourceHourService", e.getService());
+			assertFalse(e.isTransient());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void failureIsJudgedByTheReadersPolicy() throws Exception {
+		TableSource table = new TableSource(10000, 4);
+		table.failWhere = "ProjectObjectId > 1";
+		// Treats every failure as transient, where the default policy would not count an IllegalStateException
+		RetryPolicy retryEverything = new RetryPolicy(2, 0, 0) {
+			@Override
+			public boolean isRetryable(Throwable failure) {
+				return true;
+			}
+		};
+		PartitionedReader<Row> reader = new PartitionedReader<>("ResourceHourService", Partitioning.PROJECT, "ObjectId", 4, null, PAGE_SIZE, table)
+				.classifyFailures(retryEverything);
+		try {
+			reader.read();
+			fail("Read completed");
+		} catch (P6ReadException e) {
+			assertTrue(e.isTransient());
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static class Row {
+		private final int key;
+		private final Integer project;
+
+		Row(int key, Integer project) {
+			this.key = key;
+			this.project = project;
+		}
+	}
+
+	/**
+	 * An in-memory table evaluating the simple filters the readers send: clauses joined by and, in any parentheses.
+	 */
+	private static class TableSource implements PartitionedReader.Source<Row> {
+
+		private final List<Row> rows = new ArrayList<>();
+		private final AtomicInteger reads = new AtomicInteger();
+		private volatile String failWhere;
+		private volatile boolean partitionByKey;
+		// Reads before the first whole record is read are planning
+		private boolean partitionsStarted;
+		private int planReads;
+		private int largestPlanRead;
+
+		TableSource(int size, int projects) {
+			for(int key = 0; key < size; key++) {
+				rows.add(new Row(key, key % 7 == 0 ? null : Integer.valueOf(key % projects)));
+			}
+		}
+
+		public List<Row> read(String filter, String orderBy, boolean partitionFieldOnly) throws Exception {
+			reads.incrementAndGet();
+			if(failWhere != null && filter != null && filter.contains(failWhere) && filter.contains("ObjectId >=")) {
+				throw new IllegalStateException("Server unavailable");
+			}
+			List<Row> matching = new ArrayList<>();
+			for(Row row : rows) {
+				if(filter == null || matches(row, filter)) {
+					matching.add(row);
+				}
+			}
+			synchronized(this) {
+				partitionsStarted |= !partitionFieldOnly;
+				if(!partitionsStarted) {
+					planReads++;
+					largestPlanRead = Math.max(largestPlanRead, matching.size());
+				}
+			}
+			return matching;
+		}
+
+		public Integer partitionKey(Row record) {
+			return partitionByKey ? Integer.valueOf(record.key) : record.project;
+		}
+
+		public int key(Row record) {
+			return record.key;
+		}
+
+		private static boolean matches(Row row, String filter) {
+			for(String clause : filter.replace("(", "").replace(")", "").split(" and ")) {
+				String [] parts = clause.trim().split(" ", 3);
+				Integer value = parts[0].equals("ObjectId") ? Integer.valueOf(row.key) : row.project;
+				if(parts[1].equals("is")) {
+					if((value == null) != parts[2].equals("null")) {
+						return false;
+					}
+					continue;
+				}
+				if(value == null) {
+					return false;
+				}
+				long operand = Long.parseLong(parts[2]);
+				boolean match;
+				switch(parts[1]) {
+				case ">":
+					match = value > operand;
+					break;
+				case ">=":
+					match = value >= operand;
+					break;
+				case "<":
+					match = value < operand;
+					break;
+				default:
+					match = value <= operand;
+				}
+				if(!match) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
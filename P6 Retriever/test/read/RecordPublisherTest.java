@@ -0,0 +1,304 @@
+package read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * A subscriber is sent no more records than it has asked for, and nothing at all once it has cancelled or thrown.
+ */
+public class RecordPublisherTest {
+
+	private static final int RECORDS = 10;
+
+	@Test
+	public void requestLimitsRecords() {
+		Source source = new Source(RECORDS);
+		Recorder subscriber = subscribe(source, new DirectExecutor());
+
+		subscriber.subscription.request(3);
+		assertEquals(3, subscriber.received.size());
+		assertEquals(3, source.taken);
+		assertFalse(subscriber.completed);
+
+		subscriber.subscription.request(RECORDS - 3);
+		assertEquals(RECORDS, subscriber.received.size());
+		// Completed with no demand left, as the source has no more
+		assertTrue(subscriber.completed);
+		assertNull(subscriber.failure);
+		assertEquals(Integer.valueOf(0), subscriber.received.get(0));
+		assertEquals(Integer.valueOf(RECORDS - 1), subscriber.received.get(RECORDS - 1));
+	}
+
+	@Test
+	public void completesOnceTheLastRecordIsSent() {
+		Source source = new Source(RECORDS);
+		Recorder subscriber = subscribe(source, new DirectExecutor());
+		subscriber.subscription.request(RECORDS - 1);
+		assertEquals(RECORDS - 1, source.taken);
+		assertFalse(subscriber.completed);
+		subscriber.subscription.request(1);
+		assertTrue(subscriber.completed);
+	}
+
+	@Test
+	public void sourceErrorIsSignalledAndRethrown() {
+		Source source = new Source(RECORDS);
+		source.failAt = 4;
+		Recorder subscriber = subscribe(source, new DirectExecutor());
+		try {
+			subscriber.subscription.request(RECORDS);
+			fail("Error swallowed");
+		} catch (OutOfMemoryError e) {
+			assertSame(e, subscriber.failure);
+		}
+		assertEquals(4, subscriber.received.size());
+		assertFalse(subscriber.completed);
+		assertTrue(source.closed);
+	}
+
+	@Test
+	public void unboundedDemandDoesNotOverflow() {
+		Source source = new Source(RECORDS);
+		final Recorder subscriber = new Recorder() {
+			@Override
+			public void onNext(Integer record) {
+				super.onNext(record);
+				// Added to an unbounded demand, which must stay unbounded rather than wrap negative
+				subscription.request(Long.MAX_VALUE);
+			}
+		};
+		new RecordPublisher<Integer>("ResourceHourService", source, new DirectExecutor()).subscribe(subscriber);
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertEquals(RECORDS, subscriber.received.size());
+		assertTrue(subscriber.completed);
+	}
+
+	@Test
+	public void demandAddsUpToLongMaxValue() {
+		Source source = new Source(RECORDS);
+		Recorder subscriber = subscribe(source, new DirectExecutor());
+		subscriber.subscription.request(Long.MAX_VALUE - 1);
+		subscriber.subscription.request(Long.MAX_VALUE - 1);
+		assertEquals(RECORDS, subscriber.received.size());
+		assertTrue(subscriber.completed);
+	}
+
+	@Test
+	public void cancelDuringDrainStopsRecords() {
+		Source source = new Source(RECORDS);
+		final Recorder subscriber = new Recorder() {
+			@Override
+			public void onNext(Integer record) {
+				super.onNext(record);
+				if(received.size() == 3) {
+					subscription.cancel();
+				}
+			}
+		};
+		new RecordPublisher<Integer>("ResourceHourService", source, new DirectExecutor()).subscribe(subscriber);
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertEquals(3, subscriber.received.size());
+		assertEquals(3, source.taken);
+		assertFalse(subscriber.completed);
+		assertNull(subscriber.failure);
+		assertTrue(source.closed);
+	}
+
+	@Test
+	public void nothingAfterCancel() {
+		Source source = new Source(RECORDS);
+		Recorder subscriber = subscribe(source, new DirectExecutor());
+		subscriber.subscription.request(2);
+		subscriber.subscription.cancel();
+		subscriber.subscription.request(5);
+		assertEquals(2, subscriber.received.size());
+		assertFalse(subscriber.completed);
+		assertNull(subscriber.failure);
+	}
+
+	@Test
+	public void cancelBeforeRequestNeverReads() {
+		Source source = new Source(RECORDS);
+		Recorder subscriber = subscribe(source, new DirectExecutor());
+		subscriber.subscription.cancel();
+		subscriber.subscription.request(5);
+		assertEquals(0, subscriber.received.size());
+		assertEquals(0, source.started);
+	}
+
+	@Test
+	public void invalidRequestFails() {
+		Recorder subscriber = subscribe(new Source(RECORDS), new DirectExecutor());
+		subscriber.subscription.request(0);
+		assertTrue(String.valueOf(subscriber.failure), subscriber.failure instanceof IllegalArgumentException);
+		subscriber.subscription.request(5);
+		assertEquals(0, subscriber.received.size());
+	}
+
+	@Test
+	public void throwingSubscriberIsCancelled() {
+		Source source = new Source(RECORDS);
+		DirectExecutor executor = new DirectExecutor();
+		final Recorder subscriber = new Recorder() {
+			@Override
+			public void onNext(Integer record) {
+				super.onNext(record);
+				if(received.size() == 2) {
+					throw new IllegalStateException("Subscriber failed");
+				}
+			}
+		};
+		new RecordPublisher<Integer>("ResourceHourService", source, executor).subscribe(subscriber);
+		subscriber.subscription.request(5);
+		assertEquals(2, subscriber.received.size());
+		assertFalse(subscriber.completed);
+		assertNull(subscriber.failure);
+		assertTrue(source.closed);
+
+		// The work count is back to zero, so a later signal is run rather than left waiting on a drain that ended
+		int runs = executor.runs;
+		subscriber.subscription.request(5);
+		assertEquals(runs + 1, executor.runs);
+		assertEquals(2, subscriber.received.size());
+	}
+
+	@Test
+	public void requestsFromOtherThreadsAreNotLost() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			int records = 10000;
+			final CountDownLatch done = new CountDownLatch(1);
+			final Recorder subscriber = new Recorder() {
+				@Override
+				public synchronized void onComplete() {
+					super.onComplete();
+					done.countDown();
+				}
+			};
+			new RecordPublisher<Integer>("ResourceHourService", new Source(records), executor).subscribe(subscriber);
+			ExecutorService requesters = Executors.newFixedThreadPool(4);
+			for(int i = 0; i < records + 1; i++) {
+				requesters.execute(new Runnable() {
+					public void run() {
+						subscriber.subscription.request(1);
+					}
+				});
+			}
+			requesters.shutdown();
+			assertTrue("Not completed", done.await(10, TimeUnit.SECONDS));
+			assertEquals(records, subscriber.received.size());
+			for(int i = 0; i < records; i++) {
+				assertEquals(Integer.valueOf(i), subscriber.received.get(i));
+			}
+			assertNull(subscriber.failure);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Recorder subscribe(Source source, Executor executor) {
+		Recorder subscriber = new Recorder();
+		new RecordPublisher<Integer>("ResourceHourService", source, executor).subscribe(subscriber);
+		return subscriber;
+	}
+
+	/**
+	 * Runs each drain on the calling thread, so every signal has been sent when request or cancel returns.
+	 */
+	private static class DirectExecutor implements Executor {
+		private int runs;
+
+		public void execute(Runnable command) {
+			runs++;
+			command.run();
+		}
+	}
+
+	/**
+	 * Reads 0 to size - 1, counting the records taken, and failing with an {@link Error} at failAt if it is set.
+	 */
+	private static class Source implements Callable<Iterator<Integer>> {
+		private final int size;
+		private volatile int failAt = -1;
+		private volatile int started;
+		private volatile int taken;
+		private volatile boolean closed;
+
+		Source(int size) {
+			this.size = size;
+		}
+
+		public Iterator<Integer> call() {
+			started++;
+			return new Records();
+		}
+
+		private class Records implements Iterator<Integer>, Closeable {
+			private int next;
+
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			public Integer next() {
+				if(next == failAt) {
+					throw new OutOfMemoryError("Java heap space");
+				}
+				taken++;
+				return next++;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			public void close() {
+				closed = true;
+			}
+		}
+	}
+
+	private static class Recorder implements Flow.Subscriber<Integer> {
+		protected final List<Integer> received = new ArrayList<>();
+		protected volatile Flow.Subscription subscription;
+		private volatile boolean completed;
+		private volatile Throwable failure;
+
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		public synchronized void onNext(Integer record) {
+			if(completed || failure != null) {
+				throw new AssertionError("Record after the end");
+			}
+			received.add(record);
+		}
+
+		public synchronized void onError(Throwable throwable) {
+			failure = throwable;
+		}
+
+		public synchronized void onComplete() {
+			completed = true;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.ws.soap.SOAPFaultException;
+
+import org.junit.Test;
+
+import com.primavera.ws.p6.resourcehour.ResourceHour;
+
+import security.SessionAuthenticator;
+
+/**
+ * Canned P6 responses decoded without a server: records are passed on in order and a fault is thrown as a port would throw it.
+ */
+public class ResponseDecoderTest {
+
+	private static final String NS = "http://xmlns.oracle.com/Primavera/P6/WS/ResourceHour/V1";
+	private static final String WS_SECURITY_NS = "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd";
+
+	private static final String RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>"
+			+ "<ReadResourceHoursResponse xmlns=\"" + NS + "\">"
+			+ "<ResourceHour><ObjectId>101</ObjectId><ResourceObjectId>7</ResourceObjectId><Status>Approved</Status></ResourceHour>"
+			+ "<ResourceHour><ObjectId>102</ObjectId><ResourceObjectId>7</ResourceObjectId><Status>Submitted</Status></ResourceHour>"
+			+ "<ResourceHour><ObjectId>103</ObjectId><ResourceObjectId>8</ResourceObjectId><Status>Active</Status></ResourceHour>"
+			+ "</ReadResourceHoursResponse></soapenv:Body></soapenv:Envelope>";
+
+	@Test
+	public void decodesEveryRecordInOrder() throws Exception {
+		List<ResourceHour> records = new ArrayList<>();
+		int decoded = decoder().decode(stream(RESPONSE), collect(records));
+		assertEquals(3, decoded);
+		assertEquals(3, records.size());
+		assertEquals(Integer.valueOf(101), records.get(0).getObjectId());
+		assertEquals(Integer.valueOf(7), records.get(1).getResourceObjectId());
+		assertEquals("Active", records.get(2).getStatus());
+	}
+
+	@Test
+	public void emptyResponseHasNoRecords() throws Exception {
+		String empty = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>"
+				+ "<ReadResourceHoursResponse xmlns=\"" + NS + "\"/></soapenv:Body></soapenv:Envelope>";
+		List<ResourceHour> records = new ArrayList<>();
+		assertEquals(0, decoder().decode(stream(empty), collect(records)));
+		assertTrue(records.isEmpty());
+	}
+
+	@Test
+	public void soap11FaultIsThrownWithItsCode() throws Exception {
+		String fault = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"><soapenv:Body>"
+				+ "<soapenv:Fault xmlns:wsse=\"" + WS_SECURITY_NS + "\"><faultcode>wsse:FailedAuthentication</faultcode>"
+				+ "<faultstring> The security token could not be authenticated </faultstring><detail><IntegrationFault/></detail>"
+				+ "</soapenv:Fault></soapenv:Body></soapenv:Envelope>";
+		try {
+			decoder().decode(stream(fault), collect(new ArrayList<ResourceHour>()));
+			fail("No fault thrown");
+		} catch (SOAPFaultException e) {
+			assertEquals(new QName(WS_SECURITY_NS, "FailedAuthentication"), e.getFault().getFaultCodeAsQName());
+			assertEquals("The security token could not be authenticated", e.getFault().getFaultString());
+			assertTrue(SessionAuthenticator.isSessionFault(e));
+		}
+	}
+
+	@Test
+	public void soap12FaultKeepsTheInnermostCode() throws Exception {
+		String fault = "<env:Envelope xmlns:env=\"http://www.w3.org/2003/05/soap-envelope\"><env:Body><env:Fault>"
+				+ "<env:Code><env:Value>env:Receiver</env:Value><env:Subcode><env:Value xmlns:p6=\"" + NS + "\">p6:ReadFailed</env:Value></env:Subcode></env:Code>"
+				+ "<env:Reason><env:Text xml:lang=\"en\">Filter is not valid</env:Text></env:Reason>"
+				+ "</env:Fault></env:Body></env:Envelope>";
+		try {
+			decoder().decode(stream(fault), collect(new ArrayList<ResourceHour>()));
+			fail("No fault thrown");
+		} catch (SOAPFaultException e) {
+			assertEquals(new QName(NS, "ReadFailed"), e.getFault().getFaultCodeAsQName());
+			assertEquals("Filter is not valid", e.getFault().getFaultString());
+		}
+	}
+
+	@Test
+	public void faultAfterRecordsKeepsThosePassedOn() throws Exception {
+		String fault = RESPONSE.replace("</ReadResourceHoursResponse>", "</ReadResourceHoursResponse>"
+				+ "<soapenv:Fault><faultcode>soapenv:Server</faultcode><faultstring>Read timed out</faultstring></soapenv:Fault>");
+		List<ResourceHour> records = new ArrayList<>();
+		try {
+			decoder().decode(stream(fault), collect(records));
+			fail("No fault thrown");
+		} catch (SOAPFaultException e) {
+			assertEquals(new QName("http://schemas.xmlsoap.org/soap/envelope/", "Server"), e.getFault().getFaultCodeAsQName());
+			assertEquals(3, records.size());
+		}
+	}
+
+	private static ResponseDecoder<ResourceHour> decoder() throws Exception {
+		return new ResponseDecoder<>(ResourceHour.class, new QName(NS, "ResourceHour"));
+	}
+
+	private static InputStream stream(String response) throws Exception {
+		return new ByteArrayInputStream(response.getBytes("UTF-8"));
+	}
+
+	private static RecordCallback<ResourceHour> collect(final List<ResourceHour> records) {
+		return new RecordCallback<ResourceHour>() {
+			public void accept(ResourceHour record) {
+				records.add(record);
+			}
+		};
+	}
+}
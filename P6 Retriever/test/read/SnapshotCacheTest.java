@@ -0,0 +1,111 @@
+package read;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.primavera.ws.p6.resourcehour.ResourceHour;
+
+import write.Column;
+import write.CompressionCodec;
+import write.SheetOutputter;
+import write.TableLayouts;
+
+/**
+ * A table served from a snapshot must export exactly as it did when read from P6.
+ */
+public class SnapshotCacheTest {
+
+	private File directory;
+	private DatatypeFactory dates;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("snapshots").toFile();
+		dates = DatatypeFactory.newInstance();
+	}
+
+	@After
+	public void tearDown() {
+		for(File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void restoredDatesPrintAsSent() throws Exception {
+		final List<ResourceHour> live = Arrays.asList(
+				resourceHour(1, "2024-03-04T00:00:00", "2024-03-05T10:15:30-05:00"),
+				resourceHour(2, "2024-03-04T08:30:00Z", "2024-03-05T10:15:30.25+01:00"),
+				resourceHour(3, "2024-03-04T23:59:59.999", null));
+		SnapshotCache cache = new SnapshotCache(directory, 1, TimeUnit.HOURS);
+		cache.read(SnapshotTables.RESOURCE_HOUR, new Callable<List<ResourceHour>>() {
+			public List<ResourceHour> call() {
+				return live;
+			}
+		});
+		List<ResourceHour> cached = cache.read(SnapshotTables.RESOURCE_HOUR, new Callable<List<ResourceHour>>() {
+			public List<ResourceHour> call() {
+				throw new AssertionError("Read from P6 while the snapshot is fresh");
+			}
+		});
+
+		assertEquals(live.size(), cached.size());
+		for(int row = 0; row < live.size(); row++) {
+			assertArrayEquals(text(live.get(row)), text(cached.get(row)));
+		}
+
+		File liveCsv = new File(directory, "live.csv");
+		File cachedCsv = new File(directory, "cached.csv");
+		SheetOutputter.output(TableLayouts.RESOURCE_HOUR, live.iterator(), liveCsv, CompressionCodec.NONE);
+		SheetOutputter.output(TableLayouts.RESOURCE_HOUR, cached.iterator(), cachedCsv, CompressionCodec.NONE);
+		assertEquals(new String(Files.readAllBytes(liveCsv.toPath()), "UTF-8"), new String(Files.readAllBytes(cachedCsv.toPath()), "UTF-8"));
+	}
+
+	private ResourceHour resourceHour(int objectId, String date, String lastUpdateDate) {
+		ResourceHour record = SnapshotTables.RESOURCE_HOUR.newRecord();
+		record.setObjectId(objectId);
+		record.setResourceObjectId(objectId * 10);
+		record.setStatus("Approved");
+		column("APPROVED_HOURS").set(record, Double.valueOf(7.5));
+		column("DATE").set(record, date(date));
+		column("LAST_UPDATE_DATE").set(record, date(lastUpdateDate));
+		return record;
+	}
+
+	private XMLGregorianCalendar date(String lexical) {
+		return lexical == null ? null : dates.newXMLGregorianCalendar(lexical);
+	}
+
+	private static Column<ResourceHour> column(String header) {
+		for(Column<ResourceHour> column : TableLayouts.RESOURCE_HOUR.getColumns()) {
+			if(column.getHeader().equals(header)) {
+				return column;
+			}
+		}
+		throw new IllegalArgumentException(header);
+	}
+
+	private static String [] text(ResourceHour record) {
+		List<Column<ResourceHour>> columns = TableLayouts.RESOURCE_HOUR.getColumns();
+		String [] text = new String [columns.size()];
+		for(int i = 0; i < text.length; i++) {
+			text[i] = columns.get(i).text(record);
+		}
+		return text;
+	}
+}
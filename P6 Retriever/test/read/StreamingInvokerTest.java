@@ -0,0 +1,102 @@
+package read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.jws.WebMethod;
+import javax.jws.WebParam;
+import javax.jws.WebResult;
+import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.ws.RequestWrapper;
+
+import org.junit.Test;
+
+import com.primavera.ws.p6.resourcehour.ResourceHour;
+import com.primavera.ws.p6.resourcehour.ResourceHourFieldType;
+
+/**
+ * A streamed read sends the request its port would, built from the operation's annotations.
+ */
+public class StreamingInvokerTest {
+
+	private static final String NS = "http://xmlns.oracle.com/Primavera/P6/WS/ResourceHour/V1";
+
+	/**
+	 * Annotated as the generated ResourceHourPortType is.
+	 */
+	interface ResourceHourReads {
+		@WebMethod(operationName = "ReadResourceHours", action = "urn:ReadResourceHours")
+		@WebResult(name = "ResourceHour", targetNamespace = NS)
+		@RequestWrapper(localName = "ReadResourceHours", targetNamespace = NS)
+		List<ResourceHour> readResourceHours(@WebParam(name = "Field", targetNamespace = NS) List<ResourceHourFieldType> field,
+				@WebParam(name = "Filter", targetNamespace = NS) String filter,
+				@WebParam(name = "OrderBy", targetNamespace = NS) String orderBy);
+
+		List<ResourceHour> notAnOperation(String filter);
+	}
+
+	@Test
+	public void requestHoldsEachArgument() throws Exception {
+		StreamingInvoker.Operation operation = new StreamingInvoker.Operation(ResourceHourReads.class, "readResourceHours", ResourceHour.class);
+		SOAPMessage request = operation.request(new Object [] {
+				Arrays.asList(ResourceHourFieldType.OBJECT_ID, ResourceHourFieldType.STATUS), "Status = 'Approved'", null});
+
+		List<String> elements = bodyElements(request);
+		// Each field is its own element, written as its value, and the null OrderBy is left out
+		assertEquals(Arrays.asList("ReadResourceHours", "Field=ObjectId", "Field=Status", "Filter=Status = 'Approved'"), elements);
+	}
+
+	@Test
+	public void wrongArgumentCountIsRefused() throws Exception {
+		StreamingInvoker.Operation operation = new StreamingInvoker.Operation(ResourceHourReads.class, "readResourceHours", ResourceHour.class);
+		try {
+			operation.request(new Object [] {null, "ObjectId > 0"});
+			fail("Request built");
+		} catch (IllegalArgumentException e) {
+			assertEquals("ReadResourceHours takes 3 arguments, given 2", e.getMessage());
+		}
+	}
+
+	@Test
+	public void unannotatedMethodIsRefused() throws Exception {
+		try {
+			new StreamingInvoker.Operation(ResourceHourReads.class, "notAnOperation", ResourceHour.class);
+			fail("Operation built");
+		} catch (IllegalArgumentException e) {
+			assertEquals("ResourceHourReads.notAnOperation is not a wrapped read operation", e.getMessage());
+		}
+	}
+
+	/**
+	 * @return each element inside the SOAP Body in the request namespace, as its local name, with =text where it has text.
+	 */
+	private static List<String> bodyElements(SOAPMessage message) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		message.writeTo(out);
+		XMLStreamReader xml = XMLInputFactory.newInstance().createXMLStreamReader(new ByteArrayInputStream(out.toByteArray()));
+		List<String> elements = new ArrayList<>();
+		int index = -1;
+		while(xml.hasNext()) {
+			int event = xml.next();
+			if(event == XMLStreamConstants.START_ELEMENT && NS.equals(xml.getNamespaceURI())) {
+				elements.add(xml.getLocalName());
+				index = elements.size() - 1;
+			}else if(event == XMLStreamConstants.CHARACTERS && index >= 0 && !xml.isWhiteSpace()) {
+				elements.set(index, elements.get(index) + "=" + xml.getText());
+			}else if(event == XMLStreamConstants.END_ELEMENT) {
+				index = -1;
+			}
+		}
+		xml.close();
+		return elements;
+	}
+}
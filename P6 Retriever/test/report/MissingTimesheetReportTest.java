@@ -0,0 +1,116 @@
+package report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.primavera.ws.p6.resource.Resource;
+import com.primavera.ws.p6.timesheet.Timesheet;
+import com.primavera.ws.p6.timesheetperiod.TimesheetPeriod;
+
+/**
+ * Every ended period is reported for each active resource from its creation, whether or not anyone filed for it.
+ */
+public class MissingTimesheetReportTest {
+
+	private DatatypeFactory dates;
+	private List<TimesheetPeriod> periods;
+	private long asOf;
+
+	@Before
+	public void setUp() throws Exception {
+		dates = DatatypeFactory.newInstance();
+		// Weekly periods 1 to 4, the fourth still open
+		periods = new ArrayList<>();
+		periods.add(period(3, "2024-01-15T00:00:00", "2024-01-21T23:59:59"));
+		periods.add(period(1, "2024-01-01T00:00:00", "2024-01-07T23:59:59"));
+		periods.add(period(2, "2024-01-08T00:00:00", "2024-01-14T23:59:59"));
+		periods.add(period(4, "2024-01-22T00:00:00", "2024-01-28T23:59:59"));
+		asOf = millis("2024-01-24T12:00:00");
+	}
+
+	@Test
+	public void reportsPeriodsNobodyFiledFor() {
+		List<MissingTimesheet> missing = MissingTimesheetReport.run(Arrays.asList(resource(10, true, true, null)),
+				Collections.<Timesheet>emptyList(), periods, MissingTimesheetReport.DEFAULT_SUBMITTED, asOf);
+		assertEquals(3, missing.size());
+		for(int p = 0; p < 3; p++) {
+			assertEquals(p + 1, missing.get(p).getTimesheetPeriodObjectId());
+			assertEquals(MissingTimesheetReport.MISSING, missing.get(p).getStatus());
+		}
+	}
+
+	@Test
+	public void reportsResourcesOnlyWhileActive() {
+		List<Resource> resources = Arrays.asList(
+				resource(10, true, false, null),
+				resource(11, false, true, null),
+				resource(12, true, true, "2024-01-10T09:00:00"));
+		List<MissingTimesheet> missing = MissingTimesheetReport.run(resources, Collections.<Timesheet>emptyList(), periods,
+				MissingTimesheetReport.DEFAULT_SUBMITTED, asOf);
+		// Created during period 2, so periods 2 and 3 only
+		assertEquals(2, missing.size());
+		for(MissingTimesheet row : missing) {
+			assertEquals(12, row.getResourceObjectId());
+		}
+		assertEquals(2, missing.get(0).getTimesheetPeriodObjectId());
+		assertEquals(3, missing.get(1).getTimesheetPeriodObjectId());
+	}
+
+	@Test
+	public void submittedStatusesAreConfigurable() {
+		List<Timesheet> timesheets = Arrays.asList(timesheet(10, 1, "Submitted"), timesheet(10, 2, "Active"), timesheet(10, 3, "Approved"));
+		List<MissingTimesheet> missing = MissingTimesheetReport.run(Arrays.asList(resource(10, true, true, null)), timesheets, periods,
+				Arrays.asList("Approved"), asOf);
+		assertEquals(2, missing.size());
+		assertEquals("Submitted", missing.get(0).getStatus());
+		assertEquals("Active", missing.get(1).getStatus());
+		assertTrue(MissingTimesheetReport.run(Arrays.asList(resource(10, true, true, null)), timesheets, periods,
+				Arrays.asList("Submitted", "Active", "Approved"), asOf).isEmpty());
+	}
+
+	private TimesheetPeriod period(int objectId, String start, String end) {
+		TimesheetPeriod period = new TimesheetPeriod();
+		period.setObjectId(objectId);
+		period.setStartDate(dates.newXMLGregorianCalendar(start));
+		period.setEndDate(dates.newXMLGregorianCalendar(end));
+		return period;
+	}
+
+	private Resource resource(int objectId, boolean useTimesheets, boolean active, String created) {
+		Resource resource = new Resource();
+		resource.setObjectId(objectId);
+		resource.setName("Resource " + objectId);
+		resource.setUseTimesheets(useTimesheets);
+		resource.setIsActive(active);
+		if(created != null) {
+			resource.setCreateDate(new JAXBElement<XMLGregorianCalendar>(new QName("CreateDate"), XMLGregorianCalendar.class,
+					dates.newXMLGregorianCalendar(created)));
+		}
+		return resource;
+	}
+
+	private static Timesheet timesheet(int resourceObjectId, int periodObjectId, String status) {
+		Timesheet timesheet = new Timesheet();
+		timesheet.setResourceObjectId(resourceObjectId);
+		timesheet.setTimesheetPeriodObjectId(periodObjectId);
+		timesheet.setStatus(status);
+		return timesheet;
+	}
+
+	private long millis(String date) {
+		return dates.newXMLGregorianCalendar(date).toGregorianCalendar().getTimeInMillis();
+	}
+}
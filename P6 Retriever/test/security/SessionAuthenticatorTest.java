@@ -0,0 +1,47 @@
+package security;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.xml.namespace.QName;
+import javax.xml.soap.SOAPFactory;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.http.HTTPException;
+import javax.xml.ws.soap.SOAPFaultException;
+
+import org.junit.Test;
+
+/**
+ * Only a 401 or an authentication fault code logs in again, whatever the words of other failures.
+ */
+public class SessionAuthenticatorTest {
+
+	private static final String WS_SECURITY_NS = "http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd";
+	private static final String SOAP_NS = "http://schemas.xmlsoap.org/soap/envelope/";
+
+	@Test
+	public void unauthorizedStatusIsASessionFault() {
+		assertTrue(SessionAuthenticator.isSessionFault(new HTTPException(401)));
+		assertTrue(SessionAuthenticator.isSessionFault(new WebServiceException("The server sent HTTP status code 401: Unauthorized")));
+		assertTrue(SessionAuthenticator.isSessionFault(new RuntimeException(new WebServiceException("The server sent HTTP status code 401: Unauthorized"))));
+		assertFalse(SessionAuthenticator.isSessionFault(new HTTPException(403)));
+		assertFalse(SessionAuthenticator.isSessionFault(new WebServiceException("The server sent HTTP status code 503: Service Unavailable")));
+	}
+
+	@Test
+	public void authenticationFaultCodeIsASessionFault() throws Exception {
+		assertTrue(SessionAuthenticator.isSessionFault(fault(new QName(WS_SECURITY_NS, "FailedAuthentication"), "Login failed")));
+		assertTrue(SessionAuthenticator.isSessionFault(fault(new QName(WS_SECURITY_NS, "InvalidSecurity"), "No session")));
+	}
+
+	@Test
+	public void wordingIsNotASessionFault() throws Exception {
+		assertFalse(SessionAuthenticator.isSessionFault(fault(new QName(SOAP_NS, "Server"), "Session 401 of project ended: user not logged in")));
+		assertFalse(SessionAuthenticator.isSessionFault(new WebServiceException("Read of 401 records failed")));
+		assertFalse(SessionAuthenticator.isSessionFault(new IllegalStateException("session closed")));
+	}
+
+	private static SOAPFaultException fault(QName code, String message) throws Exception {
+		return new SOAPFaultException(SOAPFactory.newInstance().createFault(message, code));
+	}
+}
@@ -0,0 +1,83 @@
+package write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A checkpoint is only resumed while its partial file, codec and age still match, otherwise it is dropped and the table exported again.
+ */
+public class CheckpointStoreTest {
+
+	private static final String TABLE = "ResourceHours";
+
+	private File directory;
+	private File file;
+	private File partial;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("checkpoints").toFile();
+		file = new File(directory, "checkpoints.properties");
+		partial = new File(directory, "ResourceHours.csv.gz.partial");
+		Files.write(partial.toPath(), new byte [1000]);
+	}
+
+	@After
+	public void tearDown() {
+		for(File written : directory.listFiles()) {
+			written.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void savedCheckpointIsResumed() throws Exception {
+		new CheckpointStore(file).put(TABLE, checkpoint(partial.length(), "gzip", System.currentTimeMillis()));
+		// Read back as the next run would
+		CheckpointStore.Checkpoint resumed = new CheckpointStore(file).resume(TABLE, partial, CompressionCodec.GZIP);
+		assertNotNull(resumed);
+		assertEquals(5000, resumed.getKey());
+		assertEquals(400, resumed.getRows());
+		assertEquals(partial.length(), resumed.getFileBytes());
+	}
+
+	@Test
+	public void staleCheckpointIsDropped() throws Exception {
+		CheckpointStore checkpoints = new CheckpointStore(file, TimeUnit.HOURS.toMillis(1));
+		checkpoints.put(TABLE, checkpoint(partial.length(), "gzip", System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+		assertNull(checkpoints.resume(TABLE, partial, CompressionCodec.GZIP));
+		assertNull(new CheckpointStore(file).get(TABLE));
+	}
+
+	@Test
+	public void checkpointOfAnotherCodecIsDropped() throws Exception {
+		CheckpointStore checkpoints = new CheckpointStore(file);
+		checkpoints.put(TABLE, checkpoint(partial.length(), "gzip", System.currentTimeMillis()));
+		assertNull(checkpoints.resume(TABLE, partial, CompressionCodec.NONE));
+		assertNull(checkpoints.get(TABLE));
+	}
+
+	@Test
+	public void checkpointPastTheEndOfThePartialFileIsDropped() throws Exception {
+		CheckpointStore checkpoints = new CheckpointStore(file);
+		checkpoints.put(TABLE, checkpoint(partial.length() + 1, "gzip", System.currentTimeMillis()));
+		assertNull(checkpoints.resume(TABLE, partial, CompressionCodec.GZIP));
+
+		checkpoints.put(TABLE, checkpoint(partial.length(), "gzip", System.currentTimeMillis()));
+		partial.delete();
+		assertNull(checkpoints.resume(TABLE, partial, CompressionCodec.GZIP));
+	}
+
+	private static CheckpointStore.Checkpoint checkpoint(long fileBytes, String codec, long started) {
+		return new CheckpointStore.Checkpoint(5000, 400, fileBytes, 20000, codec, started);
+	}
+}
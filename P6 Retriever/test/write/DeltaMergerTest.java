@@ -0,0 +1,99 @@
+package write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A delta replaces the rows of the previous export with the same key and appends the rest, or leaves the export as it was.
+ */
+public class DeltaMergerTest {
+
+	private static final String HEADER = "\"OBJECT_ID\",\"STATUS\",\"APPROVED_HOURS\"\n";
+
+	private File directory;
+	private File previous;
+	private File delta;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("deltas").toFile();
+		previous = new File(directory, "ResourceHours.csv.gz");
+		delta = new File(directory, "ResourceHours.csv.gz.delta");
+	}
+
+	@After
+	public void tearDown() {
+		for(File written : directory.listFiles()) {
+			written.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void replacesRowsByKeyAndAppendsNewOnes() throws Exception {
+		export(HEADER + row(1, "Approved", 8) + row(2, "Active", 0) + row(3, "Approved", 7.5));
+		write(delta, HEADER + row(4, "Active", 0) + row(2, "Approved", 6));
+
+		ExportManifest.Entry entry = DeltaMerger.merge("ResourceHours", previous, delta, CompressionCodec.GZIP, "OBJECT_ID");
+		assertEquals(4, entry.getRows());
+		assertEquals("gzip", entry.getCodec());
+		assertEquals(HEADER + row(1, "Approved", 8) + row(2, "Approved", 6) + row(3, "Approved", 7.5) + row(4, "Active", 0), read(previous));
+		assertEquals(read(previous).length(), entry.getBytes());
+		assertFalse(delta.exists());
+	}
+
+	@Test
+	public void mismatchedColumnsLeaveTheExport() throws Exception {
+		String exported = HEADER + row(1, "Approved", 8) + row(2, "Active", 0);
+		export(exported);
+		write(delta, "\"OBJECT_ID\",\"STATUS\"\n\"2\",\"Approved\"\n");
+		try {
+			DeltaMerger.merge("ResourceHours", previous, delta, CompressionCodec.GZIP, "OBJECT_ID");
+			fail("Merged");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Columns of"));
+		}
+		assertEquals(exported, read(previous));
+		assertTrue(delta.exists());
+		assertEquals(2, directory.list().length);
+	}
+
+	private static String row(int objectId, String status, double hours) {
+		return "\"" + objectId + "\",\"" + status + "\",\"" + hours + "\"\n";
+	}
+
+	private void export(String csv) throws Exception {
+		try (ExportOutputStream out = new ExportOutputStream(previous, CompressionCodec.GZIP)) {
+			out.write(csv.getBytes("UTF-8"));
+		}
+	}
+
+	private static void write(File file, String csv) throws Exception {
+		Files.write(file.toPath(), csv.getBytes("UTF-8"));
+	}
+
+	private static String read(File file) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (InputStream in = CompressionCodec.GZIP.decompress(new FileInputStream(file))) {
+			byte [] buffer = new byte [8192];
+			int read;
+			while((read = in.read(buffer)) > 0) {
+				bytes.write(buffer, 0, read);
+			}
+		}
+		return bytes.toString("UTF-8");
+	}
+}
@@ -0,0 +1,132 @@
+package write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Every byte written comes back out of the file, including after a run that failed is resumed from its last checkpoint.
+ */
+public class ExportOutputStreamTest {
+
+	private File directory;
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("exports").toFile();
+		file = new File(directory, "ResourceHours.csv.gz");
+	}
+
+	@After
+	public void tearDown() {
+		for(File written : directory.listFiles()) {
+			written.delete();
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void compressedFileHoldsEveryRow() throws Exception {
+		// Several times the blocks in flight, so the writer waits on the compressor
+		byte [] rows = rows(0, 100000);
+		ExportOutputStream out = new ExportOutputStream(file, CompressionCodec.GZIP);
+		for(int offset = 0; offset < rows.length; offset += 1000) {
+			out.write(rows, offset, Math.min(1000, rows.length - offset));
+		}
+		out.close();
+		assertEquals(rows.length, out.getBytesWritten());
+		assertTrue(file.length() < rows.length);
+		assertEquals(new String(rows, "UTF-8"), read(file, CompressionCodec.GZIP));
+	}
+
+	@Test
+	public void resumedGzipDiscardsRowsAfterTheCheckpoint() throws Exception {
+		resumeDiscardsRowsAfterTheCheckpoint(CompressionCodec.GZIP);
+	}
+
+	@Test
+	public void resumedPlainFileDiscardsRowsAfterTheCheckpoint() throws Exception {
+		resumeDiscardsRowsAfterTheCheckpoint(CompressionCodec.NONE);
+	}
+
+	@Test
+	public void compressionFailureIsThrownToTheWriter() throws Exception {
+		CompressionCodec failing = new CompressionCodec() {
+			public String getName() {
+				return "failing";
+			}
+			public String getExtension() {
+				return "";
+			}
+			public OutputStream compress(OutputStream out) {
+				return new FilterOutputStream(out) {
+					@Override
+					public void write(byte [] b, int off, int len) throws IOException {
+						throw new IOException("Disk full");
+					}
+				};
+			}
+			public InputStream decompress(InputStream in) {
+				return in;
+			}
+		};
+		byte [] rows = rows(0, 100000);
+		try {
+			ExportOutputStream out = new ExportOutputStream(file, failing);
+			out.write(rows, 0, rows.length);
+			out.close();
+			fail("Failure not thrown");
+		} catch (IOException e) {
+			assertEquals("Disk full", e.getMessage());
+		}
+	}
+
+	private void resumeDiscardsRowsAfterTheCheckpoint(CompressionCodec codec) throws Exception {
+		ExportOutputStream out = new ExportOutputStream(file, codec);
+		out.write(rows(0, 1000));
+		long position = out.checkpoint();
+		// Written by the failed run after its last checkpoint, and read again by the next
+		out.write(rows(1000, 1500));
+		out.close();
+		assertTrue(file.length() > position);
+
+		try (ExportOutputStream resumed = new ExportOutputStream(file, codec, position)) {
+			resumed.write(rows(1000, 2000));
+		}
+		assertEquals(new String(rows(0, 2000), "UTF-8"), read(file, codec));
+	}
+
+	private static byte [] rows(int from, int to) throws Exception {
+		StringBuilder rows = new StringBuilder();
+		for(int row = from; row < to; row++) {
+			rows.append('"').append(row).append("\",\"Approved\",\"").append(row % 40).append(".5\"\n");
+		}
+		return rows.toString().getBytes("UTF-8");
+	}
+
+	private static String read(File file, CompressionCodec codec) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (InputStream in = codec.decompress(new FileInputStream(file))) {
+			byte [] buffer = new byte [8192];
+			int read;
+			while((read = in.read(buffer)) > 0) {
+				bytes.write(buffer, 0, read);
+			}
+		}
+		return bytes.toString("UTF-8");
+	}
+}
@@ -0,0 +1,30 @@
+package write;
+
+import static org.junit.Assert.assertEquals;
+
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.junit.Test;
+
+/**
+ * A read's mark is taken from before it started, in the server's time, so records updated while it ran are read again next time.
+ */
+public class WatermarkStoreTest {
+
+	@Test
+	public void markIsTheStartLessTheMarginInTheServersZone() throws Exception {
+		// Read started 2024-03-01 12:00:00 UTC, the server's dates are UTC+2
+		long started = DatatypeFactory.newInstance().newXMLGregorianCalendar("2024-03-01T12:00:00Z").toGregorianCalendar().getTimeInMillis();
+		XMLGregorianCalendar latest = DatatypeFactory.newInstance().newXMLGregorianCalendar("2024-03-01T14:30:00+02:00");
+		assertEquals("2024-03-01 13:50:00", WatermarkStore.startOf(started, latest));
+	}
+
+	@Test
+	public void markIsNeverAfterTheLatestRecord() throws Exception {
+		long started = DatatypeFactory.newInstance().newXMLGregorianCalendar("2024-03-01T12:00:00Z").toGregorianCalendar().getTimeInMillis();
+		// Nothing was updated in the hours before the read
+		XMLGregorianCalendar latest = DatatypeFactory.newInstance().newXMLGregorianCalendar("2024-03-01T09:15:30+02:00");
+		assertEquals("2024-03-01 09:15:30", WatermarkStore.startOf(started, latest));
+	}
+}